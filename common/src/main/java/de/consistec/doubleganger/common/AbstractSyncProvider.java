@@ -131,6 +131,7 @@ public abstract class AbstractSyncProvider {
      */
     protected final void closeConnection(IDatabaseAdapter adapter) {
         if (adapter != null) {
+            adapter.clearStatementCache();
             try {
                 adapter.getConnection().close();
             } catch (SQLException ex) {
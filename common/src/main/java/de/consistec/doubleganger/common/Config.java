@@ -25,6 +25,20 @@ package de.consistec.doubleganger.common;
 import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_CONFLICT_STRATEGY;
 import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_HASH_ALGORITHM;
 import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_IS_SQL_TRIGGER_ACTIVATED;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_HASH_ROWS_IN_DATABASE;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_MD_BATCH_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_PARALLEL_TABLE_SYNC;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_PARALLEL_TABLE_SYNC_THREADS;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_FINGERPRINT_BUCKET_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_FINGERPRINT_FAN_OUT;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_SERVER_SCAN_MAX_AGE;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_COLUMN_DELTA;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_COMPRESSION_LEVEL;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_COMPRESSION_THRESHOLD;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_WATERMARK_OVERLAP;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_PAGE_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_SNAPSHOT_INTERVAL;
 import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_MD_TABLE_SUFFIX;
 import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_NR_APPLY_CHANGES_ON_TRANS_ERR;
 import static de.consistec.doubleganger.common.ConfigConstants.DEFAULT_NR_GET_CHANGES_ON_TRANS_ERR;
@@ -36,6 +50,20 @@ import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_CO
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_HASH_ALGORITHM;
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_IS_SQL_TRIGGER_ON_CLIENT_ACTIVATED;
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_IS_SQL_TRIGGER_ON_SERVER_ACTIVATED;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_HASH_ROWS_IN_DATABASE;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_MD_BATCH_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_PARALLEL_TABLE_SYNC;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_PARALLEL_TABLE_SYNC_THREADS;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_FINGERPRINT_BUCKET_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_FINGERPRINT_FAN_OUT;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_SERVER_SCAN_MAX_AGE;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_SNAPSHOT_DIRECTORY;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_PAGE_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_COLUMN_DELTA;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_COMPRESSION_LEVEL;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_COMPRESSION_THRESHOLD;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_MAX_DECOMPRESSED_REQUEST_SIZE;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_SNAPSHOT_INTERVAL;
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_MD_TABLE_SUFFIX;
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_NR_OF_APPLY_CHANGES_TRIES_ON_TRANS_ERROR;
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_NR_OF_GET_CHANGES_TRIES_ON_TRANS_ERROR;
@@ -46,7 +74,10 @@ import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_SE
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_SER_PROXY_GROUP;
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_SYNC_DIRECTION;
 import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_SYNC_TABLES;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_WATERMARK_COLUMNS;
+import static de.consistec.doubleganger.common.ConfigConstants.OPTIONS_COMMON_WATERMARK_OVERLAP;
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newSyncMap;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newSyncSet;
 import static de.consistec.doubleganger.common.util.Preconditions.checkNotNull;
 
@@ -62,9 +93,12 @@ import de.consistec.doubleganger.common.util.StringUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import org.slf4j.cal10n.LocLogger;
@@ -102,6 +136,22 @@ public final class Config {
     private SyncDirection globalSyncDirection;
     private int syncRetryNumber;
     private String hashAlgorithm;
+    private int mdBatchSize = DEFAULT_MD_BATCH_SIZE;
+    private boolean rowHashingInDatabaseActivated = DEFAULT_HASH_ROWS_IN_DATABASE;
+    private boolean parallelTableSyncActivated = DEFAULT_PARALLEL_TABLE_SYNC;
+    private int parallelTableSyncThreads = DEFAULT_PARALLEL_TABLE_SYNC_THREADS;
+    private long serverScanMaxAge = DEFAULT_SERVER_SCAN_MAX_AGE;
+    private int fingerprintBucketSize = DEFAULT_FINGERPRINT_BUCKET_SIZE;
+    private int fingerprintFanOut = DEFAULT_FINGERPRINT_FAN_OUT;
+    private String snapshotDirectory;
+    private int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private boolean columnDeltaActivated = DEFAULT_COLUMN_DELTA;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private long maxDecompressedRequestSize = DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private Map<String, String> watermarkColumns = newSyncMap();
+    private long watermarkOverlap = DEFAULT_WATERMARK_OVERLAP;
 
     /**
      * It's singleton so no direct instance creation allowed.
@@ -394,6 +444,331 @@ public final class Config {
         this.retryNumberOfApplyChangesOnTransactionError = retryNumberOfApplyChangesOnTransactionError;
     }
 
+    /**
+     * Returns the number of md rows which are written in one jdbc batch during the server table synchronization.
+     *
+     * @return batch size
+     */
+    public int getMdBatchSize() {
+        return mdBatchSize;
+    }
+
+    /**
+     * Sets the number of md rows which are written in one jdbc batch.
+     *
+     * @param mdBatchSize batch size
+     * @see #getMdBatchSize()
+     */
+    public void setMdBatchSize(int mdBatchSize) {
+        this.mdBatchSize = mdBatchSize;
+    }
+
+    /**
+     * Returns true if the server database adapter may compute the row hashes in the database
+     * when searching for changes without triggers.
+     * <p/>
+     * The adapter still falls back to hashing in java if it can't produce equal hashes for a table.
+     *
+     * @return true if row hashing in the database is allowed
+     */
+    public boolean isRowHashingInDatabaseActivated() {
+        return rowHashingInDatabaseActivated;
+    }
+
+    /**
+     * @param active true to allow row hashing in the database
+     * @see #isRowHashingInDatabaseActivated()
+     */
+    public void setRowHashingInDatabaseActivated(boolean active) {
+        this.rowHashingInDatabaseActivated = active;
+    }
+
+    /**
+     * Returns true if the server scans and enumerates the sync tables in parallel when the client requests
+     * the server changes.
+     * <p/>
+     * Every table is processed by its own worker thread with its own database connection.
+     *
+     * @return true if the tables are processed in parallel
+     */
+    public boolean isParallelTableSyncActivated() {
+        return parallelTableSyncActivated;
+    }
+
+    /**
+     * @param active true to process the sync tables in parallel
+     * @see #isParallelTableSyncActivated()
+     */
+    public void setParallelTableSyncActivated(boolean active) {
+        this.parallelTableSyncActivated = active;
+    }
+
+    /**
+     * Returns the maximum number of worker threads (and therefore additional database connections)
+     * used to process the sync tables in parallel.
+     * <p/>
+     * The worker pool is created on first use, later changes of this value have no effect.
+     *
+     * @return number of worker threads
+     */
+    public int getParallelTableSyncThreads() {
+        return parallelTableSyncThreads;
+    }
+
+    /**
+     * @param threads number of worker threads
+     * @see #getParallelTableSyncThreads()
+     */
+    public void setParallelTableSyncThreads(int threads) {
+        this.parallelTableSyncThreads = threads;
+    }
+
+    /**
+     * Returns how many milliseconds the result of a server scan is reused if no application write was announced
+     * with {@link de.consistec.doubleganger.common.server.ServerScanCoordinator#notifyTablesChanged()}.
+     * <p/>
+     * With 0 every request which doesn't find a running scan starts a new one.
+     *
+     * @return maximum age of a server scan in milliseconds
+     */
+    public long getServerScanMaxAge() {
+        return serverScanMaxAge;
+    }
+
+    /**
+     * @param maxAge maximum age of a server scan in milliseconds
+     * @see #getServerScanMaxAge()
+     */
+    public void setServerScanMaxAge(long maxAge) {
+        this.serverScanMaxAge = maxAge;
+    }
+
+    /**
+     * Returns how many rows the server puts in one leaf of a table fingerprint.
+     * <p/>
+     * Smaller buckets make the repair of a divergent table cheaper, but the fingerprint needs more levels.
+     *
+     * @return number of rows per fingerprint leaf
+     */
+    public int getFingerprintBucketSize() {
+        return fingerprintBucketSize;
+    }
+
+    /**
+     * @param bucketSize number of rows per fingerprint leaf
+     * @see #getFingerprintBucketSize()
+     */
+    public void setFingerprintBucketSize(int bucketSize) {
+        this.fingerprintBucketSize = bucketSize;
+    }
+
+    /**
+     * Returns how many children a node of a table fingerprint has at most.
+     *
+     * @return fan out of the fingerprint tree
+     */
+    public int getFingerprintFanOut() {
+        return fingerprintFanOut;
+    }
+
+    /**
+     * @param fanOut fan out of the fingerprint tree
+     * @see #getFingerprintFanOut()
+     */
+    public void setFingerprintFanOut(int fanOut) {
+        this.fingerprintFanOut = fanOut;
+    }
+
+    /**
+     * Returns the directory in which the http server keeps prebuilt snapshots of all server changes.
+     * <p/>
+     * New clients download the newest snapshot instead of letting the server enumerate all tables.
+     * With {@code null} or an empty value no snapshots are built.
+     *
+     * @return snapshot directory or {@code null}
+     */
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    /**
+     * @param directory snapshot directory or {@code null} to disable snapshots
+     * @see #getSnapshotDirectory()
+     */
+    public void setSnapshotDirectory(String directory) {
+        this.snapshotDirectory = directory;
+    }
+
+    /**
+     * Returns after how many new server revisions a new snapshot is built.
+     *
+     * @return number of revisions between two snapshots
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * @param interval number of revisions between two snapshots
+     * @see #getSnapshotInterval()
+     */
+    public void setSnapshotInterval(int interval) {
+        this.snapshotInterval = interval;
+    }
+
+    /**
+     * Returns the maximal number of server changes the client requests at once.
+     * <p/>
+     * With a positive page size the client applies the server changes page by page, each page in its own
+     * transaction, and resumes an interrupted synchronization with the last applied page.
+     *
+     * @return number of changes per page or 0 to request all changes at once
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @param pageSize number of changes per page or 0 to request all changes at once
+     * @see #getPageSize()
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Returns true if the client sends its modified rows as column deltas.
+     * <p/>
+     * A modified row whose last synchronized version is known to the client is sent with the changed columns only,
+     * together with the hash of that version. The server updates the changed columns if its row still matches the
+     * hash, otherwise the client sends the full rows again.
+     *
+     * @return true if modified rows are sent as column deltas
+     */
+    public boolean isColumnDeltaActivated() {
+        return columnDeltaActivated;
+    }
+
+    /**
+     * @param active true to send modified rows as column deltas
+     * @see #isColumnDeltaActivated()
+     */
+    public void setColumnDeltaActivated(boolean active) {
+        this.columnDeltaActivated = active;
+    }
+
+    /**
+     * Returns the minimal size in bytes of a http request or response body which is compressed.
+     * <p/>
+     * Client and server agree on the content encoding (gzip or deflate) with the {@code Accept-Encoding} header.
+     * Smaller bodies are sent as they are, a negative threshold disables the compression.
+     *
+     * @return minimal size of a compressed body or a negative value
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @param threshold minimal size of a compressed body or a negative value to disable compression
+     * @see #getCompressionThreshold()
+     */
+    public void setCompressionThreshold(int threshold) {
+        this.compressionThreshold = threshold;
+    }
+
+    /**
+     * Returns the level of the http compression.
+     * <p/>
+     * Levels range from 1 (fastest) to 9 (smallest), -1 is the default level of zlib. The level only affects the
+     * sender, every level is decoded by the same gzip or deflate decoder.
+     *
+     * @return compression level
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @param level compression level from 1 to 9 or -1
+     * @see #getCompressionLevel()
+     */
+    public void setCompressionLevel(int level) {
+        this.compressionLevel = level;
+    }
+
+    /**
+     * Returns the maximal size of a decompressed http request body.
+     * <p/>
+     * A small compressed body can decompress to any size, so the server rejects bodies which exceed this size
+     * while they are decompressed.
+     *
+     * @return maximal size in bytes
+     */
+    public long getMaxDecompressedRequestSize() {
+        return maxDecompressedRequestSize;
+    }
+
+    /**
+     * @param size maximal size in bytes of a decompressed request body
+     * @see #getMaxDecompressedRequestSize()
+     */
+    public void setMaxDecompressedRequestSize(long size) {
+        this.maxDecompressedRequestSize = size;
+    }
+
+    /**
+     * Returns the watermark column of the given table.
+     * <p/>
+     * If a table has a watermark column (e.g. a last modification timestamp or row version maintained by the
+     * application), only rows whose watermark is not older than the one of the last scan are hashed when searching
+     * for changes without triggers.
+     *
+     * @param table table name
+     * @return name of the watermark column or {@code null} if the table is always scanned completely
+     */
+    public String getWatermarkColumn(String table) {
+        return watermarkColumns.get(table);
+    }
+
+    /**
+     * Sets the watermark column of the given table.
+     *
+     * @param table table name
+     * @param column name of the watermark column, {@code null} to scan the table completely
+     * @see #getWatermarkColumn(String)
+     */
+    public void setWatermarkColumn(String table, String column) {
+        if (column == null) {
+            watermarkColumns.remove(table);
+        } else {
+            watermarkColumns.put(table, column);
+        }
+    }
+
+    /**
+     * Returns how far a scan reaches below the watermark of the last scan.
+     * <p/>
+     * The watermark of a row is set when it is written, not when it is committed. A transaction which commits
+     * after a scan can therefore leave a watermark below the one stored by that scan. Rows within the overlap are
+     * hashed again, unchanged rows don't get a new revision. The overlap is given in milliseconds for date and time
+     * columns and as value for numeric columns (e.g. row versions).
+     *
+     * @return overlap of watermark scans
+     * @see #getWatermarkColumn(String)
+     */
+    public long getWatermarkOverlap() {
+        return watermarkOverlap;
+    }
+
+    /**
+     * @param overlap overlap of watermark scans, 0 to scan from the watermark of the last scan
+     * @see #getWatermarkOverlap()
+     */
+    public void setWatermarkOverlap(long overlap) {
+        this.watermarkOverlap = overlap;
+    }
+
     /**
      * Returns suffix for hash tables.
      *
@@ -503,6 +878,41 @@ public final class Config {
             OPTIONS_COMMON_MD_TABLE_SUFFIX, false));
         LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_MD_TABLE_SUFFIX, mdTableSuffix);
 
+        mdBatchSize = PropertiesUtil.defaultIfNull(DEFAULT_MD_BATCH_SIZE, PropertiesUtil.readNumber(props,
+            OPTIONS_COMMON_MD_BATCH_SIZE, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_MD_BATCH_SIZE, mdBatchSize);
+
+        rowHashingInDatabaseActivated = PropertiesUtil.defaultIfNull(DEFAULT_HASH_ROWS_IN_DATABASE,
+            PropertiesUtil.readBoolean(props, OPTIONS_COMMON_HASH_ROWS_IN_DATABASE, false));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_HASH_ROWS_IN_DATABASE, rowHashingInDatabaseActivated);
+
+        parallelTableSyncActivated = PropertiesUtil.defaultIfNull(DEFAULT_PARALLEL_TABLE_SYNC,
+            PropertiesUtil.readBoolean(props, OPTIONS_COMMON_PARALLEL_TABLE_SYNC, false));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_PARALLEL_TABLE_SYNC, parallelTableSyncActivated);
+
+        parallelTableSyncThreads = PropertiesUtil.defaultIfNull(DEFAULT_PARALLEL_TABLE_SYNC_THREADS,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_PARALLEL_TABLE_SYNC_THREADS, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_PARALLEL_TABLE_SYNC_THREADS, parallelTableSyncThreads);
+
+        serverScanMaxAge = PropertiesUtil.defaultIfNull(DEFAULT_SERVER_SCAN_MAX_AGE,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_SERVER_SCAN_MAX_AGE, false, Long.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_SERVER_SCAN_MAX_AGE, serverScanMaxAge);
+
+        fingerprintBucketSize = PropertiesUtil.defaultIfNull(DEFAULT_FINGERPRINT_BUCKET_SIZE,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_FINGERPRINT_BUCKET_SIZE, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_FINGERPRINT_BUCKET_SIZE, fingerprintBucketSize);
+
+        fingerprintFanOut = PropertiesUtil.defaultIfNull(DEFAULT_FINGERPRINT_FAN_OUT,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_FINGERPRINT_FAN_OUT, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_FINGERPRINT_FAN_OUT, fingerprintFanOut);
+
+        snapshotDirectory = PropertiesUtil.readString(props, OPTIONS_COMMON_SNAPSHOT_DIRECTORY, false);
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_SNAPSHOT_DIRECTORY, snapshotDirectory);
+
+        snapshotInterval = PropertiesUtil.defaultIfNull(DEFAULT_SNAPSHOT_INTERVAL,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_SNAPSHOT_INTERVAL, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_SNAPSHOT_INTERVAL, snapshotInterval);
+
         retryNumberOfApplyChangesOnTransactionError = PropertiesUtil.defaultIfNull(
             DEFAULT_NR_APPLY_CHANGES_ON_TRANS_ERR,
             PropertiesUtil.readNumber(props, OPTIONS_COMMON_NR_OF_APPLY_CHANGES_TRIES_ON_TRANS_ERROR,
@@ -550,6 +960,46 @@ public final class Config {
             OPTIONS_COMMON_NR_OF_SYNC_TRIES_ON_TRANS_ERROR, false,
             Integer.class));
         LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_NR_OF_SYNC_TRIES_ON_TRANS_ERROR, syncRetryNumber);
+
+        pageSize = PropertiesUtil.defaultIfNull(DEFAULT_PAGE_SIZE, PropertiesUtil.readNumber(props,
+            OPTIONS_COMMON_PAGE_SIZE, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_PAGE_SIZE, pageSize);
+
+        columnDeltaActivated = PropertiesUtil.defaultIfNull(DEFAULT_COLUMN_DELTA,
+            PropertiesUtil.readBoolean(props, OPTIONS_COMMON_COLUMN_DELTA, false));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_COLUMN_DELTA, columnDeltaActivated);
+
+        compressionThreshold = PropertiesUtil.defaultIfNull(DEFAULT_COMPRESSION_THRESHOLD,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_COMPRESSION_THRESHOLD, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_COMPRESSION_THRESHOLD, compressionThreshold);
+
+        compressionLevel = PropertiesUtil.defaultIfNull(DEFAULT_COMPRESSION_LEVEL,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_COMPRESSION_LEVEL, false, Integer.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_COMPRESSION_LEVEL, compressionLevel);
+
+        maxDecompressedRequestSize = PropertiesUtil.defaultIfNull(DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_MAX_DECOMPRESSED_REQUEST_SIZE, false, Long.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_MAX_DECOMPRESSED_REQUEST_SIZE,
+            maxDecompressedRequestSize);
+
+        try {
+            Collection<String> entries = PropertiesUtil.readCollection(props, OPTIONS_COMMON_WATERMARK_COLUMNS, false,
+                ArrayList.class);
+            watermarkColumns = newSyncMap();
+            if (entries != null) {
+                for (String entry : entries) {
+                    String[] tableAndColumn = entry.split(":");
+                    watermarkColumns.put(tableAndColumn[0].trim(), tableAndColumn[1].trim());
+                }
+            }
+            LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_WATERMARK_COLUMNS, watermarkColumns);
+        } catch (Exception ex) {
+            throw new ConfigException(read(Errors.CONFIG_CANT_LOAD_OPTION, OPTIONS_COMMON_WATERMARK_COLUMNS), ex);
+        }
+
+        watermarkOverlap = PropertiesUtil.defaultIfNull(DEFAULT_WATERMARK_OVERLAP,
+            PropertiesUtil.readNumber(props, OPTIONS_COMMON_WATERMARK_OVERLAP, false, Long.class));
+        LOGGER.info(Infos.CONFIG_OPTION_LOADED, OPTIONS_COMMON_WATERMARK_OVERLAP, watermarkOverlap);
     }
 
     /**
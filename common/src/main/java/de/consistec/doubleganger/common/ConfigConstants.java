@@ -78,6 +78,76 @@ public final class ConfigConstants {
      * Value: {@value}
      */
     public static final String DEFAULT_HASH_ALGORITHM = "MD5";
+    /**
+     * Default number of md rows written in one jdbc batch.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_MD_BATCH_SIZE = 1000;
+    /**
+     * Default value for hashing the rows of server tables in the database.<br/>
+     * Value: {@value}
+     */
+    public static final boolean DEFAULT_HASH_ROWS_IN_DATABASE = true;
+    /**
+     * Default value for scanning the server tables in parallel.<br/>
+     * Value: {@value}
+     */
+    public static final boolean DEFAULT_PARALLEL_TABLE_SYNC = false;
+    /**
+     * Default number of threads scanning the server tables in parallel.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_PARALLEL_TABLE_SYNC_THREADS = 4;
+    /**
+     * Default maximum age of a server scan in milliseconds.<br/>
+     * Value: {@value}
+     */
+    public static final long DEFAULT_SERVER_SCAN_MAX_AGE = 0L;
+    /**
+     * Default number of rows in a leaf of a table fingerprint.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_FINGERPRINT_BUCKET_SIZE = 1000;
+    /**
+     * Default number of children of a table fingerprint node.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_FINGERPRINT_FAN_OUT = 16;
+    /**
+     * Default number of server revisions between two prebuilt snapshots.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1000;
+    /**
+     * Default maximal number of server changes the client requests at once, 0 requests all changes at once.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_PAGE_SIZE = 0;
+    /**
+     * Default value for sending modified client rows as column deltas.<br/>
+     * Value: {@value}
+     */
+    public static final boolean DEFAULT_COLUMN_DELTA = false;
+    /**
+     * Default minimal size in bytes of a compressed http request or response body.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    /**
+     * Default level of http compression, the default level of zlib.<br/>
+     * Value: {@value}
+     */
+    public static final int DEFAULT_COMPRESSION_LEVEL = -1;
+    /**
+     * Default overlap of watermark scans, one minute for date and time columns.<br/>
+     * Value: {@value}
+     */
+    public static final long DEFAULT_WATERMARK_OVERLAP = 60000;
+    /**
+     * Default maximal size in bytes of a decompressed http request body, 64 MB.<br/>
+     * Value: {@value}
+     */
+    public static final long DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE = 67108864;
     /**
      * Key prefix for common options.
      * <p/>
@@ -166,6 +236,106 @@ public final class ConfigConstants {
      * Value: {@value}
      */
     public static final String OPTIONS_COMMON_MD_TABLE_SUFFIX = OPTIONS_COMMON_PREFIX + ".md_table_suffix";
+    /**
+     * Key for {@link Config.getMdBatchSize() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_MD_BATCH_SIZE = OPTIONS_SERVER_PREFIX + ".md_batch_size";
+    /**
+     * Key for {@link Config.isRowHashingInDatabaseActivated() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_HASH_ROWS_IN_DATABASE = OPTIONS_SERVER_PREFIX + ".hash_rows_in_database";
+    /**
+     * Key for {@link Config.isParallelTableSyncActivated() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_PARALLEL_TABLE_SYNC = OPTIONS_SERVER_PREFIX + ".parallel_table_sync";
+    /**
+     * Key for {@link Config.getParallelTableSyncThreads() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_PARALLEL_TABLE_SYNC_THREADS = OPTIONS_SERVER_PREFIX
+        + ".parallel_table_sync_threads";
+    /**
+     * Key for {@link Config.getServerScanMaxAge() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_SERVER_SCAN_MAX_AGE = OPTIONS_SERVER_PREFIX + ".scan_max_age";
+    /**
+     * Key for {@link Config.getFingerprintBucketSize() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_FINGERPRINT_BUCKET_SIZE = OPTIONS_SERVER_PREFIX
+        + ".fingerprint_bucket_size";
+    /**
+     * Key for {@link Config.getFingerprintFanOut() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_FINGERPRINT_FAN_OUT = OPTIONS_SERVER_PREFIX + ".fingerprint_fan_out";
+    /**
+     * Key for {@link Config.getSnapshotDirectory() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_SNAPSHOT_DIRECTORY = OPTIONS_SERVER_PREFIX + ".snapshot_directory";
+    /**
+     * Key for {@link Config.getSnapshotInterval() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_SNAPSHOT_INTERVAL = OPTIONS_SERVER_PREFIX + ".snapshot_interval";
+    /**
+     * Key for {@link Config.getPageSize() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_PAGE_SIZE = OPTIONS_CLIENT_PREFIX + ".page_size";
+    /**
+     * Key for {@link Config.isColumnDeltaActivated() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_COLUMN_DELTA = OPTIONS_CLIENT_PREFIX + ".column_delta";
+    /**
+     * Key for {@link Config.getCompressionThreshold() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_COMPRESSION_THRESHOLD = OPTIONS_COMMON_PREFIX + ".compression_threshold";
+    /**
+     * Key for {@link Config.getCompressionLevel() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_COMPRESSION_LEVEL = OPTIONS_COMMON_PREFIX + ".compression_level";
+    /**
+     * Key for {@link Config.getMaxDecompressedRequestSize() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_MAX_DECOMPRESSED_REQUEST_SIZE = OPTIONS_COMMON_PREFIX
+        + ".max_decompressed_request_size";
+    /**
+     * Key for the list of {@link Config.getWatermarkColumn(String) } values.
+     * <p/>
+     * Entries have the form {@code table:column} and are separated by comma.<br/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_WATERMARK_COLUMNS = OPTIONS_COMMON_PREFIX + ".watermark_columns";
+    /**
+     * Key for {@link Config.getWatermarkOverlap() } value.
+     * <p/>
+     * Value: {@value}
+     */
+    public static final String OPTIONS_COMMON_WATERMARK_OVERLAP = OPTIONS_COMMON_PREFIX + ".watermark_overlap";
     /**
      * Key for {@link Config.isSqlTriggerOnServerActivated()} value.
      * <p/>
@@ -0,0 +1,60 @@
+package de.consistec.doubleganger.common;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - IChangeListener.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.exception.SyncException;
+
+/**
+ * The listener interface for receiving a change set one change at a time.
+ * <p/>
+ * Change sets are streamed from the database cursor to the listener (e.g. a serializer writing to the network),
+ * so they never have to be held in memory as a whole. {@link #onRevision(int)} is called before the changes.
+ * It may be called again with a higher revision, if a change set is delivered in several parts, e.g. a prebuilt
+ * snapshot followed by the newer changes. A later change of a row replaces an earlier one.
+ * <p/>
+ * {@link SyncData} implements this interface to collect a streamed change set.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 16:30
+ */
+public interface IChangeListener {
+
+    /**
+     * Receives the revision of the change set.
+     *
+     * @param revision the revision
+     * @throws SyncException if the listener can't process the revision
+     */
+    void onRevision(int revision) throws SyncException;
+
+    /**
+     * Receives the next change.
+     *
+     * @param change the change
+     * @throws SyncException if the listener can't process the change, the stream is aborted
+     */
+    void onChange(Change change) throws SyncException;
+}
@@ -113,6 +113,61 @@ public final class MdTableDefaultValues {
      * Value: {@value}
      */
     public static final String PK_COLUMN_NAME = "pk";
+    /**
+     * Suffix of the table (appended to the md table name) which stores the high-water mark of a watermark column.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String WATERMARK_TABLE_SUFFIX = "_wm";
+    /**
+     * Name of the column in the watermark table containing the high-water mark of the last scan.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String WATERMARK_COLUMN_NAME = "wm";
+    /**
+     * Suffix of the client table (appended to the md table name) which stores the column hashes of the last
+     * synchronized version of each row.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String COLUMN_HASH_TABLE_SUFFIX = "_ch";
+    /**
+     * Name of the column in the column hash table containing the concatenated column hashes of a row.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String COLUMN_HASH_COLUMN_NAME = "ch";
+    /**
+     * Name of the server table which stores the revision counter and the highest revision of each synced table.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String REVISION_TABLE_NAME = "doubleganger_rev";
+    /**
+     * Name of the column in the revision table containing the name of the synced table.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String REVISION_TABLE_KEY_COLUMN_NAME = "tbl";
+    /**
+     * Key of the row in the revision table containing the revision counter of the server.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String REVISION_COUNTER_KEY = "*";
+    /**
+     * Name of the client table which stores the continuation token of an interrupted paged synchronization.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String CHECKPOINT_TABLE_NAME = "doubleganger_checkpoint";
+    /**
+     * Name of the column in the checkpoint table containing the continuation token.
+     * <p>
+     * Value: {@value}
+     */
+    public static final String CHECKPOINT_COLUMN_NAME = "token";
 
     private MdTableDefaultValues() {
         throw new AssertionError("Instance not allowed");
@@ -32,6 +32,7 @@ import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
 import de.consistec.doubleganger.common.client.ClientSyncProvider;
 import de.consistec.doubleganger.common.client.IClientSyncProvider;
 import de.consistec.doubleganger.common.client.SyncAgent;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.ContextException;
 import de.consistec.doubleganger.common.exception.SyncException;
@@ -46,6 +47,7 @@ import de.consistec.doubleganger.common.util.LoggingUtil;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import javax.sql.DataSource;
 import org.slf4j.cal10n.LocLogger;
 
@@ -168,6 +170,7 @@ public final class SyncContext {
             throw new ContextException(read(Errors.COMMON_CANT_INIT_FRAMEWORK), ex);
         } finally {
             if (adapter != null) {
+                adapter.clearStatementCache();
                 try {
                     adapter.getConnection().close();
                 } catch (SQLException ex) {
@@ -229,6 +232,7 @@ public final class SyncContext {
 
         if (clientProvider.hasSchema()) {
             LOGGER.info(Infos.COMMON_SCHEMA_IS_UP_TO_DATE);
+            clientProvider.createMissingMDIndexes();
         } else {
             LOGGER.info(Infos.COMMON_DOWNLOADING_DB_SCHEMA_FROM_SERVER);
             Schema schema = serverProvider.getSchema();
@@ -434,6 +438,7 @@ public final class SyncContext {
             throw new ContextException(read(Errors.COMMON_CANT_INIT_FRAMEWORK), ex);
         } finally {
             if (adapter != null) {
+                adapter.clearStatementCache();
                 try {
                     adapter.getConnection().close();
                 } catch (SQLException ex) {
@@ -561,6 +566,17 @@ public final class SyncContext {
             agent.synchronize();
         }
 
+        /**
+         * Synchronizes and repairs client rows which differ from the server.
+         *
+         * @return number of repaired rows
+         * @throws SyncException
+         * @see SyncAgent#repair()
+         */
+        public int repair() throws SyncException {
+            return agent.repair();
+        }
+
         /**
          * Sets the conflict listener.
          * <p/>
@@ -640,6 +656,33 @@ public final class SyncContext {
             return serverProvider.getChanges(rev);
         }
 
+        /**
+         * Streams the changes from server for the given revision to the listener.
+         *
+         * @param rev Data revision.
+         * @param listener receives the revision and the changes
+         * @return the revision of the change set
+         * @throws SyncException
+         * @see IServerSyncProvider#getChanges(int, IChangeListener)
+         */
+        public int getChanges(int rev, IChangeListener listener) throws SyncException {
+            return serverProvider.getChanges(rev, listener);
+        }
+
+        /**
+         * Get one page of the changes from server for the given revision.
+         *
+         * @param rev Data revision.
+         * @param pageSize the maximal number of changes of the page
+         * @param continuationToken continuation token of the previous page or {@code null} for the first page
+         * @return the page of changes
+         * @throws SyncException
+         * @see IServerSyncProvider#getChanges(int, int, String)
+         */
+        public SyncData getChanges(int rev, int pageSize, String continuationToken) throws SyncException {
+            return serverProvider.getChanges(rev, pageSize, continuationToken);
+        }
+
         /**
          * Get database schema definition from server.
          * <p/>
@@ -661,6 +704,33 @@ public final class SyncContext {
             serverProvider.validate(syncSettings);
         }
 
+        /**
+         * Get nodes of the fingerprint of a table.
+         *
+         * @param table table name
+         * @param parents nodes whose children are requested, or an empty list for the root node
+         * @return the requested nodes
+         * @throws SyncException
+         * @see IServerSyncProvider#getFingerprint(String, List)
+         */
+        public List<FingerprintNode> getFingerprint(String table, List<FingerprintNode> parents) throws
+            SyncException {
+            return serverProvider.getFingerprint(table, parents);
+        }
+
+        /**
+         * Get all rows of a table in the given fingerprint ranges.
+         *
+         * @param table table name
+         * @param ranges the fingerprint ranges
+         * @return rows of the ranges
+         * @throws SyncException
+         * @see IServerSyncProvider#getChangesForRanges(String, List)
+         */
+        public SyncData getChangesForRanges(String table, List<FingerprintNode> ranges) throws SyncException {
+            return serverProvider.getChangesForRanges(table, ranges);
+        }
+
         /**
          * Sets the optional sync strategies for each table to the server.
          *
@@ -748,6 +818,17 @@ public final class SyncContext {
             agent.synchronize();
         }
 
+        /**
+         * Synchronizes and repairs client rows which differ from the server.
+         *
+         * @return number of repaired rows
+         * @throws SyncException
+         * @see SyncAgent#repair()
+         */
+        public int repair() throws SyncException {
+            return agent.repair();
+        }
+
         /**
          * Sets the conflict listener.
          * <p/>
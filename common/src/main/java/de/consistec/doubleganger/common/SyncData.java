@@ -23,23 +23,34 @@ package de.consistec.doubleganger.common;
  * #L%
  */
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
 
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.util.PrimaryKeyComparator;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Container for revision and change set data which were synchronized.
+ * <p/>
+ * As {@link IChangeListener} it collects a streamed change set, a streamed change replaces the collected change of
+ * the same row.
  *
  * @author thorsten
  * @company consistec Engineering and Consulting GmbH
  * @date 22.01.13 16:46
  */
-public class SyncData {
+public class SyncData implements IChangeListener {
 
     private int revision;
     private List<Change> changes;
+    private String continuationToken;
+    // positions of the changes by table and primary key, built by the first streamed change
+    private Map<String, Map<Object, Integer>> positions;
 
     /**
      * Creates a new SyncData (revision 0, no changes).
@@ -58,6 +69,7 @@ public class SyncData {
         this.revision = syncData.getRevision();
         // we have to copy the lists to remove items from it.
         this.changes = newArrayList(syncData.getChanges());
+        this.continuationToken = syncData.getContinuationToken();
     }
 
     /**
@@ -87,6 +99,27 @@ public class SyncData {
         return Collections.unmodifiableList(changes);
     }
 
+    /**
+     * Returns the position after the last change of a page of server changes.
+     * <p/>
+     * It is passed to {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getChanges(int, int, String)}
+     * to request the next page.
+     *
+     * @return the continuation token or {@code null} if no changes follow
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * Sets the position after the last change of a page of server changes.
+     *
+     * @param continuationToken the continuation token or {@code null} if no changes follow
+     */
+    public void setContinuationToken(final String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
     /**
      * Adds a change to synchronize.
      * <p/>
@@ -94,6 +127,7 @@ public class SyncData {
      */
     public void addChange(final Change change) {
         this.changes.add(change);
+        positions = null;
     }
 
     /**
@@ -103,6 +137,56 @@ public class SyncData {
      */
     public void removeChange(final Change change) {
         this.changes.remove(change);
+        positions = null;
+    }
+
+    /**
+     * Sets the revision of the streamed change set.
+     *
+     * @param revision the revision
+     */
+    @Override
+    public void onRevision(int revision) {
+        setRevision(revision);
+    }
+
+    /**
+     * Adds the streamed change or replaces the change of the same row.
+     * <p/>
+     * A change set which is delivered in several parts, e.g. a snapshot followed by the newer changes, contains
+     * the rows which changed after the first part twice.
+     *
+     * @param change the change
+     */
+    @Override
+    public void onChange(Change change) {
+        if (positions == null) {
+            positions = newHashMap();
+            for (int i = 0; i < changes.size(); i++) {
+                MDEntry collected = changes.get(i).getMdEntry();
+                rowPositions(collected).put(collected.getPrimaryKey(), i);
+            }
+        }
+
+        MDEntry mdEntry = change.getMdEntry();
+        Map<Object, Integer> rowPositions = rowPositions(mdEntry);
+        Integer position = rowPositions.get(mdEntry.getPrimaryKey());
+        if (position == null) {
+            rowPositions.put(mdEntry.getPrimaryKey(), changes.size());
+            changes.add(change);
+        } else {
+            changes.set(position, change);
+        }
+    }
+
+    private Map<Object, Integer> rowPositions(MDEntry mdEntry) {
+        Map<Object, Integer> rowPositions = positions.get(mdEntry.getTableName());
+        if (rowPositions == null) {
+            // the same key can arrive as different number types
+            rowPositions = new TreeMap<Object, Integer>(new PrimaryKeyComparator());
+            positions.put(mdEntry.getTableName(), rowPositions);
+        }
+        return rowPositions;
     }
 
     /**
@@ -110,6 +194,7 @@ public class SyncData {
      */
     public void sortChanges() {
         Collections.sort(this.changes, Change.getPrimaryKeyComparator());
+        positions = null;
     }
 
     /**
@@ -138,6 +223,10 @@ public class SyncData {
         if (this.changes != other.changes && (this.changes == null || !this.changes.equals(other.changes))) {
             return false;
         }
+        if (this.continuationToken == null ? other.continuationToken != null
+            : !this.continuationToken.equals(other.continuationToken)) {
+            return false;
+        }
         return true;
     }
 
@@ -146,6 +235,7 @@ public class SyncData {
         int hash = 7;
         hash = 79 * hash + this.revision;
         hash = 79 * hash + (this.changes != null ? this.changes.hashCode() : 0);
+        hash = 79 * hash + (this.continuationToken != null ? this.continuationToken.hashCode() : 0);
         return hash;
     }
 
@@ -22,6 +22,7 @@ package de.consistec.doubleganger.common.adapter;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
+import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.data.schema.Column;
 import de.consistec.doubleganger.common.data.schema.ISQLConverter;
 import de.consistec.doubleganger.common.data.schema.Schema;
@@ -30,7 +31,10 @@ import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapt
 import de.consistec.doubleganger.common.util.HashCalculator;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -112,6 +116,38 @@ public interface IDatabaseAdapter {
     void getChangesForRevision(int revision, String tableName, DatabaseAdapterCallback<ResultSet> callback)
         throws DatabaseAdapterException;
 
+    /**
+     * Return at most {@code maxRows} changes with a revision greater than {@code revision} and not greater than
+     * {@code maxRevision}, ordered by primary key.
+     * <p/>
+     * The result has the same columns as {@link #getChangesForRevision(int, String, DatabaseAdapterCallback)}.
+     *
+     * @param revision The revision to select the changes from then on
+     * @param maxRevision The highest revision to select
+     * @param tableName The table from which to select the changes
+     * @param afterPrimaryKey Only changes with a greater primary key are selected, null to start with the first.
+     * It may be the string form of the key, it is bound with the type of the primary key column.
+     * @param maxRows The maximal number of changes
+     * @param callback The callback with the changes
+     * @throws DatabaseAdapterException
+     */
+    void getChangesForRevisionPage(int revision, int maxRevision, String tableName, Object afterPrimaryKey,
+        int maxRows, DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException;
+
+    /**
+     * Return all md rows joined with their data rows whose primary key is in the given range, ordered by primary key.
+     * <p/>
+     * The result has the same columns as {@link #getChangesForRevision(int, String, DatabaseAdapterCallback)}.
+     *
+     * @param tableName The table from which to select the rows
+     * @param lowerBound The smallest primary key in the range (inclusive) or null for no lower limit
+     * @param upperBound The first primary key after the range (exclusive) or null for no upper limit
+     * @param callback The callback with the rows
+     * @throws DatabaseAdapterException
+     */
+    void getChangesInPrimaryKeyRange(String tableName, Object lowerBound, Object upperBound,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException;
+
     /**
      * Returns a list of rows in the table which have been changed.
      * <p/>
@@ -135,6 +171,20 @@ public interface IDatabaseAdapter {
      */
     int updateRevision(int revision, String tableName, Object primaryKey) throws DatabaseAdapterException;
 
+    /**
+     * Update the revision for several rows.
+     * <p/>
+     * The rows are updated with {@code in (...)} lists of limited size, so a few statements update all of them.
+     *
+     * @param revision The revision to set for the rows.
+     * @param tableName The table name which contains the rows.
+     * @param primaryKeys The primary keys of the rows to update.
+     * @return The update count
+     * @throws DatabaseAdapterException
+     */
+    int updateRevisions(int revision, String tableName, Collection<Object> primaryKeys) throws
+        DatabaseAdapterException;
+
     /**
      * Get row for the given primary key.
      * <p/>
@@ -168,6 +218,115 @@ public interface IDatabaseAdapter {
      */
     void getAllRowsFromTable(String table, DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException;
 
+    /**
+     * Get all rows from the given table ordered by its primary key.
+     * <p/>
+     * The order has to be the same as the order of {@link #getMdRowsOrderedByPk(String, DatabaseAdapterCallback)}
+     * for the same table, so both result sets can be merged in one pass.
+     *
+     * @param table The table to select rows from
+     * @param callback The callback with the ordered rows
+     * @throws DatabaseAdapterException
+     */
+    void getAllRowsFromTableOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException;
+
+    /**
+     * Get all md rows (pk, mdv, rev, f) for the given table ordered by the primary key.
+     * <p/>
+     *
+     * @param table The data table whose md table should be read
+     * @param callback The callback with the ordered md rows
+     * @throws DatabaseAdapterException
+     */
+    void getMdRowsOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException;
+
+    /**
+     * Checks if the database can compute the row hashes of the given table itself.
+     * <p/>
+     * This is only the case if the database produces exactly the same hash values as the
+     * {@link #getHashCalculator() hash calculator} for all column types of the table.
+     *
+     * @param table The table name
+     * @return true if {@link #getRowHashesOrderedByPk(String, DatabaseAdapterCallback)} can be used
+     * @throws DatabaseAdapterException
+     */
+    boolean supportsRowHashing(String table) throws DatabaseAdapterException;
+
+    /**
+     * Get the primary key (column {@code pk}) and the row hash (column {@code mdv}) of all rows
+     * from the given table ordered by the primary key.
+     * <p/>
+     * The hashes are computed by the database, so the data itself isn't transferred.
+     * Should only be called if {@link #supportsRowHashing(String)} returns true.
+     *
+     * @param table The table to select the hashes from
+     * @param callback The callback with the ordered primary keys and hashes
+     * @throws DatabaseAdapterException
+     */
+    void getRowHashesOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException;
+
+    /**
+     * Get all rows from the given table whose watermark is not older than the given watermark.
+     * <p/>
+     * Rows with a watermark equal to the given one are returned too, because they could have been
+     * modified after the last scan within the same watermark value.
+     *
+     * @param table The table to select rows from
+     * @param watermarkColumn The watermark column of the table
+     * @param watermark The high-water mark of the last scan lowered by the
+     * {@link de.consistec.doubleganger.common.Config#getWatermarkOverlap() overlap}, {@code null} to select all rows
+     * @param callback The callback with the selected rows
+     * @throws DatabaseAdapterException
+     */
+    void getRowsChangedAfterWatermark(String table, String watermarkColumn, Object watermark,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException;
+
+    /**
+     * Returns the high-water mark stored after the last scan of the given table.
+     * <p/>
+     *
+     * @param table The data table
+     * @return The stored watermark or {@code null} if the table was never scanned
+     * @throws DatabaseAdapterException
+     */
+    Object getWatermark(String table) throws DatabaseAdapterException;
+
+    /**
+     * Stores the high-water mark of the given table next to its md table.
+     * <p/>
+     * The watermark table is created with the type of the watermark column if it doesn't exist yet.
+     *
+     * @param table The data table
+     * @param watermarkColumn The watermark column of the table
+     * @param watermark The new high-water mark
+     * @throws DatabaseAdapterException
+     */
+    void updateWatermark(String table, String watermarkColumn, Object watermark) throws DatabaseAdapterException;
+
+    /**
+     * Returns the continuation token of the last page of server changes applied on the client.
+     * <p/>
+     * The checkpoint table is created if it doesn't exist yet, so the checkpoint can be updated within the
+     * transaction of a page afterwards.
+     *
+     * @return The stored continuation token or {@code null} if no paged synchronization was interrupted
+     * @throws DatabaseAdapterException
+     */
+    String getCheckpoint() throws DatabaseAdapterException;
+
+    /**
+     * Stores the continuation token of the last page of server changes applied on the client.
+     * <p/>
+     * The checkpoint table has to exist, see {@link #getCheckpoint()}.
+     *
+     * @param continuationToken The new continuation token or {@code null} to delete the checkpoint
+     * @throws DatabaseAdapterException
+     */
+    void updateCheckpoint(String continuationToken) throws DatabaseAdapterException;
+
     /**
      * Returns a schema object for the current database.
      * Schema should consists only from monitored data tables (no md tables);
@@ -220,6 +379,59 @@ public interface IDatabaseAdapter {
      */
     void insertMdRow(int rev, int f, Object pk, String mdv, String tableName) throws DatabaseAdapterException;
 
+    /**
+     * Update several md rows with the same revision and flag in one jdbc batch.
+     * <p/>
+     *
+     * @param rev The new revision
+     * @param f The new flag
+     * @param mdvs The new mdv values mapped by the primary keys to update
+     * @param tableName The table name
+     * @return number of updated rows
+     * @throws DatabaseAdapterException
+     */
+    int updateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Update all md rows which are flagged as changed with one statement.
+     * <p/>
+     * A row is flagged as changed if its flag differs from
+     * {@link de.consistec.doubleganger.common.MdTableDefaultValues#FLAG_PROCESSED FLAG_PROCESSED}.
+     *
+     * @param rev The new revision
+     * @param f The new flag
+     * @param mdv The new mdv
+     * @param tableName The table name
+     * @return number of updated rows
+     * @throws DatabaseAdapterException
+     */
+    int updateFlaggedMdRows(int rev, int f, String mdv, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Checks whether any md row of the table is flagged as changed.
+     * <p/>
+     * Allows to allocate a revision only if {@link #updateFlaggedMdRows(int, int, String, String)} has something
+     * to stamp.
+     *
+     * @param tableName The table name
+     * @return true if at least one md row is flagged
+     * @throws DatabaseAdapterException
+     */
+    boolean hasFlaggedMdRows(String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Insert several md rows with the same revision and flag in one jdbc batch.
+     * <p/>
+     *
+     * @param rev The new revision
+     * @param f The new flag
+     * @param mdvs The mdv values mapped by the primary keys to insert
+     * @param tableName The table name
+     * @return number of inserted rows
+     * @throws DatabaseAdapterException
+     */
+    int insertMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws DatabaseAdapterException;
+
     /**
      * Update a single data row.
      * <p/>
@@ -251,6 +463,278 @@ public interface IDatabaseAdapter {
      */
     void deleteRow(Object primaryKey, String tableName) throws DatabaseAdapterException;
 
+    /**
+     * Insert several data rows in jdbc batches.
+     * <p/>
+     * Consecutive rows with the same columns share one batch.
+     *
+     * @param rows The rows to insert (column names mapped to values)
+     * @param tableName The table name
+     * @return number of inserted rows
+     * @throws DatabaseAdapterException
+     */
+    int insertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Update several data rows in jdbc batches.
+     * <p/>
+     * Consecutive rows with the same columns share one batch.
+     *
+     * @param rows The new row values mapped by the primary keys of the rows
+     * @param tableName The table name
+     * @return number of updated rows
+     * @throws DatabaseAdapterException
+     */
+    int updateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Delete several data rows in one jdbc batch.
+     * <p/>
+     *
+     * @param primaryKeys The primary keys to delete
+     * @param tableName The table name
+     * @return number of deleted rows
+     * @throws DatabaseAdapterException
+     */
+    int deleteRows(Collection<Object> primaryKeys, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Returns whether the database can insert or update a row with a single statement.
+     * <p/>
+     * If not, the insertOrUpdate methods fall back to an update followed by an insert.
+     *
+     * @return true if an upsert statement is used
+     * @throws DatabaseAdapterException
+     */
+    boolean supportsUpsert() throws DatabaseAdapterException;
+
+    /**
+     * Insert the data row or update it if a row with the primary key exists.
+     * <p/>
+     * The primary key column is added to the row values if they don't contain it.
+     *
+     * @param data The row values
+     * @param primaryKey The primary key of the row
+     * @param tableName The table name
+     * @throws DatabaseAdapterException
+     */
+    void insertOrUpdateDataRow(Map<String, Object> data, Object primaryKey, String tableName) throws
+        DatabaseAdapterException;
+
+    /**
+     * Insert or update several data rows in jdbc batches.
+     * <p/>
+     * See {@link #insertOrUpdateDataRow(java.util.Map, java.lang.Object, java.lang.String) }.
+     *
+     * @param rows The row values mapped by the primary keys of the rows
+     * @param tableName The table name
+     * @return number of affected rows as reported by the jdbc driver
+     * @throws DatabaseAdapterException
+     */
+    int insertOrUpdateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws
+        DatabaseAdapterException;
+
+    /**
+     * Delete the data row if it exists.
+     * <p/>
+     * Unlike {@link #deleteRow(java.lang.Object, java.lang.String) } a missing row is not reported.
+     *
+     * @param primaryKey The primary key of the row
+     * @param tableName The table name
+     * @throws DatabaseAdapterException
+     */
+    void deleteRowOrDoNothing(Object primaryKey, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Insert the md row or update it if a md row with the primary key exists.
+     *
+     * @param rev The revision
+     * @param f The flag
+     * @param pk The primary key
+     * @param mdv The hash value of the data row
+     * @param tableName The data table name
+     * @throws DatabaseAdapterException
+     */
+    void insertOrUpdateMdRow(int rev, int f, Object pk, String mdv, String tableName) throws
+        DatabaseAdapterException;
+
+    /**
+     * Insert or update several md rows with the same revision and flag in one jdbc batch.
+     *
+     * @param rev The revision
+     * @param f The flag
+     * @param mdvs The hash values mapped by the primary keys
+     * @param tableName The data table name
+     * @return number of affected rows as reported by the jdbc driver
+     * @throws DatabaseAdapterException
+     */
+    int insertOrUpdateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException;
+
+    /**
+     * Returns true if the table has no rows.
+     *
+     * @param tableName The table name
+     * @return true if the table is empty
+     * @throws DatabaseAdapterException
+     */
+    boolean isTableEmpty(String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Prepares the md table of an empty data table for a bulk load.
+     * <p/>
+     * Drops the indexes of the md table if the database can do this inside of the running transaction,
+     * so they are built once in {@link #finishBulkLoad(java.lang.String) } instead of row by row.
+     *
+     * @param tableName The data table name
+     * @throws DatabaseAdapterException
+     */
+    void prepareBulkLoad(String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Finishes the bulk load started with {@link #prepareBulkLoad(java.lang.String) } and recreates the indexes
+     * of the md table.
+     *
+     * @param tableName The data table name
+     * @throws DatabaseAdapterException
+     */
+    void finishBulkLoad(String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Insert rows into a table without any existence checks, as fast as the database allows.
+     * <p/>
+     * Used to load empty tables, e.g. with multi row inserts or PostgreSQL's {@code COPY}.
+     *
+     * @param rows The row values
+     * @param tableName The table name
+     * @return number of inserted rows
+     * @throws DatabaseAdapterException
+     */
+    int bulkInsertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Insert md rows with the same flag without any existence checks.
+     * <p/>
+     * Primary key, revision and hash value of each row are taken from the md entries.
+     * See {@link #bulkInsertDataRows(java.util.List, java.lang.String) }.
+     *
+     * @param f The flag
+     * @param entries The md entries
+     * @param tableName The data table name
+     * @return number of inserted rows
+     * @throws DatabaseAdapterException
+     */
+    int bulkInsertMdRows(int f, List<MDEntry> entries, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Update existing md rows with the same flag, one jdbc batch per revision.
+     * <p/>
+     * Like {@link #bulkInsertMdRows(int, java.util.List, java.lang.String) } for md rows which the insert triggers
+     * of bulk inserted data rows already created.
+     *
+     * @param f The flag
+     * @param entries The md entries
+     * @param tableName The data table name
+     * @return number of updated rows
+     * @throws DatabaseAdapterException
+     */
+    int bulkUpdateMdRows(int f, List<MDEntry> entries, String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Selects which of the given primary keys exist in the data table.
+     * <p/>
+     * The keys are queried with {@code in (...)} lists of limited size, so the callback may be called more than once.
+     * The result sets contain the primary key column only.
+     *
+     * @param tableName The table name
+     * @param primaryKeys The primary keys to look for
+     * @param callback Callback object
+     * @throws DatabaseAdapterException
+     */
+    void getExistingPrimaryKeys(String tableName, List<Object> primaryKeys, DatabaseAdapterCallback<ResultSet> callback)
+        throws DatabaseAdapterException;
+
+    /**
+     * Selects which of the given primary keys exist in the md table of the data table.
+     * <p/>
+     * See {@link #getExistingPrimaryKeys(String, java.util.List, DatabaseAdapterCallback) }.
+     * The result sets contain the {@code pk} column only.
+     *
+     * @param tableName The name of the data table
+     * @param primaryKeys The primary keys to look for
+     * @param callback Callback object
+     * @throws DatabaseAdapterException
+     */
+    void getExistingMdPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException;
+
+    /**
+     * Selects the md rows of the given primary keys from the md table of the data table.
+     * <p/>
+     * See {@link #getExistingPrimaryKeys(String, java.util.List, DatabaseAdapterCallback) }.
+     * The result sets contain the {@code pk} and {@code mdv} columns.
+     *
+     * @param tableName The name of the data table
+     * @param primaryKeys The primary keys of the md rows
+     * @param callback Callback object
+     * @throws DatabaseAdapterException
+     */
+    void getMdRowsForPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException;
+
+    /**
+     * Selects the rows of the given primary keys from the data table.
+     * <p/>
+     * See {@link #getExistingPrimaryKeys(String, java.util.List, DatabaseAdapterCallback) }.
+     * The result sets contain all columns of the data table.
+     *
+     * @param tableName The table name
+     * @param primaryKeys The primary keys of the rows
+     * @param callback Callback object
+     * @throws DatabaseAdapterException
+     */
+    void getRowsForPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException;
+
+    /**
+     * Creates the client table which stores the column hashes of the last synchronized version of each row of
+     * the given table next to its md table, if it doesn't exist yet.
+     * <p/>
+     * The column hashes are the base of the column deltas, see
+     * {@link de.consistec.doubleganger.common.Config#isColumnDeltaActivated()}.
+     *
+     * @param tableName The name of the data table
+     * @throws DatabaseAdapterException
+     */
+    void createColumnHashTable(String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Selects the stored column hashes of the given primary keys.
+     * <p/>
+     * See {@link #getExistingPrimaryKeys(String, java.util.List, DatabaseAdapterCallback) }.
+     * The result sets contain the {@code pk} and the {@code ch} column, primary keys without stored column hashes
+     * are missing. The callback isn't called if the column hash table doesn't exist.
+     *
+     * @param tableName The name of the data table
+     * @param primaryKeys The primary keys to look for
+     * @param callback Callback object
+     * @throws DatabaseAdapterException
+     */
+    void getColumnHashes(String tableName, List<Object> primaryKeys, DatabaseAdapterCallback<ResultSet> callback)
+        throws DatabaseAdapterException;
+
+    /**
+     * Replaces the stored column hashes of the given primary keys.
+     * <p/>
+     * A {@code null} value, or column hashes too long for the column hash table, delete the stored column hashes
+     * of the primary key. Nothing happens if the column hash table doesn't exist.
+     *
+     * @param tableName The name of the data table
+     * @param columnHashes The column hashes by primary key
+     * @throws DatabaseAdapterException
+     */
+    void updateColumnHashes(String tableName, Map<Object, String> columnHashes) throws DatabaseAdapterException;
+
     /**
      * Get the newest revision value.
      * <p/>
@@ -269,6 +753,41 @@ public interface IDatabaseAdapter {
      */
     int getNextRevision() throws DatabaseAdapterException;
 
+    /**
+     * Advances the revision counter of the server and returns the new revision.
+     * <p/>
+     * Has to be called inside the transaction which writes the md rows with the new revision,
+     * the counter stays locked until this transaction ends. So concurrent transactions, even from other
+     * server instances on the same database, never get the same revision.
+     * Adapters without a revision counter (e.g. on the client) return {@link #getNextRevision()}.
+     *
+     * @return the new revision
+     * @throws DatabaseAdapterException
+     */
+    int allocateRevision() throws DatabaseAdapterException;
+
+    /**
+     * Get the highest revision of the md rows of one table.
+     * <p/>
+     *
+     * @param table The table name
+     * @return the biggest revision number of the table
+     * @throws DatabaseAdapterException
+     */
+    int getTableRevision(String table) throws DatabaseAdapterException;
+
+    /**
+     * Registers the revision as highest revision of the table and of the server, if it is higher than the
+     * registered ones.
+     * <p/>
+     * Has to be called in the transaction which writes the md rows with this revision.
+     *
+     * @param table The table name
+     * @param rev The revision of the written md rows
+     * @throws DatabaseAdapterException
+     */
+    void updateTableRevision(String table, int rev) throws DatabaseAdapterException;
+
     /**
      * Returns the name of the primary key column.
      * <p/>
@@ -289,6 +808,42 @@ public interface IDatabaseAdapter {
      */
     List<String> getColumnNamesFromTable(String tableName) throws DatabaseAdapterException;
 
+    /**
+     * Makes the adapter read the meta data of the table from the database again.
+     * <p/>
+     * Cached column lists don't see columns the application added or dropped since they were read.
+     *
+     * @param tableName The table name
+     * @throws DatabaseAdapterException
+     */
+    void refreshTableMetadata(String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Reads the meta data of the table again if the columns of a scan differ from the cached ones.
+     * <p/>
+     * The server change detection passes the meta data of its <code>select *</code> scan, so the row hashes
+     * cover added columns without emptying the shared meta data cache on every scan.
+     *
+     * @param tableName The table name
+     * @param scannedColumns meta data of a <code>select *</code> result of the table
+     * @return true if the columns changed and the meta data was refreshed
+     * @throws DatabaseAdapterException
+     */
+    boolean refreshTableMetadataIfChanged(String tableName, ResultSetMetaData scannedColumns) throws
+        DatabaseAdapterException;
+
+    /**
+     * Reads the meta data of the table again if its columns differ from the cached ones.
+     * <p/>
+     * Like {@link #refreshTableMetadataIfChanged(String, ResultSetMetaData)} for scans which don't select all
+     * columns, the columns are read from an empty <code>select *</code> result.
+     *
+     * @param tableName The table name
+     * @return true if the columns changed and the meta data was refreshed
+     * @throws DatabaseAdapterException
+     */
+    boolean refreshTableMetadataIfChanged(String tableName) throws DatabaseAdapterException;
+
     /**
      * Apply the given schema to the database.
      * <p/>
@@ -315,6 +870,26 @@ public interface IDatabaseAdapter {
      */
     Connection getConnection();
 
+    /**
+     * Returns a prepared statement for the sql text from the statement cache of the adapter's connection.
+     * <p/>
+     * The statement is prepared on the first request and reused afterwards, so the driver (and database)
+     * parses it only once. The caller must <b>not</b> close the returned statement,
+     * it is closed when it is evicted from the cache or by {@link #clearStatementCache() }.
+     *
+     * @param sql sql text of the statement
+     * @return prepared statement with cleared parameters
+     * @throws DatabaseAdapterException
+     */
+    PreparedStatement prepareCachedStatement(String sql) throws DatabaseAdapterException;
+
+    /**
+     * Closes all cached statements of the adapter's connection.
+     * <p/>
+     * Has to be called before the connection is closed or returned to a pool.
+     */
+    void clearStatementCache();
+
     /**
      * Commits the underling database connection.
      *
@@ -343,4 +918,14 @@ public interface IDatabaseAdapter {
      * @param tableName name of db table which meta data table will be created.
      */
     void createMDTableOnClient(String tableName) throws DatabaseAdapterException;
+
+    /**
+     * Creates the indexes of the meta data table for the passed db table name which don't exist yet.
+     * <p/>
+     * New meta data tables are created with their indexes, this method adds them to meta data tables
+     * of databases created by older versions.
+     *
+     * @param tableName name of db table which meta data table will be indexed.
+     */
+    void createMissingMDIndexes(String tableName) throws DatabaseAdapterException;
 }
@@ -94,6 +94,12 @@ public class DatabaseAdapterConnector {
      * Value: {@value}.
      */
     public static final String PROPS_SCHEMA = "schema";
+    /**
+     * This option specify how many prepared statements the adapter keeps open per connection.
+     * <p/>
+     * Value: {@value}.
+     */
+    public static final String PROPS_STATEMENT_CACHE_SIZE = "statement_cache_size";
 
     private static final Marker FATAL_MARKER = MarkerFactory.getMarker("FATAL");
 
@@ -23,28 +23,43 @@ package de.consistec.doubleganger.common.adapter.impl;
  * #L%
  */
 
+import static de.consistec.doubleganger.common.MdTableDefaultValues.CHECKPOINT_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.CHECKPOINT_TABLE_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.COLUMN_HASH_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.COLUMN_HASH_TABLE_SUFFIX;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_MODIFIED;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_MODIFIED_VALUE;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.REVISION_COUNTER_KEY;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.REVISION_TABLE_KEY_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.REVISION_TABLE_NAME;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.REV_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.WATERMARK_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.WATERMARK_TABLE_SUFFIX;
 import static de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector.PROPS_DRIVER_NAME;
 import static de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector.PROPS_SCHEMA;
+import static de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector.PROPS_STATEMENT_CACHE_SIZE;
 import static de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector.PROPS_SYNC_PASSWORD;
 import static de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector.PROPS_SYNC_USERNAME;
 import static de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector.PROPS_URL;
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
 import static de.consistec.doubleganger.common.util.PropertiesUtil.defaultIfNull;
+import static de.consistec.doubleganger.common.util.PropertiesUtil.readNumber;
 import static de.consistec.doubleganger.common.util.PropertiesUtil.readString;
 
 import de.consistec.doubleganger.common.Config;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.data.schema.Column;
 import de.consistec.doubleganger.common.data.schema.Constraint;
 import de.consistec.doubleganger.common.data.schema.ConstraintType;
 import de.consistec.doubleganger.common.data.schema.CreateSchemaToSQLConverter;
 import de.consistec.doubleganger.common.data.schema.ISQLConverter;
+import de.consistec.doubleganger.common.data.schema.Index;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.data.schema.Table;
 import de.consistec.doubleganger.common.exception.SchemaConverterException;
@@ -61,12 +76,21 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.slf4j.cal10n.LocLogger;
 
 /**
@@ -195,6 +219,17 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
      *      String schema, String table) throws SQLException
      */
     protected static final String PK_NAME = "PK_NAME";
+    /**
+     * Part of a description of table indexes available in a catalog.
+     * <p/>
+     * INDEX_NAME represents the index name.
+     * <p/>
+     * Value: {@value}.
+     * <p/>
+     *
+     * @see java.sql.DatabaseMetaData#getIndexInfo(String, String, String, boolean, boolean)
+     */
+    protected static final String INDEX_NAME = "INDEX_NAME";
     /**
      * MDV_COLUMN_SIZE represents the size of mdv column in meta data table.
      * <p/>
@@ -202,6 +237,23 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
      * <p/>
      */
     protected static final int MDV_COLUMN_SIZE = 500;
+    /**
+     * Default number of prepared statements kept open per connection.
+     * <p/>
+     * Value: {@value}.
+     */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 20;
+    private static final int ROW_HASHING_SAMPLE_SIZE = 10;
+    private static final String ROW_HASH_ALIAS = "doubleganger_row_hash";
+    private static final String UTF_8 = "UTF-8";
+    private static final String SQLITE_TRIGGERS_FILE_PATH = "/sql/sqlite_create_triggers.sql";
+    private static final int REVISION_TABLE_KEY_SIZE = 128;
+    private static final int CHECKPOINT_COLUMN_SIZE = 1000;
+    private static final int COLUMN_HASH_COLUMN_SIZE = 4000;
+    private static final int MAX_IN_LIST_SIZE = 500;
+    private static final Pattern VERSION_PATTERN = Pattern.compile("(\\d+)\\.(\\d+)(?:\\.(\\d+))?");
+    private static final int MAX_STATEMENT_PARAMETERS = 999;
+    private static final int FETCH_SIZE = 1000;
     /**
      * Name of the sync user.
      * <p/>
@@ -251,6 +303,11 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
      * <p/>
      */
     protected HashCalculator hashCalculator; //NOSONAR
+    private Map<String, Boolean> rowHashingSupport = CollectionsUtil.newHashMap();
+    private Boolean revisionTableExists;
+    private TableMetadataCache metadataCache;
+    private StatementCache statementCache;
+    private UpsertDialect upsertDialect;
 
     /**
      * Do not create adapter instances directly!.
@@ -268,6 +325,7 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
      */
     @Override
     public void init(Connection connection) {
+        closeCachedStatements();
         this.connection = connection;
     }
 
@@ -293,6 +351,7 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         username = readString(adapterConfig, PROPS_SYNC_USERNAME, false);
         password = readString(adapterConfig, PROPS_SYNC_PASSWORD, false);
         schemaOfConnection = defaultIfNull(schemaOfConnection, readString(adapterConfig, PROPS_SCHEMA, false));
+        initStatementCache(adapterConfig);
 
         LOGGER.debug("driverName=\"{}\", connectionUrl=\"{}\", username=\"{}\", password=\"{}\"",
             driverName, connectionUrl, username, password);
@@ -304,11 +363,53 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         LOGGER.debug("{} adapter initialized", getClass().getCanonicalName());
     }
 
+    /**
+     * Creates the statement cache with the size given in option
+     * {@value DatabaseAdapterConnector#PROPS_STATEMENT_CACHE_SIZE}.
+     * <p/>
+     * Subclasses with their own {@link #init(java.util.Properties) } method should call it there.
+     * The cache holds at least one statement.
+     *
+     * @param adapterConfig configuration for adapter.
+     */
+    protected void initStatementCache(Properties adapterConfig) {
+        Integer size = readNumber(adapterConfig, PROPS_STATEMENT_CACHE_SIZE, false, Integer.class);
+        closeCachedStatements();
+        statementCache = new StatementCache(Math.max(1, defaultIfNull(DEFAULT_STATEMENT_CACHE_SIZE, size)));
+    }
+
     @Override
     public Connection getConnection() {
         return connection;
     }
 
+    @Override
+    public PreparedStatement prepareCachedStatement(String sql) throws DatabaseAdapterException {
+        return prepareStatement(sql);
+    }
+
+    @Override
+    public void clearStatementCache() {
+        closeCachedStatements();
+    }
+
+    private PreparedStatement prepareStatement(String sql) throws DatabaseAdapterException {
+        if (statementCache == null) {
+            statementCache = new StatementCache(DEFAULT_STATEMENT_CACHE_SIZE);
+        }
+        try {
+            return statementCache.prepare(connection, sql);
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_PREPARE_STATEMENT, sql), e);
+        }
+    }
+
+    private void closeCachedStatements() {
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+    }
+
     @Override
     public HashCalculator getHashCalculator() {
         return this.hashCalculator;
@@ -363,25 +464,120 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
 
     @Override
     public List<String> getColumnNamesFromTable(String tableName) throws DatabaseAdapterException {
-        LOGGER.debug("Reading columns for table {} ", tableName);
+        List<Column> columns = getCachedColumns(tableName);
+        List<String> columnList = CollectionsUtil.newArrayList(columns.size());
+        for (Column column : columns) {
+            columnList.add(column.getName());
+        }
+        return columnList;
+    }
+
+    @Override
+    public void refreshTableMetadata(String tableName) throws DatabaseAdapterException {
+        getMetadataCache().invalidate(tableName);
+        // a new column may have a type the database can't hash like the jvm
+        rowHashingSupport.remove(tableName);
+    }
+
+    @Override
+    public boolean refreshTableMetadataIfChanged(String tableName, ResultSetMetaData scannedColumns) throws
+        DatabaseAdapterException {
+
+        List<String> cachedColumns = getColumnNamesFromTable(tableName);
+        try {
+            boolean changed = cachedColumns.size() != scannedColumns.getColumnCount();
+            for (int i = 0; !changed && i < cachedColumns.size(); i++) {
+                changed = !cachedColumns.get(i).equalsIgnoreCase(scannedColumns.getColumnName(i + 1));
+            }
+            if (changed) {
+                LOGGER.debug("columns of {} changed, reading its meta data again", tableName);
+                refreshTableMetadata(tableName);
+            }
+            return changed;
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_TABLE_COLUMNS, tableName), e);
+        }
+    }
+
+    @Override
+    public boolean refreshTableMetadataIfChanged(String tableName) throws DatabaseAdapterException {
+        // the query reads no rows, only the columns of its result
+        String statement = String.format("select * from %s where 1 = 0", tableName);
+
+        PreparedStatement stat = null;
+        ResultSet rows = null; //NOSONAR
+        try {
+            stat = connection.prepareStatement(statement);
+            rows = stat.executeQuery();
+            return refreshTableMetadataIfChanged(tableName, rows.getMetaData());
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_TABLE_COLUMNS, tableName), e);
+        } finally {
+            closeResultSets(rows);
+            closeStatements(stat);
+        }
+    }
+
+    /**
+     * Returns the columns of the table in the order of the database meta data.
+     * <p/>
+     * The columns are read only once and then served from the {@link #getMetadataCache() meta data cache}.
+     *
+     * @param table table name
+     * @return unmodifiable list of columns
+     * @throws DatabaseAdapterException
+     */
+    private List<Column> getCachedColumns(String table) throws DatabaseAdapterException {
+        TableMetadataCache cache = getMetadataCache();
+        List<Column> columnList = cache.getColumns(table);
+        if (columnList == null) {
+            columnList = readColumns(table);
+            cache.putColumns(table, columnList);
+        }
+        return columnList;
+    }
+
+    private List<Column> readColumns(String table) throws DatabaseAdapterException {
+        LOGGER.debug("Reading columns for table {} ", table);
 
         ResultSet columns = null; //NOSONAR
-        List<String> columnList;
+        List<Column> columnList = CollectionsUtil.newArrayList();
         try {
-            columns = connection.getMetaData().getColumns(connection.getCatalog(), getSchemaOfConnection(),
-                tableName, null);
-            columnList = CollectionsUtil.newArrayList();
+            columns = connection.getMetaData().getColumns(connection.getCatalog(), getSchemaOfConnection(), table,
+                null);
             while (columns.next()) {
-                columnList.add(columns.getString(COLUMN_NAME));
+                columnList.add(new Column(columns.getString(COLUMN_NAME), columns.getInt(DATA_TYPE),
+                    columns.getInt(COLUMN_SIZE), columns.getInt(DECIMAL_DIGITS), columns.getBoolean(NULLABLE)));
             }
         } catch (SQLException e) {
-            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_TABLE_COLUMNS, tableName), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_TABLE_COLUMNS, table), e);
         } finally {
             closeResultSets(columns);
         }
         return columnList;
     }
 
+    /**
+     * Returns the meta data cache of the database the adapter is connected to.
+     * <p/>
+     * All adapter instances connected to the same database (jdbc url, user and schema) share the cache.
+     *
+     * @return the meta data cache
+     * @throws DatabaseAdapterException
+     */
+    protected TableMetadataCache getMetadataCache() throws DatabaseAdapterException {
+        if (metadataCache == null) {
+            try {
+                DatabaseMetaData metaData = connection.getMetaData();
+                metadataCache = TableMetadataCache.forDatabase(String.format("%s|%s|%s", metaData.getURL(),
+                    metaData.getUserName(), getSchemaOfConnection()));
+            } catch (SQLException e) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_DATABASE_METADATA), e);
+            }
+        }
+        return metadataCache;
+    }
+
     @Override
     public void applySchema(Schema schema) throws DatabaseAdapterException {
 
@@ -393,6 +589,7 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
 
             String[] tableScripts = sqlSchema.split(";");
             executeBatch(tableScripts);
+            getMetadataCache().invalidateAll();
         } catch (SchemaConverterException e) {
             throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CONVERT_SCHEMA_TO_SQL), e);
         }
@@ -469,6 +666,16 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
 
     @Override
     public Column getPrimaryKeyColumn(String table) throws DatabaseAdapterException {
+        TableMetadataCache cache = getMetadataCache();
+        Column primaryKey = cache.getPrimaryKeyColumn(table);
+        if (primaryKey == null) {
+            primaryKey = readPrimaryKeyColumn(table);
+            cache.putPrimaryKeyColumn(table, primaryKey);
+        }
+        return primaryKey;
+    }
+
+    private Column readPrimaryKeyColumn(String table) throws DatabaseAdapterException {
         ResultSet primaryKeys = null; //NOSONAR
 
         try {
@@ -538,6 +745,14 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         return rev;
     }
 
+    /**
+     * Returns the revision counter of the server if the revision table exists, otherwise the highest revision
+     * of all md tables.
+     * <p/>
+     *
+     * @return the biggest revision number
+     * @throws DatabaseAdapterException
+     */
     @Override
     public int getLastRevision() throws DatabaseAdapterException {
 
@@ -545,6 +760,12 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         Statement stmt = null; //NOSONAR
         ResultSet rst = null; //NOSONAR
         try {
+            Integer counter = hasRevisionTable() ? getRegisteredRevision(REVISION_COUNTER_KEY) : null;
+            if (counter != null) {
+                LOGGER.debug("current revision is at {}", counter);
+                return counter;
+            }
+
             String mdTable;
             stmt = connection.createStatement();
 
@@ -569,6 +790,111 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         return rev;
     }
 
+    @Override
+    public int allocateRevision() throws DatabaseAdapterException {
+
+        if (!hasRevisionTable()) {
+            return getNextRevision();
+        }
+
+        PreparedStatement stmt = null;
+        try {
+
+            // the update locks the counter row until the transaction ends
+            stmt = connection.prepareStatement(String.format("update %s set %s = %s + 1 where %s = ?",
+                REVISION_TABLE_NAME, REV_COLUMN_NAME, REV_COLUMN_NAME, REVISION_TABLE_KEY_COLUMN_NAME));
+            stmt.setString(1, REVISION_COUNTER_KEY);
+            Integer rev = stmt.executeUpdate() > 0 ? getRegisteredRevision(REVISION_COUNTER_KEY) : null;
+            if (rev == null) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_ALLOCATE_REVISION));
+            }
+
+            LOGGER.debug("allocated revision {}", rev);
+            return rev;
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_ALLOCATE_REVISION), e);
+        } finally {
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public int getTableRevision(String table) throws DatabaseAdapterException {
+        try {
+            Integer rev = hasRevisionTable() ? getRegisteredRevision(table) : null;
+            return rev == null ? getHighestRevisionOfMdTable(table) : rev;
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_TABLE_REVISION, table), e);
+        }
+    }
+
+    @Override
+    public void updateTableRevision(String table, int rev) throws DatabaseAdapterException {
+
+        if (!hasRevisionTable()) {
+            return;
+        }
+
+        LOGGER.debug("updating revision of table {} to {}", table, rev);
+
+        PreparedStatement stmt = null;
+        try {
+
+            stmt = connection.prepareStatement(String.format("update %s set %s = ? where (%s = ? or %s = ?) and %s < ?",
+                REVISION_TABLE_NAME, REV_COLUMN_NAME, REVISION_TABLE_KEY_COLUMN_NAME, REVISION_TABLE_KEY_COLUMN_NAME,
+                REV_COLUMN_NAME));
+            stmt.setInt(1, rev);
+            stmt.setString(2, table);
+            stmt.setString(3, REVISION_COUNTER_KEY); //NOSONAR
+            stmt.setInt(4, rev); //NOSONAR
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_TABLE_REVISION, table), e);
+        } finally {
+            closeStatements(stmt);
+        }
+    }
+
+    /**
+     * Returns true if the server's revision table exists.
+     * <p/>
+     * The result is kept for the lifetime of the adapter, the table is only created on server initialization.
+     */
+    private boolean hasRevisionTable() throws DatabaseAdapterException {
+        if (revisionTableExists == null) {
+            revisionTableExists = getTableNamesFromDatabase().contains(REVISION_TABLE_NAME);
+        }
+        return revisionTableExists;
+    }
+
+    /**
+     * Reads a revision from the revision table, {@code null} if no row with the key exists.
+     */
+    private Integer getRegisteredRevision(String key) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(String.format("select %s from %s where %s = ?",
+            REV_COLUMN_NAME, REVISION_TABLE_NAME, REVISION_TABLE_KEY_COLUMN_NAME));
+        try {
+            stmt.setString(1, key);
+            ResultSet rst = stmt.executeQuery();
+            return rst.next() ? Integer.valueOf(rst.getInt(1)) : null;
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private int getHighestRevisionOfMdTable(String table) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet rst = stmt.executeQuery(String.format("select MAX(%s) from %s", REV_COLUMN_NAME,
+                table + CONF.getMdTableSuffix()));
+            return rst.next() ? rst.getInt(1) : 0;
+        } finally {
+            stmt.close();
+        }
+    }
+
     @Override
     public void updateMdRow(final int rev, final int flag, final Object pk, final String mdv, final String tableName)
         throws DatabaseAdapterException {
@@ -581,10 +907,10 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         statement = String.format("update %s%s SET %s=?, %s=?, %s=? where %s=?", tableName, CONF.getMdTableSuffix(),
             MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME, PK_COLUMN_NAME);
 
-        PreparedStatement updateStatement = null;
+        PreparedStatement updateStatement;
         try {
 
-            updateStatement = connection.prepareStatement(statement);
+            updateStatement = prepareStatement(statement);
 
             if (mdv == null) {
                 updateStatement.setNull(1, Types.VARCHAR);
@@ -600,8 +926,6 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
             }
         } catch (SQLException e) {
             throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_MD_ROW, tableName), e);
-        } finally {
-            closeStatements(updateStatement);
         }
     }
 
@@ -612,11 +936,9 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
 
         LOGGER.debug(String.format("deleting row: %s:%s on table %s", primaryKeyColumnName, primaryKey, tableName));
 
-        PreparedStatement stmt = null;
-
         try {
 
-            stmt = connection.prepareStatement(
+            PreparedStatement stmt = prepareStatement(
                 String.format("delete from %s where %s = ?", tableName, primaryKeyColumnName));
             stmt.setObject(1, primaryKey);
             if (stmt.executeUpdate() <= 0) {
@@ -625,8 +947,6 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
 
         } catch (SQLException e) {
             throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_DELETE_ROW, primaryKey, tableName), e);
-        } finally {
-            closeStatements(stmt);
         }
     }
 
@@ -638,11 +958,9 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
 
         final String statement = String.format("insert into %s (%s,%s,%s,%s) VALUES (?,?,?,?)",
             tableName + CONF.getMdTableSuffix(), PK_COLUMN_NAME, MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME);
-        PreparedStatement insertStatement = null;
-
         try {
 
-            insertStatement = connection.prepareStatement(statement);
+            PreparedStatement insertStatement = prepareStatement(statement);
             insertStatement.setObject(1, pk);
             insertStatement.setString(2, mdv);
             if (rev == -1) {
@@ -659,119 +977,100 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
 
         } catch (SQLException e) {
             throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_MD_ROW, tableName), e);
-        } finally {
-            closeStatements(insertStatement);
         }
     }
 
     @Override
-    public void insertDataRow(final Map<String, Object> data, final String tableName) throws DatabaseAdapterException {
-
-        String statement = "insert into %s (%s) VALUES (%s)";
-        StringBuilder keyString = new StringBuilder();
-        StringBuilder valueString = new StringBuilder();
+    public int updateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
 
-        for (Map.Entry<String, Object> column : data.entrySet()) {
-            if (0 != keyString.length()) {
-                keyString.append(",");
-            }
-            keyString.append(column.getKey());
-            if (0 != valueString.length()) {
-                valueString.append(",");
-            }
-            valueString.append("?");
+        if (mdvs.isEmpty()) {
+            return 0;
         }
 
-        String formattedStatement = String.format(statement, tableName, keyString.toString(), valueString.toString());
-        LOGGER.debug(formattedStatement);
+        LOGGER.debug("updating {} md rows with values: {}:{} {}:{} tablename:{}{}", mdvs.size(), REV_COLUMN_NAME, rev,
+            FLAG_COLUMN_NAME, f, tableName, CONF.getMdTableSuffix());
 
-        PreparedStatement insertStatement = null;
+        final String statement = String.format("update %s%s SET %s=?, %s=?, %s=? where %s=?", tableName,
+            CONF.getMdTableSuffix(), MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME, PK_COLUMN_NAME);
+        PreparedStatement updateStatement = null;
 
         try {
 
-            insertStatement = connection.prepareStatement(formattedStatement); //NOSONAR
-            int i = 1;
-            for (Map.Entry<String, Object> column : data.entrySet()) {
-                insertStatement.setObject(i, column.getValue());
-                i++;
+            updateStatement = connection.prepareStatement(statement);
+            for (Map.Entry<Object, String> entry : mdvs.entrySet()) {
+                if (entry.getValue() == null) {
+                    updateStatement.setNull(1, Types.VARCHAR);
+                } else {
+                    updateStatement.setString(1, entry.getValue());
+                }
+                updateStatement.setInt(2, rev);
+                updateStatement.setInt(3, f); //NOSONAR
+                updateStatement.setObject(4, entry.getKey()); //NOSONAR
+                updateStatement.addBatch();
             }
-            if (insertStatement.executeUpdate() <= 0) {
-                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName));
+
+            int updated = countBatchResults(updateStatement.executeBatch());
+            if (updated < mdvs.size()) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_MD_ROW, tableName));
             }
+            return updated;
+
         } catch (SQLException e) {
-            LOGGER.error(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName), e);
-            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_MD_ROW, tableName), e);
         } finally {
-            closeStatements(insertStatement);
+            closeStatements(updateStatement);
         }
     }
 
     @Override
-    public void updateDataRow(Map<String, Object> data, Object primaryKey, String tableName) throws
-        DatabaseAdapterException {
-
-        String statement = "update %s SET %s where %s = ?";
-        StringBuilder values = new StringBuilder();
-        int count = 1;
-
-        for (Map.Entry<String, Object> column : data.entrySet()) {
-            if (values.length() > 0) {
-                values.append(",");
-            }
-            values.append(column.getKey());
-            values.append("=?");
-            count++;
-        }
-
-        String formattedStatement = String.format(statement, tableName, values.toString(),
-            this.getPrimaryKeyColumn(tableName).getName());
-        LOGGER.debug(formattedStatement);
+    public int updateFlaggedMdRows(int rev, int f, String mdv, String tableName) throws DatabaseAdapterException {
 
-        int i = 1;
+        LOGGER.debug("updating flagged md rows with values: {}:{} {}:{} tablename:{}{}", REV_COLUMN_NAME, rev,
+            FLAG_COLUMN_NAME, f, tableName, CONF.getMdTableSuffix());
 
+        final String statement = String.format("update %s%s SET %s=?, %s=?, %s=? where %s<>?", tableName,
+            CONF.getMdTableSuffix(), MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME, FLAG_COLUMN_NAME);
         PreparedStatement updateStatement = null;
 
         try {
 
-            updateStatement = connection.prepareStatement(formattedStatement); //NOSONAR
-            for (Map.Entry<String, Object> column : data.entrySet()) {
-                updateStatement.setObject(i, column.getValue());
-                i++;
-            }
-
-            updateStatement.setObject(count, primaryKey);
-            if (updateStatement.executeUpdate() <= 0) {
-                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_DATA_ROW, tableName));
+            updateStatement = connection.prepareStatement(statement);
+            if (mdv == null) {
+                updateStatement.setNull(1, Types.VARCHAR);
+            } else {
+                updateStatement.setString(1, mdv);
             }
+            updateStatement.setInt(2, rev);
+            updateStatement.setInt(3, f); //NOSONAR
+            updateStatement.setInt(4, FLAG_PROCESSED); //NOSONAR
+            return updateStatement.executeUpdate();
 
         } catch (SQLException e) {
-            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_DATA_ROW, tableName), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_MD_ROW, tableName), e);
         } finally {
             closeStatements(updateStatement);
         }
     }
 
     @Override
-    public void getChangesForRevision(int rev, String table, DatabaseAdapterCallback<ResultSet> callback) throws
-        DatabaseAdapterException {
-
-        String mdTableName = table + CONF.getMdTableSuffix();
-        final String query = String.format("select * from %s left join %s on %s.%s = %s.%s where %s > ?", mdTableName,
-            table, mdTableName, PK_COLUMN_NAME, table, getPrimaryKeyColumn(table).getName(), REV_COLUMN_NAME);
-
-        LOGGER.debug("reading changes for revision with query: {}", query);
+    public boolean hasFlaggedMdRows(String tableName) throws DatabaseAdapterException {
 
+        final String statement = String.format("select 1 from %s%s where %s<>?", tableName,
+            CONF.getMdTableSuffix(), FLAG_COLUMN_NAME);
         PreparedStatement stmt = null;
         ResultSet rst = null; //NOSONAR
+
         try {
 
-            stmt = connection.prepareStatement(query);
-            stmt.setInt(1, rev);
+            stmt = connection.prepareStatement(statement);
+            stmt.setMaxRows(1);
+            stmt.setInt(1, FLAG_PROCESSED);
             rst = stmt.executeQuery();
-            callback.onSuccess(rst);
+            return rst.next();
 
         } catch (SQLException e) {
-            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_CHANGES_FOR_REVISION, rev, table), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_CHANGES_FOR_FLAG, tableName), e);
         } finally {
             closeResultSets(rst);
             closeStatements(stmt);
@@ -779,24 +1078,1316 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
     }
 
     @Override
-    public void getChanges(String table, DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+    public int insertMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
 
-        String mdTableName = table + CONF.getMdTableSuffix();
-        final String query = String.format("select * from %s left join %s on %s.%s = %s.%s where %s <> 0", mdTableName,
-            table, mdTableName, PK_COLUMN_NAME, table, getPrimaryKeyColumn(table).getName(), FLAG_COLUMN_NAME);
+        if (mdvs.isEmpty()) {
+            return 0;
+        }
 
-        LOGGER.debug("reading changes by flag with query: {}", query);
+        LOGGER.debug("inserting {} md rows with values: {}:{} {}:{} tablename:{}{}", mdvs.size(), REV_COLUMN_NAME,
+            rev, FLAG_COLUMN_NAME, f, tableName, CONF.getMdTableSuffix());
 
-        PreparedStatement stmt = null;
-        ResultSet rst = null; //NOSONAR
-        try {
+        final String statement = String.format("insert into %s (%s,%s,%s,%s) VALUES (?,?,?,?)",
+            tableName + CONF.getMdTableSuffix(), PK_COLUMN_NAME, MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME);
+        PreparedStatement insertStatement = null;
 
-            stmt = connection.prepareStatement(query);
-            rst = stmt.executeQuery();
-            callback.onSuccess(rst);
+        try {
+
+            insertStatement = connection.prepareStatement(statement);
+            for (Map.Entry<Object, String> entry : mdvs.entrySet()) {
+                insertStatement.setObject(1, entry.getKey());
+                insertStatement.setString(2, entry.getValue());
+                if (rev == -1) {
+                    insertStatement.setNull(3, Types.INTEGER); //NOSONAR
+                } else {
+                    insertStatement.setInt(3, rev); //NOSONAR
+                }
+                insertStatement.setInt(4, f); //NOSONAR
+                insertStatement.addBatch();
+            }
+
+            int inserted = countBatchResults(insertStatement.executeBatch());
+            if (inserted < mdvs.size()) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_MD_ROW, tableName));
+            }
+            return inserted;
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_MD_ROW, tableName), e);
+        } finally {
+            closeStatements(insertStatement);
+        }
+    }
+
+    /**
+     * Sums up the update counts returned by {@link Statement#executeBatch()}.
+     * <p/>
+     * Drivers which don't report the count of a batch entry return {@link Statement#SUCCESS_NO_INFO},
+     * such entries are counted as one affected row.
+     *
+     * @param results the update counts of the batch
+     * @return number of affected rows
+     */
+    protected int countBatchResults(int[] results) {
+        int count = 0;
+        for (int result : results) {
+            if (result == Statement.SUCCESS_NO_INFO) {
+                count++;
+            } else if (result > 0) {
+                count += result;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void insertDataRow(final Map<String, Object> data, final String tableName) throws DatabaseAdapterException {
+
+        String formattedStatement = createInsertStatement(data, tableName);
+        LOGGER.debug(formattedStatement);
+
+        try {
+
+            PreparedStatement insertStatement = prepareStatement(formattedStatement);
+            int i = 1;
+            for (Map.Entry<String, Object> column : data.entrySet()) {
+                insertStatement.setObject(i, column.getValue());
+                i++;
+            }
+            if (insertStatement.executeUpdate() <= 0) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName));
+            }
+        } catch (SQLException e) {
+            LOGGER.error(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName), e);
+        }
+    }
+
+    @Override
+    public void updateDataRow(Map<String, Object> data, Object primaryKey, String tableName) throws
+        DatabaseAdapterException {
+
+        String formattedStatement = createUpdateStatement(data, tableName);
+        LOGGER.debug(formattedStatement);
+
+        int count = data.size() + 1;
+        int i = 1;
+
+        try {
+
+            PreparedStatement updateStatement = prepareStatement(formattedStatement);
+            for (Map.Entry<String, Object> column : data.entrySet()) {
+                updateStatement.setObject(i, column.getValue());
+                i++;
+            }
+
+            updateStatement.setObject(count, primaryKey);
+            if (updateStatement.executeUpdate() <= 0) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_DATA_ROW, tableName));
+            }
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_DATA_ROW, tableName), e);
+        }
+    }
+
+    @Override
+    public int insertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException {
+
+        LOGGER.debug("inserting {} rows into table {}", rows.size(), tableName);
+
+        PreparedStatement insertStatement = null;
+        String currentStatement = null;
+        int inserted = 0;
+
+        try {
+            for (Map<String, Object> row : rows) {
+                String formattedStatement = createInsertStatement(row, tableName);
+                if (!formattedStatement.equals(currentStatement)) {
+                    inserted += executePendingBatch(insertStatement);
+                    insertStatement = prepareStatement(formattedStatement);
+                    currentStatement = formattedStatement;
+                }
+                int i = 1;
+                for (Object value : row.values()) {
+                    insertStatement.setObject(i++, value);
+                }
+                insertStatement.addBatch();
+            }
+            inserted += executePendingBatch(insertStatement);
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName), e);
+        }
+
+        if (inserted < rows.size()) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_INSERT_DATA_ROW, tableName));
+        }
+        return inserted;
+    }
+
+    @Override
+    public int updateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws
+        DatabaseAdapterException {
+
+        LOGGER.debug("updating {} rows of table {}", rows.size(), tableName);
+
+        PreparedStatement updateStatement = null;
+        String currentStatement = null;
+        int updated = 0;
+
+        try {
+            for (Map.Entry<Object, Map<String, Object>> row : rows.entrySet()) {
+                String formattedStatement = createUpdateStatement(row.getValue(), tableName);
+                if (!formattedStatement.equals(currentStatement)) {
+                    updated += executePendingBatch(updateStatement);
+                    updateStatement = prepareStatement(formattedStatement);
+                    currentStatement = formattedStatement;
+                }
+                int i = 1;
+                for (Object value : row.getValue().values()) {
+                    updateStatement.setObject(i++, value);
+                }
+                updateStatement.setObject(i, row.getKey());
+                updateStatement.addBatch();
+            }
+            updated += executePendingBatch(updateStatement);
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_DATA_ROW, tableName), e);
+        }
+
+        if (updated < rows.size()) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_DATA_ROW, tableName));
+        }
+        return updated;
+    }
+
+    @Override
+    public int deleteRows(Collection<Object> primaryKeys, String tableName) throws DatabaseAdapterException {
+
+        if (primaryKeys.isEmpty()) {
+            return 0;
+        }
+
+        LOGGER.debug("deleting {} rows of table {}", primaryKeys.size(), tableName);
+
+        String statement = String.format("delete from %s where %s = ?", tableName,
+            getPrimaryKeyColumn(tableName).getName());
+
+        try {
+            PreparedStatement deleteStatement = prepareStatement(statement);
+            for (Object primaryKey : primaryKeys) {
+                deleteStatement.setObject(1, primaryKey);
+                deleteStatement.addBatch();
+            }
+            int deleted = executePendingBatch(deleteStatement);
+            if (deleted < primaryKeys.size()) {
+                LOGGER.warn(DBAdapterWarnings.NOT_ALL_ROWS_DELETED, primaryKeys.size() - deleted, tableName);
+            }
+            return deleted;
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_DELETE_ROWS, tableName), e);
+        }
+    }
+
+    @Override
+    public boolean supportsUpsert() throws DatabaseAdapterException {
+        return getUpsertDialect() != UpsertDialect.NONE;
+    }
+
+    @Override
+    public void insertOrUpdateDataRow(Map<String, Object> data, Object primaryKey, String tableName) throws
+        DatabaseAdapterException {
+
+        Map<Object, Map<String, Object>> rows = CollectionsUtil.newHashMap();
+        rows.put(primaryKey, data);
+        insertOrUpdateDataRows(rows, tableName);
+    }
+
+    @Override
+    public int insertOrUpdateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws
+        DatabaseAdapterException {
+
+        String pkColumnName = getPrimaryKeyColumn(tableName).getName();
+        PreparedStatement upsertStatement = null;
+        String currentStatement = null;
+        int count = 0;
+
+        try {
+            for (Map.Entry<Object, Map<String, Object>> entry : rows.entrySet()) {
+                Map<String, Object> row = withPrimaryKey(entry.getValue(), pkColumnName, entry.getKey());
+                String statement = createUpsertStatement(tableName, pkColumnName, row.keySet());
+                if (statement == null) {
+                    count += updateOrInsertDataRow(row, entry.getKey(), tableName);
+                    continue;
+                }
+                if (!statement.equals(currentStatement)) {
+                    LOGGER.debug(statement);
+                    count += executePendingBatch(upsertStatement);
+                    upsertStatement = prepareStatement(statement);
+                    currentStatement = statement;
+                }
+                int i = 1;
+                for (Object value : row.values()) {
+                    upsertStatement.setObject(i++, value);
+                }
+                upsertStatement.addBatch();
+            }
+            count += executePendingBatch(upsertStatement);
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPSERT_DATA_ROW, tableName), e);
+        }
+        return count;
+    }
+
+    @Override
+    public void deleteRowOrDoNothing(Object primaryKey, String tableName) throws DatabaseAdapterException {
+
+        String statement = String.format("delete from %s where %s = ?", tableName,
+            getPrimaryKeyColumn(tableName).getName());
+        try {
+            // shares the cached statement with deleteRows, whose executed batch leaves nothing pending
+            PreparedStatement deleteStatement = prepareStatement(statement);
+            deleteStatement.setObject(1, primaryKey);
+            deleteStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_DELETE_ROW, primaryKey, tableName), e);
+        }
+    }
+
+    @Override
+    public void insertOrUpdateMdRow(int rev, int f, Object pk, String mdv, String tableName) throws
+        DatabaseAdapterException {
+
+        Map<Object, String> mdvs = CollectionsUtil.newHashMap();
+        mdvs.put(pk, mdv);
+        insertOrUpdateMdRows(rev, f, mdvs, tableName);
+    }
+
+    @Override
+    public int insertOrUpdateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
+
+        if (mdvs.isEmpty()) {
+            return 0;
+        }
+
+        String mdTableName = tableName + CONF.getMdTableSuffix();
+        String statement = createUpsertStatement(mdTableName, PK_COLUMN_NAME,
+            Arrays.asList(PK_COLUMN_NAME, MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME));
+        if (statement == null) {
+            int count = 0;
+            for (Map.Entry<Object, String> entry : mdvs.entrySet()) {
+                count += updateOrInsertMdRow(rev, f, entry.getKey(), entry.getValue(), tableName);
+            }
+            return count;
+        }
+
+        LOGGER.debug("upserting {} md rows with values: {}:{} {}:{} tablename:{}", mdvs.size(), REV_COLUMN_NAME, rev,
+            FLAG_COLUMN_NAME, f, mdTableName);
+
+        try {
+            PreparedStatement upsertStatement = prepareStatement(statement);
+            for (Map.Entry<Object, String> entry : mdvs.entrySet()) {
+                upsertStatement.setObject(1, entry.getKey());
+                if (entry.getValue() == null) {
+                    upsertStatement.setNull(2, Types.VARCHAR);
+                } else {
+                    upsertStatement.setString(2, entry.getValue());
+                }
+                if (rev == -1) {
+                    upsertStatement.setNull(3, Types.INTEGER); //NOSONAR
+                } else {
+                    upsertStatement.setInt(3, rev); //NOSONAR
+                }
+                upsertStatement.setInt(4, f); //NOSONAR
+                upsertStatement.addBatch();
+            }
+            return executePendingBatch(upsertStatement);
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPSERT_MD_ROW, tableName), e);
+        }
+    }
+
+    /**
+     * Creates the statement which inserts a row or updates it if a row with the same primary key exists.
+     * <p/>
+     * Depending on the database this is {@code insert ... on conflict do update} (PostgreSQL 9.5+, SQLite 3.24+),
+     * {@code insert ... on duplicate key update} (MySQL), {@code merge ... key} (H2) or a standard sql
+     * {@code merge} (HSQLDB). Other databases and older versions use an update followed by an insert,
+     * {@code insert or replace} of older SQLite versions is not used, because it deletes the row first and so
+     * fires {@code on delete cascade} of referencing tables. The parameters of the statement are the column
+     * values in the order of {@code columns}.
+     *
+     * @param tableName table name
+     * @param pkColumnName name of the primary key column, it has to be one of the columns
+     * @param columns names of the columns to write
+     * @return the statement or {@code null} if no upsert statement is used for the database
+     * @throws DatabaseAdapterException
+     */
+    protected String createUpsertStatement(String tableName, String pkColumnName, Collection<String> columns) throws
+        DatabaseAdapterException {
+
+        List<String> updateColumns = CollectionsUtil.newArrayList();
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder valueList = new StringBuilder();
+        StringBuilder sourceList = new StringBuilder();
+        for (String column : columns) {
+            if (columnList.length() > 0) {
+                columnList.append(",");
+                valueList.append(",");
+                sourceList.append(",");
+            }
+            columnList.append(column);
+            valueList.append("?");
+            sourceList.append("src.").append(column);
+            if (!column.equalsIgnoreCase(pkColumnName)) {
+                updateColumns.add(column);
+            }
+        }
+
+        switch (getUpsertDialect()) {
+            case ON_CONFLICT:
+                return String.format("insert into %s (%s) VALUES (%s) ON CONFLICT (%s) DO %s", tableName, columnList,
+                    valueList, pkColumnName, updateColumns.isEmpty() ? "NOTHING"
+                    : "UPDATE SET " + joinAssignments(updateColumns, "EXCLUDED.%s"));
+            case ON_DUPLICATE_KEY:
+                return String.format("insert into %s (%s) VALUES (%s) ON DUPLICATE KEY UPDATE %s", tableName,
+                    columnList, valueList, updateColumns.isEmpty() ? pkColumnName + "=" + pkColumnName
+                    : joinAssignments(updateColumns, "VALUES(%s)"));
+            case MERGE_KEY:
+                return String.format("MERGE INTO %s (%s) KEY (%s) VALUES (%s)", tableName, columnList, pkColumnName,
+                    valueList);
+            case MERGE:
+                return String.format("MERGE INTO %s USING (VALUES (%s)) AS src (%s) ON (%s.%s = src.%s)%s"
+                    + " WHEN NOT MATCHED THEN INSERT (%s) VALUES (%s)", tableName, valueList, columnList, tableName,
+                    pkColumnName, pkColumnName, updateColumns.isEmpty() ? ""
+                    : " WHEN MATCHED THEN UPDATE SET " + joinAssignments(updateColumns, "src.%s"), columnList,
+                    sourceList);
+            default:
+                return null;
+        }
+    }
+
+    private static String joinAssignments(List<String> columns, String valuePattern) {
+        StringBuilder assignments = new StringBuilder();
+        for (String column : columns) {
+            if (assignments.length() > 0) {
+                assignments.append(",");
+            }
+            assignments.append(column).append("=").append(String.format(valuePattern, column));
+        }
+        return assignments.toString();
+    }
+
+    private UpsertDialect getUpsertDialect() throws DatabaseAdapterException {
+        if (upsertDialect == null) {
+            try {
+                DatabaseMetaData metaData = connection.getMetaData();
+                String productName = String.valueOf(metaData.getDatabaseProductName()).toLowerCase();
+                String version = metaData.getDatabaseProductVersion();
+                if (productName.contains("postgresql")) {
+                    upsertDialect = isVersionAtLeast(version, 9, 5) ? UpsertDialect.ON_CONFLICT : UpsertDialect.NONE;
+                } else if (productName.contains("mysql") || productName.contains("mariadb")) {
+                    upsertDialect = UpsertDialect.ON_DUPLICATE_KEY;
+                } else if (productName.contains("sqlite")) {
+                    upsertDialect = isVersionAtLeast(version, 3, 24) ? UpsertDialect.ON_CONFLICT : UpsertDialect.NONE;
+                } else if ("h2".equals(productName)) {
+                    upsertDialect = UpsertDialect.MERGE_KEY;
+                } else if (productName.contains("hsql")) {
+                    upsertDialect = UpsertDialect.MERGE;
+                } else {
+                    // the merge syntax differs between the other databases (e.g. Oracle, Derby, SQL Server)
+                    upsertDialect = UpsertDialect.NONE;
+                }
+                LOGGER.debug("upsert dialect for {} {}: {}", productName, version, upsertDialect);
+            } catch (SQLException e) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_DATABASE_METADATA), e);
+            }
+        }
+        return upsertDialect;
+    }
+
+    private Map<String, Object> withPrimaryKey(Map<String, Object> data, String pkColumnName, Object primaryKey) {
+        for (String column : data.keySet()) {
+            if (column.equalsIgnoreCase(pkColumnName)) {
+                return data;
+            }
+        }
+        Map<String, Object> row = new LinkedHashMap<String, Object>(data);
+        row.put(pkColumnName, primaryKey);
+        return row;
+    }
+
+    private int updateOrInsertDataRow(Map<String, Object> row, Object primaryKey, String tableName) throws
+        DatabaseAdapterException, SQLException {
+
+        PreparedStatement updateStatement = prepareStatement(createUpdateStatement(row, tableName));
+        int i = 1;
+        for (Object value : row.values()) {
+            updateStatement.setObject(i++, value);
+        }
+        updateStatement.setObject(i, primaryKey);
+        if (updateStatement.executeUpdate() > 0) {
+            return 1;
+        }
+        insertDataRow(row, tableName);
+        return 1;
+    }
+
+    private int updateOrInsertMdRow(int rev, int f, Object pk, String mdv, String tableName) throws
+        DatabaseAdapterException {
+
+        final String statement = String.format("update %s%s SET %s=?, %s=?, %s=? where %s=?", tableName,
+            CONF.getMdTableSuffix(), MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME, PK_COLUMN_NAME);
+        try {
+            PreparedStatement updateStatement = prepareStatement(statement);
+            if (mdv == null) {
+                updateStatement.setNull(1, Types.VARCHAR);
+            } else {
+                updateStatement.setString(1, mdv);
+            }
+            if (rev == -1) {
+                updateStatement.setNull(2, Types.INTEGER); //NOSONAR
+            } else {
+                updateStatement.setInt(2, rev); //NOSONAR
+            }
+            updateStatement.setInt(3, f); //NOSONAR
+            updateStatement.setObject(4, pk); //NOSONAR
+            if (updateStatement.executeUpdate() > 0) {
+                return 1;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPSERT_MD_ROW, tableName), e);
+        }
+        insertMdRow(rev, f, pk, mdv, tableName);
+        return 1;
+    }
+
+    @Override
+    public boolean isTableEmpty(String tableName) throws DatabaseAdapterException {
+        Statement stmt = null; //NOSONAR
+        ResultSet rst = null; //NOSONAR
+        try {
+            stmt = connection.createStatement();
+            stmt.setMaxRows(1);
+            rst = stmt.executeQuery(String.format("select 1 from %s", tableName));
+            return !rst.next();
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_GET_ALL_ROWS, tableName), e);
+        } finally {
+            closeResultSets(rst);
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public void prepareBulkLoad(String tableName) throws DatabaseAdapterException {
+        String mdTableName = tableName + CONF.getMdTableSuffix();
+        try {
+            if (!connection.getMetaData().supportsDataDefinitionAndDataManipulationTransactions()) {
+                // dropping the indexes would commit the running transaction
+                return;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_DATABASE_METADATA), e);
+        }
+        List<String> existingIndexes = getIndexNames(mdTableName);
+        for (Index index : getMDIndexes(mdTableName)) {
+            if (existingIndexes.contains(index.getName().toLowerCase())) {
+                LOGGER.debug("dropping index {} on {} for bulk load", index.getName(), mdTableName);
+                executeSqlQuery(String.format("DROP INDEX %s", index.getName()));
+            }
+        }
+    }
+
+    @Override
+    public void finishBulkLoad(String tableName) throws DatabaseAdapterException {
+        createMissingMDIndexes(tableName);
+    }
+
+    @Override
+    public int bulkInsertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException {
+
+        if (!supportsMultiRowInsert()) {
+            return insertDataRows(rows, tableName);
+        }
+
+        LOGGER.debug("bulk inserting {} rows into table {}", rows.size(), tableName);
+
+        int inserted = 0;
+        int start = 0;
+        try {
+            // consecutive rows with the same columns share the multi row statements
+            for (int end = 1; end <= rows.size(); end++) {
+                if (end == rows.size() || !rows.get(end).keySet().equals(rows.get(start).keySet())) {
+                    inserted += insertMultiRowChunks(rows.subList(start, end), tableName);
+                    start = end;
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_BULK_INSERT_ROWS, tableName), e);
+        }
+
+        if (inserted < rows.size()) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_BULK_INSERT_ROWS, tableName));
+        }
+        return inserted;
+    }
+
+    @Override
+    public int bulkInsertMdRows(int f, List<MDEntry> entries, String tableName) throws DatabaseAdapterException {
+
+        if (!supportsMultiRowInsert()) {
+            int inserted = 0;
+            for (Map.Entry<Integer, Map<Object, String>> revision : groupByRevision(entries).entrySet()) {
+                inserted += insertMdRows(revision.getKey(), f, revision.getValue(), tableName);
+            }
+            return inserted;
+        }
+
+        String mdTableName = tableName + CONF.getMdTableSuffix();
+        List<String> columns = Arrays.asList(PK_COLUMN_NAME, MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME);
+        int rowsPerStatement = Math.max(1, getMaxStatementParameters() / columns.size());
+        int inserted = 0;
+
+        LOGGER.debug("bulk inserting {} md rows with {}:{} into {}", entries.size(), FLAG_COLUMN_NAME, f,
+            mdTableName);
+
+        PreparedStatement insertStatement = null;
+        try {
+            for (int start = 0; start < entries.size(); start += rowsPerStatement) {
+                List<MDEntry> chunk = entries.subList(start, Math.min(start + rowsPerStatement, entries.size()));
+                closeStatements(insertStatement);
+                insertStatement = connection.prepareStatement(
+                    createMultiRowInsertStatement(mdTableName, columns, chunk.size()));
+                int i = 1;
+                for (MDEntry entry : chunk) {
+                    insertStatement.setObject(i++, entry.getPrimaryKey());
+                    if (entry.getMdv() == null) {
+                        insertStatement.setNull(i++, Types.VARCHAR);
+                    } else {
+                        insertStatement.setString(i++, entry.getMdv());
+                    }
+                    insertStatement.setInt(i++, entry.getRevision());
+                    insertStatement.setInt(i++, f);
+                }
+                inserted += insertStatement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_BULK_INSERT_ROWS, mdTableName), e);
+        } finally {
+            closeStatements(insertStatement);
+        }
+        return inserted;
+    }
+
+    @Override
+    public int bulkUpdateMdRows(int f, List<MDEntry> entries, String tableName) throws DatabaseAdapterException {
+        int updated = 0;
+        for (Map.Entry<Integer, Map<Object, String>> revision : groupByRevision(entries).entrySet()) {
+            updated += updateMdRows(revision.getKey(), f, revision.getValue(), tableName);
+        }
+        return updated;
+    }
+
+    /**
+     * Groups the hash values of md entries by their revision.
+     *
+     * @param entries md entries
+     * @return hash values mapped by primary key, mapped by revision
+     */
+    protected static Map<Integer, Map<Object, String>> groupByRevision(List<MDEntry> entries) {
+        Map<Integer, Map<Object, String>> revisions = new LinkedHashMap<Integer, Map<Object, String>>();
+        for (MDEntry entry : entries) {
+            Map<Object, String> mdvs = revisions.get(entry.getRevision());
+            if (mdvs == null) {
+                mdvs = new LinkedHashMap<Object, String>();
+                revisions.put(entry.getRevision(), mdvs);
+            }
+            mdvs.put(entry.getPrimaryKey(), entry.getMdv());
+        }
+        return revisions;
+    }
+
+    /**
+     * Returns true if the database supports inserts with several rows ({@code insert ... values (..), (..)}).
+     * <p/>
+     * SQLite does since version 3.7.11, Oracle doesn't.
+     *
+     * @return true if multi row inserts are supported
+     * @throws DatabaseAdapterException
+     */
+    protected boolean supportsMultiRowInsert() throws DatabaseAdapterException {
+        try {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String productName = String.valueOf(metaData.getDatabaseProductName()).toLowerCase();
+            if (productName.contains("sqlite")) {
+                return isVersionAtLeast(metaData.getDatabaseProductVersion(), 3, 7, 11);
+            }
+            return !productName.contains("oracle");
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_DATABASE_METADATA), e);
+        }
+    }
+
+    /**
+     * Returns the maximal number of parameters of one statement used for multi row inserts.
+     * <p/>
+     * The default is the limit of SQLite before version 3.32.
+     *
+     * @return maximal number of statement parameters
+     */
+    protected int getMaxStatementParameters() {
+        return MAX_STATEMENT_PARAMETERS;
+    }
+
+    /**
+     * Returns how many rows the jdbc driver should fetch at once while changes are read.
+     * <p/>
+     * A limited fetch size lets the driver use a cursor instead of loading the whole result into memory
+     * (PostgreSQL only does so outside of autocommit mode).
+     *
+     * @return fetch size hint for the driver
+     */
+    protected int getFetchSize() {
+        return FETCH_SIZE;
+    }
+
+    private int insertMultiRowChunks(List<Map<String, Object>> rows, String tableName) throws SQLException,
+        DatabaseAdapterException {
+        List<String> columns = CollectionsUtil.newArrayList(rows.get(0).keySet());
+        int rowsPerStatement = Math.max(1, getMaxStatementParameters() / Math.max(1, columns.size()));
+        int inserted = 0;
+
+        for (int start = 0; start < rows.size(); start += rowsPerStatement) {
+            List<Map<String, Object>> chunk = rows.subList(start, Math.min(start + rowsPerStatement, rows.size()));
+            PreparedStatement insertStatement = connection.prepareStatement(
+                createMultiRowInsertStatement(tableName, columns, chunk.size()));
+            try {
+                int i = 1;
+                for (Map<String, Object> row : chunk) {
+                    for (String column : columns) {
+                        insertStatement.setObject(i++, row.get(column));
+                    }
+                }
+                inserted += insertStatement.executeUpdate();
+            } finally {
+                closeStatements(insertStatement);
+            }
+        }
+        return inserted;
+    }
+
+    private static String createMultiRowInsertStatement(String tableName, List<String> columns, int rowCount) {
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            columnList.append(i == 0 ? "" : ",").append(columns.get(i));
+            row.append(i == 0 ? "?" : ",?");
+        }
+        row.append(")");
+
+        StringBuilder statement = new StringBuilder(String.format("insert into %s (%s) VALUES ", tableName,
+            columnList));
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                statement.append(",");
+            }
+            statement.append(row);
+        }
+        return statement.toString();
+    }
+
+    @Override
+    public void getExistingPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        String pkColumnName = getPrimaryKeyColumn(tableName).getName();
+        selectWherePrimaryKeyIn(pkColumnName, tableName, pkColumnName, primaryKeys,
+            DBAdapterErrors.CANT_READ_PRIMARY_KEYS, callback);
+    }
+
+    @Override
+    public void getExistingMdPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        selectWherePrimaryKeyIn(PK_COLUMN_NAME, tableName + CONF.getMdTableSuffix(), PK_COLUMN_NAME, primaryKeys,
+            DBAdapterErrors.CANT_READ_PRIMARY_KEYS, callback);
+    }
+
+    @Override
+    public void getMdRowsForPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        String mdTable = tableName + CONF.getMdTableSuffix();
+        selectWherePrimaryKeyIn(PK_COLUMN_NAME + "," + MDV_COLUMN_NAME, mdTable, PK_COLUMN_NAME, primaryKeys,
+            DBAdapterErrors.CANT_READ_ROWS, callback);
+    }
+
+    @Override
+    public void getRowsForPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        selectWherePrimaryKeyIn("*", tableName, getPrimaryKeyColumn(tableName).getName(), primaryKeys,
+            DBAdapterErrors.CANT_READ_ROWS, callback);
+    }
+
+    @Override
+    public void getColumnHashes(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+
+        String columnHashTable = tableName + CONF.getMdTableSuffix() + COLUMN_HASH_TABLE_SUFFIX;
+        if (!getTableNamesFromDatabase().contains(columnHashTable.toLowerCase())) {
+            return;
+        }
+        selectWherePrimaryKeyIn(PK_COLUMN_NAME + "," + COLUMN_HASH_COLUMN_NAME, columnHashTable, PK_COLUMN_NAME,
+            primaryKeys, DBAdapterErrors.CANT_READ_COLUMN_HASHES, callback);
+    }
+
+    @Override
+    public void updateColumnHashes(String tableName, Map<Object, String> columnHashes) throws
+        DatabaseAdapterException {
+
+        String columnHashTable = tableName + CONF.getMdTableSuffix() + COLUMN_HASH_TABLE_SUFFIX;
+        if (columnHashes.isEmpty() || !getTableNamesFromDatabase().contains(columnHashTable.toLowerCase())) {
+            return;
+        }
+
+        LOGGER.debug("updating column hashes of {} rows of table {}", columnHashes.size(), tableName);
+
+        try {
+            PreparedStatement deleteStatement = prepareStatement(String.format("delete from %s where %s = ?",
+                columnHashTable, PK_COLUMN_NAME));
+            PreparedStatement insertStatement = prepareStatement(String.format("insert into %s (%s,%s) VALUES (?,?)",
+                columnHashTable, PK_COLUMN_NAME, COLUMN_HASH_COLUMN_NAME));
+            boolean inserts = false;
+            for (Map.Entry<Object, String> entry : columnHashes.entrySet()) {
+                deleteStatement.setObject(1, entry.getKey());
+                deleteStatement.addBatch();
+                // rows with too many columns are always sent completely
+                if (entry.getValue() != null && entry.getValue().length() <= COLUMN_HASH_COLUMN_SIZE) {
+                    insertStatement.setObject(1, entry.getKey());
+                    insertStatement.setString(2, entry.getValue());
+                    insertStatement.addBatch();
+                    inserts = true;
+                }
+            }
+            deleteStatement.executeBatch();
+            if (inserts) {
+                insertStatement.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_COLUMN_HASHES, tableName), e);
+        }
+    }
+
+    /**
+     * Returns the maximal number of values in the {@code in (...)} list of one query.
+     * <p/>
+     * The default stays below the bind parameter limit of SQLite (999).
+     *
+     * @return maximal number of values in the {@code in (...)} list
+     */
+    protected int getMaxInListSize() {
+        return MAX_IN_LIST_SIZE;
+    }
+
+    private void selectWherePrimaryKeyIn(String columns, String table, String pkColumnName, List<Object> primaryKeys,
+        DBAdapterErrors error, DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+
+        int chunkSize = getMaxInListSize();
+
+        for (int start = 0; start < primaryKeys.size(); start += chunkSize) {
+            List<Object> chunk = primaryKeys.subList(start, Math.min(start + chunkSize, primaryKeys.size()));
+            StringBuilder parameters = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                parameters.append(i == 0 ? "?" : ",?");
+            }
+            String statement = String.format("select %s from %s where %s in (%s)", columns, table, pkColumnName,
+                parameters.toString());
+
+            PreparedStatement stmt = null;
+            ResultSet rst = null; //NOSONAR
+            try {
+                stmt = connection.prepareStatement(statement);
+                int i = 1;
+                for (Object primaryKey : chunk) {
+                    stmt.setObject(i++, primaryKey);
+                }
+                rst = stmt.executeQuery();
+                callback.onSuccess(rst);
+            } catch (SQLException e) {
+                throw new DatabaseAdapterException(read(error, table), e);
+            } finally {
+                closeResultSets(rst);
+                closeStatements(stmt);
+            }
+        }
+    }
+
+    private int executePendingBatch(PreparedStatement statement) throws SQLException {
+        return statement == null ? 0 : countBatchResults(statement.executeBatch());
+    }
+
+    private String createInsertStatement(Map<String, Object> data, String tableName) {
+        StringBuilder keyString = new StringBuilder();
+        StringBuilder valueString = new StringBuilder();
+
+        for (String column : data.keySet()) {
+            if (0 != keyString.length()) {
+                keyString.append(",");
+                valueString.append(",");
+            }
+            keyString.append(column);
+            valueString.append("?");
+        }
+
+        return String.format("insert into %s (%s) VALUES (%s)", tableName, keyString.toString(),
+            valueString.toString());
+    }
+
+    private String createUpdateStatement(Map<String, Object> data, String tableName) throws
+        DatabaseAdapterException {
+        StringBuilder values = new StringBuilder();
+
+        for (String column : data.keySet()) {
+            if (values.length() > 0) {
+                values.append(",");
+            }
+            values.append(column);
+            values.append("=?");
+        }
+
+        return String.format("update %s SET %s where %s = ?", tableName, values.toString(),
+            getPrimaryKeyColumn(tableName).getName());
+    }
+
+    @Override
+    public void getChangesForRevision(int rev, String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+
+        String mdTableName = table + CONF.getMdTableSuffix();
+        final String query = String.format("select * from %s left join %s on %s.%s = %s.%s where %s > ?", mdTableName,
+            table, mdTableName, PK_COLUMN_NAME, table, getPrimaryKeyColumn(table).getName(), REV_COLUMN_NAME);
+
+        LOGGER.debug("reading changes for revision with query: {}", query);
+
+        PreparedStatement stmt = null;
+        ResultSet rst = null; //NOSONAR
+        try {
+
+            stmt = connection.prepareStatement(query);
+            stmt.setFetchSize(getFetchSize());
+            stmt.setInt(1, rev);
+            rst = stmt.executeQuery();
+            callback.onSuccess(rst);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_CHANGES_FOR_REVISION, rev, table), e);
+        } finally {
+            closeResultSets(rst);
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public void getChangesForRevisionPage(int rev, int maxRev, String table, Object afterPrimaryKey, int maxRows,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+
+        String mdTableName = table + CONF.getMdTableSuffix();
+        Column pkColumn = getPrimaryKeyColumn(table);
+        // the same collation as the ordered selects, so the next page continues after the last primary key
+        String pkExpression = getOrderByPrimaryKey(mdTableName + "." + PK_COLUMN_NAME, pkColumn.getType());
+        StringBuilder query = new StringBuilder(String.format(
+            "select * from %s left join %s on %s.%s = %s.%s where %s.%s > ? and %s.%s <= ?", mdTableName, table,
+            mdTableName, PK_COLUMN_NAME, table, pkColumn.getName(), mdTableName, REV_COLUMN_NAME, mdTableName,
+            REV_COLUMN_NAME));
+        if (afterPrimaryKey != null) {
+            query.append(String.format(" and %s > ?", pkExpression));
+        }
+        query.append(" order by ").append(pkExpression);
+
+        LOGGER.debug("reading page of changes for revision with query: {}", query);
+
+        PreparedStatement stmt = null;
+        ResultSet rst = null; //NOSONAR
+        try {
+
+            stmt = connection.prepareStatement(query.toString());
+            stmt.setMaxRows(maxRows);
+            // jdbc doesn't allow a fetch size above the row limit
+            stmt.setFetchSize(Math.min(getFetchSize(), maxRows));
+            stmt.setInt(1, rev);
+            stmt.setInt(2, maxRev);
+            if (afterPrimaryKey != null) {
+                // a continuation token keeps e.g. uuid or timestamp keys as strings, the column type converts them
+                stmt.setObject(3, afterPrimaryKey, pkColumn.getType());
+            }
+            rst = stmt.executeQuery();
+            callback.onSuccess(rst);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_CHANGES_FOR_REVISION, rev, table), e);
+        } finally {
+            closeResultSets(rst);
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public void getChangesInPrimaryKeyRange(String table, Object lowerBound, Object upperBound,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+
+        String mdTableName = table + CONF.getMdTableSuffix();
+        Column pkColumn = getPrimaryKeyColumn(table);
+        // compare with the same collation as the ordered selects, so the range matches the fingerprint buckets
+        String pkExpression = getOrderByPrimaryKey(mdTableName + "." + PK_COLUMN_NAME, pkColumn.getType());
+        StringBuilder query = new StringBuilder(String.format("select * from %s left join %s on %s.%s = %s.%s",
+            mdTableName, table, mdTableName, PK_COLUMN_NAME, table, pkColumn.getName()));
+        String condition = " where ";
+        if (lowerBound != null) {
+            query.append(String.format("%s%s >= ?", condition, pkExpression));
+            condition = " and ";
+        }
+        if (upperBound != null) {
+            query.append(String.format("%s%s < ?", condition, pkExpression));
+        }
+        query.append(" order by ").append(pkExpression);
+
+        LOGGER.debug("reading primary key range with query: {}", query);
+
+        PreparedStatement stmt = null;
+        ResultSet rst = null; //NOSONAR
+        try {
+
+            stmt = connection.prepareStatement(query.toString());
+            int index = 1;
+            if (lowerBound != null) {
+                stmt.setObject(index++, lowerBound);
+            }
+            if (upperBound != null) {
+                stmt.setObject(index, upperBound);
+            }
+            rst = stmt.executeQuery();
+            callback.onSuccess(rst);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_PRIMARY_KEY_RANGE, table), e);
+        } finally {
+            closeResultSets(rst);
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public void getChanges(String table, DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+
+        String mdTableName = table + CONF.getMdTableSuffix();
+        final String query = String.format("select * from %s left join %s on %s.%s = %s.%s where %s <> 0", mdTableName,
+            table, mdTableName, PK_COLUMN_NAME, table, getPrimaryKeyColumn(table).getName(), FLAG_COLUMN_NAME);
+
+        LOGGER.debug("reading changes by flag with query: {}", query);
+
+        PreparedStatement stmt = null;
+        ResultSet rst = null; //NOSONAR
+        try {
+
+            stmt = connection.prepareStatement(query);
+            rst = stmt.executeQuery();
+            callback.onSuccess(rst);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_CHANGES_FOR_FLAG, table), e);
+        } finally {
+            closeResultSets(rst);
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public int updateRevision(int rev, String table, Object pk) throws DatabaseAdapterException {
+        int updateCount;
+        String statement = String.format("update %s SET %s = ?, %s = ? where %s = ?", table,
+            REV_COLUMN_NAME, FLAG_COLUMN_NAME, PK_COLUMN_NAME);
+
+        PreparedStatement stmt = null;
+        try {
+
+            stmt = connection.prepareStatement(statement);
+            stmt.setInt(1, rev);
+            stmt.setInt(2, FLAG_PROCESSED);
+            stmt.setObject(3, pk);
+            updateCount = stmt.executeUpdate();
+            return updateCount;
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.UPDATING_REVISON_FAILED, table), e);
+        } finally {
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public int updateRevisions(int rev, String table, Collection<Object> primaryKeys) throws
+        DatabaseAdapterException {
+
+        LOGGER.debug("updating revision of {} rows in table {} to {}", primaryKeys.size(), table, rev);
+
+        List<Object> keys = CollectionsUtil.newArrayList(primaryKeys);
+        int chunkSize = getMaxInListSize();
+        int updateCount = 0;
+
+        for (int start = 0; start < keys.size(); start += chunkSize) {
+            List<Object> chunk = keys.subList(start, Math.min(start + chunkSize, keys.size()));
+            StringBuilder parameters = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                parameters.append(i == 0 ? "?" : ",?");
+            }
+            String statement = String.format("update %s SET %s = ?, %s = ? where %s in (%s)", table,
+                REV_COLUMN_NAME, FLAG_COLUMN_NAME, PK_COLUMN_NAME, parameters.toString());
+
+            PreparedStatement stmt = null;
+            try {
+                stmt = connection.prepareStatement(statement);
+                stmt.setInt(1, rev);
+                stmt.setInt(2, FLAG_PROCESSED);
+                int i = 3; //NOSONAR
+                for (Object primaryKey : chunk) {
+                    stmt.setObject(i++, primaryKey);
+                }
+                updateCount += stmt.executeUpdate();
+            } catch (SQLException e) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.UPDATING_REVISON_FAILED, table), e);
+            } finally {
+                closeStatements(stmt);
+            }
+        }
+        return updateCount;
+    }
+
+    @Override
+    public void getRowForPrimaryKey(Object primaryKey, String tableName, DatabaseAdapterCallback<ResultSet> callback)
+        throws DatabaseAdapterException {
+
+        String primaryKeyName = getPrimaryKeyColumn(tableName).getName();
+        String statement = String.format("select * from %s where %s = ?", tableName, primaryKeyName);
+
+        ResultSet rst = null; //NOSONAR
+
+        try {
+
+            PreparedStatement stmt = prepareStatement(statement);
+            stmt.setObject(1, primaryKey);
+            LOGGER.debug("Executing with pk={}: {}", new Object[]{primaryKey, statement});
+            rst = stmt.executeQuery();
+            callback.onSuccess(rst);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_THE_ROW, tableName, primaryKey), e);
+        } finally {
+            closeResultSets(rst);
+        }
+    }
+
+    @Override
+    public void getDeletedRowsForTable(String tableName, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+
+        Statement deleteStmt = null; //NOSONAR
+        ResultSet deletedRows = null; //NOSONAR
+
+        try {
+
+            deleteStmt = connection.createStatement();
+            String mdTable = tableName + CONF.getMdTableSuffix();
+            String tmpPkName = tableName + "." + getPrimaryKeyColumn(tableName).getName();
+            deletedRows = deleteStmt.executeQuery(
+                String.format("select %s, %s, %s, %s from %s left join %s on %s.%s = %s where %s is null",
+                    REV_COLUMN_NAME, PK_COLUMN_NAME, MDV_COLUMN_NAME, FLAG_COLUMN_NAME,
+                    mdTable, tableName, mdTable, PK_COLUMN_NAME, tmpPkName, tmpPkName));
+            callback.onSuccess(deletedRows);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.ERROR_SEARCHING_DELETED_ROWS, tableName), e);
+        } finally {
+            closeResultSets(deletedRows);
+            closeStatements(deleteStmt);
+        }
+    }
+
+    @Override
+    public void getAllRowsFromTable(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+
+        String statement = String.format("select * from %s", table);
+        PreparedStatement stat = null;
+        ResultSet rows = null; //NOSONAR
+        try {
+
+            stat = connection.prepareStatement(statement);
+            rows = stat.executeQuery();
+            callback.onSuccess(rows);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_GET_ALL_ROWS, table), e);
+        } finally {
+            closeResultSets(rows);
+            closeStatements(stat);
+        }
+    }
+
+    @Override
+    public void getAllRowsFromTableOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+
+        Column pkColumn = getPrimaryKeyColumn(table);
+        String statement = String.format("select * from %s order by %s", table,
+            getOrderByPrimaryKey(pkColumn.getName(), pkColumn.getType()));
+        LOGGER.debug("reading ordered rows with query: {}", statement);
+
+        PreparedStatement stat = null;
+        ResultSet rows = null; //NOSONAR
+        try {
+
+            stat = connection.prepareStatement(statement);
+            rows = stat.executeQuery();
+            callback.onSuccess(rows);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_GET_ALL_ROWS, table), e);
+        } finally {
+            closeResultSets(rows);
+            closeStatements(stat);
+        }
+    }
+
+    @Override
+    public void getMdRowsOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+
+        String mdTable = table + CONF.getMdTableSuffix();
+        String statement = String.format("select %s, %s, %s, %s from %s order by %s", PK_COLUMN_NAME, MDV_COLUMN_NAME,
+            REV_COLUMN_NAME, FLAG_COLUMN_NAME, mdTable,
+            getOrderByPrimaryKey(PK_COLUMN_NAME, getPrimaryKeyColumn(table).getType()));
+        LOGGER.debug("reading ordered md rows with query: {}", statement);
+
+        PreparedStatement stat = null;
+        ResultSet rows = null; //NOSONAR
+        try {
+
+            stat = connection.prepareStatement(statement);
+            rows = stat.executeQuery();
+            callback.onSuccess(rows);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_GET_ALL_ROWS, mdTable), e);
+        } finally {
+            closeResultSets(rows);
+            closeStatements(stat);
+        }
+    }
+
+    @Override
+    public void getRowsChangedAfterWatermark(String table, String watermarkColumn, Object watermark,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+
+        String statement = String.format("select * from %s", table);
+        if (watermark != null) {
+            statement = String.format("select * from %s where %s >= ?", table, watermarkColumn);
+        }
+        LOGGER.debug("reading rows changed after watermark {} with query: {}", watermark, statement);
+
+        PreparedStatement stat = null;
+        ResultSet rows = null; //NOSONAR
+        try {
+
+            stat = connection.prepareStatement(statement);
+            if (watermark != null) {
+                stat.setObject(1, watermark);
+            }
+            rows = stat.executeQuery();
+            callback.onSuccess(rows);
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_GET_ALL_ROWS, table), e);
+        } finally {
+            closeResultSets(rows);
+            closeStatements(stat);
+        }
+    }
+
+    @Override
+    public Object getWatermark(String table) throws DatabaseAdapterException {
+
+        String watermarkTable = table + CONF.getMdTableSuffix() + WATERMARK_TABLE_SUFFIX;
+        if (!getTableNamesFromDatabase().contains(watermarkTable.toLowerCase())) {
+            return null;
+        }
+
+        Statement stmt = null; //NOSONAR
+        ResultSet rst = null; //NOSONAR
+        try {
+
+            stmt = connection.createStatement();
+            rst = stmt.executeQuery(String.format("select %s from %s", WATERMARK_COLUMN_NAME, watermarkTable));
+            Object watermark = rst.next() ? rst.getObject(1) : null;
+            LOGGER.debug("watermark of table {} is {}", table, watermark);
+            return watermark;
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_WATERMARK, table), e);
+        } finally {
+            closeResultSets(rst);
+            closeStatements(stmt);
+        }
+    }
+
+    @Override
+    public void updateWatermark(String table, String watermarkColumn, Object watermark) throws
+        DatabaseAdapterException {
+
+        String watermarkTable = table + CONF.getMdTableSuffix() + WATERMARK_TABLE_SUFFIX;
+        if (!getTableNamesFromDatabase().contains(watermarkTable.toLowerCase())) {
+            createWatermarkTable(table, watermarkColumn, watermarkTable);
+        }
+
+        LOGGER.debug("updating watermark of table {} to {}", table, watermark);
+
+        Statement deleteStmt = null;
+        PreparedStatement insertStmt = null;
+        try {
+
+            deleteStmt = connection.createStatement();
+            deleteStmt.executeUpdate(String.format("delete from %s", watermarkTable));
+            insertStmt = connection.prepareStatement(String.format("insert into %s (%s) VALUES (?)", watermarkTable,
+                WATERMARK_COLUMN_NAME));
+            insertStmt.setObject(1, watermark);
+            insertStmt.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_WATERMARK, table), e);
+        } finally {
+            closeStatements(deleteStmt, insertStmt);
+        }
+    }
+
+    @Override
+    public String getCheckpoint() throws DatabaseAdapterException {
+
+        if (!getTableNamesFromDatabase().contains(CHECKPOINT_TABLE_NAME)) {
+            createCheckpointTable();
+            return null;
+        }
+
+        Statement stmt = null; //NOSONAR
+        ResultSet rst = null; //NOSONAR
+        try {
+
+            stmt = connection.createStatement();
+            rst = stmt.executeQuery(String.format("select %s from %s", CHECKPOINT_COLUMN_NAME, CHECKPOINT_TABLE_NAME));
+            String checkpoint = rst.next() ? rst.getString(1) : null;
+            LOGGER.debug("checkpoint is {}", checkpoint);
+            return checkpoint;
 
         } catch (SQLException e) {
-            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_CHANGES_FOR_FLAG, table), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_CHECKPOINT), e);
         } finally {
             closeResultSets(rst);
             closeStatements(stmt);
@@ -804,85 +2395,202 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
     }
 
     @Override
-    public int updateRevision(int rev, String table, Object pk) throws DatabaseAdapterException {
-        int updateCount;
-        String statement = String.format("update %s SET %s = ?, %s = ? where %s = ?", table,
-            REV_COLUMN_NAME, FLAG_COLUMN_NAME, PK_COLUMN_NAME);
+    public void updateCheckpoint(String continuationToken) throws DatabaseAdapterException {
 
-        PreparedStatement stmt = null;
+        LOGGER.debug("updating checkpoint to {}", continuationToken);
+
+        Statement deleteStmt = null;
+        PreparedStatement insertStmt = null;
         try {
 
-            stmt = connection.prepareStatement(statement);
-            stmt.setInt(1, rev);
-            stmt.setInt(2, FLAG_PROCESSED);
-            stmt.setObject(3, pk);
-            updateCount = stmt.executeUpdate();
-            return updateCount;
+            deleteStmt = connection.createStatement();
+            deleteStmt.executeUpdate(String.format("delete from %s", CHECKPOINT_TABLE_NAME));
+            if (continuationToken != null) {
+                insertStmt = connection.prepareStatement(String.format("insert into %s (%s) VALUES (?)",
+                    CHECKPOINT_TABLE_NAME, CHECKPOINT_COLUMN_NAME));
+                insertStmt.setString(1, continuationToken);
+                insertStmt.executeUpdate();
+            }
 
         } catch (SQLException e) {
-            throw new DatabaseAdapterException(read(DBAdapterErrors.UPDATING_REVISON_FAILED, table), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_CHECKPOINT), e);
         } finally {
-            closeStatements(stmt);
+            closeStatements(deleteStmt, insertStmt);
         }
     }
 
     @Override
-    public void getRowForPrimaryKey(Object primaryKey, String tableName, DatabaseAdapterCallback<ResultSet> callback)
-        throws DatabaseAdapterException {
+    public void createColumnHashTable(String tableName) throws DatabaseAdapterException {
 
-        String primaryKeyName = getPrimaryKeyColumn(tableName).getName();
-        String statement = String.format("select * from %s where %s = ?", tableName, primaryKeyName);
+        String columnHashTable = tableName + CONF.getMdTableSuffix() + COLUMN_HASH_TABLE_SUFFIX;
+        if (getTableNamesFromDatabase().contains(columnHashTable.toLowerCase())) {
+            return;
+        }
 
-        PreparedStatement stmt = null; //NOSONAR
-        ResultSet rst = null; //NOSONAR
+        LOGGER.debug("creating new column hash table: {}", columnHashTable);
+
+        Column pkColumn = getPrimaryKeyColumn(tableName);
+        Table chTable = new Table(columnHashTable);
+        chTable.add(new Column(PK_COLUMN_NAME, pkColumn.getType(), pkColumn.getSize(), pkColumn.getDecimalDigits(),
+            false));
+        chTable.add(new Column(COLUMN_HASH_COLUMN_NAME, Types.VARCHAR, COLUMN_HASH_COLUMN_SIZE, 0, true));
+        chTable.add(new Constraint(ConstraintType.PRIMARY_KEY, "CHPK", PK_COLUMN_NAME));
+
+        Schema schema = new Schema();
+        schema.addTables(chTable);
 
         try {
+            executeSqlQuery(getSchemaConverter().toSQL(schema));
+        } catch (SchemaConverterException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CONVERT_SCHEMA_TO_SQL), e);
+        }
+    }
 
-            stmt = connection.prepareStatement(statement);
-            stmt.setObject(1, primaryKey);
-            LOGGER.debug("Executing with pk={}: {}", new Object[]{primaryKey, statement});
-            rst = stmt.executeQuery();
-            callback.onSuccess(rst);
+    private void createCheckpointTable() throws DatabaseAdapterException {
+
+        LOGGER.debug("creating new checkpoint table: {}", CHECKPOINT_TABLE_NAME);
+
+        Table checkpointTable = new Table(CHECKPOINT_TABLE_NAME);
+        checkpointTable.add(new Column(CHECKPOINT_COLUMN_NAME, Types.VARCHAR, CHECKPOINT_COLUMN_SIZE, 0, false));
+
+        Schema schema = new Schema();
+        schema.addTables(checkpointTable);
+
+        try {
+            executeSqlQuery(getSchemaConverter().toSQL(schema));
+        } catch (SchemaConverterException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CONVERT_SCHEMA_TO_SQL), e);
+        }
+    }
+
+    private void createWatermarkTable(String table, String watermarkColumn, String watermarkTable) throws
+        DatabaseAdapterException {
+
+        LOGGER.debug("creating new watermark table: {}", watermarkTable);
+
+        Column column = getColumn(table, watermarkColumn);
+        Table wmTable = new Table(watermarkTable);
+        wmTable.add(new Column(WATERMARK_COLUMN_NAME, column.getType(), column.getSize(), column.getDecimalDigits(),
+            true));
+
+        Schema schema = new Schema();
+        schema.addTables(wmTable);
+
+        try {
+            executeSqlQuery(getSchemaConverter().toSQL(schema));
+        } catch (SchemaConverterException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CONVERT_SCHEMA_TO_SQL), e);
+        }
+    }
+
+    /**
+     * Reads the definition of a single column from the database meta data.
+     * <p/>
+     *
+     * @param table table name
+     * @param columnName column name
+     * @return the column
+     * @throws DatabaseAdapterException if the column doesn't exist
+     */
+    protected Column getColumn(String table, String columnName) throws DatabaseAdapterException {
+        ResultSet columns = null; //NOSONAR
 
+        try {
+            for (String tableName : new String[]{table, table.toUpperCase()}) {
+                columns = connection.getMetaData().getColumns(connection.getCatalog(), getSchemaOfConnection(),
+                    tableName, null);
+                while (columns.next()) {
+                    if (columnName.equalsIgnoreCase(columns.getString(COLUMN_NAME))) {
+                        return new Column(columns.getString(COLUMN_NAME), columns.getInt(DATA_TYPE),
+                            columns.getInt(COLUMN_SIZE), columns.getInt(DECIMAL_DIGITS), columns.getBoolean(NULLABLE));
+                    }
+                }
+                closeResultSets(columns);
+            }
         } catch (SQLException e) {
-            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_THE_ROW, tableName, primaryKey), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_COLUMN, columnName, table), e);
         } finally {
-            closeResultSets(rst);
-            closeStatements(stmt);
+            closeResultSets(columns);
         }
+
+        throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_COLUMN, columnName, table));
     }
 
     @Override
-    public void getDeletedRowsForTable(String tableName, DatabaseAdapterCallback<ResultSet> callback) throws
-        DatabaseAdapterException {
+    public boolean supportsRowHashing(String table) throws DatabaseAdapterException {
+        Boolean supported = rowHashingSupport.get(table);
+        if (supported == null) {
+            supported = verifyRowHashing(table);
+            if (supported == null) {
+                // nothing was compared, the table is checked again with the next call
+                return false;
+            }
+            rowHashingSupport.put(table, supported);
+        }
+        return supported;
+    }
 
-        Statement deleteStmt = null; //NOSONAR
-        ResultSet deletedRows = null; //NOSONAR
+    /**
+     * Compares the database hashes of some rows with the hashes of the hash calculator.
+     * <p/>
+     * The database has to concatenate the same strings like the jvm and encode them with utf-8.
+     *
+     * @return the result of the check or {@code null} if the table has no rows to compare
+     */
+    private Boolean verifyRowHashing(String table) throws DatabaseAdapterException {
+
+        if (hashCalculator == null) {
+            return Boolean.FALSE;
+        }
+
+        List<Column> columns = getColumnsOfTable(table);
+        String hashExpression = getRowHashExpression(columns, hashCalculator.getAlgorithm());
+        if (hashExpression == null) {
+            LOGGER.debug("row hashes of table {} can't be computed by the database", table);
+            return Boolean.FALSE;
+        }
 
+        Statement stmt = null; //NOSONAR
+        ResultSet rows = null; //NOSONAR
         try {
 
-            deleteStmt = connection.createStatement();
-            String mdTable = tableName + CONF.getMdTableSuffix();
-            String tmpPkName = tableName + "." + getPrimaryKeyColumn(tableName).getName();
-            deletedRows = deleteStmt.executeQuery(
-                String.format("select %s, %s, %s, %s from %s left join %s on %s.%s = %s where %s is null",
-                    REV_COLUMN_NAME, PK_COLUMN_NAME, MDV_COLUMN_NAME, FLAG_COLUMN_NAME,
-                    mdTable, tableName, mdTable, PK_COLUMN_NAME, tmpPkName, tmpPkName));
-            callback.onSuccess(deletedRows);
+            stmt = connection.createStatement();
+            stmt.setMaxRows(ROW_HASHING_SAMPLE_SIZE);
+            rows = stmt.executeQuery(String.format("select *, %s as %s from %s", hashExpression, ROW_HASH_ALIAS,
+                table));
+
+            Map<String, Object> rowData = CollectionsUtil.newHashMap();
+            boolean sampled = false;
+            while (rows.next()) {
+                sampled = true;
+                for (Column column : columns) {
+                    rowData.put(column.getName(), rows.getObject(column.getName()));
+                }
+                if (!hashCalculator.calculateHash(rowData).equalsIgnoreCase(rows.getString(ROW_HASH_ALIAS))) {
+                    LOGGER.warn(DBAdapterWarnings.ROW_HASHES_NOT_EQUIVALENT, table);
+                    return Boolean.FALSE;
+                }
+            }
+            return sampled ? Boolean.TRUE : null;
 
         } catch (SQLException e) {
-            throw new DatabaseAdapterException(read(DBAdapterErrors.ERROR_SEARCHING_DELETED_ROWS, tableName), e);
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_GET_ALL_ROWS, table), e);
         } finally {
-            closeResultSets(deletedRows);
-            closeStatements(deleteStmt);
+            closeResultSets(rows);
+            closeStatements(stmt);
         }
     }
 
     @Override
-    public void getAllRowsFromTable(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+    public void getRowHashesOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
         DatabaseAdapterException {
 
-        String statement = String.format("select * from %s", table);
+        Column pkColumn = getPrimaryKeyColumn(table);
+        String statement = String.format("select %s as %s, %s as %s from %s order by %s", pkColumn.getName(),
+            PK_COLUMN_NAME, getRowHashExpression(getColumnsOfTable(table), hashCalculator.getAlgorithm()),
+            MDV_COLUMN_NAME, table, getOrderByPrimaryKey(pkColumn.getName(), pkColumn.getType()));
+        LOGGER.debug("reading ordered row hashes with query: {}", statement);
+
         PreparedStatement stat = null;
         ResultSet rows = null; //NOSONAR
         try {
@@ -899,6 +2607,56 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         }
     }
 
+    /**
+     * Returns the sql expression which computes the row hash like {@link HashCalculator#calculateHash(Map)}.
+     * <p/>
+     * The columns are already sorted by their names. The expression has to concatenate the text of all non null
+     * values like {@code toString()} does in java and return the hex encoded hash of the utf-8 bytes.
+     * Adapters have to return {@code null} if the algorithm or a column type isn't supported.
+     * This implementation returns always {@code null}.
+     *
+     * @param sortedColumns all columns of the table, sorted by name
+     * @param algorithm name of the hash algorithm
+     * @return sql expression or {@code null}
+     */
+    protected String getRowHashExpression(List<Column> sortedColumns, String algorithm) {
+        return null;
+    }
+
+    /**
+     * Reads all columns of the given table from the database meta data and sorts them by their names.
+     * <p/>
+     *
+     * @param table table name
+     * @return columns sorted by name
+     * @throws DatabaseAdapterException
+     */
+    protected List<Column> getColumnsOfTable(String table) throws DatabaseAdapterException {
+        List<Column> columnList = CollectionsUtil.newArrayList(getCachedColumns(table));
+        Collections.sort(columnList, new Comparator<Column>() {
+            @Override
+            public int compare(Column first, Column second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+        return columnList;
+    }
+
+    /**
+     * Returns the expression used in the {@code order by} clause of the primary key ordered selects.
+     * <p/>
+     * Data table and md table have to be sorted with the same (binary) collation, otherwise they can't be merged.
+     * The expression is also used to compare primary keys with the bounds of a range.
+     * Adapters for databases with locale dependent collations should override this method for character columns.
+     *
+     * @param columnName name of the primary key column
+     * @param sqlType the {@link java.sql.Types sql type} of the primary key column
+     * @return the order by expression
+     */
+    protected String getOrderByPrimaryKey(String columnName, int sqlType) {
+        return columnName;
+    }
+
     @Override
     public Schema getSchema() throws DatabaseAdapterException {
         try {
@@ -953,6 +2711,8 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         for (String tableName : CONF.getSyncTables()) {
             if (!existsMDTable(tableName)) {
                 createMDTableOnClient(tableName);
+            } else {
+                createMissingMDIndexes(tableName);
             }
         }
     }
@@ -970,16 +2730,24 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         mdTable.add(new Column(REV_COLUMN_NAME, Types.INTEGER, 0, 0, true));
         mdTable.add(new Column(FLAG_COLUMN_NAME, Types.INTEGER, 0, 0, false));
         mdTable.add(new Constraint(ConstraintType.PRIMARY_KEY, "MDPK", pk));
+        mdTable.add(getMDIndexes(mdTableName));
 
         Schema schema = new Schema();
         schema.addTables(mdTable);
 
         try {
             String sqlTableStatement = getSchemaConverter().toSQL(schema);
-            executeSqlQuery(sqlTableStatement);
+            executeSqlQueries(sqlTableStatement.split(";"));
+            getMetadataCache().invalidate(tableName, mdTableName);
         } catch (SchemaConverterException e) {
             throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CONVERT_SCHEMA_TO_SQL), e);
         }
+
+        // adapters for other databases install their own triggers
+        if (CONF.isSqlTriggerOnClientActivated() && isSQLite()) {
+            insertMdRowsForExistingData(tableName);
+            executeSqlQueries(generateSqlTriggersForTable(tableName, SQLITE_TRIGGERS_FILE_PATH, null));
+        }
     }
 
     @Override
@@ -987,8 +2755,164 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         for (String tableName : CONF.getSyncTables()) {
             if (!existsMDTable(tableName)) {
                 createMDTableOnServer(tableName);
+            } else {
+                createMissingMDIndexes(tableName);
+            }
+        }
+        if (!hasRevisionTable()) {
+            createRevisionTable();
+        }
+    }
+
+    @Override
+    public void createMissingMDIndexes(String tableName) throws DatabaseAdapterException {
+        String mdTableName = tableName + CONF.getMdTableSuffix();
+        List<String> existingIndexes = getIndexNames(mdTableName);
+        for (Index index : getMDIndexes(mdTableName)) {
+            if (!existingIndexes.contains(index.getName().toLowerCase())) {
+                LOGGER.debug("creating missing index {} on {}", index.getName(), mdTableName);
+                executeSqlQuery(getSchemaConverter().toSQL(mdTableName, index));
+            }
+        }
+    }
+
+    /**
+     * Returns the indexes of a metadata table.
+     * <p/>
+     * The revision index serves the {@code rev > ?} condition of {@link #getChangesForRevision} and the
+     * highest revision queries, the partial flag index the {@code f <> 0} condition of {@link #getChanges}.
+     * A full index on the flag column can't be used for this condition, so the flag index is only created
+     * if the database {@link #supportsPartialIndexes() supports partial indexes}.
+     *
+     * @param mdTableName the metadata table's name
+     * @return the indexes
+     * @throws DatabaseAdapterException
+     */
+    protected Index[] getMDIndexes(String mdTableName) throws DatabaseAdapterException {
+        Index revIndex = new Index(mdTableName + "_rev_idx", REV_COLUMN_NAME);
+        if (!supportsPartialIndexes()) {
+            return new Index[]{revIndex};
+        }
+        Index flagIndex = new Index(mdTableName + "_f_idx", FLAG_COLUMN_NAME,
+            String.format("%s <> %d", FLAG_COLUMN_NAME, FLAG_PROCESSED));
+        return new Index[]{revIndex, flagIndex};
+    }
+
+    /**
+     * Returns true if the database supports partial indexes ({@code create index ... where ...}).
+     * <p/>
+     * PostgreSQL does, SQLite since version 3.8.0.
+     *
+     * @return true if partial indexes are supported
+     * @throws DatabaseAdapterException
+     */
+    protected boolean supportsPartialIndexes() throws DatabaseAdapterException {
+        try {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String productName = String.valueOf(metaData.getDatabaseProductName()).toLowerCase();
+            if (productName.contains("postgresql")) {
+                return true;
+            }
+            if (productName.contains("sqlite")) {
+                return isVersionAtLeast(metaData.getDatabaseProductVersion(), 3, 8);
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(e);
+        }
+    }
+
+    /**
+     * Compares the leading {@code major.minor} part of a database product version.
+     *
+     * @param version product version, e.g. "3.7.2" or "9.6.3 (Debian)"
+     * @param major required major version
+     * @param minor required minor version
+     * @return true if the version is at least {@code major.minor}, false if it is lower or can't be parsed
+     */
+    private static boolean isVersionAtLeast(String version, int major, int minor) {
+        return isVersionAtLeast(version, major, minor, 0);
+    }
+
+    private static boolean isVersionAtLeast(String version, int major, int minor, int patch) {
+        Matcher matcher = VERSION_PATTERN.matcher(String.valueOf(version));
+        if (!matcher.find()) {
+            return false;
+        }
+        int versionMajor = Integer.parseInt(matcher.group(1));
+        int versionMinor = Integer.parseInt(matcher.group(2));
+        int versionPatch = matcher.group(3) == null ? 0 : Integer.parseInt(matcher.group(3));
+        if (versionMajor != major) {
+            return versionMajor > major;
+        }
+        return versionMinor > minor || (versionMinor == minor && versionPatch >= patch);
+    }
+
+    private List<String> getIndexNames(String table) throws DatabaseAdapterException {
+        ResultSet indexes = null; //NOSONAR
+        List<String> indexNames = CollectionsUtil.newArrayList();
+        try {
+            indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), getSchemaOfConnection(), table,
+                false, true);
+            while (indexes.next()) {
+                String indexName = indexes.getString(INDEX_NAME);
+                if (indexName != null) {
+                    indexNames.add(indexName.toLowerCase());
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_READ_INDEXES, table), e);
+        } finally {
+            closeResultSets(indexes);
+        }
+        return indexNames;
+    }
+
+    /**
+     * Creates the revision table and fills it with the current revisions of the md tables.
+     * <p/>
+     * So servers with existing md tables are migrated on their next start.
+     *
+     * @throws DatabaseAdapterException
+     */
+    private void createRevisionTable() throws DatabaseAdapterException {
+        LOGGER.debug("creating new revision table: {}", REVISION_TABLE_NAME);
+
+        Table revTable = new Table(REVISION_TABLE_NAME);
+        revTable.add(new Column(REVISION_TABLE_KEY_COLUMN_NAME, Types.VARCHAR, REVISION_TABLE_KEY_SIZE, 0, false));
+        revTable.add(new Column(REV_COLUMN_NAME, Types.INTEGER, 0, 0, false));
+        revTable.add(new Constraint(ConstraintType.PRIMARY_KEY, "REVPK", REVISION_TABLE_KEY_COLUMN_NAME));
+
+        Schema schema = new Schema();
+        schema.addTables(revTable);
+
+        PreparedStatement insertStmt = null;
+        try {
+            executeSqlQuery(getSchemaConverter().toSQL(schema));
+
+            insertStmt = connection.prepareStatement(String.format("insert into %s (%s,%s) VALUES (?,?)",
+                REVISION_TABLE_NAME, REVISION_TABLE_KEY_COLUMN_NAME, REV_COLUMN_NAME));
+            int lastRevision = 0;
+            for (String tableName : CONF.getSyncTables()) {
+                int rev = getHighestRevisionOfMdTable(tableName);
+                lastRevision = Math.max(lastRevision, rev);
+                insertStmt.setString(1, tableName);
+                insertStmt.setInt(2, rev);
+                insertStmt.addBatch();
             }
+            insertStmt.setString(1, REVISION_COUNTER_KEY);
+            insertStmt.setInt(2, lastRevision);
+            insertStmt.addBatch();
+            insertStmt.executeBatch();
+
+        } catch (SchemaConverterException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CONVERT_SCHEMA_TO_SQL), e);
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CREATE_REVISION_TABLE), e);
+        } finally {
+            closeStatements(insertStmt);
         }
+        revisionTableExists = Boolean.TRUE;
     }
 
     @Override
@@ -1004,16 +2928,109 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         mdTable.add(new Column(REV_COLUMN_NAME, Types.INTEGER, 0, 0, true));
         mdTable.add(new Column(FLAG_COLUMN_NAME, Types.INTEGER, 0, 0, false));
         mdTable.add(new Constraint(ConstraintType.PRIMARY_KEY, "MDPK", PK_COLUMN_NAME));
+        mdTable.add(getMDIndexes(mdTableName));
 
         Schema schema = new Schema();
         schema.addTables(mdTable);
 
         try {
             String sqlTableStatement = getSchemaConverter().toSQL(schema);
-            executeSqlQuery(sqlTableStatement);
+            executeSqlQueries(sqlTableStatement.split(";"));
+            getMetadataCache().invalidate(tableName, mdTableName);
         } catch (SchemaConverterException e) {
             throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_CONVERT_SCHEMA_TO_SQL), e);
         }
+
+        if (hasRevisionTable()) {
+            registerTableRevision(tableName);
+        }
+    }
+
+    private void registerTableRevision(String tableName) throws DatabaseAdapterException {
+        PreparedStatement insertStmt = null;
+        try {
+            if (getRegisteredRevision(tableName) == null) {
+                insertStmt = connection.prepareStatement(String.format("insert into %s (%s,%s) VALUES (?,?)",
+                    REVISION_TABLE_NAME, REVISION_TABLE_KEY_COLUMN_NAME, REV_COLUMN_NAME));
+                insertStmt.setString(1, tableName);
+                insertStmt.setInt(2, 0);
+                insertStmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_UPDATE_TABLE_REVISION, tableName), e);
+        } finally {
+            closeStatements(insertStmt);
+        }
+    }
+
+    /**
+     * Returns true if the adapter operates on a SQLite database.
+     * <p/>
+     * There is no dedicated SQLite adapter, so this adapter installs the client triggers for SQLite itself.
+     *
+     * @return true if the connection's database product is SQLite
+     * @throws DatabaseAdapterException
+     */
+    protected boolean isSQLite() throws DatabaseAdapterException {
+        try {
+            String productName = connection.getMetaData().getDatabaseProductName();
+            return productName != null && productName.toLowerCase().contains("sqlite");
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(e);
+        }
+    }
+
+    /**
+     * Creates a metadata row for every row already present in the data table.
+     * <p/>
+     * Rows are flagged as modified with an empty hash, so they are uploaded on the next sync.
+     * Needed when triggers are installed on a table which already contains data.
+     *
+     * @param tableName the table's name
+     * @throws DatabaseAdapterException
+     */
+    protected void insertMdRowsForExistingData(String tableName) throws DatabaseAdapterException {
+        String query = String.format("insert into %s (%s,%s,%s,%s) select %s,'%s',0,%d from %s",
+            tableName + CONF.getMdTableSuffix(), PK_COLUMN_NAME, MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME,
+            getPrimaryKeyColumn(tableName).getName(), MDV_MODIFIED_VALUE, FLAG_MODIFIED, tableName);
+        executeSqlQuery(query);
+    }
+
+    /**
+     * Generates the trigger queries, which update the F flag in the metadata on every change in the data table.
+     * <p/>
+     * The template file contains the queries separated by {@code ;;} and the placeholders
+     * {@code %syncuser%, %table%, %md_suffix%, %pk_data%, %flag_md%} and {@code %pk_md%}.
+     *
+     * @param tableName the table's name
+     * @param filePath classpath location of the template file
+     * @param syncUser name of the database user which performs the sync, {@code null} if the template doesn't use it
+     * @return sql queries for the triggers, empty for metadata tables
+     * @throws DatabaseAdapterException
+     */
+    protected String[] generateSqlTriggersForTable(String tableName, String filePath, String syncUser) throws
+        DatabaseAdapterException {
+
+        // we don't want any trigger on the metadata tables
+        if (tableName.endsWith(CONF.getMdTableSuffix())) {
+            return new String[0];
+        }
+
+        // Yes, we read these files *every time* a MD table is created... It's not optimized,
+        // but we do it only once: the first sync is somewhat slower, that's all.
+        String triggerQuery = new Scanner(getClass().getResourceAsStream(filePath), UTF_8).useDelimiter("\\A").next();
+
+        if (syncUser != null) {
+            triggerQuery = triggerQuery.replaceAll("%syncuser%", syncUser);
+        }
+        triggerQuery = triggerQuery.replaceAll("%table%", tableName);
+        triggerQuery = triggerQuery.replaceAll("%md_suffix%", CONF.getMdTableSuffix());
+        triggerQuery = triggerQuery.replaceAll("%pk_data%", getPrimaryKeyColumn(tableName).getName());
+        triggerQuery = triggerQuery.replaceAll("%flag_md%", FLAG_COLUMN_NAME);
+        triggerQuery = triggerQuery.replaceAll("%pk_md%", PK_COLUMN_NAME);
+
+        LOGGER.debug("Creating trigger for table '{}':\n {}", tableName, triggerQuery);
+        return triggerQuery.split(";;");
     }
 
     /**
@@ -1164,4 +3181,11 @@ public class GenericDatabaseAdapter implements IDatabaseAdapter {
         builder.append(" }");
         return builder.toString();
     }
+
+    /**
+     * The statement used to insert or update a row in one round trip.
+     */
+    private enum UpsertDialect {
+        ON_CONFLICT, ON_DUPLICATE_KEY, MERGE_KEY, MERGE, NONE
+    }
 }
@@ -0,0 +1,142 @@
+package de.consistec.doubleganger.common.adapter.impl;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - StatementCache.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import de.consistec.doubleganger.common.i18n.DBAdapterWarnings;
+import de.consistec.doubleganger.common.util.LoggingUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.cal10n.LocLogger;
+
+/**
+ * Least recently used cache of the prepared statements of one connection.
+ * <p/>
+ * Statements are keyed by their sql text, which is built from operation, table and column set.
+ * Reusing the statement object lets the jdbc driver skip parsing and allows server side prepared plans
+ * (e.g. PostgreSQL switches to a named server statement after a few executions of the same statement object).
+ * When the cache holds more than {@code maxSize} statements, the least recently used one is closed.
+ * Statements whose sql text depends on the number of rows or keys (in-lists, multi row inserts) should not be
+ * cached, every chunk size would create another text and evict the reused statements.
+ * <p/>
+ * Statements handed out by the cache must <b>not</b> be closed by the caller. This class is not thread safe,
+ * like the connection it belongs to.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 12:10
+ */
+public class StatementCache {
+
+    private static final LocLogger LOGGER = LoggingUtil.createLogger(StatementCache.class.getCanonicalName());
+    private static final float LOAD_FACTOR = 0.75f;
+    private final int maxSize;
+    private final Map<String, PreparedStatement> statements;
+
+    /**
+     * Creates a cache which keeps at most {@code maxSize} statements open.
+     *
+     * @param maxSize maximal number of cached statements, at least 1
+     * @throws IllegalArgumentException if {@code maxSize} is smaller than 1
+     */
+    public StatementCache(final int maxSize) {
+        if (maxSize < 1) {
+            // a statement which was just prepared would be closed before it is returned
+            throw new IllegalArgumentException(String.valueOf(maxSize));
+        }
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(maxSize + 1, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached statement for the sql text or prepares and caches a new one.
+     * <p/>
+     * The parameters of a reused statement are cleared.
+     *
+     * @param connection connection to prepare new statements with
+     * @param sql sql text of the statement
+     * @return prepared statement
+     * @throws SQLException
+     */
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * Returns the number of cached statements.
+     *
+     * @return number of cached statements
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Returns the maximal number of cached statements.
+     *
+     * @return maximal number of cached statements
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Closes and removes all cached statements.
+     * <p/>
+     * Statements which fail to close are only logged.
+     */
+    public void clear() {
+        for (PreparedStatement statement : statements.values()) {
+            close(statement);
+        }
+        statements.clear();
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.warn(DBAdapterWarnings.CANT_CLOSE_CACHED_STATEMENT, e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package de.consistec.doubleganger.common.adapter.impl;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - TableMetadataCache.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newConcurrentHashMap;
+
+import de.consistec.doubleganger.common.data.schema.Column;
+import de.consistec.doubleganger.common.util.CollectionsUtil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache for the meta data of the tables of one database (primary key column and columns with their jdbc types).
+ * <p/>
+ * Reading the meta data costs one or more round trips to the database, but it only changes when the schema changes.
+ * One cache exists per database (see {@link #forDatabase(String) }), so adapter instances opened on the same
+ * database share it. Adapters have to invalidate the entries of the tables they create or alter.
+ * Schema changes made outside of the framework require a call to {@link #invalidateAll() }. The server change
+ * detection invalidates the entries of each table before scanning it, so the row hashes of the server tables
+ * pick up columns added by the application with the next scan.
+ * <p/>
+ * This class is thread safe.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 11:05
+ */
+public final class TableMetadataCache {
+
+    private static final ConcurrentMap<String, TableMetadataCache> CACHES = newConcurrentHashMap();
+    private final ConcurrentMap<String, Column> primaryKeys = newConcurrentHashMap();
+    private final ConcurrentMap<String, List<Column>> columns = newConcurrentHashMap();
+
+    private TableMetadataCache() {
+    }
+
+    /**
+     * Returns the cache of the database identified by {@code databaseKey}.
+     * <p/>
+     * The cache is created on the first request for the key.
+     *
+     * @param databaseKey identifies the database, e.g. the jdbc url together with user and schema.
+     * @return the cache of the database
+     */
+    public static TableMetadataCache forDatabase(String databaseKey) {
+        TableMetadataCache cache = CACHES.get(databaseKey);
+        if (cache == null) {
+            TableMetadataCache newCache = new TableMetadataCache();
+            cache = CACHES.putIfAbsent(databaseKey, newCache);
+            if (cache == null) {
+                cache = newCache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Drops the cached meta data of all databases.
+     */
+    public static void invalidateAllDatabases() {
+        for (TableMetadataCache cache : CACHES.values()) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Returns the cached primary key column of the table.
+     *
+     * @param table table name
+     * @return the primary key column or {@code null} if it is not cached
+     */
+    public Column getPrimaryKeyColumn(String table) {
+        return primaryKeys.get(table);
+    }
+
+    /**
+     * Caches the primary key column of the table.
+     *
+     * @param table table name
+     * @param primaryKey primary key column
+     */
+    public void putPrimaryKeyColumn(String table, Column primaryKey) {
+        primaryKeys.put(table, primaryKey);
+    }
+
+    /**
+     * Returns the cached columns of the table in the order of the database meta data.
+     *
+     * @param table table name
+     * @return unmodifiable list of columns or {@code null} if they are not cached
+     */
+    public List<Column> getColumns(String table) {
+        return columns.get(table);
+    }
+
+    /**
+     * Caches the columns of the table.
+     * <p/>
+     * An empty list is not cached, because the table doesn't exist (yet).
+     *
+     * @param table table name
+     * @param tableColumns columns in the order of the database meta data
+     */
+    public void putColumns(String table, List<Column> tableColumns) {
+        if (!tableColumns.isEmpty()) {
+            List<Column> copy = CollectionsUtil.newArrayList(tableColumns);
+            columns.put(table, Collections.unmodifiableList(copy));
+        }
+    }
+
+    /**
+     * Drops the cached meta data of the given tables.
+     *
+     * @param tables table names
+     */
+    public void invalidate(String... tables) {
+        for (String table : tables) {
+            primaryKeys.remove(table);
+            columns.remove(table);
+        }
+    }
+
+    /**
+     * Drops the cached meta data of all tables.
+     */
+    public void invalidateAll() {
+        primaryKeys.clear();
+        columns.clear();
+    }
+}
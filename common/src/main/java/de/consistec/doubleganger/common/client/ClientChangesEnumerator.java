@@ -31,6 +31,7 @@ import de.consistec.doubleganger.common.TableSyncStrategy;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.ColumnDictionary;
 import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.i18n.Infos;
@@ -102,9 +103,10 @@ public class ClientChangesEnumerator {
 
                         if (syncDirection != SyncDirection.SERVER_TO_CLIENT) {
 
+                            ColumnDictionary columns = DBMapperUtil.getColumnDictionary(resultSet);
                             while (resultSet.next()) {
 
-                                Map<String, Object> rowData = DBMapperUtil.getRowData(resultSet);
+                                Map<String, Object> rowData = DBMapperUtil.getRowData(resultSet, columns);
                                 MDEntry mdEntry = DBMapperUtil.getMetadata(resultSet, tableName);
                                 mdEntry.setDataRowExists(DBMapperUtil.dataRowHasValues(rowData));
 
@@ -25,6 +25,7 @@ package de.consistec.doubleganger.common.client;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_DELETED_VALUE;
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
 
 import de.consistec.doubleganger.common.Config;
 import de.consistec.doubleganger.common.IConflictListener;
@@ -45,14 +46,19 @@ import de.consistec.doubleganger.common.data.ResolvedChange;
 import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.i18n.Errors;
+import de.consistec.doubleganger.common.i18n.Infos;
 import de.consistec.doubleganger.common.i18n.Warnings;
 import de.consistec.doubleganger.common.util.HashCalculator;
 import de.consistec.doubleganger.common.util.LoggingUtil;
+import de.consistec.doubleganger.common.util.PrimaryKeyComparator;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import org.slf4j.cal10n.LocLogger;
 
 /**
@@ -137,99 +143,242 @@ public class ClientHashProcessor {
 
     /**
      * Apply changes from server on client.
+     * <p/>
+     * The changes of tables which are still empty on the client (data and md table) are loaded in bulk, without
+     * looking for existing rows. This doesn't depend on the client revision, so the first page of each table of a
+     * paged bootstrap is loaded in bulk, too. The following pages of the table are applied row by row.
+     * With {@link Config#isColumnDeltaActivated() column deltas} the column hashes of the applied rows are stored
+     * as base of later deltas.
      *
      * @param serverChanges the server changes
      * @throws SyncException the sync exception
      */
     public void applyChangesFromServerOnClient(List<Change> serverChanges) throws SyncException,
         DatabaseAdapterException {
+        applyChangesFromServerOnClient(serverChanges, new HashMap<String, Object>());
+    }
+
+    /**
+     * Apply a part of the server changes on client.
+     * <p/>
+     * Like {@link #applyChangesFromServerOnClient(List)}, but a table which was loaded in bulk by an earlier part
+     * of the same transaction is loaded in bulk again, if all primary keys of the part are greater than the
+     * loaded ones. The table can't contain them yet, e.g. the chunks of a streamed bootstrap.
+     *
+     * @param serverChanges the server changes
+     * @param bulkLoadedKeys the greatest primary key of each table which was loaded in bulk in the current
+     * transaction, it is updated with the tables of this part
+     * @throws SyncException the sync exception
+     */
+    public void applyChangesFromServerOnClient(List<Change> serverChanges, Map<String, Object> bulkLoadedKeys)
+        throws SyncException, DatabaseAdapterException {
 
         LOGGER.debug("applyChangesFromServerOnClient called");
 
         HashCalculator hashCalculator = adapter.getHashCalculator();
 
-        for (final Change remoteChange : serverChanges) {
+        applyChangesByTable(serverChanges, bulkLoadedKeys, hashCalculator);
+        if (CONF.isColumnDeltaActivated()) {
+            storeColumnHashes(serverChanges, hashCalculator);
+        }
+        LOGGER.debug("applyChangesFromServerOnClient finished");
+    }
 
-            final MDEntry remoteEntry = remoteChange.getMdEntry();
-            LOGGER.debug("processing: {}", remoteEntry.toString());
+    /**
+     * Replaces the modified rows of the client changes by their changed columns, if the client knows the column
+     * hashes of the last synchronized version of the row.
+     * <p/>
+     * The returned column deltas carry the {@link Change#getBaseHash() base hash} of that version. Added and
+     * deleted rows, rows of resolved conflicts and rows without a stored version are left complete.
+     *
+     * @param clientData the client changes
+     * @return a copy of the client changes with column deltas, or {@code clientData} if no row could be reduced
+     * @throws DatabaseAdapterException
+     */
+    public SyncData encodeColumnDeltas(SyncData clientData) throws DatabaseAdapterException {
 
+        HashCalculator hashCalculator = adapter.getHashCalculator();
+        Map<String, Map<Object, Change>> deltasByTable = new LinkedHashMap<String, Map<Object, Change>>();
+        int deltaCount = 0;
+
+        for (Map.Entry<String, List<Change>> entry : groupByTable(clientData.getChanges()).entrySet()) {
+            final Map<Object, String> columnHashes = new TreeMap<Object, String>(new PrimaryKeyComparator());
+            List<Object> primaryKeys = newArrayList();
+            for (Change change : entry.getValue()) {
+                if (change.getMdEntry().dataRowExists() && !(change instanceof ResolvedChange)) {
+                    primaryKeys.add(change.getMdEntry().getPrimaryKey());
+                }
+            }
+            if (primaryKeys.isEmpty()) {
+                continue;
+            }
+            adapter.getColumnHashes(entry.getKey(), primaryKeys, new DatabaseAdapterCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet result) throws DatabaseAdapterException, SQLException {
+                    while (result.next()) {
+                        columnHashes.put(result.getObject(1), result.getString(2));
+                    }
+                }
+            });
 
-            final String hash = hashCalculator.calculateHash(remoteChange, CONF.isSqlTriggerOnClientActivated());
-            applyServerChange(remoteChange, hash);
+            Map<Object, Change> deltas = new TreeMap<Object, Change>(new PrimaryKeyComparator());
+            for (Change change : entry.getValue()) {
+                String baseColumnHashes = columnHashes.get(change.getMdEntry().getPrimaryKey());
+                Map<String, Object> changedColumns = baseColumnHashes == null || change instanceof ResolvedChange
+                    ? null : hashCalculator.getChangedColumns(change.getRowData(), baseColumnHashes);
+                // an unchanged row is sent completely, the server can't update zero columns
+                if (changedColumns != null && !changedColumns.isEmpty()
+                    && changedColumns.size() < change.getRowData().size()) {
+                    Change delta = new Change(change.getMdEntry(), changedColumns);
+                    delta.setBaseHash(hashCalculator.calculateBaseHash(baseColumnHashes));
+                    deltas.put(change.getMdEntry().getPrimaryKey(), delta);
+                }
+            }
+            deltasByTable.put(entry.getKey(), deltas);
+            deltaCount += deltas.size();
         }
-        LOGGER.debug("applyChangesFromServerOnClient finished");
+
+        if (deltaCount == 0) {
+            return clientData;
+        }
+
+        SyncData encodedData = new SyncData();
+        encodedData.setRevision(clientData.getRevision());
+        for (Change change : clientData.getChanges()) {
+            MDEntry mdEntry = change.getMdEntry();
+            Map<Object, Change> deltas = deltasByTable.get(mdEntry.getTableName());
+            if (deltas != null && deltas.containsKey(mdEntry.getPrimaryKey())) {
+                encodedData.addChange(deltas.get(mdEntry.getPrimaryKey()));
+            } else {
+                encodedData.addChange(change);
+            }
+        }
+        LOGGER.info(Infos.COMMON_SENDING_COLUMN_DELTAS, deltaCount, encodedData.getChanges().size());
+        return encodedData;
     }
 
-    private void applyServerChange(final Change serverChange, final String hash) throws DatabaseAdapterException {
+    private void storeColumnHashes(List<Change> changes, HashCalculator hashCalculator) throws
+        DatabaseAdapterException {
+
+        for (Map.Entry<String, List<Change>> entry : groupByTable(changes).entrySet()) {
+            Map<Object, String> columnHashes = new LinkedHashMap<Object, String>();
+            for (Change change : entry.getValue()) {
+                columnHashes.put(change.getMdEntry().getPrimaryKey(), change.getMdEntry().dataRowExists()
+                    ? hashCalculator.calculateColumnHashes(change.getRowData()) : null);
+            }
+            adapter.updateColumnHashes(entry.getKey(), columnHashes);
+        }
+    }
+
+    private static Map<String, List<Change>> groupByTable(List<Change> changes) {
+        Map<String, List<Change>> changesByTable = new LinkedHashMap<String, List<Change>>();
+        for (Change change : changes) {
+            String tableName = change.getMdEntry().getTableName();
+            List<Change> tableChanges = changesByTable.get(tableName);
+            if (tableChanges == null) {
+                tableChanges = newArrayList();
+                changesByTable.put(tableName, tableChanges);
+            }
+            tableChanges.add(change);
+        }
+        return changesByTable;
+    }
+
+    private void applyChangesByTable(List<Change> serverChanges, Map<String, Object> bulkLoadedKeys,
+        HashCalculator hashCalculator) throws DatabaseAdapterException {
+
+        PrimaryKeyComparator comparator = new PrimaryKeyComparator();
+        for (Map.Entry<String, List<Change>> entry : groupByTable(serverChanges).entrySet()) {
+            String tableName = entry.getKey();
+            Object smallestKey = null;
+            Object greatestKey = null;
+            for (Change remoteChange : entry.getValue()) {
+                Object primaryKey = remoteChange.getMdEntry().getPrimaryKey();
+                if (smallestKey == null || comparator.compare(primaryKey, smallestKey) < 0) {
+                    smallestKey = primaryKey;
+                }
+                if (greatestKey == null || comparator.compare(primaryKey, greatestKey) > 0) {
+                    greatestKey = primaryKey;
+                }
+            }
+
+            boolean bulk;
+            if (bulkLoadedKeys.containsKey(tableName)) {
+                bulk = comparator.compare(smallestKey, bulkLoadedKeys.get(tableName)) > 0;
+            } else {
+                bulk = adapter.isTableEmpty(tableName) && adapter.isTableEmpty(tableName + CONF.getMdTableSuffix());
+            }
+
+            if (bulk) {
+                bulkLoad(tableName, entry.getValue(), hashCalculator);
+                bulkLoadedKeys.put(tableName, greatestKey);
+            } else {
+                bulkLoadedKeys.remove(tableName);
+                for (Change remoteChange : entry.getValue()) {
+                    applyServerChange(remoteChange, hashCalculator);
+                }
+            }
+        }
+    }
+
+    private void bulkLoad(String tableName, List<Change> serverChanges, HashCalculator hashCalculator) throws
+        DatabaseAdapterException {
+
+        long start = System.currentTimeMillis();
+        List<Map<String, Object>> rows = newArrayList(serverChanges.size());
+        List<MDEntry> mdEntries = newArrayList(serverChanges.size());
+        List<MDEntry> deletedEntries = newArrayList();
+
+        for (Change remoteChange : serverChanges) {
+            MDEntry remoteEntry = remoteChange.getMdEntry();
+            if (remoteEntry.dataRowExists()) {
+                rows.add(remoteChange.getRowData());
+                String hash = hashCalculator.calculateHash(remoteChange, CONF.isSqlTriggerOnClientActivated());
+                mdEntries.add(new MDEntry(remoteEntry.getPrimaryKey(), true, remoteEntry.getRevision(), tableName,
+                    hash));
+            } else {
+                deletedEntries.add(new MDEntry(remoteEntry.getPrimaryKey(), false, remoteEntry.getRevision(),
+                    tableName, MDV_DELETED_VALUE));
+            }
+        }
+
+        adapter.prepareBulkLoad(tableName);
+        adapter.bulkInsertDataRows(rows, tableName);
+        if (CONF.isSqlTriggerOnClientActivated()) {
+            // the insert triggers already created md rows for the data rows
+            adapter.bulkUpdateMdRows(FLAG_PROCESSED, mdEntries, tableName);
+            // deleted rows weren't inserted, so no trigger created their md rows
+            adapter.bulkInsertMdRows(FLAG_PROCESSED, deletedEntries, tableName);
+        } else {
+            mdEntries.addAll(deletedEntries);
+            adapter.bulkInsertMdRows(FLAG_PROCESSED, mdEntries, tableName);
+        }
+        adapter.finishBulkLoad(tableName);
+
+        LOGGER.info(Infos.COMMON_CLIENT_TABLE_BULK_LOADED, tableName, rows.size(),
+            System.currentTimeMillis() - start);
+    }
+
+    private void applyServerChange(final Change serverChange, final HashCalculator hashCalculator) throws
+        DatabaseAdapterException {
 
         final MDEntry remoteEntry = serverChange.getMdEntry();
+        LOGGER.debug("processing: {}", remoteEntry.toString());
+
+        final String hash = hashCalculator.calculateHash(serverChange, CONF.isSqlTriggerOnClientActivated());
         final Object pKey = remoteEntry.getPrimaryKey();
         final String tableName = remoteEntry.getTableName();
         final int rev = remoteEntry.getRevision();
         final Map<String, Object> remoteRowData = serverChange.getRowData();
 
-//        // this basically boils down to:
-//        if (remoteEntry.dataRowExists()) {
-//            // SERVER ADD or MOD
-//            adapter.insertOrUpdateDataRow(remoteRowData, pKey, tableName);
-//        } else {
-//            adapter.deleteRowOrDoNothing(pKey, tableName);
-//        }
-//        adapter.insertOrUpdateMdRow(rev, FLAG_PROCESSED, pKey, hash, tableName);
-
         // SERVER ADD, MOD OR DEL
         if (remoteEntry.dataRowExists()) {
-            adapter.getRowForPrimaryKey(pKey, tableName, new DatabaseAdapterCallback<ResultSet>() {
-                @Override
-                public void onSuccess(final ResultSet result) throws DatabaseAdapterException, SQLException {
-                    if (result.next()) {
-                        // SERVER MOD
-                        adapter.updateDataRow(remoteRowData, pKey, tableName);
-                        adapter.updateMdRow(rev, FLAG_PROCESSED, pKey, hash, tableName);
-                    } else {
-                        // SERVER ADD
-                        // on initialization everything is a server add, but deleted items no longer need to be added
-                        adapter.insertDataRow(remoteRowData, tableName);
-
-                        String mdTableName = tableName + CONF.getMdTableSuffix();
-                        adapter.getRowForPrimaryKey(pKey, mdTableName, new DatabaseAdapterCallback<ResultSet>() {
-                            @Override
-                            public void onSuccess(final ResultSet result) throws DatabaseAdapterException,
-                                SQLException {
-                                if (result.next()) {
-                                    adapter.updateMdRow(rev, FLAG_PROCESSED, pKey, hash, tableName);
-                                } else {
-                                    adapter.insertMdRow(rev, FLAG_PROCESSED, pKey, hash, tableName);
-                                }
-                            }
-                        });
-                    }
-                }
-            });
+            // on initialization everything is a server add, but deleted items no longer need to be added
+            adapter.insertOrUpdateDataRow(remoteRowData, pKey, tableName);
+            adapter.insertOrUpdateMdRow(rev, FLAG_PROCESSED, pKey, hash, tableName);
         } else {
-            // SERVER DEL
-            adapter.getRowForPrimaryKey(pKey, tableName, new DatabaseAdapterCallback<ResultSet>() {
-                @Override
-                public void onSuccess(final ResultSet result) throws DatabaseAdapterException, SQLException {
-                    if (result.next()) {
-                        adapter.deleteRow(pKey, tableName);
-                        adapter.updateMdRow(rev, FLAG_PROCESSED, pKey, MDV_DELETED_VALUE, tableName);
-                    } else {
-                        String mdTableName = tableName + CONF.getMdTableSuffix();
-                        adapter.getRowForPrimaryKey(pKey, mdTableName, new DatabaseAdapterCallback<ResultSet>() {
-                            @Override
-                            public void onSuccess(final ResultSet result) throws DatabaseAdapterException,
-                                SQLException {
-                                if (result.next()) {
-                                    adapter.updateMdRow(rev, FLAG_PROCESSED, pKey, MDV_DELETED_VALUE, tableName);
-                                } else {
-                                    adapter.insertMdRow(rev, FLAG_PROCESSED, pKey, MDV_DELETED_VALUE, tableName);
-                                }
-                            }
-                        });
-                    }
-                }
-            });
+            adapter.deleteRowOrDoNothing(pKey, tableName);
+            adapter.insertOrUpdateMdRow(rev, FLAG_PROCESSED, pKey, MDV_DELETED_VALUE, tableName);
         }
     }
 
@@ -293,6 +442,10 @@ public class ClientHashProcessor {
 
     /**
      * Update client revision.
+     * <p/>
+     * The primary keys of the changes are grouped by table and each table is updated with a few statements.
+     * With {@link Config#isColumnDeltaActivated() column deltas} the column hashes of the rows are stored as base
+     * of later deltas, so {@code clientData} has to contain the full rows.
      *
      * @param clientData data which contains the server revision after sync and the client changes applied on server.
      * @throws DatabaseAdapterException When update fails.
@@ -300,16 +453,27 @@ public class ClientHashProcessor {
     public void updateClientRevision(SyncData clientData) throws DatabaseAdapterException {
 
         LOGGER.debug("Updating client revisions on hashtable");
+        Map<String, List<Object>> primaryKeysByTable = new LinkedHashMap<String, List<Object>>();
         for (Change change : clientData.getChanges()) {
             MDEntry tmpMDEntry = change.getMdEntry();
-            int revision = clientData.getRevision();
-            String mdTableName = tmpMDEntry.getTableName() + CONF.getMdTableSuffix();
-            int result = adapter.updateRevision(revision, mdTableName, tmpMDEntry.getPrimaryKey());
-            if (result != 1) {
-                LOGGER.warn(read(Warnings.COMMON_CANT_UPDATE_CLIENT_REV));
+            List<Object> primaryKeys = primaryKeysByTable.get(tmpMDEntry.getTableName());
+            if (primaryKeys == null) {
+                primaryKeys = newArrayList();
+                primaryKeysByTable.put(tmpMDEntry.getTableName(), primaryKeys);
             }
+            primaryKeys.add(tmpMDEntry.getPrimaryKey());
         }
 
+        for (Map.Entry<String, List<Object>> entry : primaryKeysByTable.entrySet()) {
+            String mdTableName = entry.getKey() + CONF.getMdTableSuffix();
+            int result = adapter.updateRevisions(clientData.getRevision(), mdTableName, entry.getValue());
+            if (result != entry.getValue().size()) {
+                LOGGER.warn(read(Warnings.COMMON_CANT_UPDATE_CLIENT_REV));
+            }
+        }
+        if (CONF.isColumnDeltaActivated()) {
+            storeColumnHashes(clientData.getChanges(), adapter.getHashCalculator());
+        }
     }
 
     private ResolvedChange resolveConflictsFireEvent(ConflictHandlingData data,
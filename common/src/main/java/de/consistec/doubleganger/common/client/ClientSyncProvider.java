@@ -22,7 +22,13 @@ package de.consistec.doubleganger.common.client;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
 import static de.consistec.doubleganger.common.util.Preconditions.checkSyncDirectionOfServerChanges;
 
 import de.consistec.doubleganger.common.AbstractSyncProvider;
@@ -31,16 +37,28 @@ import de.consistec.doubleganger.common.IConflictListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncDataHolder;
 import de.consistec.doubleganger.common.TableSyncStrategies;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterFactory;
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.FingerprintNode;
+import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterInstantiationException;
 import de.consistec.doubleganger.common.i18n.Errors;
+import de.consistec.doubleganger.common.i18n.Infos;
+import de.consistec.doubleganger.common.util.FingerprintCalculator;
+import de.consistec.doubleganger.common.util.HashCalculator;
 import de.consistec.doubleganger.common.util.LoggingUtil;
+import de.consistec.doubleganger.common.util.PrimaryKeyComparator;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import javax.sql.DataSource;
 import org.slf4j.cal10n.LocLogger;
 
@@ -67,6 +85,8 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
     private static final LocLogger LOGGER = LoggingUtil.createLogger(ClientSyncProvider.class.getCanonicalName());
     private IConflictListener conflictListener;
     private IDatabaseAdapter adapter = null;
+    // tables loaded in bulk in the current transaction, with their greatest primary key
+    private Map<String, Object> bulkLoadedKeys = newHashMap();
 
     /**
      * Creates new provider instance which will be using its own database connection.
@@ -156,6 +176,24 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
 
     }
 
+    @Override
+    public void createMissingMDIndexes() throws SyncException {
+
+        try {
+            adapter = prepareAdapterWithAutoCommit();
+            for (String table : Config.getInstance().getSyncTables()) {
+                adapter.createMissingMDIndexes(table);
+                if (Config.getInstance().isColumnDeltaActivated()) {
+                    adapter.createColumnHashTable(table);
+                }
+            }
+        } catch (DatabaseAdapterException e) {
+            throw new SyncException(e);
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
     @Override
     public void applySchema(Schema schema) throws SyncException {
 
@@ -164,6 +202,11 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
             adapter = prepareAdapterWithAutoCommit();
             adapter.applySchema(schema);
             adapter.createMDSchemaOnClient();
+            if (Config.getInstance().isColumnDeltaActivated()) {
+                for (String table : Config.getInstance().getSyncTables()) {
+                    adapter.createColumnHashTable(table);
+                }
+            }
         } catch (DatabaseAdapterException e) {
             throw new SyncException(e);
         } finally {
@@ -200,7 +243,7 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
 
         try {
 
-            if (!Config.getInstance().isSqlTriggerOnClientActivated()) {
+            if (!isTriggerSupported()) {
                 ClientTableSynchronizer synchronizer = new ClientTableSynchronizer(adapter);
                 synchronizer.synchronizeClientTables();
             }
@@ -262,7 +305,7 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
         ClientHashProcessor hashProcessor = new ClientHashProcessor(adapter, getStrategies(), conflictListener);
 
         try {
-            hashProcessor.applyChangesFromServerOnClient(serverData.getChanges());
+            hashProcessor.applyChangesFromServerOnClient(serverData.getChanges(), bulkLoadedKeys);
         } catch (Throwable ex) {
             /**
              * no matter what happened, we have to rollback
@@ -281,12 +324,42 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
     }
 
     @Override
-    public void updateClientRevision(SyncData clientData) throws SyncException {
+    public String getCheckpoint() throws SyncException {
 
         try {
+            // creates the checkpoint table, DDL mustn't be part of a page transaction
             adapter = prepareAdapterWithAutoCommit();
+            return adapter.getCheckpoint();
+        } catch (DatabaseAdapterException e) {
+            throw new SyncException(read(Errors.COMMON_CANT_UPDATE_CHECKPOINT), e);
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
+    @Override
+    public void updateCheckpoint(String continuationToken) throws SyncException {
+
+        if (adapter == null) {
+            throw new IllegalStateException(read(Errors.DATA_NULLABLE_DATABASEADAPTER));
+        }
+
+        try {
+            adapter.updateCheckpoint(continuationToken);
+        } catch (DatabaseAdapterException e) {
+            rollback(adapter);
+            throw new SyncException(read(Errors.COMMON_CANT_UPDATE_CHECKPOINT), e);
+        }
+    }
+
+    @Override
+    public void updateClientRevision(SyncData clientData) throws SyncException {
+
+        try {
+            adapter = prepareAdapterNoAutoCommit();
             ClientHashProcessor hashProcessor = new ClientHashProcessor(adapter, getStrategies(), conflictListener);
             hashProcessor.updateClientRevision(clientData);
+            adapter.commit();
         } catch (Throwable e) {
             rollback(adapter);
             throw new SyncException(read(Errors.COMMON_CANT_UPDATE_CLIENT_REVISIONS), e);
@@ -296,6 +369,24 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
 
     }
 
+    @Override
+    public SyncData encodeColumnDeltas(SyncData clientData) throws SyncException {
+
+        if (!Config.getInstance().isColumnDeltaActivated()) {
+            return clientData;
+        }
+
+        try {
+            adapter = prepareAdapterWithAutoCommit();
+            ClientHashProcessor hashProcessor = new ClientHashProcessor(adapter, getStrategies(), conflictListener);
+            return hashProcessor.encodeColumnDeltas(clientData);
+        } catch (DatabaseAdapterException e) {
+            throw new SyncException(e);
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
     @Override
     public void setConflictListener(IConflictListener listener) {
         this.conflictListener = listener;
@@ -309,6 +400,24 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
     @Override
     public void beginTransaction() throws DatabaseAdapterInstantiationException {
         adapter = prepareAdapterNoAutoCommit();
+        bulkLoadedKeys.clear();
+    }
+
+    @Override
+    public void rollback() throws SyncException {
+        if (adapter == null) {
+            throw new IllegalStateException(read(Errors.DATA_NULLABLE_DATABASEADAPTER));
+        }
+
+        try {
+            if (adapter.getConnection().isClosed()) {
+                // a failed apply already rolled back
+                return;
+            }
+        } catch (SQLException e) {
+            throw new SyncException(read(Errors.DATA_TRANSACTION_ROLLBACK_FAILED), e);
+        }
+        rollback(adapter);
     }
 
     @Override
@@ -327,6 +436,7 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
                 throw new DatabaseAdapterException(read(Errors.DATA_TRANSACTION_ROLLBACK_FAILED), e1);
             }
         } finally {
+            adapter.clearStatementCache();
             try {
                 adapter.getConnection().close();
             } catch (SQLException e) {
@@ -335,12 +445,124 @@ public final class ClientSyncProvider extends AbstractSyncProvider implements IC
         }
     }
 
+    @Override
+    public List<FingerprintNode> getFingerprint(String table, final List<FingerprintNode> serverNodes) throws
+        SyncException {
+
+        try {
+            adapter = prepareAdapterWithAutoCommit();
+            final FingerprintCalculator calculator = new FingerprintCalculator(adapter.getHashCalculator());
+            final List<FingerprintNode> clientNodes = newArrayList();
+            adapter.getMdRowsOrderedByPk(table, new DatabaseAdapterCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet mdRows) throws DatabaseAdapterException, SQLException {
+                    clientNodes.addAll(calculator.calculateHashes(mdRows, serverNodes));
+                }
+            });
+            return clientNodes;
+        } catch (DatabaseAdapterException e) {
+            throw new SyncException(read(Errors.COMMON_CANT_GET_FINGERPRINT, table), e);
+        } finally {
+            // only SELECT queries so no rollback needed.
+            closeConnection(adapter);
+        }
+    }
+
+    @Override
+    public int repair(final String table, final List<FingerprintNode> ranges, final SyncData serverData) throws
+        SyncException {
+
+        checkSyncDirectionOfServerChanges(serverData.getChanges(), getStrategies());
+
+        final Map<Object, Change> serverRows = new TreeMap<Object, Change>(new PrimaryKeyComparator());
+        for (Change change : serverData.getChanges()) {
+            if (table.equals(change.getMdEntry().getTableName())) {
+                serverRows.put(change.getMdEntry().getPrimaryKey(), change);
+            }
+        }
+
+        try {
+            adapter = prepareAdapterNoAutoCommit();
+            final HashCalculator hashCalculator = adapter.getHashCalculator();
+            final List<Change> repairs = newArrayList();
+
+            adapter.getMdRowsOrderedByPk(table, new DatabaseAdapterCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet mdRows) throws DatabaseAdapterException, SQLException {
+                    while (mdRows.next()) {
+                        Object pk = mdRows.getObject(PK_COLUMN_NAME);
+                        if (!isInRanges(ranges, pk)) {
+                            continue;
+                        }
+                        Change serverRow = serverRows.remove(pk);
+                        if (mdRows.getInt(FLAG_COLUMN_NAME) != FLAG_PROCESSED) {
+                            // local changes are not yet on the server, the next synchronization sends them
+                            continue;
+                        }
+                        String mdv = mdRows.getString(MDV_COLUMN_NAME);
+                        if (serverRow == null) {
+                            if (mdv != null) {
+                                Map<String, Object> noRowData = newHashMap();
+                                MDEntry deleted = new MDEntry(pk, false, serverData.getRevision(), table, null);
+                                repairs.add(new Change(deleted, noRowData));
+                            }
+                        } else if (differs(serverRow, mdv, hashCalculator)) {
+                            repairs.add(serverRow);
+                        }
+                    }
+                }
+            });
+
+            for (Change serverRow : serverRows.values()) {
+                if (serverRow.getMdEntry().dataRowExists()) {
+                    repairs.add(serverRow);
+                }
+            }
+
+            new ClientHashProcessor(adapter, getStrategies(), conflictListener).applyChangesFromServerOnClient(
+                repairs);
+            adapter.commit();
+            LOGGER.info(Infos.COMMON_TABLE_REPAIRED, table, ranges.size(), repairs.size());
+            return repairs.size();
+        } catch (Throwable ex) { //NOSONAR
+            /**
+             * no matter what happened, we have to rollback
+             */
+            rollback(adapter);
+            throw new SyncException(read(Errors.COMMON_CANT_REPAIR_TABLE, table), ex);
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
+    private static boolean differs(Change serverRow, String clientMdv, HashCalculator hashCalculator) {
+        if (!serverRow.getMdEntry().dataRowExists()) {
+            return clientMdv != null;
+        }
+        // the server doesn't send its hash values, so the hash of the row data is compared
+        String serverMdv = hashCalculator.calculateHash(serverRow.getRowData());
+        return !serverMdv.equals(clientMdv);
+    }
+
+    private static boolean isInRanges(List<FingerprintNode> ranges, Object pk) {
+        for (FingerprintNode range : ranges) {
+            if (FingerprintCalculator.isInRange(range, pk)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
-     * @return
-     * @todo implement configuration of trigger support
+     * Returns true if triggers maintain the flags of the client's metadata tables.
+     * <p/>
+     * The triggers are installed by the database adapter when the metadata tables are created,
+     * so the tables don't have to be scanned for changes before each sync.
+     *
+     * @return true if triggers are activated on the client
      */
     private boolean isTriggerSupported() {
-        return false;
+        return Config.getInstance().isSqlTriggerOnClientActivated();
     }
 
     /**
@@ -37,6 +37,7 @@ import de.consistec.doubleganger.common.i18n.Infos;
 import de.consistec.doubleganger.common.util.DBMapperUtil;
 import de.consistec.doubleganger.common.util.HashCalculator;
 import de.consistec.doubleganger.common.util.LoggingUtil;
+import de.consistec.doubleganger.common.util.PrimaryKeyComparator;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -54,6 +55,8 @@ import org.slf4j.cal10n.LocLogger;
  * {@code ClientTableSynchronizer } creates a new md table entry. If deleted rows are
  * detected and an md table entry exists then the {@code ClientTableSynchronizer }
  * updates the md table entry with an empty hash value and marks it so as deleted.</p>
+ * <p>For tables with a {@link Config#getWatermarkColumn(String) watermark column} only the rows
+ * changed since the last scan are hashed, deleted rows are still searched in the whole md table.</p>
  *
  * @author Markus
  * @company consistec Engineering and Consulting GmbH
@@ -64,6 +67,7 @@ public class ClientTableSynchronizer {
 
     private static final LocLogger LOGGER = LoggingUtil.createLogger(ClientTableSynchronizer.class.getCanonicalName());
     private static final Config CONF = Config.getInstance();
+    private static final PrimaryKeyComparator VALUE_COMPARATOR = new PrimaryKeyComparator();
     private IDatabaseAdapter adapter;
 
     /**
@@ -102,7 +106,11 @@ public class ClientTableSynchronizer {
         final List<String> columns = adapter.getColumnNamesFromTable(table);
         Collections.sort(columns);
 
-        adapter.getAllRowsFromTable(table, new DatabaseAdapterCallback<ResultSet>() {
+        final String watermarkColumn = CONF.getWatermarkColumn(table);
+        final Object watermark = watermarkColumn == null ? null : adapter.getWatermark(table);
+        final Object[] highWatermark = new Object[]{watermark};
+
+        DatabaseAdapterCallback<ResultSet> callback = new DatabaseAdapterCallback<ResultSet>() {
             @Override
             public void onSuccess(ResultSet allRows) throws DatabaseAdapterException {
 
@@ -120,6 +128,13 @@ public class ClientTableSynchronizer {
                         final Object primaryKey = allRows.getObject(adapter.getPrimaryKeyColumn(table).getName());
                         final String hash = hashCalculator.calculateHash(rowData);
 
+                        if (watermarkColumn != null) {
+                            Object rowWatermark = allRows.getObject(watermarkColumn);
+                            if (VALUE_COMPARATOR.compare(rowWatermark, highWatermark[0]) > 0) {
+                                highWatermark[0] = rowWatermark;
+                            }
+                        }
+
                         adapter.getRowForPrimaryKey(primaryKey, mdTable, new DatabaseAdapterCallback<ResultSet>() {
                             @Override
                             public void onSuccess(ResultSet result) throws DatabaseAdapterException {
@@ -149,7 +164,16 @@ public class ClientTableSynchronizer {
                     throw new DatabaseAdapterException(e);
                 }
             }
-        });
+        };
+
+        if (watermarkColumn == null) {
+            adapter.getAllRowsFromTable(table, callback);
+        } else {
+            adapter.getRowsChangedAfterWatermark(table, watermarkColumn, watermark, callback);
+            if (VALUE_COMPARATOR.compare(highWatermark[0], watermark) != 0) {
+                adapter.updateWatermark(table, watermarkColumn, highWatermark[0]);
+            }
+        }
     }
 
     private void searchAndProcessDeletedRows(final String table) throws DatabaseAdapterException {
@@ -26,11 +26,14 @@ package de.consistec.doubleganger.common.client;
 import de.consistec.doubleganger.common.IConflictListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncDataHolder;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterInstantiationException;
 
+import java.util.List;
+
 /**
  * This interface defines the behavior of the synchronization provider on the client's side.
  *
@@ -53,6 +56,8 @@ public interface IClientSyncProvider {
 
     /**
      * Applies the cleaned (without conflicts) server changes on the client.
+     * <p/>
+     * The parts of a streamed change set are applied one after another in the same transaction.
      *
      * @param serverData an object which contains the max revision and the changeset from server provider.See
      * {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getChanges(int) }.
@@ -79,6 +84,25 @@ public interface IClientSyncProvider {
      */
     int getLastRevision() throws SyncException;
 
+    /**
+     * Gets the checkpoint of an interrupted paged synchronization.
+     * See {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getChanges(int, int, String) }.
+     *
+     * @return the continuation token of the last applied page or {@code null} if no paged synchronization was
+     * interrupted
+     * @throws SyncException
+     */
+    String getCheckpoint() throws SyncException;
+
+    /**
+     * Stores the checkpoint of a paged synchronization in the transaction created in beginTransaction,
+     * so it is committed together with the applied page.
+     *
+     * @param continuationToken the continuation token of the applied page or {@code null} after the last page
+     * @throws SyncException
+     */
+    void updateCheckpoint(String continuationToken) throws SyncException;
+
     /**
      * Update client revision of the changes which have been sent to the server.
      *
@@ -87,6 +111,17 @@ public interface IClientSyncProvider {
      */
     void updateClientRevision(SyncData serverData) throws SyncException;
 
+    /**
+     * Replaces the modified rows of the client changes by their changed columns, if
+     * {@link de.consistec.doubleganger.common.Config#isColumnDeltaActivated() column deltas} are activated.
+     * See {@link ClientHashProcessor#encodeColumnDeltas(SyncData) }.
+     *
+     * @param clientData the client changes after the conflict resolution
+     * @return the changes to send to the server, {@code clientData} itself if no row was reduced
+     * @throws SyncException
+     */
+    SyncData encodeColumnDeltas(SyncData clientData) throws SyncException;
+
     /**
      * Checks whether schema has been initialized on client side.
      * Check should include also md tables.
@@ -96,6 +131,15 @@ public interface IClientSyncProvider {
      */
     boolean hasSchema() throws SyncException;
 
+    /**
+     * Adds the indexes of the md tables which are missing in a schema created by an older version.
+     * See {@link de.consistec.doubleganger.common.adapter.IDatabaseAdapter#createMissingMDIndexes(String) }.
+     * The column hash tables are created too, if column deltas are activated.
+     *
+     * @throws SyncException
+     */
+    void createMissingMDIndexes() throws SyncException;
+
     /**
      * Apply schema returned from server.
      * See {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getSchema() }.
@@ -129,4 +173,35 @@ public interface IClientSyncProvider {
      */
     void commit() throws DatabaseAdapterException;
 
+    /**
+     * Rolls back and closes the connection created in beginTransaction.
+     *
+     * @throws SyncException if the rollback fails
+     */
+    void rollback() throws SyncException;
+
+    /**
+     * Computes the row count and hash of the given server fingerprint nodes from the client rows.
+     * See {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getFingerprint(String, List) }.
+     *
+     * @param table the table name
+     * @param serverNodes the nodes of the server fingerprint
+     * @return the client nodes in the same order
+     * @throws SyncException the sync exception
+     */
+    List<FingerprintNode> getFingerprint(String table, List<FingerprintNode> serverNodes) throws SyncException;
+
+    /**
+     * Replaces the client rows of the given ranges with the server rows.
+     * <p/>
+     * Rows which have been changed on the client and not yet been synchronized are left untouched.
+     *
+     * @param table the table name
+     * @param ranges the divergent fingerprint ranges
+     * @param serverData all server rows of the ranges. See
+     * {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getChangesForRanges(String, List) }.
+     * @return number of repaired rows
+     * @throws SyncException the sync exception
+     */
+    int repair(String table, List<FingerprintNode> ranges, SyncData serverData) throws SyncException;
 }
@@ -0,0 +1,97 @@
+package de.consistec.doubleganger.common.client;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - StreamedChangesApplier.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import de.consistec.doubleganger.common.IChangeListener;
+import de.consistec.doubleganger.common.SyncData;
+import de.consistec.doubleganger.common.SyncDataHolder;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.exception.SyncException;
+
+/**
+ * Applies a streamed server change set on the client while it is received.
+ * <p/>
+ * The changes are collected in chunks of {@link #CHUNK_SIZE} changes. Each chunk is freed from conflicts with the
+ * remaining client changes and applied in the transaction of the client provider, so only one chunk of server
+ * changes is held in memory. A later change of a row replaces the earlier one, within a chunk by collecting it and
+ * across chunks by applying it afterwards.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 14:20
+ */
+class StreamedChangesApplier implements IChangeListener {
+
+    /**
+     * Maximal number of server changes which are applied at once.
+     */
+    static final int CHUNK_SIZE = 1000;
+    private final IClientSyncProvider clientProvider;
+    private SyncData clientData;
+    private SyncData chunk = new SyncData();
+
+    /**
+     * Creates an applier for the transaction begun by the client provider.
+     *
+     * @param clientProvider client provider with a begun transaction
+     * @param clientData client changes to resolve the conflicts with
+     */
+    StreamedChangesApplier(IClientSyncProvider clientProvider, SyncData clientData) {
+        this.clientProvider = clientProvider;
+        this.clientData = clientData;
+    }
+
+    @Override
+    public void onRevision(int revision) {
+        chunk.setRevision(revision);
+    }
+
+    @Override
+    public void onChange(Change change) throws SyncException {
+        chunk.onChange(change);
+        if (chunk.getChanges().size() >= CHUNK_SIZE) {
+            applyChunk();
+        }
+    }
+
+    /**
+     * Applies the last chunk, it is applied even without changes.
+     *
+     * @return the client changes which remain after the conflicts of all chunks
+     * @throws SyncException When the chunk can't be applied.
+     */
+    SyncData finish() throws SyncException {
+        applyChunk();
+        return clientData;
+    }
+
+    private void applyChunk() throws SyncException {
+        SyncDataHolder dataHolder = clientProvider.resolveConflicts(chunk, clientData);
+        clientData = dataHolder.getClientSyncData();
+        clientProvider.applyChanges(dataHolder.getServerSyncData());
+
+        SyncData nextChunk = new SyncData();
+        nextChunk.setRevision(chunk.getRevision());
+        chunk = nextChunk;
+    }
+}
@@ -24,6 +24,7 @@ package de.consistec.doubleganger.common.client;
  */
 
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashSet;
 import static de.consistec.doubleganger.common.util.Preconditions.checkNotNull;
 
@@ -33,6 +34,7 @@ import de.consistec.doubleganger.common.ISyncProgressListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncDataHolder;
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.exception.ServerStatusException;
 import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
@@ -45,6 +47,7 @@ import de.consistec.doubleganger.common.server.IServerSyncProvider;
 import de.consistec.doubleganger.common.server.ServerStatus;
 import de.consistec.doubleganger.common.util.LoggingUtil;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -186,24 +189,21 @@ public class SyncAgent {
 
         try {
             int clientRevision = clientProvider.getLastRevision();
+            int pageSize = Config.getInstance().getPageSize();
+            int currentRevision;
 
-            // transaction phase 1 server
-            doBeforeGetServerChanges();
-            SyncData serverData = serverProvider.getChanges(clientRevision);
-            doAfterGetServerChanges();
-
-            // transaction phase 1 client
-            clientProvider.beginTransaction();
-            SyncData clientData = clientProvider.getChanges();
-            dataHolder = clientProvider.resolveConflicts(serverData, clientData);
-            clientChangesToApply = dataHolder.getClientSyncData();
-            int currentRevision = clientProvider.applyChanges(dataHolder.getServerSyncData());
-            clientProvider.commit();
+            if (pageSize > 0) {
+                // transaction phase 1 server and client, once per page
+                currentRevision = applyServerChangesInPages(clientRevision, pageSize);
+            } else {
+                // transaction phase 1 server and client, the server changes are applied while they are received
+                currentRevision = applyStreamedServerChanges(clientRevision);
+            }
             clientChangesToApply.setRevision(currentRevision);
 
             // transaction phase 2 server
             doBeforeApplyClientChanges();
-            int serverRevision = serverProvider.applyChanges(clientChangesToApply);
+            int serverRevision = applyClientChangesOnServer();
             doAfterApplyClientChanges();
 
             clientChangesToApply.setRevision(serverRevision);
@@ -256,6 +256,160 @@ public class SyncAgent {
         }
     }
 
+    /**
+     * Sends the client changes to the server, the modified rows as column deltas if they are activated.
+     * <p/>
+     * If the server rejects the column deltas, because its rows differ from the base versions of the deltas,
+     * the full rows are sent again.
+     *
+     * @return the new server revision
+     * @throws SyncException When the server can't apply the changes.
+     */
+    private int applyClientChangesOnServer() throws SyncException {
+
+        SyncData encodedChanges = clientProvider.encodeColumnDeltas(clientChangesToApply);
+        if (encodedChanges == clientChangesToApply) {
+            return serverProvider.applyChanges(clientChangesToApply);
+        }
+
+        try {
+            return serverProvider.applyChanges(encodedChanges);
+        } catch (ServerStatusException ex) {
+            if (ex.getStatus() != ServerStatus.BASE_ROW_CHANGED) {
+                throw ex;
+            }
+            LOGGER.info(Infos.COMMON_RESENDING_FULL_ROWS);
+            return serverProvider.applyChanges(clientChangesToApply);
+        }
+    }
+
+    /**
+     * Streams the server changes into the client transaction, chunk by chunk, so the client never holds the whole
+     * change set.
+     * <p/>
+     * The conflicts of every chunk are resolved against the remaining client changes, like the pages of
+     * {@link #applyServerChangesInPages(int, int)}. A failed stream rolls back the chunks which were already
+     * applied.
+     *
+     * @param clientRevision the client revision
+     * @return the revision of the server changes
+     * @throws SyncException When synchronization fails.
+     * @throws DatabaseAdapterException When the client transaction fails.
+     */
+    private int applyStreamedServerChanges(int clientRevision) throws SyncException, DatabaseAdapterException {
+
+        doBeforeGetServerChanges();
+        clientProvider.beginTransaction();
+        int currentRevision;
+        try {
+            StreamedChangesApplier applier = new StreamedChangesApplier(clientProvider, clientProvider.getChanges());
+            currentRevision = serverProvider.getChanges(clientRevision, applier);
+            clientChangesToApply = applier.finish();
+        } catch (SyncException e) {
+            clientProvider.rollback();
+            throw e;
+        }
+        doAfterGetServerChanges();
+        clientProvider.commit();
+        return currentRevision;
+    }
+
+    /**
+     * Requests the server changes page by page and applies each page in its own client transaction, which also
+     * stores the continuation token of the page as checkpoint.
+     * <p/>
+     * A synchronization which was interrupted after a page resumes with the next page. The client changes are read
+     * with the first page and the conflicts of every page are resolved against the remaining client changes,
+     * like the conflicts of a change set which is not paged.
+     *
+     * @param clientRevision the client revision, ignored when an interrupted synchronization is resumed
+     * @param pageSize maximal number of server changes of a page
+     * @return the revision of the pages
+     * @throws SyncException When synchronization fails.
+     * @throws DatabaseAdapterException When a client transaction fails.
+     */
+    private int applyServerChangesInPages(int clientRevision, int pageSize) throws SyncException,
+        DatabaseAdapterException {
+
+        String continuationToken = clientProvider.getCheckpoint();
+        if (continuationToken != null) {
+            LOGGER.info(Infos.COMMON_RESUMING_PAGED_SYNC, continuationToken);
+        }
+
+        SyncData clientData = null;
+        int currentRevision;
+        do {
+            doBeforeGetServerChanges();
+            SyncData page = serverProvider.getChanges(clientRevision, pageSize, continuationToken);
+            doAfterGetServerChanges();
+
+            clientProvider.beginTransaction();
+            if (clientData == null) {
+                clientData = clientProvider.getChanges();
+            }
+            dataHolder = clientProvider.resolveConflicts(page, clientData);
+            clientData = dataHolder.getClientSyncData();
+            currentRevision = clientProvider.applyChanges(dataHolder.getServerSyncData());
+            continuationToken = page.getContinuationToken();
+            clientProvider.updateCheckpoint(continuationToken);
+            clientProvider.commit();
+            LOGGER.info(Infos.COMMON_PAGE_APPLIED, page.getChanges().size(), continuationToken);
+        } while (continuationToken != null);
+
+        clientChangesToApply = clientData;
+        return currentRevision;
+    }
+
+    /**
+     * Synchronizes and then compares the fingerprints of all sync tables with the server to repair client rows
+     * which differ from the server without being marked as changed, e.g. after a restored backup or manual edits
+     * of the md tables.
+     * <p/>
+     * The fingerprints are compared top-down, only the children of divergent nodes are requested. The rows of the
+     * divergent leaves are then fetched from the server and replaced on the client. Client rows with local changes
+     * which are not yet synchronized are left untouched.
+     * <br/>
+     * The comparison relies on the hash values in the client md tables, with
+     * {@link Config#isSqlTriggerOnClientActivated() triggers} all rows are reported as divergent.
+     *
+     * @return number of repaired rows
+     * @throws SyncException When synchronization or repair fails.
+     */
+    public int repair() throws SyncException {
+
+        synchronize();
+
+        int repairedRows = 0;
+        for (String table : Config.getInstance().getSyncTables()) {
+            List<FingerprintNode> divergentLeaves = newArrayList();
+            List<FingerprintNode> serverNodes = serverProvider.getFingerprint(table, new ArrayList<FingerprintNode>());
+
+            while (!serverNodes.isEmpty()) {
+                List<FingerprintNode> clientNodes = clientProvider.getFingerprint(table, serverNodes);
+                List<FingerprintNode> divergentParents = newArrayList();
+                for (int i = 0; i < serverNodes.size(); i++) {
+                    FingerprintNode serverNode = serverNodes.get(i);
+                    if (!serverNode.hasSameRows(clientNodes.get(i))) {
+                        if (serverNode.isLeaf()) {
+                            divergentLeaves.add(serverNode);
+                        } else {
+                            divergentParents.add(serverNode);
+                        }
+                    }
+                }
+                serverNodes = divergentParents.isEmpty() ? divergentParents
+                    : serverProvider.getFingerprint(table, divergentParents);
+            }
+
+            if (!divergentLeaves.isEmpty()) {
+                SyncData serverData = serverProvider.getChangesForRanges(table, divergentLeaves);
+                repairedRows += clientProvider.repair(table, divergentLeaves, serverData);
+            }
+        }
+        updateFinished();
+        return repairedRows;
+    }
+
     /**
      * @todo write comment
      */
@@ -61,6 +61,14 @@ public class Change implements Serializable {
      * @serial
      */
     private Map<String, Object> rowData = newHashMap();
+    /**
+     * Hash of the column hashes of the row version the row data is a delta to.
+     * Null if the row data holds all columns.
+     * <p/>
+     *
+     * @serial
+     */
+    private String baseHash;
 
     /**
      * Instantiates a new change.
@@ -99,6 +107,9 @@ public class Change implements Serializable {
 
     /**
      * Gets the row data.
+     * <p/>
+     * Rows read from the database or from a serialized change list are {@link RowData} instances, the rows of
+     * one table share their column names.
      *
      * @return the row data
      */
@@ -115,6 +126,38 @@ public class Change implements Serializable {
         this.rowData = rowData;
     }
 
+    /**
+     * Gets the base hash of a column delta.
+     * <p/>
+     * A column delta holds only the changed columns of a modified row. The base hash identifies the row version
+     * the changed columns have to be applied to, see {@link
+     * de.consistec.doubleganger.common.util.HashCalculator#calculateBaseHash(String)}.
+     *
+     * @return the base hash or {@code null} if the row data holds all columns
+     */
+    public String getBaseHash() {
+        return baseHash;
+    }
+
+    /**
+     * Sets the base hash of a column delta.
+     *
+     * @param baseHash the base hash or {@code null} if the row data holds all columns
+     * @see #getBaseHash()
+     */
+    public void setBaseHash(String baseHash) {
+        this.baseHash = baseHash;
+    }
+
+    /**
+     * Returns true if the row data holds only the changed columns of a modified row.
+     *
+     * @return true for a column delta
+     */
+    public boolean isColumnDelta() {
+        return baseHash != null;
+    }
+
     /**
      * Brief description of instance state.
      * Result looks like {@code Change{mdEntry=MDEntry{...}, rowData=[]}} but could be changed in future releases.
@@ -130,6 +173,7 @@ public class Change implements Serializable {
             + mdEntryString
             + ", rowData= "
             + rowDataString
+            + (baseHash == null ? "" : ", baseHash=" + baseHash)
             + " }";
     }
 
@@ -149,6 +193,10 @@ public class Change implements Serializable {
             return false;
         }
 
+        if (baseHash != null ? !baseHash.equals(other.baseHash) : other.baseHash != null) {
+            return false;
+        }
+
         if (rowData != null && other.rowData != null) {
             if (!rowData.keySet().equals(other.rowData.keySet())) {
                 return false;
@@ -174,6 +222,7 @@ public class Change implements Serializable {
     public int hashCode() {
         int result = mdEntry == null ? 0 : mdEntry.hashCode();
         result = 31 * result + (rowData == null ? 0 : rowData.hashCode());
+        result = 31 * result + (baseHash == null ? 0 : baseHash.hashCode());
         return result;
     }
 
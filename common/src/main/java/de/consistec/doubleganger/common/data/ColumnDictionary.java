@@ -0,0 +1,160 @@
+package de.consistec.doubleganger.common.data;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ColumnDictionary.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ordered column names of the rows of one table.
+ * <p/>
+ * All {@link RowData rows} read from the same result set or change list share one dictionary and hold their
+ * values in an array indexed by the column ordinal, so the column names are held once per table instead of once
+ * per row.
+ * <p/>
+ * Dictionaries are immutable.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 18:05
+ * @serial
+ */
+public final class ColumnDictionary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * The column names in ordinal order.
+     *
+     * @serial
+     */
+    private final String[] columns;
+    /**
+     * The ordinal of every column name.
+     *
+     * @serial
+     */
+    private final Map<String, Integer> ordinals;
+
+    /**
+     * Creates a dictionary of the given columns.
+     *
+     * @param columns the column names, the first one gets ordinal 0
+     */
+    public ColumnDictionary(Collection<String> columns) {
+        this(columns.toArray(new String[columns.size()]));
+    }
+
+    private ColumnDictionary(String[] columns) {
+        this.columns = columns;
+        this.ordinals = newHashMap(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            ordinals.put(columns[i], i);
+        }
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return number of columns
+     */
+    public int size() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the name of the column with the given ordinal.
+     *
+     * @param ordinal ordinal of the column
+     * @return column name
+     */
+    public String getColumn(int ordinal) {
+        return columns[ordinal];
+    }
+
+    /**
+     * Returns the column names in ordinal order.
+     *
+     * @return unmodifiable list of the column names
+     */
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * Returns the ordinal of a column.
+     *
+     * @param column column name
+     * @return the ordinal or {@code -1} if the dictionary doesn't contain the column
+     */
+    public int ordinalOf(Object column) {
+        Integer ordinal = ordinals.get(column);
+        return ordinal == null ? -1 : ordinal.intValue();
+    }
+
+    /**
+     * Checks if the dictionary consists of exactly the given columns, regardless of their order.
+     *
+     * @param otherColumns column names
+     * @return {@code true} if rows with these columns can use this dictionary
+     */
+    public boolean matches(Collection<String> otherColumns) {
+        return otherColumns.size() == columns.length && ordinals.keySet().containsAll(otherColumns);
+    }
+
+    /**
+     * Returns a dictionary with an additional column at the end.
+     *
+     * @param column the new column
+     * @return new dictionary
+     */
+    ColumnDictionary with(String column) {
+        String[] extended = Arrays.copyOf(columns, columns.length + 1);
+        extended[columns.length] = column;
+        return new ColumnDictionary(extended);
+    }
+
+    /**
+     * Returns a dictionary without the column with the given ordinal.
+     *
+     * @param ordinal ordinal of the removed column
+     * @return new dictionary
+     */
+    ColumnDictionary without(int ordinal) {
+        String[] reduced = new String[columns.length - 1];
+        System.arraycopy(columns, 0, reduced, 0, ordinal);
+        System.arraycopy(columns, ordinal + 1, reduced, ordinal, columns.length - ordinal - 1);
+        return new ColumnDictionary(reduced);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + Arrays.toString(columns);
+    }
+}
@@ -0,0 +1,299 @@
+package de.consistec.doubleganger.common.data;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - FingerprintNode.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.io.Serializable;
+
+/**
+ * The Class FingerprintNode represents one node of a {@link TableFingerprint}.
+ * <p/>
+ * A node covers all rows of a table whose primary key is in the range from its lower bound (inclusive)
+ * to its upper bound (exclusive), {@code null} bounds are unlimited. The hash of a node is the xor
+ * of the digests of all rows in the range, so it is equal to the xor of its children hashes and client and server
+ * can compute it for the same range independently.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 09:15
+ * @serial
+ */
+public class FingerprintNode implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * The depth of the node, the root has level 0.
+     *
+     * @serial
+     */
+    private int level;
+    /**
+     * The position of the node in its level.
+     *
+     * @serial
+     */
+    private int index;
+    /**
+     * The smallest primary key in the range or null for the first node of a level.
+     *
+     * @serial
+     */
+    private Object lowerBound;
+    /**
+     * The first primary key after the range or null for the last node of a level.
+     *
+     * @serial
+     */
+    private Object upperBound;
+    /**
+     * Number of rows in the range.
+     *
+     * @serial
+     */
+    private int rowCount;
+    /**
+     * The hex encoded hash of the rows in the range.
+     *
+     * @serial
+     */
+    private String hash;
+    /**
+     * True if the node has no children.
+     *
+     * @serial
+     */
+    private boolean leaf;
+
+    /**
+     * Instantiates a new fingerprint node with default values.
+     */
+    public FingerprintNode() {
+    }
+
+    /**
+     * Instantiates a new fingerprint node with provided values.
+     *
+     * @param level depth of the node
+     * @param index position in the level
+     * @param lowerBound inclusive lower primary key or null
+     * @param upperBound exclusive upper primary key or null
+     * @param rowCount number of rows in the range
+     * @param hash hash of the rows in the range
+     * @param leaf true if the node has no children
+     */
+    public FingerprintNode(int level, int index, Object lowerBound, Object upperBound, int rowCount, String hash,
+        boolean leaf) {
+        this.level = level;
+        this.index = index;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.rowCount = rowCount;
+        this.hash = hash;
+        this.leaf = leaf;
+    }
+
+    /**
+     * Gets the level.
+     *
+     * @return depth of the node
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the level.
+     *
+     * @param level depth of the node
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Gets the index.
+     *
+     * @return position of the node in its level
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the index.
+     *
+     * @param index position of the node in its level
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Gets the lower bound.
+     *
+     * @return inclusive lower primary key or null
+     */
+    public Object getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Sets the lower bound.
+     *
+     * @param lowerBound inclusive lower primary key or null
+     */
+    public void setLowerBound(Object lowerBound) {
+        this.lowerBound = lowerBound;
+    }
+
+    /**
+     * Gets the upper bound.
+     *
+     * @return exclusive upper primary key or null
+     */
+    public Object getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * Sets the upper bound.
+     *
+     * @param upperBound exclusive upper primary key or null
+     */
+    public void setUpperBound(Object upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * Gets the row count.
+     *
+     * @return number of rows in the range
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Sets the row count.
+     *
+     * @param rowCount number of rows in the range
+     */
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Gets the hash.
+     *
+     * @return hash of the rows in the range
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Sets the hash.
+     *
+     * @param hash hash of the rows in the range
+     */
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Returns true if the node has no children.
+     *
+     * @return true for leaf nodes
+     */
+    public boolean isLeaf() {
+        return leaf;
+    }
+
+    /**
+     * Sets if the node has no children.
+     *
+     * @param leaf true for leaf nodes
+     */
+    public void setLeaf(boolean leaf) {
+        this.leaf = leaf;
+    }
+
+    /**
+     * Returns true if the other node covers the same rows, i.e. the row count and the hash are equal.
+     *
+     * @param other node computed for the same range
+     * @return true if the ranges have the same content
+     */
+    public boolean hasSameRows(FingerprintNode other) {
+        return other != null && rowCount == other.rowCount
+            && (hash == null ? other.hash == null : hash.equalsIgnoreCase(other.hash));
+    }
+
+    /**
+     * Description of object state.
+     * Something like {@code FingerprintNode{level=1, index=3, lowerBound=10, upperBound=20, rowCount=10, ...}}.
+     * Do <b>not</b> parse! Result could change in feature releases.
+     *
+     * @return Object's representation.
+     */
+    @Override
+    public String toString() {
+        return "FingerprintNode{level=" + level + ", index=" + index + ", lowerBound=" + lowerBound
+            + ", upperBound=" + upperBound + ", rowCount=" + rowCount + ", hash=" + hash + ", leaf=" + leaf + '}';
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final FingerprintNode other = (FingerprintNode) obj;
+        if (this.level != other.level || this.index != other.index || this.rowCount != other.rowCount
+            || this.leaf != other.leaf) {
+            return false;
+        }
+        if (this.lowerBound != other.lowerBound
+            && (this.lowerBound == null || !this.lowerBound.equals(other.lowerBound))) {
+            return false;
+        }
+        if (this.upperBound != other.upperBound
+            && (this.upperBound == null || !this.upperBound.equals(other.upperBound))) {
+            return false;
+        }
+        return this.hash == null ? other.hash == null : this.hash.equals(other.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 7;
+        result = 31 * result + this.level;
+        result = 31 * result + this.index;
+        result = 31 * result + (this.lowerBound != null ? this.lowerBound.hashCode() : 0);
+        result = 31 * result + (this.upperBound != null ? this.upperBound.hashCode() : 0);
+        result = 31 * result + this.rowCount;
+        result = 31 * result + (this.hash != null ? this.hash.hashCode() : 0);
+        return result;
+    }
+}
@@ -0,0 +1,267 @@
+package de.consistec.doubleganger.common.data;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - RowData.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact row data: the values of a row in column ordinal order together with the {@link ColumnDictionary}
+ * shared by all rows of the same table.
+ * <p/>
+ * The class is the {@code Map} view of {@link Change#getRowData()}, so code working with column names keeps
+ * working, while a row only costs one object array instead of a hash map with an entry and a column name
+ * reference per column. Adding or removing a column, which doesn't happen while changes are synchronized, gives
+ * the row its own dictionary.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 18:05
+ * @serial
+ */
+public class RowData extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * The column names of the values.
+     *
+     * @serial
+     */
+    private ColumnDictionary dictionary;
+    /**
+     * The values in column ordinal order.
+     *
+     * @serial
+     */
+    private Object[] values;
+
+    /**
+     * Creates a row with all values {@code null}.
+     *
+     * @param dictionary the column names of the row
+     */
+    public RowData(ColumnDictionary dictionary) {
+        this(dictionary, new Object[dictionary.size()]);
+    }
+
+    /**
+     * Creates a row with the given values.
+     *
+     * @param dictionary the column names of the row
+     * @param values the values in column ordinal order, the array is not copied
+     */
+    public RowData(ColumnDictionary dictionary, Object[] values) {
+        if (values.length != dictionary.size()) {
+            throw new IllegalArgumentException(values.length + " values for " + dictionary);
+        }
+        this.dictionary = dictionary;
+        this.values = values;
+    }
+
+    /**
+     * Returns the column names of the row.
+     *
+     * @return column dictionary
+     */
+    public ColumnDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the value of the column with the given ordinal.
+     *
+     * @param ordinal ordinal of the column in the {@link #getDictionary() dictionary}
+     * @return the value
+     */
+    public Object getValue(int ordinal) {
+        return values[ordinal];
+    }
+
+    /**
+     * Sets the value of the column with the given ordinal.
+     *
+     * @param ordinal ordinal of the column in the {@link #getDictionary() dictionary}
+     * @param value the value
+     */
+    public void setValue(int ordinal, Object value) {
+        values[ordinal] = value;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return dictionary.ordinalOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int ordinal = dictionary.ordinalOf(key);
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int ordinal = dictionary.ordinalOf(key);
+        if (ordinal >= 0) {
+            Object old = values[ordinal];
+            values[ordinal] = value;
+            return old;
+        }
+        Object[] extended = new Object[values.length + 1];
+        System.arraycopy(values, 0, extended, 0, values.length);
+        extended[values.length] = value;
+        dictionary = dictionary.with(key);
+        values = extended;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int ordinal = dictionary.ordinalOf(key);
+        if (ordinal < 0) {
+            return null;
+        }
+        Object old = values[ordinal];
+        removeOrdinal(ordinal);
+        return old;
+    }
+
+    private void removeOrdinal(int ordinal) {
+        Object[] reduced = new Object[values.length - 1];
+        System.arraycopy(values, 0, reduced, 0, ordinal);
+        System.arraycopy(values, ordinal + 1, reduced, ordinal, values.length - ordinal - 1);
+        dictionary = dictionary.without(ordinal);
+        values = reduced;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    /**
+     * Iterates the columns in ordinal order, the entries write through to the row.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int next;
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return new ColumnEntry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            removeOrdinal(current);
+            next = current;
+            current = -1;
+        }
+    }
+
+    /**
+     * A column of the row.
+     */
+    private final class ColumnEntry implements Map.Entry<String, Object> {
+
+        private final String column;
+        private final int ordinal;
+
+        private ColumnEntry(int ordinal) {
+            this.column = dictionary.getColumn(ordinal);
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public String getKey() {
+            return column;
+        }
+
+        @Override
+        public Object getValue() {
+            return values[ordinal];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = values[ordinal];
+            values[ordinal] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) object;
+            Object value = getValue();
+            return column.equals(other.getKey())
+                && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return column.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return column + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package de.consistec.doubleganger.common.data;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - TableFingerprint.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Class TableFingerprint is a merkle tree over the rows of a server table at one revision.
+ * <p/>
+ * The leaves cover consecutive buckets of rows in primary key order, every other node combines up to
+ * {@link #getFanOut()} nodes of the next level. Client and server compare the tree top-down and only
+ * descend into nodes whose hashes differ, so the ranges which need repair are found with a few small requests.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 09:40
+ */
+public class TableFingerprint {
+
+    private final String table;
+    private final int revision;
+    private final int fanOut;
+    private final List<List<FingerprintNode>> levels;
+
+    /**
+     * Instantiates a new table fingerprint.
+     *
+     * @param table name of the table
+     * @param revision server revision the fingerprint was computed at
+     * @param fanOut maximum number of children per node
+     * @param levels the nodes of the tree level by level, the first level contains only the root
+     */
+    public TableFingerprint(String table, int revision, int fanOut, List<List<FingerprintNode>> levels) {
+        this.table = table;
+        this.revision = revision;
+        this.fanOut = fanOut;
+        this.levels = levels;
+    }
+
+    /**
+     * Gets the table name.
+     *
+     * @return name of the table
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Gets the revision.
+     *
+     * @return server revision the fingerprint was computed at
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Gets the fan out.
+     *
+     * @return maximum number of children per node
+     */
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Gets the number of levels.
+     *
+     * @return depth of the tree
+     */
+    public int getDepth() {
+        return levels.size();
+    }
+
+    /**
+     * Gets the root node.
+     *
+     * @return root of the tree
+     */
+    public FingerprintNode getRoot() {
+        return levels.get(0).get(0);
+    }
+
+    /**
+     * Returns all nodes of the given level.
+     *
+     * @param level depth of the nodes
+     * @return unmodifiable list of the nodes
+     */
+    public List<FingerprintNode> getLevel(int level) {
+        return Collections.unmodifiableList(levels.get(level));
+    }
+
+    /**
+     * Returns the children of the given node.
+     * <p/>
+     * The node is looked up by its level and index, so nodes send by the client can be passed directly.
+     *
+     * @param parent the parent node
+     * @return the children or an empty list for leaves and unknown nodes
+     */
+    public List<FingerprintNode> getChildren(FingerprintNode parent) {
+        final int childLevel = parent.getLevel() + 1;
+        if (childLevel >= levels.size() || parent.getLevel() < 0) {
+            return newArrayList();
+        }
+        final List<FingerprintNode> children = levels.get(childLevel);
+        final int from = parent.getIndex() * fanOut;
+        if (parent.getIndex() < 0 || from >= children.size()) {
+            return newArrayList();
+        }
+        return newArrayList(children.subList(from, Math.min(from + fanOut, children.size())));
+    }
+}
@@ -97,10 +97,23 @@ public class CreateSchemaToSQLConverter implements ISQLConverter<Schema> {
                     }
                 }
                 result.append(");");
+                for (Index index : table.getIndexes()) {
+                    result.append(toSQL(table.getName(), index)).append(";");
+                }
             }
         } catch (IllegalAccessException e) {
             throw new SchemaConverterException(e);
         }
         return result.toString();
     }
+
+    @Override
+    public String toSQL(String tableName, Index index) {
+        StringBuilder result = new StringBuilder(String.format("CREATE INDEX %c%s%c ON %c%s%c (%c%s%c)", QUOTE,
+            index.getName(), QUOTE, QUOTE, tableName, QUOTE, QUOTE, index.getColumn(), QUOTE));
+        if (index.getCondition() != null) {
+            result.append(" WHERE ").append(index.getCondition());
+        }
+        return result.toString();
+    }
 }
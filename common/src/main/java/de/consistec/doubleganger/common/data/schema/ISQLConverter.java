@@ -51,4 +51,16 @@ public interface ISQLConverter<T> {
      * @throws SchemaConverterException if conversion fails.
      */
     String toSQL(T objectToConvert) throws SchemaConverterException;
+
+    /**
+     * Converts an index of a table to the SQL query which creates it.
+     * <p/>
+     * Used to add indexes to existing tables. Converters for databases without partial indexes
+     * ignore the {@link Index#getCondition() condition}.
+     *
+     * @param tableName name of the indexed table.
+     * @param index index to convert.
+     * @return Sql query to create the index.
+     */
+    String toSQL(String tableName, Index index);
 }
@@ -0,0 +1,157 @@
+package de.consistec.doubleganger.common.data.schema;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - Index.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * Representation of a (not unique, not composite) SQL index.
+ * <p/>
+ * An index with a condition is a partial index, it only contains the rows matching the condition.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 10:12
+ */
+public class Index {
+
+    private String name;
+    private String column;
+    private String condition;
+
+    /**
+     * Initialize new Index object.
+     *
+     * @param name Index name
+     * @param column Indexed column name
+     */
+    public Index(String name, String column) {
+        this(name, column, null);
+    }
+
+    /**
+     * Initialize new partial Index object.
+     *
+     * @param name Index name
+     * @param column Indexed column name
+     * @param condition SQL condition of the rows to index, {@code null} to index all rows
+     */
+    public Index(String name, String column, String condition) {
+        this.name = name;
+        this.column = column;
+        this.condition = condition;
+    }
+
+    /**
+     *
+     * @return Name of the index
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     *
+     * @param name Index name.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     *
+     * @return Indexed column.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     *
+     * @param column Indexed column.
+     */
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    /**
+     *
+     * @return SQL condition of the indexed rows or {@code null} if all rows are indexed.
+     */
+    public String getCondition() {
+        return condition;
+    }
+
+    /**
+     *
+     * @param condition SQL condition of the indexed rows, {@code null} to index all rows.
+     */
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        Index that = (Index) o;
+
+        if (!column.equals(that.column)) {
+            return false;
+        }
+        if (name == null ? that.name != null : !name.equals(that.name)) {
+            return false;
+        }
+        if (condition == null ? that.condition != null : !condition.equals(that.condition)) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        final int hashcodePrime = 31;
+        int result = column.hashCode();
+        result = hashcodePrime * result + (name == null ? 0 : name.hashCode());
+        result = hashcodePrime * result + (condition == null ? 0 : condition.hashCode());
+        return result;
+    }
+
+    /**
+     * Returns String representation of object state.
+     * It will looks something like that: "Index{name=value, column=value, condition=value}"
+     * and could be changed in future.
+     *
+     * @return String representation of instance state.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s{name=%s, column=%s, condition=%s}", getClass().getSimpleName(), name, column,
+            condition);
+    }
+}
@@ -44,6 +44,7 @@ public class Table {
     private String name;
     private Set<Column> columns = newHashSet();
     private Set<Constraint> constraints = newHashSet();
+    private Set<Index> indexes = newHashSet();
 
     /**
      * Creates a table object with a <i>name</i>.
@@ -148,6 +149,38 @@ public class Table {
         this.constraints.removeAll(Arrays.asList(constraints));
     }
 
+    /**
+     * Returns a copy of original index set, so changes to this copy won't affect original set.
+     *
+     * @return Defensive copy of indexes set.
+     */
+    public Set<Index> getIndexes() {
+        return newHashSet(indexes);
+    }
+
+    /**
+     * Adds indexes to the table.
+     * <i>indexes</i> can not be null.
+     *
+     * @param indexes Table's indexes
+     */
+    public void add(Index... indexes) {
+        for (Index index : indexes) {
+            checkNotNull(index, read(Errors.COMMON_PROVIDED_INDEX_IS_NULL));
+        }
+        this.indexes.addAll(Arrays.asList(indexes));
+    }
+
+    /**
+     * Removes indexes from table.
+     * <i>index</i> can not be null.
+     *
+     * @param indexes Indexes to remove from table.
+     */
+    public void remove(Index... indexes) {
+        this.indexes.removeAll(Arrays.asList(indexes));
+    }
+
     @Override
     public boolean equals(Object o) {
 
@@ -166,6 +199,9 @@ public class Table {
         if (constraints != null ? !constraints.equals(other.constraints) : other.constraints != null) {
             return false;
         }
+        if (indexes != null ? !indexes.equals(other.indexes) : other.indexes != null) {
+            return false;
+        }
         if (!name.equals(other.name)) {
             return false;
         }
@@ -179,19 +215,20 @@ public class Table {
         int result = name.hashCode();
         result = hashcodePrime * result + (columns != null ? columns.hashCode() : 0);
         result = hashcodePrime * result + (constraints != null ? constraints.hashCode() : 0);
+        result = hashcodePrime * result + (indexes != null ? indexes.hashCode() : 0);
         return result;
     }
 
     /**
      * String representation of object state.
-     * It looks like that: "Table{name=value, columns=[...], constraints=[]}"
+     * It looks like that: "Table{name=value, columns=[...], constraints=[], indexes=[]}"
      * but this could be changed in the future releases
      * <p/>
      * @return String representation on object state.
      */
     @Override
     public String toString() {
-        return String.format("%s{name=%s, columns=%s, constraints=%s}", getClass().getSimpleName(), name,
-            columns.toString(), constraints.toString());
+        return String.format("%s{name=%s, columns=%s, constraints=%s, indexes=%s}", getClass().getSimpleName(), name,
+            columns.toString(), constraints.toString(), indexes.toString());
     }
 }
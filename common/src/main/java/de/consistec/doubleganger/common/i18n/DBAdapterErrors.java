@@ -208,5 +208,144 @@ public enum DBAdapterErrors {
      * <p/>
      * @see <a href="http://www.postgresql.org/docs/9.1/static/transaction-iso.html"> PostgreSQL transactions docs</a>
      */
-    TRANSACTION_ABORTED_SERIALIZATION_FAILURES;
+    TRANSACTION_ABORTED_SERIALIZATION_FAILURES,
+    /**
+     * When the rows of a table and its md table are not delivered in the same primary key order.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    ROWS_NOT_ORDERED_BY_PRIMARY_KEY,
+    /**
+     * When reading the high-water mark of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_READ_WATERMARK,
+    /**
+     * When storing the high-water mark of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_UPDATE_WATERMARK,
+    /**
+     * When reading the checkpoint of an interrupted paged synchronization fails.
+     */
+    CANT_READ_CHECKPOINT,
+    /**
+     * When storing the checkpoint of a paged synchronization fails.
+     */
+    CANT_UPDATE_CHECKPOINT,
+    /**
+     * When the definition of a column can't be read from the database meta data.
+     * <p>
+     * <b>Parameter</b>: column name, table name.
+     * </p>
+     */
+    CANT_READ_COLUMN,
+    /**
+     * When reading the rows of a primary key range fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_READ_PRIMARY_KEY_RANGE,
+    /**
+     * When the revision table can't be created.
+     */
+    CANT_CREATE_REVISION_TABLE,
+    /**
+     * When the revision counter can't be advanced.
+     */
+    CANT_ALLOCATE_REVISION,
+    /**
+     * When reading the highest revision of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_READ_TABLE_REVISION,
+    /**
+     * When storing the highest revision of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_UPDATE_TABLE_REVISION,
+    /**
+     * When the indexes of a table can't be read from the database meta data.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_READ_INDEXES,
+    /**
+     * When the database meta data (url, user) can't be read.
+     */
+    CANT_READ_DATABASE_METADATA,
+    /**
+     * When a statement can't be prepared.
+     * <p>
+     * <b>Parameter</b>: sql text.
+     * </p>
+     */
+    CANT_PREPARE_STATEMENT,
+    /**
+     * When deleting a batch of rows fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_DELETE_ROWS,
+    /**
+     * When selecting the existing primary keys of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_READ_PRIMARY_KEYS,
+    /**
+     * When inserting or updating data rows fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_UPSERT_DATA_ROW,
+    /**
+     * When inserting or updating md rows fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_UPSERT_MD_ROW,
+    /**
+     * When the bulk load of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_BULK_INSERT_ROWS,
+    /**
+     * When selecting the rows of a list of primary keys fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_READ_ROWS,
+    /**
+     * When reading the stored column hashes of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_READ_COLUMN_HASHES,
+    /**
+     * When storing the column hashes of a table fails.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    CANT_UPDATE_COLUMN_HASHES;
 }
@@ -54,5 +54,23 @@ public enum DBAdapterWarnings {
      * <b>Parameter</b>: primary key, table name.
      * </p>
      */
-    NO_ROW_DELETED;
+    NO_ROW_DELETED,
+    /**
+     * When the row hashes computed by the database differ from the hashes computed by the framework.
+     * <p>
+     * <b>Parameter</b>: table name.
+     * </p>
+     */
+    ROW_HASHES_NOT_EQUIVALENT,
+    /**
+     * When a statement evicted from the statement cache can't be closed.
+     */
+    CANT_CLOSE_CACHED_STATEMENT,
+    /**
+     * When a batch delete deleted less rows than requested.
+     * <p>
+     * <b>Parameter</b>: number of rows not deleted, table name.
+     * </p>
+     */
+    NOT_ALL_ROWS_DELETED;
 }
@@ -204,6 +204,13 @@ public enum Errors {
      * @see de.consistec.doubleganger.common.data.schema.Table#add(de.consistec.doubleganger.common.data.schema.Constraint[])
      */
     COMMON_PROVIDED_CONSTRAINT_IS_NULL,
+    /**
+     * When provided {@link de.consistec.doubleganger.common.data.schema.Index Index} has a {@code null} value.
+     * <p/>
+     *
+     * @see de.consistec.doubleganger.common.data.schema.Table#add(de.consistec.doubleganger.common.data.schema.Index[])
+     */
+    COMMON_PROVIDED_INDEX_IS_NULL,
     /**
      * When frameworks initialization fails.
      */
@@ -355,6 +362,40 @@ public enum Errors {
      * Server Meta Table could not be recreated after x retries.
      */
     COMMON_CANT_RECREATE_SERVER_META_TABLE_FOR_N_TIMES,
+    /**
+     * The worker thread processing a table in parallel failed or was interrupted.
+     */
+    COMMON_PARALLEL_TABLE_SYNC_FAILED,
+    /**
+     * The thread was interrupted while waiting for a running server scan.
+     */
+    COMMON_SERVER_SCAN_INTERRUPTED,
+    /**
+     * When the fingerprint of a table can't be computed.
+     */
+    COMMON_CANT_GET_FINGERPRINT,
+    /**
+     * When the divergent ranges of a client table can't be repaired.
+     */
+    COMMON_CANT_REPAIR_TABLE,
+    /**
+     * When a page of server changes is requested with an invalid page size or continuation token.
+     * <p>
+     * <b>Parameters</b>: page size, continuation token.
+     * </p>
+     */
+    COMMON_INVALID_PAGE_REQUEST,
+    /**
+     * When the checkpoint of a paged synchronization can't be read or stored on the client.
+     */
+    COMMON_CANT_UPDATE_CHECKPOINT,
+    /**
+     * When the server row of a column delta differs from the base version of the delta.
+     * <p>
+     * <b>Parameters</b>: table name, primary key.
+     * </p>
+     */
+    COMMON_BASE_ROW_CHANGED,
     /**
      * no database adapter initialized.
      */
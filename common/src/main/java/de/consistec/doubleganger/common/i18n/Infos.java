@@ -273,5 +273,72 @@ public enum Infos {
     /**
      * Information about applying changes from client on server is finished.
      */
-    COMMON_APPLYING_CHANGES_FROM_CLIENT_FINISHED;
+    COMMON_APPLYING_CHANGES_FROM_CLIENT_FINISHED,
+    /**
+     * Summary of the change detection for a server table.
+     * <p>
+     * <b>Parameter</b>: table name, number of new rows, number of modified rows, number of deleted rows.
+     * </p>
+     */
+    COMMON_SERVER_TABLE_SYNCHRONIZED,
+    /**
+     * The metadata rows flagged by triggers were stamped with the new revision.
+     * <p>
+     * <b>Parameter</b>: table name, number of updated rows, revision.
+     * </p>
+     */
+    COMMON_SERVER_FLAGGED_ROWS_UPDATED,
+    /**
+     * A chunk of client changes was applied on the server.
+     * <p>
+     * <b>Parameter</b>: table name, number of added or modified rows and number of deleted rows.
+     * </p>
+     */
+    COMMON_SERVER_CLIENT_CHANGES_APPLIED,
+    /**
+     * A change detection pass over the server tables finished.
+     * <p>
+     * <b>Parameter</b>: duration in milliseconds, number of requests which shared the pass.
+     * </p>
+     */
+    COMMON_SERVER_SCAN_FINISHED,
+    /**
+     * The client compared the fingerprints of a table and repaired the divergent ranges.
+     * <p>
+     * <b>Parameter</b>: table name, number of divergent ranges, number of repaired rows.
+     * </p>
+     */
+    COMMON_TABLE_REPAIRED,
+    /**
+     * The client resumes an interrupted paged synchronization.
+     * <p>
+     * <b>Parameter</b>: continuation token of the last applied page.
+     * </p>
+     */
+    COMMON_RESUMING_PAGED_SYNC,
+    /**
+     * The client applied a page of server changes.
+     * <p>
+     * <b>Parameter</b>: number of changes, continuation token of the page.
+     * </p>
+     */
+    COMMON_PAGE_APPLIED,
+    /**
+     * The client loaded the server changes of an empty table in bulk.
+     * <p>
+     * <b>Parameter</b>: table name, number of rows, duration in ms.
+     * </p>
+     */
+    COMMON_CLIENT_TABLE_BULK_LOADED,
+    /**
+     * The client sends modified rows as column deltas.
+     * <p>
+     * <b>Parameter</b>: number of column deltas, number of changes.
+     * </p>
+     */
+    COMMON_SENDING_COLUMN_DELTAS,
+    /**
+     * The server rejected the column deltas of the client, the client sends the full rows.
+     */
+    COMMON_RESENDING_FULL_ROWS;
 }
@@ -0,0 +1,381 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - BatchChangesApplier.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_DELETED_VALUE;
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashSet;
+
+import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
+import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.exception.ServerStatusException;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+import de.consistec.doubleganger.common.i18n.Errors;
+import de.consistec.doubleganger.common.i18n.Infos;
+import de.consistec.doubleganger.common.util.HashCalculator;
+import de.consistec.doubleganger.common.util.LoggingUtil;
+import de.consistec.doubleganger.common.util.PrimaryKeyComparator;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.slf4j.cal10n.LocLogger;
+
+/**
+ * Applies client changes on the server in chunks.
+ * <p/>
+ * Consecutive changes of the same table are collected into a chunk. If the database
+ * {@link IDatabaseAdapter#supportsUpsert() supports upserts}, added and modified rows and all md rows are written
+ * with insert-or-update batches and nothing has to be read. Otherwise the existing md rows and data rows of all
+ * primary keys are read with a few {@code in (...)} queries, the changes are classified in memory
+ * (CLIENT-ADD, CLIENT-MOD, CLIENT-DEL, see {@link ServerHashProcessor}) and written with jdbc batches.
+ * <p/>
+ * The chunk size starts with {@link Config#getMdBatchSize()} and adapts to the time one chunk takes:
+ * it is halved when a chunk exceeds {@value #TARGET_CHUNK_MILLIS} ms and doubled (up to
+ * {@value #MAX_CHUNK_SIZE_FACTOR} times the configured size) when a full chunk needs less than half of it.
+ * A primary key which occurs twice closes the chunk, so the prefetched state is never stale.
+ * <p/>
+ * {@link Change#isColumnDelta() Column deltas} are merged into the current server rows before. If a server row
+ * doesn't match the base hash of its delta, the changes are rejected with {@link ServerStatus#BASE_ROW_CHANGED}
+ * and the client sends the full rows. Otherwise only the changed columns are updated.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 14:20
+ */
+public class BatchChangesApplier {
+
+    private static final LocLogger LOGGER = LoggingUtil.createLogger(BatchChangesApplier.class.getCanonicalName());
+    private static final Config CONF = Config.getInstance();
+    private static final long TARGET_CHUNK_MILLIS = 500;
+    private static final int MAX_CHUNK_SIZE_FACTOR = 8;
+    private static final int MIN_CHUNK_SIZE = 10;
+    private final IDatabaseAdapter adapter;
+    private final int rev;
+    private final HashCalculator hashCalculator;
+    private final int maxChunkSize;
+    private int chunkSize;
+    private String chunkTable;
+    private final List<Change> chunk = newArrayList();
+    private final Set<Object> chunkKeys = new TreeSet<Object>(new PrimaryKeyComparator());
+    private final Set<String> changedTables = newHashSet();
+
+    /**
+     * Creates an applier which stamps the applied md rows with revision {@code rev}.
+     *
+     * @param adapter Database adapter.
+     * @param rev the new server revision
+     */
+    public BatchChangesApplier(IDatabaseAdapter adapter, int rev) {
+        this.adapter = adapter;
+        this.rev = rev;
+        this.hashCalculator = adapter.getHashCalculator();
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, CONF.getMdBatchSize());
+        this.maxChunkSize = chunkSize * MAX_CHUNK_SIZE_FACTOR;
+    }
+
+    /**
+     * Adds the change to the current chunk. The chunk is applied when it's full, when the table changes
+     * or when the primary key is already part of the chunk.
+     *
+     * @param change client change
+     * @throws DatabaseAdapterException
+     * @throws ServerStatusException if the server row of a column delta differs from the base of the delta
+     */
+    public void apply(Change change) throws DatabaseAdapterException, ServerStatusException {
+        String table = change.getMdEntry().getTableName();
+        Object primaryKey = change.getMdEntry().getPrimaryKey();
+
+        if (!table.equals(chunkTable) || chunk.size() >= chunkSize || chunkKeys.contains(primaryKey)) {
+            flush();
+        }
+        chunkTable = table;
+        chunk.add(change);
+        chunkKeys.add(primaryKey);
+        changedTables.add(table);
+    }
+
+    /**
+     * Applies the collected changes.
+     *
+     * @throws DatabaseAdapterException
+     * @throws ServerStatusException if the server row of a column delta differs from the base of the delta
+     */
+    public void flush() throws DatabaseAdapterException, ServerStatusException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        applyChunk();
+        adaptChunkSize(System.currentTimeMillis() - start);
+
+        chunk.clear();
+        chunkKeys.clear();
+    }
+
+    /**
+     * Returns the names of the tables with applied changes.
+     *
+     * @return table names
+     */
+    public Set<String> getChangedTables() {
+        return changedTables;
+    }
+
+    /**
+     * Returns the current chunk size.
+     *
+     * @return chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    private void applyChunk() throws DatabaseAdapterException, ServerStatusException {
+        Map<Object, Map<String, Object>> deltas = mergeColumnDeltas();
+        if (adapter.supportsUpsert()) {
+            upsertChunk(deltas);
+        } else {
+            classifyAndApplyChunk(deltas);
+        }
+    }
+
+    /**
+     * Replaces the column deltas of the chunk by the server rows merged with the changed columns.
+     *
+     * @return the changed columns by primary key
+     */
+    private Map<Object, Map<String, Object>> mergeColumnDeltas() throws DatabaseAdapterException,
+        ServerStatusException {
+
+        final Map<Object, Map<String, Object>> deltas = new TreeMap<Object, Map<String, Object>>(
+            new PrimaryKeyComparator());
+        for (Change change : chunk) {
+            if (change.isColumnDelta()) {
+                deltas.put(change.getMdEntry().getPrimaryKey(), change.getRowData());
+            }
+        }
+        if (deltas.isEmpty()) {
+            return deltas;
+        }
+
+        final Map<Object, Map<String, Object>> baseRows = new TreeMap<Object, Map<String, Object>>(
+            new PrimaryKeyComparator());
+        adapter.getRowsForPrimaryKeys(chunkTable, newArrayList(deltas.keySet()),
+            new RowCollector(adapter.getPrimaryKeyColumn(chunkTable).getName(), baseRows));
+
+        for (int i = 0; i < chunk.size(); i++) {
+            final Change change = chunk.get(i);
+            if (!change.isColumnDelta()) {
+                continue;
+            }
+            final Object primaryKey = change.getMdEntry().getPrimaryKey();
+            final Map<String, Object> row = baseRows.get(primaryKey);
+            if (row == null || !change.getBaseHash().equalsIgnoreCase(
+                hashCalculator.calculateBaseHash(hashCalculator.calculateColumnHashes(row)))) {
+                throw new ServerStatusException(ServerStatus.BASE_ROW_CHANGED, read(Errors.COMMON_BASE_ROW_CHANGED,
+                    chunkTable, primaryKey));
+            }
+            row.putAll(change.getRowData());
+            chunk.set(i, new Change(change.getMdEntry(), row));
+        }
+        return deltas;
+    }
+
+    private void upsertChunk(Map<Object, Map<String, Object>> deltas) throws DatabaseAdapterException {
+        final Map<Object, String> mdvs = newHashMap();
+        final Map<Object, Map<String, Object>> rows = new LinkedHashMap<Object, Map<String, Object>>();
+        final Map<Object, Map<String, Object>> updates = new LinkedHashMap<Object, Map<String, Object>>();
+        final List<Object> deletes = newArrayList();
+
+        for (Change change : chunk) {
+            final MDEntry remoteEntry = change.getMdEntry();
+            final Object primaryKey = remoteEntry.getPrimaryKey();
+
+            LOGGER.debug("processing: {}", remoteEntry);
+
+            if (deltas.containsKey(primaryKey)) {
+                // CLIENT MOD of the changed columns, the row exists
+                updates.put(primaryKey, deltas.get(primaryKey));
+                mdvs.put(primaryKey, hashCalculator.calculateHash(change, CONF.isSqlTriggerOnServerActivated()));
+            } else if (remoteEntry.dataRowExists()) {
+                // CLIENT ADD or MOD
+                rows.put(primaryKey, change.getRowData());
+                mdvs.put(primaryKey, hashCalculator.calculateHash(change, CONF.isSqlTriggerOnServerActivated()));
+            } else {
+                // CLIENT DEL
+                deletes.add(primaryKey);
+                mdvs.put(primaryKey, MDV_DELETED_VALUE);
+            }
+        }
+
+        adapter.deleteRows(deletes, chunkTable);
+        if (!rows.isEmpty()) {
+            adapter.insertOrUpdateDataRows(rows, chunkTable);
+        }
+        if (!updates.isEmpty()) {
+            adapter.updateDataRows(updates, chunkTable);
+        }
+        adapter.insertOrUpdateMdRows(rev, FLAG_PROCESSED, mdvs, chunkTable);
+
+        LOGGER.info(Infos.COMMON_SERVER_CLIENT_CHANGES_APPLIED, chunkTable, rows.size() + updates.size(),
+            deletes.size());
+    }
+
+    private void classifyAndApplyChunk(Map<Object, Map<String, Object>> deltas) throws DatabaseAdapterException {
+        List<Object> primaryKeys = newArrayList(chunk.size());
+        for (Change change : chunk) {
+            primaryKeys.add(change.getMdEntry().getPrimaryKey());
+        }
+
+        final Set<Object> existingMdKeys = new TreeSet<Object>(new PrimaryKeyComparator());
+        adapter.getExistingMdPrimaryKeys(chunkTable, primaryKeys, new PrimaryKeyCollector(existingMdKeys));
+        final Set<Object> existingDataKeys = new TreeSet<Object>(new PrimaryKeyComparator());
+        adapter.getExistingPrimaryKeys(chunkTable, primaryKeys, new PrimaryKeyCollector(existingDataKeys));
+
+        final Map<Object, String> mdInserts = newHashMap();
+        final Map<Object, String> mdUpdates = newHashMap();
+        final List<Map<String, Object>> dataInserts = newArrayList();
+        final Map<Object, Map<String, Object>> dataUpdates = new LinkedHashMap<Object, Map<String, Object>>();
+        final List<Object> deletes = newArrayList();
+
+        for (Change change : chunk) {
+            final MDEntry remoteEntry = change.getMdEntry();
+            final Object primaryKey = remoteEntry.getPrimaryKey();
+            final String hash = hashCalculator.calculateHash(change, CONF.isSqlTriggerOnServerActivated());
+
+            LOGGER.debug("processing: {}", remoteEntry);
+
+            if (existingMdKeys.contains(primaryKey)) {
+                if (!remoteEntry.dataRowExists()) {
+                    // CLIENT DEL
+                    deletes.add(primaryKey);
+                    mdUpdates.put(primaryKey, MDV_DELETED_VALUE);
+                } else {
+                    // CLIENT MOD
+                    if (deltas.containsKey(primaryKey)) {
+                        dataUpdates.put(primaryKey, deltas.get(primaryKey));
+                    } else if (existingDataKeys.contains(primaryKey)) {
+                        dataUpdates.put(primaryKey, change.getRowData());
+                    } else {
+                        dataInserts.add(change.getRowData());
+                    }
+                    mdUpdates.put(primaryKey, hash);
+                }
+            } else {
+                // CLIENT ADD
+                mdInserts.put(primaryKey, hash);
+                dataInserts.add(change.getRowData());
+            }
+        }
+
+        adapter.deleteRows(deletes, chunkTable);
+        if (!dataUpdates.isEmpty()) {
+            adapter.updateDataRows(dataUpdates, chunkTable);
+        }
+        if (!dataInserts.isEmpty()) {
+            adapter.insertDataRows(dataInserts, chunkTable);
+        }
+        adapter.updateMdRows(rev, FLAG_PROCESSED, mdUpdates, chunkTable);
+        adapter.insertMdRows(rev, FLAG_PROCESSED, mdInserts, chunkTable);
+
+        LOGGER.info(Infos.COMMON_SERVER_CLIENT_CHANGES_APPLIED, chunkTable, mdInserts.size() + mdUpdates.size()
+            - deletes.size(), deletes.size());
+    }
+
+    private void adaptChunkSize(long elapsedMillis) {
+        int oldSize = chunkSize;
+        if (elapsedMillis > TARGET_CHUNK_MILLIS) {
+            chunkSize = Math.max(MIN_CHUNK_SIZE, chunkSize / 2);
+        } else if (chunk.size() >= chunkSize && elapsedMillis < TARGET_CHUNK_MILLIS / 2) {
+            chunkSize = Math.min(maxChunkSize, chunkSize * 2);
+        }
+        if (oldSize != chunkSize) {
+            LOGGER.debug("chunk of {} changes took {} ms, new chunk size: {}", chunk.size(), elapsedMillis,
+                chunkSize);
+        }
+    }
+
+    /**
+     * Collects the rows of a result set by their primary keys.
+     */
+    private static final class RowCollector implements DatabaseAdapterCallback<ResultSet> {
+
+        private final String pkColumnName;
+        private final Map<Object, Map<String, Object>> rows;
+
+        private RowCollector(String pkColumnName, Map<Object, Map<String, Object>> rows) {
+            this.pkColumnName = pkColumnName;
+            this.rows = rows;
+        }
+
+        @Override
+        public void onSuccess(ResultSet result) throws DatabaseAdapterException, SQLException {
+            ResultSetMetaData meta = result.getMetaData();
+            while (result.next()) {
+                Map<String, Object> row = newHashMap(meta.getColumnCount());
+                Object primaryKey = null;
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    row.put(meta.getColumnName(i), result.getObject(i));
+                    if (pkColumnName.equalsIgnoreCase(meta.getColumnName(i))) {
+                        primaryKey = result.getObject(i);
+                    }
+                }
+                rows.put(primaryKey, row);
+            }
+        }
+    }
+
+    /**
+     * Collects the primary keys of a result set with one column.
+     */
+    private static final class PrimaryKeyCollector implements DatabaseAdapterCallback<ResultSet> {
+
+        private final Set<Object> primaryKeys;
+
+        private PrimaryKeyCollector(Set<Object> primaryKeys) {
+            this.primaryKeys = primaryKeys;
+        }
+
+        @Override
+        public void onSuccess(ResultSet result) throws DatabaseAdapterException, SQLException {
+            while (result.next()) {
+                primaryKeys.add(result.getObject(1));
+            }
+        }
+    }
+}
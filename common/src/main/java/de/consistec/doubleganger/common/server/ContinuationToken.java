@@ -0,0 +1,179 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ContinuationToken.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+/**
+ * Position of a paged enumeration of the server changes.
+ * <p/>
+ * The token holds the client revision the enumeration started with, the server revision which was current at the
+ * first page (the revision ceiling of all pages), the table of the last returned change and its primary key.
+ * Its string form is {@code rev:maxRev:table:pk}, table and primary key are url encoded and the primary key is
+ * prefixed with its type ({@code l} for integral numbers, {@code d} for decimals, {@code s} for strings).
+ * Keys of any other type are kept in their string form and are converted back by binding them with the type of
+ * the primary key column. The string contains only ascii characters and can be sent as http header.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 16:30
+ */
+final class ContinuationToken {
+
+    private static final String SEPARATOR = ":";
+    private static final int PARTS = 4;
+    private static final String UTF_8 = "UTF-8";
+    private static final char TYPE_LONG = 'l';
+    private static final char TYPE_DECIMAL = 'd';
+    private static final char TYPE_STRING = 's';
+    private final int revision;
+    private final int maxRevision;
+    private final String table;
+    private final Object lastPrimaryKey;
+
+    /**
+     * Creates a position.
+     *
+     * @param revision client revision of the first page
+     * @param maxRevision server revision of the first page
+     * @param table table of the last returned change
+     * @param lastPrimaryKey primary key of the last returned change
+     */
+    ContinuationToken(int revision, int maxRevision, String table, Object lastPrimaryKey) {
+        this.revision = revision;
+        this.maxRevision = maxRevision;
+        this.table = table;
+        this.lastPrimaryKey = lastPrimaryKey;
+    }
+
+    /**
+     * Parses the string form of a token.
+     *
+     * @param token string created by {@link #toString()}
+     * @return the position
+     * @throws IllegalArgumentException if the string is no valid token
+     */
+    static ContinuationToken parse(String token) {
+        String[] parts = token.split(SEPARATOR, PARTS);
+        if (parts.length != PARTS || parts[3].length() == 0) {
+            throw new IllegalArgumentException(token);
+        }
+        try {
+            String key = decode(parts[3].substring(1));
+            Object primaryKey;
+            switch (parts[3].charAt(0)) {
+                case TYPE_LONG:
+                    primaryKey = Long.valueOf(key);
+                    break;
+                case TYPE_DECIMAL:
+                    primaryKey = new BigDecimal(key);
+                    break;
+                case TYPE_STRING:
+                    primaryKey = key;
+                    break;
+                default:
+                    throw new IllegalArgumentException(token);
+            }
+            return new ContinuationToken(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), decode(parts[2]),
+                primaryKey);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(token, e);
+        }
+    }
+
+    /**
+     * Returns the client revision the paged enumeration started with.
+     *
+     * @return client revision
+     */
+    int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns the server revision of the first page, changes with a higher revision are left to the next
+     * synchronization.
+     *
+     * @return revision ceiling
+     */
+    int getMaxRevision() {
+        return maxRevision;
+    }
+
+    /**
+     * Returns the table of the last returned change.
+     *
+     * @return table name
+     */
+    String getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the primary key of the last returned change.
+     *
+     * @return primary key
+     */
+    Object getLastPrimaryKey() {
+        return lastPrimaryKey;
+    }
+
+    @Override
+    public String toString() {
+        char type;
+        String key;
+        if (lastPrimaryKey instanceof Long || lastPrimaryKey instanceof Integer || lastPrimaryKey instanceof Short
+            || lastPrimaryKey instanceof Byte || lastPrimaryKey instanceof BigInteger) {
+            type = TYPE_LONG;
+            key = lastPrimaryKey.toString();
+        } else if (lastPrimaryKey instanceof Number) {
+            type = TYPE_DECIMAL;
+            key = new BigDecimal(lastPrimaryKey.toString()).toPlainString();
+        } else {
+            type = TYPE_STRING;
+            key = String.valueOf(lastPrimaryKey);
+        }
+        return revision + SEPARATOR + maxRevision + SEPARATOR + encode(table) + SEPARATOR + type + encode(key);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -23,11 +23,15 @@ package de.consistec.doubleganger.common.server;
  * #L%
  */
 
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncSettings;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SyncException;
 
+import java.util.List;
+
 /**
  * This interface defines behavior which must be implemented by classes which should act as a proxy
  * between client and server side synchronization.
@@ -60,6 +64,35 @@ public interface IServerSyncProvider {
      */
     SyncData getChanges(int rev) throws SyncException;
 
+    /**
+     * Streams the changes to the listener.
+     * <p/>
+     * Unlike {@link #getChanges(int)} the change set is passed to the listener one change at a time while it is
+     * read, so it never has to be held in memory as a whole.
+     *
+     * @param rev the rev
+     * @param listener receives the revision and the changes
+     * @return the revision of the change set
+     * @throws SyncException the sync exception
+     */
+    int getChanges(int rev, IChangeListener listener) throws SyncException;
+
+    /**
+     * Gets one page of the changes.
+     * <p/>
+     * The changes are returned ordered by table and primary key. The first page fixes the current server revision
+     * as revision ceiling of all following pages, changes made on the server while the client pages through the
+     * change set are left to the next synchronization. Every page has the revision ceiling as revision.
+     *
+     * @param rev the rev, the continuation token of a following page already contains it
+     * @param pageSize the maximal number of changes of the page
+     * @param continuationToken the {@link SyncData#getContinuationToken() continuation token} of the previous page
+     * or {@code null} for the first page
+     * @return the page, its continuation token is {@code null} if no changes follow
+     * @throws SyncException the sync exception
+     */
+    SyncData getChanges(int rev, int pageSize, String continuationToken) throws SyncException;
+
     /**
      * Returns the server schema.
      * Schema should consists only from monitored data tables (no md tables);
@@ -76,4 +109,29 @@ public interface IServerSyncProvider {
      * @throws SyncException thrown if validation failes
      */
     void validate(SyncSettings clientSettings) throws SyncException;
+
+    /**
+     * Returns nodes of the fingerprint of a table.
+     * <p/>
+     * Without parents only the root node is returned, otherwise the children of all given nodes.
+     * Tables which aren't synchronized from server to client have no fingerprint, an empty list is returned.
+     *
+     * @param table the table name
+     * @param parents nodes of the previous request whose children are requested, or an empty list for the root
+     * @return the requested nodes
+     * @throws SyncException the sync exception
+     */
+    List<FingerprintNode> getFingerprint(String table, List<FingerprintNode> parents) throws SyncException;
+
+    /**
+     * Returns the current state of all rows of a table in the given fingerprint ranges.
+     * <p/>
+     * Unlike {@link #getChanges(int)} the result contains every row of the ranges, unchanged rows too.
+     *
+     * @param table the table name
+     * @param ranges nodes whose rows are requested
+     * @return the rows of the ranges and the current server revision
+     * @throws SyncException the sync exception
+     */
+    SyncData getChangesForRanges(String table, List<FingerprintNode> ranges) throws SyncException;
 }
@@ -24,13 +24,17 @@ package de.consistec.doubleganger.common.server;
  */
 
 import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncDirection;
 import de.consistec.doubleganger.common.TableSyncStrategies;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.ColumnDictionary;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.i18n.Infos;
 import de.consistec.doubleganger.common.util.DBMapperUtil;
@@ -38,7 +42,10 @@ import de.consistec.doubleganger.common.util.LoggingUtil;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 import org.slf4j.cal10n.LocLogger;
 
 /**
@@ -91,41 +98,265 @@ public class ServerChangesEnumerator {
         serverChangeSet.setRevision(adapter.getLastRevision());
 
         for (final String syncTable : CONF.getSyncTables()) {
+            addChangesOfTable(rev, serverChangeSet.getRevision(), syncTable, serverChangeSet);
+        }
+        LOGGER.debug("getServerChanges finished");
+        return serverChangeSet;
+    }
+
+    /**
+     * Streams a {@code Change} for every inserted, modified or deleted data row which revision is greater than
+     * {@code rev} to the listener, while the rows are read from the database cursor.
+     * <p/>
+     * The current server revision is passed to the listener first. Rows which get a higher revision while they
+     * are streamed are skipped, they belong to the next change set. Tables which are only synchronized from
+     * client to server aren't read at all.
+     *
+     * @param rev the revision
+     * @param listener receives the revision and the changes
+     * @return the revision of the change set
+     * @throws DatabaseAdapterException the adapter exception
+     * @throws SyncException if the listener fails
+     */
+    public int getChanges(int rev, IChangeListener listener) throws DatabaseAdapterException, SyncException {
+
+        final int revision = adapter.getLastRevision();
+        listener.onRevision(revision);
+
+        for (final String syncTable : CONF.getSyncTables()) {
+            SyncDirection syncDirection = tableSyncStrategies.getSyncStrategyForTable(syncTable).getDirection();
+            if (syncDirection == SyncDirection.CLIENT_TO_SERVER || adapter.getTableRevision(syncTable) <= rev) {
+                continue;
+            }
+
+            StreamingCallback callback = new StreamingCallback(syncTable, revision, listener);
+            try {
+                adapter.getChangesForRevision(rev, syncTable, callback);
+            } catch (DatabaseAdapterException e) {
+                if (callback.listenerException != null) {
+                    throw callback.listenerException;
+                }
+                throw e;
+            }
+        }
+        return revision;
+    }
+
+    /**
+     * Creates a page of at most {@code pageSize} {@code Change} objects for the inserted, modified or deleted data
+     * rows after the given position.
+     * <p/>
+     * The tables are paged in the order of their names and the rows of a table in the order of their primary keys,
+     * so a position stays valid when the server restarts. Rows with a revision above the revision ceiling of the
+     * position were changed after the first page, they belong to the next synchronization. If the page is full,
+     * its continuation token is the position of its last change, otherwise the token is {@code null}.
+     *
+     * @param position client revision, revision ceiling and the last change of the previous page
+     * @param pageSize the maximal number of changes
+     * @return the page with the revision ceiling as revision
+     * @throws DatabaseAdapterException the adapter exception
+     */
+    SyncData getChangesPage(ContinuationToken position, int pageSize) throws DatabaseAdapterException {
+
+        final int rev = position.getRevision();
+        final SyncData page = new SyncData();
+        page.setRevision(position.getMaxRevision());
+
+        NavigableSet<String> tables = new TreeSet<String>(CONF.getSyncTables());
+        if (position.getTable() != null) {
+            tables = tables.tailSet(position.getTable(), true);
+        }
+
+        for (final String syncTable : tables) {
+            SyncDirection syncDirection = tableSyncStrategies.getSyncStrategyForTable(syncTable).getDirection();
+            if (syncDirection != SyncDirection.CLIENT_TO_SERVER && adapter.getTableRevision(syncTable) > rev) {
+                PageCallback callback = new PageCallback(syncTable, page, pageSize);
+                adapter.getChangesForRevisionPage(rev, position.getMaxRevision(), syncTable,
+                    syncTable.equals(position.getTable()) ? position.getLastPrimaryKey() : null,
+                    pageSize - page.getChanges().size(), callback);
+
+                if (page.getChanges().size() >= pageSize) {
+                    page.setContinuationToken(new ContinuationToken(rev, position.getMaxRevision(), syncTable,
+                        callback.lastPrimaryKey).toString());
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Creates the list of {@code Change} objects for all inserted, modified or deleted data rows
+     * of one table which revision is greater than {@code rev} and not greater than {@code maxRevision}.
+     * <p/>
+     * Tables enumerated in their own transactions are read at different moments, so all of them have to be
+     * limited to the revision ceiling read once before. Rows above it belong to the next change set, otherwise a
+     * client would get the newer rows of one table but not those of a table read earlier.
+     *
+     * @param rev the revision
+     * @param maxRevision the revision ceiling
+     * @param syncTable the table
+     * @return the changes of the table with the revision ceiling as revision
+     * @throws DatabaseAdapterException the adapter exception
+     */
+    public SyncData getChangesForTable(int rev, int maxRevision, String syncTable) throws
+        DatabaseAdapterException {
+        final SyncData tableChangeSet = new SyncData();
+        tableChangeSet.setRevision(maxRevision);
+        addChangesOfTable(rev, maxRevision, syncTable, tableChangeSet);
+        return tableChangeSet;
+    }
+
+    /**
+     * Creates the list of {@code Change} objects for all rows of one table in the given fingerprint ranges,
+     * regardless of their revision.
+     * <p/>
+     * The revision of the returned data is the current server revision.
+     *
+     * @param syncTable the table
+     * @param ranges the fingerprint ranges
+     * @return the rows of the ranges
+     * @throws DatabaseAdapterException the adapter exception
+     */
+    public SyncData getChangesForRanges(String syncTable, List<FingerprintNode> ranges) throws
+        DatabaseAdapterException {
+
+        final SyncData rangeChangeSet = new SyncData();
+        rangeChangeSet.setRevision(adapter.getLastRevision());
+        for (FingerprintNode range : ranges) {
+            adapter.getChangesInPrimaryKeyRange(syncTable, range.getLowerBound(), range.getUpperBound(),
+                new ChangesCallback(syncTable, rangeChangeSet.getRevision(), rangeChangeSet));
+        }
+        return rangeChangeSet;
+    }
+
+    private void addChangesOfTable(final int rev, final int maxRevision, final String syncTable,
+        final SyncData serverChangeSet) throws DatabaseAdapterException {
+
+        if (adapter.getTableRevision(syncTable) <= rev) {
+            LOGGER.debug("table {} has no changes after revision {}", syncTable, rev);
+            return;
+        }
+        adapter.getChangesForRevision(rev, syncTable, new ChangesCallback(syncTable, maxRevision,
+            serverChangeSet));
+    }
+
+    /**
+     * Passes a {@code Change} for every md row joined with its data row to the listener.
+     */
+    private static final class StreamingCallback implements DatabaseAdapterCallback<ResultSet> {
+
+        private final String syncTable;
+        private final int maxRevision;
+        private final IChangeListener listener;
+        private SyncException listenerException;
+
+        private StreamingCallback(String syncTable, int maxRevision, IChangeListener listener) {
+            this.syncTable = syncTable;
+            this.maxRevision = maxRevision;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onSuccess(ResultSet resultSet) throws DatabaseAdapterException, SQLException {
+            ColumnDictionary columns = DBMapperUtil.getColumnDictionary(resultSet);
+            while (resultSet.next()) {
+                MDEntry mdEntry = DBMapperUtil.getMetadata(resultSet, syncTable);
+                if (mdEntry.getRevision() > maxRevision) {
+                    continue;
+                }
+
+                Map<String, Object> rowData = DBMapperUtil.getRowData(resultSet, columns);
+                mdEntry.setDataRowExists(DBMapperUtil.dataRowHasValues(rowData));
+                Change change = new Change(mdEntry, rowData);
+                LOGGER.info(Infos.COMMON_ADDED_SERVER_CHANGE_TO_CHANGE_SET, change.toString());
+                try {
+                    listener.onChange(change);
+                } catch (SyncException e) {
+                    // abort the cursor, the enumerator rethrows the listener's exception
+                    listenerException = e;
+                    throw new DatabaseAdapterException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a {@code Change} for every md row joined with its data row to the page and remembers the last
+     * primary key.
+     */
+    private static final class PageCallback implements DatabaseAdapterCallback<ResultSet> {
+
+        private final String syncTable;
+        private final SyncData page;
+        private final int pageSize;
+        private Object lastPrimaryKey;
+
+        private PageCallback(String syncTable, SyncData page, int pageSize) {
+            this.syncTable = syncTable;
+            this.page = page;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public void onSuccess(ResultSet resultSet) throws DatabaseAdapterException, SQLException {
+            ColumnDictionary columns = DBMapperUtil.getColumnDictionary(resultSet);
+            // not every driver honours the row limit exactly
+            while (page.getChanges().size() < pageSize && resultSet.next()) {
+                MDEntry mdEntry = DBMapperUtil.getMetadata(resultSet, syncTable);
+                Map<String, Object> rowData = DBMapperUtil.getRowData(resultSet, columns);
+                mdEntry.setDataRowExists(DBMapperUtil.dataRowHasValues(rowData));
+                Change change = new Change(mdEntry, rowData);
+                LOGGER.info(Infos.COMMON_ADDED_SERVER_CHANGE_TO_CHANGE_SET, change.toString());
+                page.addChange(change);
+                lastPrimaryKey = mdEntry.getPrimaryKey();
+            }
+        }
+    }
+
+    /**
+     * Adds a {@code Change} for every md row joined with its data row up to the revision ceiling to the change set.
+     */
+    private final class ChangesCallback implements DatabaseAdapterCallback<ResultSet> {
 
-            adapter.getChangesForRevision(rev, syncTable, new DatabaseAdapterCallback<ResultSet>() {
-                @Override
-                public void onSuccess(ResultSet resultSet) throws DatabaseAdapterException {
-                    try {
-                        while (resultSet.next()) {
-
-                            Change tmpChange = new Change();
-
-                            Map<String, Object> rowData = DBMapperUtil.getRowData(resultSet);
-                            tmpChange.setRowData(rowData);
-
-                            MDEntry mdEntry = DBMapperUtil.getMetadata(resultSet, syncTable);
-                            mdEntry.setDataRowExists(DBMapperUtil.dataRowHasValues(rowData));
-                            tmpChange.setMdEntry(mdEntry);
-
-                            SyncDirection syncDirection = tableSyncStrategies.getSyncStrategyForTable(
-                                syncTable).getDirection();
-                            if (syncDirection != SyncDirection.CLIENT_TO_SERVER) {
-                                serverChangeSet.addChange(tmpChange);
-                            }
-
-                            int revision = tmpChange.getMdEntry().getRevision();
-                            if (serverChangeSet.getRevision() < revision) {
-                                serverChangeSet.setRevision(revision);
-                            }
-                            LOGGER.info(Infos.COMMON_ADDED_SERVER_CHANGE_TO_CHANGE_SET, tmpChange.toString());
-                        }
-                    } catch (SQLException e) {
-                        throw new DatabaseAdapterException(e);
+        private final String syncTable;
+        private final int maxRevision;
+        private final SyncData serverChangeSet;
+
+        private ChangesCallback(String syncTable, int maxRevision, SyncData serverChangeSet) {
+            this.syncTable = syncTable;
+            this.maxRevision = maxRevision;
+            this.serverChangeSet = serverChangeSet;
+        }
+
+        @Override
+        public void onSuccess(ResultSet resultSet) throws DatabaseAdapterException {
+            try {
+                ColumnDictionary columns = DBMapperUtil.getColumnDictionary(resultSet);
+                while (resultSet.next()) {
+
+                    Change tmpChange = new Change();
+
+                    Map<String, Object> rowData = DBMapperUtil.getRowData(resultSet, columns);
+                    tmpChange.setRowData(rowData);
+
+                    MDEntry mdEntry = DBMapperUtil.getMetadata(resultSet, syncTable);
+                    if (mdEntry.getRevision() > maxRevision) {
+                        continue;
+                    }
+                    mdEntry.setDataRowExists(DBMapperUtil.dataRowHasValues(rowData));
+                    tmpChange.setMdEntry(mdEntry);
+
+                    SyncDirection syncDirection = tableSyncStrategies.getSyncStrategyForTable(
+                        syncTable).getDirection();
+                    if (syncDirection != SyncDirection.CLIENT_TO_SERVER) {
+                        serverChangeSet.addChange(tmpChange);
                     }
+                    LOGGER.info(Infos.COMMON_ADDED_SERVER_CHANGE_TO_CHANGE_SET, tmpChange.toString());
                 }
-            });
+            } catch (SQLException e) {
+                throw new DatabaseAdapterException(e);
+            }
         }
-        LOGGER.debug("getServerChanges finished");
-        return serverChangeSet;
     }
 }
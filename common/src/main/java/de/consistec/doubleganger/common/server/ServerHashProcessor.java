@@ -22,27 +22,18 @@ package de.consistec.doubleganger.common.server;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
-import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
-import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_DELETED_VALUE;
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
 
-import de.consistec.doubleganger.common.Config;
-import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
 import de.consistec.doubleganger.common.data.Change;
-import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.exception.ServerStatusException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.i18n.Errors;
 import de.consistec.doubleganger.common.i18n.Infos;
 import de.consistec.doubleganger.common.i18n.Warnings;
-import de.consistec.doubleganger.common.util.HashCalculator;
 import de.consistec.doubleganger.common.util.LoggingUtil;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
-import java.util.Map;
 import org.slf4j.cal10n.LocLogger;
 
 /**
@@ -51,7 +42,8 @@ import org.slf4j.cal10n.LocLogger;
  * On the basis of the passed client revision the server determines if the client is up to date.
  * If the client is not up to date then a {@code ServerStatusException} is thrown so that the
  * client can retry the synchronization. Then the {@code ServerHashProcessor} looks for each client change
- * in the server's meta and data table and does the following operations depends on the result:
+ * in the server's meta and data table and does the following operations depends on the result
+ * (the lookups and writes are done in chunks by {@link BatchChangesApplier}):
  * <br/>
  * <ul>
  * <li>If no entry related to client change exists in meta table => CLIENT-ADD</li>
@@ -87,7 +79,6 @@ import org.slf4j.cal10n.LocLogger;
 public class ServerHashProcessor {
 
     private static final LocLogger LOGGER = LoggingUtil.createLogger(ServerHashProcessor.class.getCanonicalName());
-    private static final Config CONF = Config.getInstance();
     private IDatabaseAdapter adapter;
 
     /**
@@ -114,7 +105,8 @@ public class ServerHashProcessor {
 
         LOGGER.debug("applyChangesFromClientOnServer called");
 
-        final int nextRev = adapter.getNextRevision();
+        // an empty change set writes no md rows, so no revision has to be allocated
+        final int nextRev = clientChanges.isEmpty() ? adapter.getNextRevision() : adapter.allocateRevision();
 
         LOGGER.info(Infos.COMMON_NEW_SERVER_REVISION, nextRev);
         LOGGER.debug("compare client revision with current server revision {} : {}", clientRevision, (nextRev - 1));
@@ -124,91 +116,16 @@ public class ServerHashProcessor {
             throw new ServerStatusException(ServerStatus.CLIENT_NOT_UPTODATE, read(Errors.COMMON_UPDATE_NECESSARY));
         }
 
-        final HashCalculator hashCalculator = adapter.getHashCalculator();
-
+        final BatchChangesApplier applier = new BatchChangesApplier(adapter, nextRev);
         for (final Change remoteChange : clientChanges) {
+            applier.apply(remoteChange);
+        }
+        applier.flush();
 
-            final MDEntry remoteEntry = remoteChange.getMdEntry();
-            final Map<String, Object> remoteRowData = remoteChange.getRowData();
-            final Object primaryKey = remoteEntry.getPrimaryKey();
-            final String tableName = remoteEntry.getTableName();
-            final String mdTableName = tableName + CONF.getMdTableSuffix();
-
-            final String hash = hashCalculator.calculateHash(remoteChange, CONF.isSqlTriggerOnServerActivated());
-
-            LOGGER.debug("processing: {}", remoteEntry.toString());
-
-            adapter.getRowForPrimaryKey(primaryKey, mdTableName,
-                new DatabaseAdapterCallback<ResultSet>() {
-                    @Override
-                    public void onSuccess(final ResultSet hashRst) throws DatabaseAdapterException {
-                        adapter.getRowForPrimaryKey(primaryKey, tableName,
-                            new DatabaseAdapterCallback<ResultSet>() {
-                                @Override
-                                public void onSuccess(final ResultSet dataRst) throws DatabaseAdapterException {
-                                    LOGGER.debug("call processResultSets ...");
-                                    try {
-                                        processResultSets(hashRst, dataRst, nextRev, hash, remoteEntry,
-                                            remoteRowData);
-                                    } catch (SQLException e) {
-                                        throw new DatabaseAdapterException(e);
-                                    }
-                                }
-                            });
-                    }
-                });
-
+        for (String changedTable : applier.getChangedTables()) {
+            adapter.updateTableRevision(changedTable, nextRev);
         }
         LOGGER.debug("applyChangesFromClientOnServer called");
         return nextRev;
     }
-
-    private void processResultSets(ResultSet hashRst, ResultSet data, int nextRev, String hash, MDEntry remoteEntry,
-        Map<String, Object> remoteRowData) throws SQLException, DatabaseAdapterException {
-
-//        // this basically boils down to:
-//        if (remoteEntry.dataRowExists()) {
-//            // SERVER ADD or MOD
-//            adapter.insertOrUpdateDataRow(remoteRowData, pKey, tableName);
-//        } else {
-//            LOGGER.info(Infos.COMMON_CLIENT_DELETED_CASE_DETECTED);
-//            adapter.deleteRowOrDoNothing(pKey, tableName);
-//        }
-//        adapter.insertOrUpdateMdRow(rev, FLAG_PROCESSED, pKey, hash, tableName);
-
-        LOGGER.debug("processResultSets called");
-
-        final Object pKey = remoteEntry.getPrimaryKey();
-        final String tableName = remoteEntry.getTableName();
-
-        if (hashRst.next()) {
-            if (!remoteEntry.dataRowExists()) {
-
-                // CLIENT DEL
-                LOGGER.info(Infos.COMMON_CLIENT_DELETED_CASE_DETECTED);
-                adapter.deleteRow(pKey, tableName);
-                adapter.updateMdRow(nextRev, FLAG_PROCESSED, pKey, MDV_DELETED_VALUE, tableName);
-
-            } else {
-
-                // CLIENT MOD
-                LOGGER.info(Infos.COMMON_CLIENT_MODIFIED_CASE_DETECTED);
-
-                if (!data.next()) {
-                    adapter.insertDataRow(remoteRowData, tableName);
-                } else {
-                    adapter.updateDataRow(remoteRowData, pKey, tableName);
-                }
-                adapter.updateMdRow(nextRev, FLAG_PROCESSED, pKey, hash, tableName);
-            }
-        } else {
-
-            // CLIENT ADD
-            LOGGER.info(Infos.COMMON_CLIENT_ADDED_CASE_DETECTED);
-            LOGGER.debug("insert md row with rev: {} and client pk: {}", nextRev, pKey);
-
-            adapter.insertMdRow(nextRev, FLAG_PROCESSED, pKey, hash, tableName);
-            adapter.insertDataRow(remoteRowData, tableName);
-        }
-    }
 }
@@ -0,0 +1,246 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ServerScanCoordinator.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+
+import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+import de.consistec.doubleganger.common.i18n.Errors;
+import de.consistec.doubleganger.common.i18n.Infos;
+import de.consistec.doubleganger.common.util.LoggingUtil;
+
+import org.slf4j.cal10n.LocLogger;
+
+/**
+ * Coordinates the change detection passes over the server tables of all clients.
+ * <p/>
+ * Passes are only shared by read only requests. Applying client changes needs a scan in the same transaction,
+ * so application writes committed after a pass are still checked for conflicts.
+ * <p/>
+ * At most one pass runs at a time. Requests arriving while a pass is running wait for it and reuse its result
+ * instead of scanning the same tables again. A new pass is skipped if no application write was
+ * {@link #notifyTablesChanged() announced} since the last pass and the last pass is not older than
+ * {@link Config#getServerScanMaxAge()}. Otherwise the pass itself is asked whether it
+ * {@link ScanPass#hasChanges() has changes} to process, e.g. flagged md rows when server triggers are active,
+ * and only runs if it has.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 14:20
+ */
+public final class ServerScanCoordinator {
+
+    private static final LocLogger LOGGER = LoggingUtil.createLogger(ServerScanCoordinator.class.getCanonicalName());
+    private static final Config CONF = Config.getInstance();
+    private static final ServerScanCoordinator INSTANCE = new ServerScanCoordinator();
+    private final Object lock = new Object();
+    private boolean running;
+    private boolean tablesChanged = true;
+    private long passNumber;
+    private int currentPassRequests;
+    private int lastPassRequests;
+    private long lastPassTime = -1;
+    private long skippedPasses;
+    private Throwable lastPassFailure;
+
+    /**
+     * One change detection pass over the server tables.
+     */
+    public interface ScanPass {
+
+        /**
+         * Checks cheaply whether the pass would find changes, without scanning the tables.
+         *
+         * @return false if the pass can be skipped, true if it has changes or can't tell without scanning
+         * @throws DatabaseAdapterException if the check fails
+         */
+        boolean hasChanges() throws DatabaseAdapterException;
+
+        /**
+         * Synchronizes the server tables and commits the metadata.
+         *
+         * @throws DatabaseAdapterException if the pass fails
+         */
+        void run() throws DatabaseAdapterException;
+    }
+
+    /**
+     * Use {@link #getInstance()}.
+     */
+    ServerScanCoordinator() {
+    }
+
+    /**
+     * Returns the coordinator shared by all server providers.
+     *
+     * @return the coordinator
+     */
+    public static ServerScanCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Makes sure the metadata of the server tables are up to date.
+     * <p/>
+     * Runs the given pass, waits for a pass which is already running or returns immediately if no pass is needed.
+     * If the awaited pass fails, its exception is thrown to all requests which waited for it.
+     *
+     * @param pass the pass to run if a new one is needed
+     * @throws DatabaseAdapterException if the pass fails or the thread is interrupted while waiting
+     */
+    public void awaitScan(ScanPass pass) throws DatabaseAdapterException {
+
+        synchronized (lock) {
+            if (running) {
+                long awaitedPass = passNumber;
+                currentPassRequests++;
+                while (passNumber == awaitedPass) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DatabaseAdapterException(read(Errors.COMMON_SERVER_SCAN_INTERRUPTED), e);
+                    }
+                }
+                rethrow(lastPassFailure);
+                return;
+            }
+
+            if (!tablesChanged && lastPassTime >= 0 && getScanAge() < CONF.getServerScanMaxAge()) {
+                skippedPasses++;
+                LOGGER.debug("skipping server scan, last scan is {} ms old", getScanAge());
+                return;
+            }
+
+            running = true;
+            // writes announced during the pass may be missed by it, so they have to trigger the next one
+            tablesChanged = false;
+            currentPassRequests = 1;
+        }
+
+        Throwable failure = null;
+        boolean scanned = false;
+        long start = System.currentTimeMillis();
+        try {
+            if (pass.hasChanges()) {
+                pass.run();
+                scanned = true;
+            }
+        } catch (DatabaseAdapterException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = e;
+        } catch (Error e) { //NOSONAR
+            failure = e;
+        } finally {
+            synchronized (lock) {
+                running = false;
+                passNumber++;
+                lastPassFailure = failure;
+                lastPassRequests = currentPassRequests;
+                if (failure == null) {
+                    lastPassTime = System.currentTimeMillis();
+                    if (!scanned) {
+                        skippedPasses++;
+                    }
+                } else {
+                    tablesChanged = true;
+                }
+                lock.notifyAll();
+            }
+        }
+
+        rethrow(failure);
+        if (scanned) {
+            LOGGER.info(Infos.COMMON_SERVER_SCAN_FINISHED, System.currentTimeMillis() - start, lastPassRequests);
+        } else {
+            LOGGER.debug("skipping server scan, the tables have no changes");
+        }
+    }
+
+    /**
+     * Announces that the application changed the synchronized server tables.
+     * <p/>
+     * The next request will start a new pass, regardless of the age of the last pass.
+     */
+    public void notifyTablesChanged() {
+        synchronized (lock) {
+            tablesChanged = true;
+        }
+    }
+
+    /**
+     * Returns the milliseconds since the last successful pass finished.
+     *
+     * @return age of the last pass or -1 if no pass has finished yet
+     */
+    public long getScanAge() {
+        synchronized (lock) {
+            return lastPassTime < 0 ? -1 : System.currentTimeMillis() - lastPassTime;
+        }
+    }
+
+    /**
+     * Returns how many requests were served by the last finished pass (including the one which started it).
+     *
+     * @return number of requests sharing the last pass
+     */
+    public int getLastPassRequests() {
+        synchronized (lock) {
+            return lastPassRequests;
+        }
+    }
+
+    /**
+     * Returns the number of finished passes.
+     *
+     * @return number of passes
+     */
+    public long getPassCount() {
+        synchronized (lock) {
+            return passNumber;
+        }
+    }
+
+    /**
+     * Returns the number of requests which didn't need a scan, because the tables didn't change.
+     *
+     * @return number of skipped passes
+     */
+    public long getSkippedPassCount() {
+        synchronized (lock) {
+            return skippedPasses;
+        }
+    }
+
+    private static void rethrow(Throwable failure) throws DatabaseAdapterException {
+        if (failure instanceof DatabaseAdapterException) {
+            throw (DatabaseAdapterException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+}
@@ -40,7 +40,9 @@ import de.consistec.doubleganger.common.i18n.Errors;
  * TransactionAbortedException},</li>
  * <li>ENTRY_NOT_UNIQUE =>
  * {@link de.consistec.doubleganger.common.exception.database_adapter.UniqueConstraintException
- * UniqueConstraintException}</li>
+ * UniqueConstraintException},</li>
+ * <li>BASE_ROW_CHANGED =>
+ * {@link de.consistec.doubleganger.common.exception.ServerStatusException ServerStatusException}</li>
  * </ul>
  * <br/>
  * <p/>
@@ -68,7 +70,13 @@ public enum ServerStatus {
      * The enumeration {@code ENTRY_NOT_UNIQUE} represents the thrown
      * <code>UniqueConstraints</code>.
      */
-    ENTRY_NOT_UNIQUE(3);
+    ENTRY_NOT_UNIQUE(3),
+    /**
+     * The enumeration {@code BASE_ROW_CHANGED} represents the thrown
+     * <code>ServerStatusException</code> when the server row of a column delta differs from its base version.
+     * The client has to send the full rows.
+     */
+    BASE_ROW_CHANGED(4);
     private int code;
 
     private ServerStatus(int code) {
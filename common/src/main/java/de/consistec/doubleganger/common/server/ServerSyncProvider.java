@@ -23,20 +23,27 @@ package de.consistec.doubleganger.common.server;
  * #L%
  */
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashSet;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newSyncMap;
 import static de.consistec.doubleganger.common.util.Preconditions.checkSyncDirectionOfClientChanges;
 import static de.consistec.doubleganger.common.util.Preconditions.checkSyncState;
 
 import de.consistec.doubleganger.common.AbstractSyncProvider;
 import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
+import de.consistec.doubleganger.common.SyncDirection;
 import de.consistec.doubleganger.common.SyncSettings;
 import de.consistec.doubleganger.common.TableSyncStrategies;
 import de.consistec.doubleganger.common.TableSyncStrategy;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterFactory;
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.FingerprintNode;
+import de.consistec.doubleganger.common.data.TableFingerprint;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.ServerStatusException;
 import de.consistec.doubleganger.common.exception.SyncException;
@@ -48,12 +55,21 @@ import de.consistec.doubleganger.common.i18n.Errors;
 import de.consistec.doubleganger.common.i18n.Infos;
 import de.consistec.doubleganger.common.i18n.MessageReader;
 import de.consistec.doubleganger.common.i18n.Warnings;
+import de.consistec.doubleganger.common.util.FingerprintCalculator;
 import de.consistec.doubleganger.common.util.LoggingUtil;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.sql.DataSource;
 import org.slf4j.cal10n.LocLogger;
 
@@ -90,6 +106,14 @@ public final class ServerSyncProvider extends AbstractSyncProvider implements IS
     private static final LocLogger LOGGER = LoggingUtil.createLogger(ServerSyncProvider.class.getCanonicalName());
     private static final Config CONF = Config.getInstance();
     private static final int NUMBER_OF_SYNC_RETRIES = 3;
+    /**
+     * Workers for the parallel table synchronization, shared by all providers to limit the number of connections.
+     */
+    private static ExecutorService tableSyncExecutor;
+    /**
+     * The last computed fingerprint of each table, valid as long as the server revision doesn't change.
+     */
+    private static final Map<String, TableFingerprint> FINGERPRINTS = newSyncMap();
 
     /**
      * Creates provider with its own database connection.
@@ -224,10 +248,11 @@ public final class ServerSyncProvider extends AbstractSyncProvider implements IS
 
         try {
             adapter = prepareServerDbAdapter();
-            ServerTableSynchronizer tableSynchronizer = new ServerTableSynchronizer(adapter);
             ServerHashProcessor hashProcessor = new ServerHashProcessor(adapter);
             validateChangeList(clientData.getChanges());
-            tableSynchronizer.synchronizeServerTables();
+            // the change detection has to be part of the apply transaction, otherwise an application write
+            // after a shared scan pass would be overwritten by the client change without a conflict check
+            new ServerTableSynchronizer(adapter).synchronizeServerTables();
 
             int result = hashProcessor.applyChangesFromClientOnServer(clientData.getChanges(),
                 clientData.getRevision());
@@ -327,9 +352,11 @@ public final class ServerSyncProvider extends AbstractSyncProvider implements IS
 
         try {
             adapter = prepareServerDbAdapter();
+            synchronizeServerTables(adapter);
+            if (isParallelTableSyncPossible()) {
+                return getChangesInParallel(adapter, rev);
+            }
             ServerChangesEnumerator changesEnumerator = new ServerChangesEnumerator(adapter, getStrategies());
-            ServerTableSynchronizer tableSynchronizer = new ServerTableSynchronizer(adapter);
-            tableSynchronizer.synchronizeServerTables();
             return changesEnumerator.getChanges(rev);
 
         } catch (DatabaseAdapterException e) {
@@ -362,6 +389,281 @@ public final class ServerSyncProvider extends AbstractSyncProvider implements IS
         }
     }
 
+    @Override
+    public int getChanges(int rev, IChangeListener listener) throws SyncException {
+
+        int retries = CONF.getRetryNumberOfGetChangesOnTransactionError();
+
+        while (true) {
+            IDatabaseAdapter adapter = null;
+            StreamStateListener streamListener = new StreamStateListener(listener);
+            try {
+                adapter = prepareServerDbAdapter();
+                synchronizeServerTables(adapter);
+                // tables are streamed one after another, parallel enumeration would have to buffer them
+                return new ServerChangesEnumerator(adapter, getStrategies()).getChanges(rev, streamListener);
+
+            } catch (DatabaseAdapterException e) {
+
+                rollback(adapter);
+                LOGGER.debug("Transaction rolled back!!! \n {}", e.getLocalizedMessage());
+
+                // changes which were already passed to the listener can't be taken back
+                if (!(e instanceof TransactionAbortedException) || streamListener.started) {
+                    throw new SyncException(read(Errors.DATA_GENERIC_ERROR), e);
+                }
+                LOGGER.info(Infos.COMMON_TRYING_TO_GET_SERVER_CHANGES_FOR_N_TIME, retries);
+                if (retries <= 0) {
+                    throw new SyncException(read(Errors.COMMON_CANT_GET_SERVER_CHANGES_FOR_N_TIME, retries), e);
+                }
+                retries--;
+                LOGGER.info(Infos.COMMON_REMAINING_NUMBER_OF_GET_SERVER_CHANGES_RETRIES, retries);
+            } finally {
+                closeConnection(adapter);
+            }
+        }
+    }
+
+    @Override
+    public SyncData getChanges(int rev, int pageSize, String continuationToken) throws SyncException {
+
+        ContinuationToken position = null;
+        try {
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException(String.valueOf(pageSize));
+            }
+            if (continuationToken != null) {
+                position = ContinuationToken.parse(continuationToken);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new SyncException(read(Errors.COMMON_INVALID_PAGE_REQUEST, pageSize, continuationToken), e);
+        }
+
+        int retries = CONF.getRetryNumberOfGetChangesOnTransactionError();
+
+        while (true) {
+            IDatabaseAdapter adapter = null;
+            try {
+                adapter = prepareServerDbAdapter();
+                if (position == null) {
+                    // the following pages are read below the revision ceiling, they need no scan
+                    synchronizeServerTables(adapter);
+                    position = new ContinuationToken(rev, adapter.getLastRevision(), null, null);
+                }
+                return new ServerChangesEnumerator(adapter, getStrategies()).getChangesPage(position, pageSize);
+
+            } catch (DatabaseAdapterException e) {
+
+                rollback(adapter);
+                LOGGER.debug("Transaction rolled back!!! \n {}", e.getLocalizedMessage());
+
+                if (!(e instanceof TransactionAbortedException)) {
+                    throw new SyncException(read(Errors.DATA_GENERIC_ERROR), e);
+                }
+                LOGGER.info(Infos.COMMON_TRYING_TO_GET_SERVER_CHANGES_FOR_N_TIME, retries);
+                if (retries <= 0) {
+                    throw new SyncException(read(Errors.COMMON_CANT_GET_SERVER_CHANGES_FOR_N_TIME, retries), e);
+                }
+                retries--;
+                LOGGER.info(Infos.COMMON_REMAINING_NUMBER_OF_GET_SERVER_CHANGES_RETRIES, retries);
+            } finally {
+                closeConnection(adapter);
+            }
+        }
+    }
+
+    /**
+     * Brings the metadata of the server tables up to date before changes are enumerated.
+     * <p/>
+     * Providers with their own connections share the passes of the {@link ServerScanCoordinator}, which commits
+     * the metadata in its own transactions. A passed adapter is synchronized within its current transaction.
+     * Only read only requests may share passes, {@link #applyChanges(SyncData)} scans in its own transaction.
+     */
+    private void synchronizeServerTables(IDatabaseAdapter adapter) throws DatabaseAdapterException {
+        if (dbAdapter != null) {
+            new ServerTableSynchronizer(adapter).synchronizeServerTables();
+            return;
+        }
+
+        ServerScanCoordinator.getInstance().awaitScan(new ServerScanCoordinator.ScanPass() {
+            @Override
+            public boolean hasChanges() throws DatabaseAdapterException {
+                return hasFlaggedMdRows();
+            }
+
+            @Override
+            public void run() throws DatabaseAdapterException {
+                runScanPass();
+            }
+        });
+    }
+
+    /**
+     * With server triggers only flagged md rows are changes, so a pass without them has nothing to do.
+     * Without triggers only a scan can find the changes.
+     */
+    private boolean hasFlaggedMdRows() throws DatabaseAdapterException {
+        if (!CONF.isSqlTriggerOnServerActivated()) {
+            return true;
+        }
+
+        IDatabaseAdapter adapter = null;
+        try {
+            adapter = prepareServerDbAdapter();
+            for (String table : CONF.getSyncTables()) {
+                if (adapter.hasFlaggedMdRows(table)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
+    private void runScanPass() throws DatabaseAdapterException {
+        IDatabaseAdapter adapter = null;
+        try {
+            adapter = prepareServerDbAdapter();
+            if (isParallelTableSyncPossible()) {
+                synchronizeServerTablesInParallel(adapter);
+            } else {
+                new ServerTableSynchronizer(adapter).synchronizeServerTables();
+            }
+            // commits the md rows of all tables together with the revision counter
+            adapter.commit();
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
+    /**
+     * Tables can only be processed in parallel if every worker can get its own adapter and connection,
+     * which is not the case for a passed adapter.
+     */
+    private boolean isParallelTableSyncPossible() {
+        return CONF.isParallelTableSyncActivated() && dbAdapter == null && CONF.getSyncTables().size() > 1;
+    }
+
+    /**
+     * Searches the changes of each table with its own worker and connection.
+     * <p/>
+     * The workers only read, the md rows are written by the pass connection which also allocates the revision
+     * for changed rows. So all tables get the same revision like in
+     * {@link ServerTableSynchronizer#synchronizeServerTables()}, and the md rows are committed or rolled back
+     * together with the revision counter.
+     */
+    private void synchronizeServerTablesInParallel(final IDatabaseAdapter passAdapter) throws
+        DatabaseAdapterException {
+        final ServerTableSynchronizer.PassRevision revision = new ServerTableSynchronizer.PassRevision(passAdapter);
+        forEachTableInParallel(new TableTask<Void>() {
+            @Override
+            public Void run(IDatabaseAdapter tableAdapter, String table) throws DatabaseAdapterException {
+                new ServerTableSynchronizer(tableAdapter, passAdapter).synchronizeServerTable(revision, table);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Enumerates the changes of each table with its own worker and connection and merges the results.
+     * <p/>
+     * The workers read their tables at different moments, so the current revision is read once as ceiling for
+     * all tables and returned as the revision of the change set.
+     */
+    private SyncData getChangesInParallel(IDatabaseAdapter adapter, final int rev) throws DatabaseAdapterException {
+
+        final int maxRevision = adapter.getLastRevision();
+        final SyncData serverChangeSet = new SyncData();
+        serverChangeSet.setRevision(maxRevision);
+
+        List<SyncData> tableChangeSets = forEachTableInParallel(new TableTask<SyncData>() {
+            @Override
+            public SyncData run(IDatabaseAdapter tableAdapter, String table) throws DatabaseAdapterException {
+                return new ServerChangesEnumerator(tableAdapter, getStrategies()).getChangesForTable(rev,
+                    maxRevision, table);
+            }
+        });
+
+        for (SyncData tableChangeSet : tableChangeSets) {
+            for (Change change : tableChangeSet.getChanges()) {
+                serverChangeSet.addChange(change);
+            }
+        }
+        return serverChangeSet;
+    }
+
+    /**
+     * Runs the task for every sync table on the shared workers, each with a new adapter.
+     *
+     * @return the results in the order of the sync tables
+     */
+    private <T> List<T> forEachTableInParallel(final TableTask<T> task) throws DatabaseAdapterException {
+
+        List<String> tables = newArrayList(CONF.getSyncTables());
+        List<Future<T>> futures = newArrayList();
+        List<T> results = newArrayList();
+        LOGGER.debug("Processing {} tables in parallel", tables.size());
+
+        try {
+            for (final String table : tables) {
+                futures.add(getTableSyncExecutor().submit(new Callable<T>() {
+                    @Override
+                    public T call() throws DatabaseAdapterException {
+                        IDatabaseAdapter adapter = null;
+                        try {
+                            adapter = prepareServerDbAdapter();
+                            return task.run(adapter, table);
+                        } finally {
+                            closeConnection(adapter);
+                        }
+                    }
+                }));
+            }
+
+            for (int i = 0; i < tables.size(); i++) {
+                results.add(waitForTable(futures.get(i), tables.get(i)));
+            }
+        } finally {
+            // stops the remaining workers if one table failed
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private static <T> T waitForTable(Future<T> result, String table) throws DatabaseAdapterException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseAdapterException(read(Errors.COMMON_PARALLEL_TABLE_SYNC_FAILED, table), e);
+        } catch (ExecutionException e) {
+            // rethrow adapter exceptions as they are, so aborted transactions are still retried
+            if (e.getCause() instanceof DatabaseAdapterException) {
+                throw (DatabaseAdapterException) e.getCause();
+            }
+            throw new DatabaseAdapterException(read(Errors.COMMON_PARALLEL_TABLE_SYNC_FAILED, table), e.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService getTableSyncExecutor() {
+        if (tableSyncExecutor == null) {
+            tableSyncExecutor = Executors.newFixedThreadPool(CONF.getParallelTableSyncThreads(), new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "doubleganger-table-sync-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return tableSyncExecutor;
+    }
+
     @Override
     public Schema getSchema() throws SyncException {
         IDatabaseAdapter adapter = null;
@@ -374,4 +676,119 @@ public final class ServerSyncProvider extends AbstractSyncProvider implements IS
             closeConnection(adapter);
         }
     }
+
+    @Override
+    public List<FingerprintNode> getFingerprint(String table, List<FingerprintNode> parents) throws SyncException {
+
+        List<FingerprintNode> nodes = newArrayList();
+        if (!isSyncedToClient(table)) {
+            return nodes;
+        }
+
+        IDatabaseAdapter adapter = null;
+        try {
+            adapter = prepareServerDbAdapter();
+            synchronizeServerTables(adapter);
+            TableFingerprint fingerprint = getTableFingerprint(adapter, table);
+            if (parents.isEmpty()) {
+                nodes.add(fingerprint.getRoot());
+            }
+            for (FingerprintNode parent : parents) {
+                nodes.addAll(fingerprint.getChildren(parent));
+            }
+            return nodes;
+        } catch (DatabaseAdapterException e) {
+            rollback(adapter);
+            throw new SyncException(read(Errors.COMMON_CANT_GET_FINGERPRINT, table), e);
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
+    @Override
+    public SyncData getChangesForRanges(String table, List<FingerprintNode> ranges) throws SyncException {
+
+        if (!isSyncedToClient(table)) {
+            return new SyncData();
+        }
+
+        IDatabaseAdapter adapter = null;
+        try {
+            adapter = prepareServerDbAdapter();
+            synchronizeServerTables(adapter);
+            return new ServerChangesEnumerator(adapter, getStrategies()).getChangesForRanges(table, ranges);
+        } catch (DatabaseAdapterException e) {
+            rollback(adapter);
+            throw new SyncException(read(Errors.DATA_GENERIC_ERROR), e);
+        } finally {
+            closeConnection(adapter);
+        }
+    }
+
+    private boolean isSyncedToClient(String table) throws SyncException {
+        if (!CONF.getSyncTables().contains(table)) {
+            throw new SyncException(read(Errors.COMMON_TABLE_NOT_INTEND_FOR_SYNCHRONIZING, table));
+        }
+        return getStrategies().getSyncStrategyForTable(table).getDirection() != SyncDirection.CLIENT_TO_SERVER;
+    }
+
+    /**
+     * Returns the cached fingerprint of the table or computes a new one if the server revision changed since.
+     */
+    private TableFingerprint getTableFingerprint(IDatabaseAdapter adapter, final String table) throws
+        DatabaseAdapterException {
+
+        final int revision = adapter.getLastRevision();
+        TableFingerprint fingerprint = FINGERPRINTS.get(table);
+        if (fingerprint != null && fingerprint.getRevision() == revision) {
+            return fingerprint;
+        }
+
+        final FingerprintCalculator calculator = new FingerprintCalculator(adapter.getHashCalculator());
+        final TableFingerprint[] result = new TableFingerprint[1];
+        adapter.getMdRowsOrderedByPk(table, new DatabaseAdapterCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet mdRows) throws DatabaseAdapterException, SQLException {
+                result[0] = calculator.calculateFingerprint(table, revision, mdRows, CONF.getFingerprintBucketSize(),
+                    CONF.getFingerprintFanOut());
+            }
+        });
+        FINGERPRINTS.put(table, result[0]);
+        return result[0];
+    }
+
+    /**
+     * Remembers whether the listener has received anything, so a failed stream is only retried from the start.
+     */
+    private static final class StreamStateListener implements IChangeListener {
+
+        private final IChangeListener listener;
+        private boolean started;
+
+        private StreamStateListener(IChangeListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onRevision(int revision) throws SyncException {
+            started = true;
+            listener.onRevision(revision);
+        }
+
+        @Override
+        public void onChange(Change change) throws SyncException {
+            started = true;
+            listener.onChange(change);
+        }
+    }
+
+    /**
+     * Work done for one table by a worker of the parallel table synchronization.
+     *
+     * @param <T> result type
+     */
+    private interface TableTask<T> {
+
+        T run(IDatabaseAdapter adapter, String table) throws DatabaseAdapterException;
+    }
 }
@@ -23,24 +23,34 @@ package de.consistec.doubleganger.common.server;
  * #L%
  */
 import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_DELETED_VALUE;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_MODIFIED_VALUE;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
 
 import de.consistec.doubleganger.common.Config;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+import de.consistec.doubleganger.common.i18n.DBAdapterErrors;
 import de.consistec.doubleganger.common.i18n.Infos;
 import de.consistec.doubleganger.common.util.DBMapperUtil;
 import de.consistec.doubleganger.common.util.HashCalculator;
 import de.consistec.doubleganger.common.util.LoggingUtil;
+import de.consistec.doubleganger.common.util.PrimaryKeyComparator;
 
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import org.slf4j.cal10n.LocLogger;
 
 /**
@@ -54,6 +64,17 @@ import org.slf4j.cal10n.LocLogger;
  * {@code ServerTableSynchronizer } creates a new md table entry. If deleted rows are
  * detected and an md table entry exists then the {@code ServerTableSynchronizer }
  * updates the md table entry with an empty hash value and marks it so as deleted.</p>
+ * <p>Without triggers the data table and its md table are read as two primary key ordered streams
+ * and compared in one pass, the resulting md entries are written in jdbc batches. For tables with a
+ * {@link Config#getWatermarkColumn(String) watermark column} only the rows changed since the last scan
+ * (less the {@link Config#getWatermarkOverlap() overlap}) are hashed and compared with their md rows in chunks.
+ * If the database adapter supports it, the row hashes are computed by the database and only primary keys and
+ * hashes are transferred.</p>
+ * <p>With triggers the md entries flagged by the triggers are stamped with the revision by one update
+ * statement per table.</p>
+ * <p>The revision is allocated with {@link IDatabaseAdapter#allocateRevision()} when the first md entry is
+ * written, see {@link PassRevision}, and registered as the table's highest revision if md entries were written
+ * with it, see {@link IDatabaseAdapter#updateTableRevision(String, int)}.</p>
  *
  * @author Markus Backes
  * @company consistec Engineering and Consulting GmbH
@@ -64,7 +85,9 @@ public class ServerTableSynchronizer {
 
     private static final LocLogger LOGGER = LoggingUtil.createLogger(ServerTableSynchronizer.class.getCanonicalName());
     private static final transient Config CONF = Config.getInstance();
+    private static final PrimaryKeyComparator VALUE_COMPARATOR = new PrimaryKeyComparator();
     private IDatabaseAdapter adapter;
+    private IDatabaseAdapter writeAdapter;
 
     /**
      * Instantiates a new server table synchronizer.
@@ -72,7 +95,23 @@ public class ServerTableSynchronizer {
      * @param adapter the database adapter
      */
     public ServerTableSynchronizer(IDatabaseAdapter adapter) {
+        this(adapter, adapter);
+    }
+
+    /**
+     * Instantiates a new server table synchronizer which reads the tables with one adapter and writes the
+     * metadata with another one.
+     * <p/>
+     * Tables synchronized in parallel are read with their own adapters, but their md rows have to be written in
+     * the transaction which allocated the revision of the pass, see {@link PassRevision}. The write adapter may be
+     * shared between threads, every write holds its lock.
+     *
+     * @param adapter the database adapter to read the tables
+     * @param writeAdapter the database adapter to write the metadata
+     */
+    public ServerTableSynchronizer(IDatabaseAdapter adapter, IDatabaseAdapter writeAdapter) {
         this.adapter = adapter;
+        this.writeAdapter = writeAdapter;
         LOGGER.debug("ServerTableSynchronizer Constructor finished");
     }
 
@@ -86,113 +125,451 @@ public class ServerTableSynchronizer {
     public void synchronizeServerTables() throws DatabaseAdapterException {
         LOGGER.debug("synchronizeServerTables called");
 
-        final int revision = adapter.getNextRevision();
+        final PassRevision revision = new PassRevision(adapter);
 
         for (final String tableName : CONF.getSyncTables()) {
-            if (CONF.isSqlTriggerOnServerActivated()) {
-                LOGGER.debug("Triggers are activated. Incrementing revision for changed rows in {}", tableName);
-                updateRevisionOnChangedRows(revision, tableName);
+            synchronizeServerTable(revision, tableName);
+        }
+
+        LOGGER.debug("synchronizeServerTables finished");
+    }
+
+    /**
+     * Synchronize one server table.
+     * <p/>
+     * Updates the metadata entries of the changed rows in the given table with the passed revision.
+     * The revision has to be the same for all tables of one synchronization, so tables processed
+     * in parallel (with different adapters) share the same {@link PassRevision}.
+     *
+     * @param revision the revision for changed rows
+     * @param tableName the table to synchronize
+     * @throws DatabaseAdapterException the adapter exception
+     */
+    public void synchronizeServerTable(final PassRevision revision, final String tableName) throws
+        DatabaseAdapterException {
+        if (CONF.isSqlTriggerOnServerActivated()) {
+            LOGGER.debug("Triggers are activated. Incrementing revision for changed rows in {}", tableName);
+            updateRevisionOnChangedRows(revision, tableName);
+        } else {
+            LOGGER.debug("Triggers are deactivated. Searching for changes & updating the metadata in {}", tableName);
+            String watermarkColumn = CONF.getWatermarkColumn(tableName);
+            if (watermarkColumn == null) {
+                searchAndProcessChanges(revision, tableName);
             } else {
-                LOGGER.debug("Triggers are deactivated. Searching for changes & updating the metadata in {}", tableName);
-                searchAndProcessChangedRows(revision, tableName);
-                searchAndProcessDeletedRows(revision, tableName);
+                searchAndProcessChangesAfterWatermark(revision, tableName, watermarkColumn);
             }
         }
+    }
 
-        LOGGER.debug("synchronizeServerTables finished");
+    private void updateRevisionOnChangedRows(final PassRevision revision, final String tableName) throws
+        DatabaseAdapterException {
+        if (!adapter.hasFlaggedMdRows(tableName)) {
+            LOGGER.debug("No flagged rows in {}", tableName);
+            return;
+        }
+        int rev = revision.get();
+        int updated;
+        synchronized (writeAdapter) {
+            updated = writeAdapter.updateFlaggedMdRows(rev, FLAG_PROCESSED, MDV_MODIFIED_VALUE, tableName);
+        }
+        updateTableRevision(tableName, revision, updated);
+        LOGGER.info(Infos.COMMON_SERVER_FLAGGED_ROWS_UPDATED, tableName, updated, rev);
     }
 
-    private void updateRevisionOnChangedRows(final int revision, final String tableName) throws DatabaseAdapterException {
-        final String mdTableName = tableName + CONF.getMdTableSuffix();
-        adapter.getChanges(tableName, new DatabaseAdapterCallback<ResultSet>() {
-            @Override
-            public void onSuccess(ResultSet allChangedRows) throws DatabaseAdapterException {
-                try {
-                    while (allChangedRows.next()) {
-                        String pkName = adapter.getPrimaryKeyColumn(mdTableName).getName();
-                        final Object primaryKey = allChangedRows.getObject(pkName);
-                        if (primaryKey != null) {
-                            adapter.updateMdRow(revision, FLAG_PROCESSED, primaryKey, MDV_MODIFIED_VALUE, tableName);
-                        }
-                    }
-                } catch (SQLException ex) {
-                    throw new DatabaseAdapterException(ex);
-                }
+    /**
+     * Registers the revision as the table's highest revision, if md rows were written with it.
+     */
+    private void updateTableRevision(String table, PassRevision rev, int writtenRows) throws
+        DatabaseAdapterException {
+        if (writtenRows > 0) {
+            int revision = rev.get();
+            synchronized (writeAdapter) {
+                writeAdapter.updateTableRevision(table, revision);
             }
-        });
+        }
+    }
+
+    private void searchAndProcessChanges(final PassRevision rev, final String table) throws
+        DatabaseAdapterException {
+
+        final MdRowsBatch batch = new MdRowsBatch(rev, table);
+
+        boolean hashInDatabase = CONF.isRowHashingInDatabaseActivated();
+        if (hashInDatabase) {
+            // the hash expression has to cover columns the application added since the last scan
+            adapter.refreshTableMetadataIfChanged(table);
+            hashInDatabase = adapter.supportsRowHashing(table);
+        }
+
+        if (hashInDatabase) {
+            LOGGER.debug("Hashing the rows of {} in the database", table);
+            adapter.getRowHashesOrderedByPk(table, new DatabaseAdapterCallback<ResultSet>() {
+                @Override
+                public void onSuccess(final ResultSet rowHashes) throws DatabaseAdapterException {
+                    mergeWithMdRows(rowHashes, null, PK_COLUMN_NAME, batch);
+                }
+            });
+        } else {
+            adapter.getAllRowsFromTableOrderedByPk(table, new DatabaseAdapterCallback<ResultSet>() {
+                @Override
+                public void onSuccess(final ResultSet dataRows) throws DatabaseAdapterException {
+                    final List<String> columns = scannedColumns(table, dataRows);
+                    final String pkName = adapter.getPrimaryKeyColumn(table).getName();
+                    mergeWithMdRows(dataRows, columns, pkName, batch);
+                }
+            });
+        }
+
+        batch.flush();
+        updateTableRevision(table, rev, batch.insertedCount + batch.modifiedCount + batch.deletedCount);
+        LOGGER.info(Infos.COMMON_SERVER_TABLE_SYNCHRONIZED, table, batch.insertedCount, batch.modifiedCount,
+            batch.deletedCount);
     }
 
-    private void searchAndProcessChangedRows(final int rev, final String table) throws DatabaseAdapterException {
-        final String mdTable = table + CONF.getMdTableSuffix();
+    private void searchAndProcessChangesAfterWatermark(final PassRevision rev, final String table,
+        final String watermarkColumn) throws DatabaseAdapterException {
 
         final HashCalculator hashCalculator = adapter.getHashCalculator();
+        final MdRowsBatch batch = new MdRowsBatch(rev, table);
+        final Object watermark = adapter.getWatermark(table);
+        final Object[] highWatermark = new Object[]{watermark};
+        // rows of transactions which committed after the last scan can have a lower watermark than it
+        final Object lowerBound = lowerWatermark(watermark, CONF.getWatermarkOverlap());
 
-        final List<String> columns = adapter.getColumnNamesFromTable(table);
-        adapter.getAllRowsFromTable(table, new DatabaseAdapterCallback<ResultSet>() {
+        adapter.getRowsChangedAfterWatermark(table, watermarkColumn, lowerBound,
+            new DatabaseAdapterCallback<ResultSet>() {
             @Override
-            public void onSuccess(ResultSet allRows) throws DatabaseAdapterException {
+            public void onSuccess(ResultSet changedRows) throws DatabaseAdapterException {
                 try {
-//                    final Map<String, Object> rowData = DBMapperUtil.getRowData(allRows);
+                    final List<String> columns = scannedColumns(table, changedRows);
+                    final String pkName = adapter.getPrimaryKeyColumn(table).getName();
                     final Map<String, Object> rowData = newHashMap();
-                    while (allRows.next()) {
-                        for (String s : columns) {
-                            rowData.put(s, allRows.getObject(s));
+                    final Map<Object, String> hashes = new TreeMap<Object, String>(VALUE_COMPARATOR);
+                    while (changedRows.next()) {
+                        for (String column : columns) {
+                            rowData.put(column, changedRows.getObject(column));
                         }
-                        final Object primaryKey = allRows.getObject(adapter.getPrimaryKeyColumn(table).getName());
-
-                        LOGGER.debug("calculate hash value from following row data: <{}>", rowData);
-                        final String hash = hashCalculator.calculateHash(rowData);
-
-                        adapter.getRowForPrimaryKey(primaryKey, mdTable, new DatabaseAdapterCallback<ResultSet>() {
-                            @Override
-                            public void onSuccess(ResultSet result) throws DatabaseAdapterException {
-
-                                try {
-                                    if (result.next()) {
-                                        if (!DBMapperUtil.rowHasSameHash(result, hash)) {
-                                            LOGGER.info(Infos.COMMON_UPDATING_SERVER_HASH_ENTRY);
-                                            adapter.updateMdRow(rev, FLAG_PROCESSED, primaryKey, hash, table);
-                                        }
-                                    } else {
-                                        // create new entry
-                                        LOGGER.info(Infos.COMMON_CREATING_NEW_SERVER_HASH_ENTRY);
-                                        adapter.insertMdRow(rev, FLAG_PROCESSED, primaryKey, hash, table);
-                                    }
-                                } catch (SQLException e) {
-                                    throw new DatabaseAdapterException(e);
-                                }
-                            }
-                        });
+                        hashes.put(changedRows.getObject(pkName), hashCalculator.calculateHash(rowData));
 
+                        Object rowWatermark = changedRows.getObject(watermarkColumn);
+                        if (VALUE_COMPARATOR.compare(rowWatermark, highWatermark[0]) > 0) {
+                            highWatermark[0] = rowWatermark;
+                        }
+
+                        if (hashes.size() >= CONF.getMdBatchSize()) {
+                            compareWithMdRows(hashes, batch);
+                        }
                     }
+                    compareWithMdRows(hashes, batch);
                 } catch (SQLException e) {
                     throw new DatabaseAdapterException(e);
                 }
             }
         });
-    }
-
-    private void searchAndProcessDeletedRows(final int rev, final String table) throws DatabaseAdapterException {
 
-        LOGGER.debug("searching for deleted rows");
-
-        // Update deleted rows
+        // deleted rows don't move the watermark, so they are still searched with the anti join
         adapter.getDeletedRowsForTable(table, new DatabaseAdapterCallback<ResultSet>() {
             @Override
             public void onSuccess(ResultSet deletedRows) throws DatabaseAdapterException {
                 try {
                     while (deletedRows.next()) {
-                        if (DBMapperUtil.rowIsAlreadyDeleted(deletedRows)) {
-                            continue;
+                        if (!DBMapperUtil.rowIsAlreadyDeleted(deletedRows)) {
+                            LOGGER.info(Infos.COMMON_FOUND_DELETED_ROW_ON_SERVER);
+                            batch.delete(deletedRows.getObject(PK_COLUMN_NAME));
                         }
-                        LOGGER.info(Infos.COMMON_FOUND_DELETED_ROW_ON_SERVER);
-                        adapter.updateMdRow(rev, FLAG_PROCESSED, deletedRows.getObject(PK_COLUMN_NAME),
-                            MDV_DELETED_VALUE, table);
                     }
                 } catch (SQLException e) {
                     throw new DatabaseAdapterException(e);
                 }
             }
         });
+
+        batch.flush();
+        updateTableRevision(table, rev, batch.insertedCount + batch.modifiedCount + batch.deletedCount);
+        if (VALUE_COMPARATOR.compare(highWatermark[0], watermark) != 0) {
+            synchronized (writeAdapter) {
+                writeAdapter.updateWatermark(table, watermarkColumn, highWatermark[0]);
+            }
+        }
+        LOGGER.info(Infos.COMMON_SERVER_TABLE_SYNCHRONIZED, table, batch.insertedCount, batch.modifiedCount,
+            batch.deletedCount);
+    }
+
+    /**
+     * Returns the columns to hash, the cached meta data is read again only if the scan shows added or dropped
+     * columns.
+     */
+    private List<String> scannedColumns(String table, ResultSet scannedRows) throws DatabaseAdapterException {
+        try {
+            adapter.refreshTableMetadataIfChanged(table, scannedRows.getMetaData());
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(e);
+        }
+        return adapter.getColumnNamesFromTable(table);
+    }
+
+    /**
+     * Compares the hashes of the changed rows with the md rows of their primary keys, which are read at once.
+     * The map is empty afterwards.
+     */
+    private void compareWithMdRows(final Map<Object, String> hashes, final MdRowsBatch batch) throws
+        DatabaseAdapterException {
+
+        if (hashes.isEmpty()) {
+            return;
+        }
+        adapter.getMdRowsForPrimaryKeys(batch.table, new ArrayList<Object>(hashes.keySet()),
+            new DatabaseAdapterCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet mdRows) throws DatabaseAdapterException {
+                try {
+                    while (mdRows.next()) {
+                        Object primaryKey = mdRows.getObject(PK_COLUMN_NAME);
+                        String hash = hashes.remove(primaryKey);
+                        if (hash != null && !DBMapperUtil.rowHasSameHash(mdRows, hash)) {
+                            LOGGER.info(Infos.COMMON_UPDATING_SERVER_HASH_ENTRY);
+                            batch.update(primaryKey, hash);
+                        }
+                    }
+                } catch (SQLException e) {
+                    throw new DatabaseAdapterException(e);
+                }
+            }
+        });
+
+        // changed rows without md row are new
+        for (Map.Entry<Object, String> row : hashes.entrySet()) {
+            LOGGER.info(Infos.COMMON_CREATING_NEW_SERVER_HASH_ENTRY);
+            batch.insert(row.getKey(), row.getValue());
+        }
+        hashes.clear();
+    }
+
+    /**
+     * Lowers the watermark of the last scan by the overlap, milliseconds for dates and times or the value itself
+     * for numbers. Other watermarks can't be lowered and are returned unchanged.
+     */
+    static Object lowerWatermark(Object watermark, long overlap) {
+        if (watermark == null || overlap <= 0) {
+            return watermark;
+        }
+        if (watermark instanceof Timestamp) {
+            return new Timestamp(((Timestamp) watermark).getTime() - overlap);
+        }
+        if (watermark instanceof java.sql.Date) {
+            return new java.sql.Date(((java.sql.Date) watermark).getTime() - overlap);
+        }
+        if (watermark instanceof Time) {
+            return new Time(((Time) watermark).getTime() - overlap);
+        }
+        if (watermark instanceof Date) {
+            return new Date(((Date) watermark).getTime() - overlap);
+        }
+        if (watermark instanceof Integer || watermark instanceof Long || watermark instanceof Short
+            || watermark instanceof Byte) {
+            return Long.valueOf(((Number) watermark).longValue() - overlap);
+        }
+        if (watermark instanceof Number) {
+            return new BigDecimal(watermark.toString()).subtract(BigDecimal.valueOf(overlap));
+        }
+        return watermark;
+    }
+
+    private void mergeWithMdRows(final ResultSet dataRows, final List<String> columns, final String pkName,
+        final MdRowsBatch batch) throws DatabaseAdapterException {
+        adapter.getMdRowsOrderedByPk(batch.table, new DatabaseAdapterCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet mdRows) throws DatabaseAdapterException {
+                try {
+                    mergeRows(dataRows, mdRows, columns, pkName, batch);
+                } catch (SQLException e) {
+                    throw new DatabaseAdapterException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Walks through the primary key ordered data and md rows at once and compares them.
+     * <p/>
+     * A data row without md row is new, an md row without data row is deleted and for rows with the same
+     * primary key the hash values are compared.
+     * If {@code columns} is null the data rows already contain the hash computed by the database
+     * in the mdv column.
+     */
+    private void mergeRows(ResultSet dataRows, ResultSet mdRows, List<String> columns, String pkName,
+        MdRowsBatch batch) throws SQLException, DatabaseAdapterException {
+
+        final HashCalculator hashCalculator = adapter.getHashCalculator();
+        final Map<String, Object> rowData = newHashMap();
+
+        boolean hasData = dataRows.next();
+        boolean hasMd = mdRows.next();
+        Object dataPk = hasData ? dataRows.getObject(pkName) : null;
+        Object mdPk = hasMd ? mdRows.getObject(PK_COLUMN_NAME) : null;
+
+        while (hasData || hasMd) {
+
+            int order;
+            if (!hasMd) {
+                order = -1;
+            } else if (!hasData) {
+                order = 1;
+            } else {
+                order = VALUE_COMPARATOR.compare(dataPk, mdPk);
+            }
+
+            if (order <= 0) {
+                final String hash;
+                if (columns == null) {
+                    hash = dataRows.getString(MDV_COLUMN_NAME);
+                } else {
+                    for (String column : columns) {
+                        rowData.put(column, dataRows.getObject(column));
+                    }
+                    LOGGER.debug("calculate hash value from following row data: <{}>", rowData);
+                    hash = hashCalculator.calculateHash(rowData);
+                }
+
+                if (order < 0) {
+                    LOGGER.info(Infos.COMMON_CREATING_NEW_SERVER_HASH_ENTRY);
+                    batch.insert(dataPk, hash);
+                } else if (!DBMapperUtil.rowHasSameHash(mdRows, hash)) {
+                    LOGGER.info(Infos.COMMON_UPDATING_SERVER_HASH_ENTRY);
+                    batch.update(dataPk, hash);
+                }
+            } else if (!DBMapperUtil.rowIsAlreadyDeleted(mdRows)) {
+                LOGGER.info(Infos.COMMON_FOUND_DELETED_ROW_ON_SERVER);
+                batch.delete(mdPk);
+            }
+
+            if (order <= 0) {
+                hasData = dataRows.next();
+                dataPk = hasData ? nextPrimaryKey(dataRows.getObject(pkName), dataPk, batch.table) : null;
+            }
+            if (order >= 0) {
+                hasMd = mdRows.next();
+                mdPk = hasMd ? nextPrimaryKey(mdRows.getObject(PK_COLUMN_NAME), mdPk, batch.table) : null;
+            }
+        }
+    }
+
+    private Object nextPrimaryKey(Object next, Object previous, String table) throws DatabaseAdapterException {
+        // the merge relies on both streams being sorted like the comparator does
+        if (VALUE_COMPARATOR.compare(previous, next) >= 0) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.ROWS_NOT_ORDERED_BY_PRIMARY_KEY, table));
+        }
+        return next;
+    }
+
+    /**
+     * Collects the md rows to write and sends them to the database in batches of
+     * {@link Config#getMdBatchSize()} rows.
+     */
+    private final class MdRowsBatch {
+
+        private final PassRevision rev;
+        private final String table;
+        private final Map<Object, String> inserts = newHashMap();
+        private final Map<Object, String> updates = newHashMap();
+        private int insertedCount;
+        private int modifiedCount;
+        private int deletedCount;
+
+        private MdRowsBatch(PassRevision rev, String table) {
+            this.rev = rev;
+            this.table = table;
+        }
+
+        private void insert(Object pk, String hash) throws DatabaseAdapterException {
+            insertedCount++;
+            inserts.put(pk, hash);
+            if (inserts.size() >= CONF.getMdBatchSize()) {
+                flushInserts();
+            }
+        }
+
+        private void update(Object pk, String hash) throws DatabaseAdapterException {
+            modifiedCount++;
+            addUpdate(pk, hash);
+        }
+
+        private void delete(Object pk) throws DatabaseAdapterException {
+            deletedCount++;
+            addUpdate(pk, MDV_DELETED_VALUE);
+        }
+
+        private void addUpdate(Object pk, String mdv) throws DatabaseAdapterException {
+            updates.put(pk, mdv);
+            if (updates.size() >= CONF.getMdBatchSize()) {
+                flushUpdates();
+            }
+        }
+
+        private void flush() throws DatabaseAdapterException {
+            flushInserts();
+            flushUpdates();
+        }
+
+        private void flushInserts() throws DatabaseAdapterException {
+            if (!inserts.isEmpty()) {
+                int revision = rev.get();
+                synchronized (writeAdapter) {
+                    writeAdapter.insertMdRows(revision, FLAG_PROCESSED, inserts, table);
+                }
+                inserts.clear();
+            }
+        }
+
+        private void flushUpdates() throws DatabaseAdapterException {
+            if (!updates.isEmpty()) {
+                int revision = rev.get();
+                synchronized (writeAdapter) {
+                    writeAdapter.updateMdRows(revision, FLAG_PROCESSED, updates, table);
+                }
+                updates.clear();
+            }
+        }
+    }
+
+    /**
+     * Revision of one change detection pass.
+     * <p/>
+     * The revision is allocated with {@link IDatabaseAdapter#allocateRevision()} when the first md row is written
+     * with it, so passes without changes don't advance the revision counter. The counter stays locked until the
+     * transaction of the passed adapter ends, so no concurrent apply gets the same revision. The md rows have to be
+     * written in the same transaction, otherwise a failed pass could roll the counter back while md rows with its
+     * revision stay committed. Tables synchronized in parallel share one instance.
+     * <p/>
+     * This class is thread safe, the adapter is locked while the revision is allocated.
+     */
+    public static final class PassRevision {
+
+        private final IDatabaseAdapter adapter;
+        private int revision;
+
+        /**
+         * Creates the revision of a new pass.
+         *
+         * @param adapter the adapter whose transaction allocates the revision
+         */
+        public PassRevision(IDatabaseAdapter adapter) {
+            this.adapter = adapter;
+        }
+
+        /**
+         * Returns the revision of the pass, it is allocated with the first call.
+         *
+         * @return the revision for changed rows
+         * @throws DatabaseAdapterException if the revision can't be allocated
+         */
+        public int get() throws DatabaseAdapterException {
+            synchronized (adapter) {
+                if (revision == 0) {
+                    revision = adapter.allocateRevision();
+                }
+                return revision;
+            }
+        }
     }
 }
@@ -28,13 +28,16 @@ import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_N
 import static de.consistec.doubleganger.common.MdTableDefaultValues.METADATA_COLUMN_COUNT;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.REV_COLUMN_NAME;
-import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
 
+import de.consistec.doubleganger.common.data.ColumnDictionary;
 import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.data.RowData;
 
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -82,21 +85,51 @@ public final class DBMapperUtil {
 
     /**
      * Maps the result set to a map.
+     * <p/>
+     * Callers which map more than one row should create the dictionary once with
+     * {@link #getColumnDictionary(ResultSet) } and use {@link #getRowData(ResultSet, ColumnDictionary) }.
      *
      * @param resultSet the result set to map.
      * @return a map which key is the column name and value the value in the result set in the given column.
      * @throws SQLException
      */
     public static Map<String, Object> getRowData(ResultSet resultSet) throws SQLException {
-        Map<String, Object> rowData = newHashMap();
-        ResultSetMetaData meta = resultSet.getMetaData();
+        return getRowData(resultSet, getColumnDictionary(resultSet));
+    }
 
+    /**
+     * Creates the dictionary of the data columns of the result set, i.e. of all columns after the metadata
+     * columns. The dictionary can be created before the first row is read.
+     *
+     * @param resultSet the result set
+     * @return the data column names
+     * @throws SQLException
+     */
+    public static ColumnDictionary getColumnDictionary(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData meta = resultSet.getMetaData();
         int columnCount = meta.getColumnCount();
 
+        List<String> columns = newArrayList(Math.max(0, columnCount - METADATA_COLUMN_COUNT));
         for (int i = METADATA_COLUMN_COUNT + 1; i <= columnCount; i++) {
-            rowData.put(meta.getColumnName(i), resultSet.getObject(i));
+            columns.add(meta.getColumnName(i));
+        }
+        return new ColumnDictionary(columns);
+    }
+
+    /**
+     * Maps the current row of the result set to a row which shares the given column dictionary.
+     *
+     * @param resultSet the result set to map.
+     * @param columns the dictionary created by {@link #getColumnDictionary(ResultSet) } for this result set
+     * @return a map which key is the column name and value the value in the result set in the given column.
+     * @throws SQLException
+     */
+    public static RowData getRowData(ResultSet resultSet, ColumnDictionary columns) throws SQLException {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = resultSet.getObject(METADATA_COLUMN_COUNT + 1 + i);
         }
-        return rowData;
+        return new RowData(columns, values);
     }
 
     /**
@@ -0,0 +1,266 @@
+package de.consistec.doubleganger.common.util;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - FingerprintCalculator.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+
+import de.consistec.doubleganger.common.data.FingerprintNode;
+import de.consistec.doubleganger.common.data.TableFingerprint;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+import de.consistec.doubleganger.common.i18n.DBAdapterErrors;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Computes {@link TableFingerprint table fingerprints} and the hashes of fingerprint ranges from md rows.
+ * <p/>
+ * The hash of a range is the xor of the digests of {@code pk:mdv} of all rows in it. Deleted rows
+ * (md rows without hash) are ignored. Since xor doesn't depend on the order of the rows, the client gets the same
+ * hash for a range as the server without building the tree itself.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 10:05
+ */
+public class FingerprintCalculator {
+
+    private static final PrimaryKeyComparator PK_COMPARATOR = new PrimaryKeyComparator();
+    private static final Comparator<FingerprintNode> LOWER_BOUND_COMPARATOR = new Comparator<FingerprintNode>() {
+        @Override
+        public int compare(FingerprintNode first, FingerprintNode second) {
+            return PK_COMPARATOR.compare(first.getLowerBound(), second.getLowerBound());
+        }
+    };
+    private final HashCalculator hashCalculator;
+
+    /**
+     * Instantiates a new fingerprint calculator.
+     *
+     * @param hashCalculator calculator for the row digests
+     */
+    public FingerprintCalculator(HashCalculator hashCalculator) {
+        this.hashCalculator = hashCalculator;
+    }
+
+    /**
+     * Builds the fingerprint of a table.
+     *
+     * @param table name of the table
+     * @param revision server revision of the md rows
+     * @param mdRows md rows of the table ordered by primary key
+     * @param bucketSize number of rows per leaf
+     * @param fanOut maximum number of children per node
+     * @return the fingerprint
+     * @throws SQLException if the md rows can't be read
+     * @throws DatabaseAdapterException if the md rows aren't ordered by primary key
+     */
+    public TableFingerprint calculateFingerprint(String table, int revision, ResultSet mdRows, int bucketSize,
+        int fanOut) throws SQLException, DatabaseAdapterException {
+
+        List<FingerprintNode> nodes = newArrayList();
+        Accumulator bucket = null;
+        Object previousPk = null;
+
+        while (mdRows.next()) {
+            final String mdv = mdRows.getString(MDV_COLUMN_NAME);
+            if (mdv == null) {
+                continue;
+            }
+            final Object pk = mdRows.getObject(PK_COLUMN_NAME);
+            if (bucket != null && PK_COMPARATOR.compare(previousPk, pk) >= 0) {
+                throw new DatabaseAdapterException(read(DBAdapterErrors.ROWS_NOT_ORDERED_BY_PRIMARY_KEY, table));
+            }
+            if (bucket == null || bucket.count >= bucketSize) {
+                if (bucket != null) {
+                    nodes.add(bucket.toNode(pk));
+                }
+                bucket = new Accumulator(nodes.isEmpty() ? null : pk);
+            }
+            bucket.add(pk, mdv);
+            previousPk = pk;
+        }
+        nodes.add(bucket == null ? new Accumulator(null).toNode(null) : bucket.toNode(null));
+
+        final List<List<FingerprintNode>> levels = newArrayList();
+        levels.add(nodes);
+        while (nodes.size() > 1) {
+            final List<FingerprintNode> parents = newArrayList();
+            for (int i = 0; i < nodes.size(); i += fanOut) {
+                parents.add(combine(nodes.subList(i, Math.min(i + fanOut, nodes.size()))));
+            }
+            levels.add(parents);
+            nodes = parents;
+        }
+        Collections.reverse(levels);
+
+        for (int level = 0; level < levels.size(); level++) {
+            final List<FingerprintNode> levelNodes = levels.get(level);
+            for (int index = 0; index < levelNodes.size(); index++) {
+                levelNodes.get(index).setLevel(level);
+                levelNodes.get(index).setIndex(index);
+                levelNodes.get(index).setLeaf(level == levels.size() - 1);
+            }
+        }
+        return new TableFingerprint(table, revision, fanOut, levels);
+    }
+
+    /**
+     * Computes the row count and hash of the given ranges from the local md rows.
+     * <p/>
+     * The ranges mustn't overlap, the md rows can have any order.
+     *
+     * @param mdRows md rows of the table
+     * @param nodes the ranges to compute
+     * @return copies of the nodes with the local row counts and hashes, in the same order as the given nodes
+     * @throws SQLException if the md rows can't be read
+     */
+    public List<FingerprintNode> calculateHashes(ResultSet mdRows, List<FingerprintNode> nodes) throws
+        SQLException {
+
+        final List<FingerprintNode> sorted = newArrayList(nodes);
+        Collections.sort(sorted, LOWER_BOUND_COMPARATOR);
+        final Accumulator[] accumulators = new Accumulator[sorted.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new Accumulator(sorted.get(i).getLowerBound());
+        }
+
+        while (mdRows.next()) {
+            final String mdv = mdRows.getString(MDV_COLUMN_NAME);
+            if (mdv == null) {
+                continue;
+            }
+            final Object pk = mdRows.getObject(PK_COLUMN_NAME);
+            final int position = findRange(sorted, pk);
+            if (position >= 0) {
+                accumulators[position].add(pk, mdv);
+            }
+        }
+
+        final List<FingerprintNode> result = newArrayList(nodes.size());
+        for (FingerprintNode node : nodes) {
+            final int position = sorted.indexOf(node);
+            final FingerprintNode local = accumulators[position].toNode(node.getUpperBound());
+            local.setLevel(node.getLevel());
+            local.setIndex(node.getIndex());
+            local.setLeaf(node.isLeaf());
+            result.add(local);
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the primary key is in the range of the node.
+     *
+     * @param node the range
+     * @param pk the primary key
+     * @return true if the lower bound is smaller or equal and the upper bound is greater than the primary key
+     */
+    public static boolean isInRange(FingerprintNode node, Object pk) {
+        return (node.getLowerBound() == null || PK_COMPARATOR.compare(node.getLowerBound(), pk) <= 0)
+            && (node.getUpperBound() == null || PK_COMPARATOR.compare(pk, node.getUpperBound()) < 0);
+    }
+
+    private int findRange(List<FingerprintNode> sorted, Object pk) {
+        int low = 0;
+        int high = sorted.size() - 1;
+        int candidate = -1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final Object lowerBound = sorted.get(middle).getLowerBound();
+            if (lowerBound == null || PK_COMPARATOR.compare(lowerBound, pk) <= 0) {
+                candidate = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return candidate >= 0 && isInRange(sorted.get(candidate), pk) ? candidate : -1;
+    }
+
+    private FingerprintNode combine(List<FingerprintNode> children) {
+        final FingerprintNode first = children.get(0);
+        final Accumulator accumulator = new Accumulator(first.getLowerBound());
+        for (FingerprintNode child : children) {
+            accumulator.add(child);
+        }
+        return accumulator.toNode(children.get(children.size() - 1).getUpperBound());
+    }
+
+    /**
+     * Sums up the rows of one range.
+     */
+    private final class Accumulator {
+
+        private final Object lowerBound;
+        private byte[] hash;
+        private int count;
+
+        private Accumulator(Object lowerBound) {
+            this.lowerBound = lowerBound;
+        }
+
+        private void add(Object pk, String mdv) {
+            xor(hashCalculator.digest(pk + ":" + mdv));
+            count++;
+        }
+
+        private void add(FingerprintNode node) {
+            xor(fromHex(node.getHash()));
+            count += node.getRowCount();
+        }
+
+        private void xor(byte[] digest) {
+            if (hash == null) {
+                hash = new byte[digest.length];
+            }
+            for (int i = 0; i < digest.length; i++) {
+                hash[i] ^= digest[i];
+            }
+        }
+
+        private FingerprintNode toNode(Object upperBound) {
+            final byte[] value = hash == null ? hashCalculator.digest("") : hash;
+            if (hash == null) {
+                // an empty range has the neutral element of xor as hash
+                Arrays.fill(value, (byte) 0);
+            }
+            return new FingerprintNode(0, 0, lowerBound, upperBound, count, hashCalculator.getHex(value), false);
+        }
+    }
+
+    private static byte[] fromHex(String hex) {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
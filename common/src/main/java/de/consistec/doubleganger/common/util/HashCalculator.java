@@ -24,10 +24,12 @@ package de.consistec.doubleganger.common.util;
  */
 import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_MODIFIED_VALUE;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
 
 import de.consistec.doubleganger.common.ConfigConstants;
 import de.consistec.doubleganger.common.data.Change;
 
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
@@ -48,6 +50,15 @@ public class HashCalculator {
      * The Constant HEXES.
      */
     private static final String HEXES = "0123456789ABCDEF";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Number of hex characters of a single column hash.
+     */
+    private static final int COLUMN_HASH_LENGTH = 16;
+    /**
+     * Column hash of null values.
+     */
+    private static final String NULL_COLUMN_HASH = "0000000000000000";
     /**
      * The message digest.
      */
@@ -76,13 +87,22 @@ public class HashCalculator {
         }
     }
 
+    /**
+     * Returns the name of the used hash algorithm, e.g. MD5.
+     *
+     * @return name of the algorithm
+     */
+    public String getAlgorithm() {
+        return md.getAlgorithm();
+    }
+
     /**
      * Returns hexadecimal representation of given data.
      *
      * @param raw Data
      * @return Hex representation of given bytes.
      */
-    private String getHex(byte[] raw) {
+    public String getHex(byte[] raw) {
         final StringBuilder hex = new StringBuilder(2 * raw.length);
         for (final byte b : raw) {
             /**
@@ -132,6 +152,11 @@ public class HashCalculator {
      * <p/>
      * Before hash is calculated, entries are sorted through keys, so changes in map
      * ordering don't change the resulting hash.
+     * <br/>
+     * The hashed string is the concatenation of the {@code toString()} values of all non null entries, encoded with
+     * utf-8 regardless of the default charset of the jvm. Database adapters which compute the hash in sql have to
+     * produce exactly the same string. Hashes stored by versions which used the default charset differ for rows
+     * with non ascii characters, these rows are detected as modified once.
      *
      * @param rowData Data rows for calculation.
      * @return Hash value of the row.
@@ -151,8 +176,90 @@ public class HashCalculator {
                 hashBuilder.append(entry.toString());
             }
         }
-        return getHash(hashBuilder.toString().getBytes());
+        return getHash(hashBuilder.toString().getBytes(UTF_8));
+
+    }
 
+    /**
+     * Returns the concatenated hashes of the single columns of the given row.
+     * <p/>
+     * The columns are sorted by their names. Every column hash has {@value #COLUMN_HASH_LENGTH} hex characters,
+     * the hash of a {@code toString()} value is the start of the digest of its utf-8 bytes.
+     * Comparing the column hashes of two versions of a row shows which columns changed, see
+     * {@link #getChangedColumns(Map, String)}.
+     *
+     * @param rowData the row
+     * @return column hashes
+     */
+    public String calculateColumnHashes(Map<String, Object> rowData) {
+        List<String> sortedKeyList = newArrayList(rowData.keySet());
+        Collections.sort(sortedKeyList);
+
+        StringBuilder hashes = new StringBuilder(sortedKeyList.size() * COLUMN_HASH_LENGTH);
+        for (String key : sortedKeyList) {
+            hashes.append(calculateColumnHash(rowData.get(key)));
+        }
+        return hashes.toString();
+    }
+
+    /**
+     * Returns the hash identifying the row version with the given column hashes.
+     * <p/>
+     * It's sent as {@link Change#getBaseHash() base hash} of a column delta.
+     *
+     * @param columnHashes result of {@link #calculateColumnHashes(Map)}
+     * @return base hash
+     */
+    public String calculateBaseHash(String columnHashes) {
+        return getHex(digest(columnHashes));
+    }
+
+    /**
+     * Returns the columns of the given row which differ from the row version with the given column hashes.
+     *
+     * @param rowData the current row
+     * @param baseColumnHashes result of {@link #calculateColumnHashes(Map)} for the older row version
+     * @return the changed columns or {@code null} if the row versions have a different number of columns
+     */
+    public Map<String, Object> getChangedColumns(Map<String, Object> rowData, String baseColumnHashes) {
+        if (baseColumnHashes.length() != rowData.size() * COLUMN_HASH_LENGTH) {
+            return null;
+        }
+
+        List<String> sortedKeyList = newArrayList(rowData.keySet());
+        Collections.sort(sortedKeyList);
+
+        Map<String, Object> changedColumns = newHashMap();
+        int offset = 0;
+        for (String key : sortedKeyList) {
+            Object value = rowData.get(key);
+            if (!baseColumnHashes.startsWith(calculateColumnHash(value), offset)) {
+                changedColumns.put(key, value);
+            }
+            offset += COLUMN_HASH_LENGTH;
+        }
+        return changedColumns;
+    }
+
+    private String calculateColumnHash(Object value) {
+        if (value == null) {
+            return NULL_COLUMN_HASH;
+        }
+        byte[] hash = value instanceof byte[] ? md.digest((byte[]) value) : digest(value.toString());
+        return getHex(hash).substring(0, COLUMN_HASH_LENGTH);
+    }
+
+    /**
+     * Returns the raw digest of the utf-8 bytes of the given value.
+     * <p/>
+     * Unlike {@link #calculateHash(Map)} the result doesn't depend on the default charset of the jvm,
+     * so client and server can compare it.
+     *
+     * @param value the value to digest
+     * @return digest bytes
+     */
+    public byte[] digest(String value) {
+        return md.digest(value.getBytes(UTF_8));
     }
 
     /**
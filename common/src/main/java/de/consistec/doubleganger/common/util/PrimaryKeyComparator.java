@@ -0,0 +1,77 @@
+package de.consistec.doubleganger.common.util;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - PrimaryKeyComparator.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * Compares primary key (or watermark) values in the same order as the database sorts them.
+ * <p/>
+ * Numbers are compared by their value regardless of the concrete java type returned by the jdbc driver,
+ * strings and other comparable values by their natural order. Values of different types are compared
+ * by their string representation.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 10:12
+ */
+public class PrimaryKeyComparator implements Comparator<Object> {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int compare(Object first, Object second) {
+
+        if (first == second) {
+            return 0;
+        } else if (first == null) {
+            return -1;
+        } else if (second == null) {
+            return 1;
+        }
+
+        if (first instanceof Number && second instanceof Number) {
+            return compareNumbers((Number) first, (Number) second);
+        }
+
+        if (first instanceof Comparable && first.getClass().equals(second.getClass())) {
+            return ((Comparable<Object>) first).compareTo(second);
+        }
+
+        return first.toString().compareTo(second.toString());
+    }
+
+    private int compareNumbers(Number first, Number second) {
+        if (isIntegral(first) && isIntegral(second)) {
+            long firstValue = first.longValue();
+            long secondValue = second.longValue();
+            return firstValue < secondValue ? -1 : (firstValue == secondValue ? 0 : 1);
+        }
+        return new BigDecimal(first.toString()).compareTo(new BigDecimal(second.toString()));
+    }
+
+    private boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short
+            || number instanceof Byte;
+    }
+}
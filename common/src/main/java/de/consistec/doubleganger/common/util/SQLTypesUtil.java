@@ -84,6 +84,27 @@ public final class SQLTypesUtil {
         }
     }
 
+    /**
+     * Checks if the given type is a character type whose ordering depends on the collation of the database.
+     * <p/>
+     *
+     * @param type Type code
+     * @return true for char, varchar and their national and long variants.
+     */
+    public static boolean isCharacterType(final int type) {
+        switch (type) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Converts the given string to a java.sql.Types type.
      * <p/>
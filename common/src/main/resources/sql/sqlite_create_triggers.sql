@@ -0,0 +1,25 @@
+DROP TRIGGER IF EXISTS "%table%_after_insert";;
+DROP TRIGGER IF EXISTS "%table%_after_update";;
+DROP TRIGGER IF EXISTS "%table%_after_delete";;
+CREATE TRIGGER "%table%_after_insert" AFTER INSERT ON "%table%"
+    FOR EACH ROW
+    BEGIN
+        -- sqlite has no users, so the sync's own writes fire these triggers too.
+        -- the sync always writes the metadata row after the data row, which resets the flag again.
+        UPDATE %table%%md_suffix% SET %flag_md% = 1 WHERE %pk_md% = NEW.%pk_data%;
+        INSERT OR IGNORE INTO %table%%md_suffix% (%pk_md%, %flag_md%) VALUES (NEW.%pk_data%, 2);
+    END;;
+CREATE TRIGGER "%table%_after_update" AFTER UPDATE ON "%table%"
+    FOR EACH ROW
+    BEGIN
+        UPDATE %table%%md_suffix% SET %flag_md% = 1 WHERE %pk_md% = NEW.%pk_data%;
+    END;;
+CREATE TRIGGER "%table%_after_delete" AFTER DELETE ON "%table%"
+    FOR EACH ROW
+    BEGIN
+        -- if it's been deleted and never synced, the revision will be NULL
+        -- no one needs to know about it, it sort of never existed - we delete it silently
+        DELETE FROM %table%%md_suffix% WHERE %pk_md% = OLD.%pk_data% AND rev IS NULL;
+        -- if it has been synced already, we just update the flag
+        UPDATE %table%%md_suffix% SET %flag_md% = -1 WHERE %pk_md% = OLD.%pk_data%;
+    END;
@@ -34,6 +34,7 @@ import static de.consistec.doubleganger.common.conflict.ConflictStrategy.FIRE_EV
 import static de.consistec.doubleganger.common.conflict.ConflictStrategy.SERVER_WINS;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
 import de.consistec.doubleganger.common.conflict.ConflictStrategy;
@@ -105,6 +106,12 @@ public class ConfigTest extends TestBase {
             String mdTabSuffixPrefix =
                 String.valueOf(Whitebox.getField(ConfigConstants.class, "OPTIONS_COMMON_MD_TABLE_SUFFIX").get(null));
 
+            String watermarkColumnsPrefix = String.valueOf(Whitebox.getField(ConfigConstants.class,
+                "OPTIONS_COMMON_WATERMARK_COLUMNS").get(null));
+
+            String watermarkOverlapPrefix = String.valueOf(Whitebox.getField(ConfigConstants.class,
+                "OPTIONS_COMMON_WATERMARK_OVERLAP").get(null));
+
             String servDbAdapterPrefix = String.valueOf(Whitebox.getField(ConfigConstants.class,
                 "OPTIONS_COMMON_SERV_DB_ADAPTER_CLASS").get(null));
 
@@ -141,6 +148,9 @@ public class ConfigTest extends TestBase {
             String mdTabSuffix = "rt2";
             props.put(mdTabSuffixPrefix, mdTabSuffix);
 
+            props.put(watermarkColumnsPrefix, "tab1:updated_at, tab2:version");
+            props.put(watermarkOverlapPrefix, "5000");
+
             Class<? extends IDatabaseAdapter> serverDbAdapter = IDatabaseAdapter.class;
             props.put(servDbAdapterPrefix, serverDbAdapter.getCanonicalName());
 
@@ -197,6 +207,13 @@ public class ConfigTest extends TestBase {
                 instance.getRetryNumberOfApplyChangesOnTransactionError());
             assertEquals("Expected and loaded \"md tab suffix\" are different", mdTabSuffix,
                 instance.getMdTableSuffix());
+            assertEquals("Expected and loaded watermark columns are different", "updated_at",
+                instance.getWatermarkColumn("tab1"));
+            assertEquals("Expected and loaded watermark columns are different", "version",
+                instance.getWatermarkColumn("tab2"));
+            assertNull("Table without watermark column has one", instance.getWatermarkColumn("tab_"));
+            assertEquals("Expected and loaded watermark overlap are different", 5000,
+                instance.getWatermarkOverlap());
             assertEquals("Expected and loaded server db adapters are different", serverDbAdapter,
                 instance.getServerDatabaseAdapter());
             assertEquals("Expected and loaded client db adapters are different", clientDbAdapter,
@@ -217,6 +234,7 @@ public class ConfigTest extends TestBase {
             props.remove(mdTabSuffixPrefix);
             props.remove(serverSyncProxyPrefix);
             props.remove(syncDirectionPrefix);
+            props.remove(watermarkColumnsPrefix);
             // recreating the file
             createFile(propsFile, props);
             instance.init(new FileInputStream(propsFile));
@@ -230,6 +248,7 @@ public class ConfigTest extends TestBase {
                 instance.getMdTableSuffix());
             assertEquals("Default and loaded \"sync. diirection\" are different", DEFAULT_SYNC_DIRECTION,
                 instance.getGlobalSyncDirection());
+            assertNull("Watermark column wasn't reset", instance.getWatermarkColumn("tab1"));
 
         } finally {
             propsFile.delete();
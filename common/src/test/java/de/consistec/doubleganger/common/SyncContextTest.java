@@ -26,10 +26,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import de.consistec.doubleganger.common.adapter.DumbDbAdapter;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.server.IServerSyncProvider;
 
+import java.util.List;
 import org.junit.Test;
 import org.powermock.reflect.Whitebox;
 
@@ -97,6 +99,16 @@ public class SyncContextTest extends TestBase implements IServerSyncProvider {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public int getChanges(int rev, IChangeListener listener) throws SyncException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public SyncData getChanges(int rev, int pageSize, String continuationToken) throws SyncException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public Schema getSchema() throws SyncException {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -106,4 +118,14 @@ public class SyncContextTest extends TestBase implements IServerSyncProvider {
     public void validate(final SyncSettings clientSettings) throws SyncException {
         throw new UnsupportedOperationException("Not supported yet.");
     }
+
+    @Override
+    public List<FingerprintNode> getFingerprint(String table, List<FingerprintNode> parents) throws SyncException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public SyncData getChangesForRanges(String table, List<FingerprintNode> ranges) throws SyncException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
 }
\ No newline at end of file
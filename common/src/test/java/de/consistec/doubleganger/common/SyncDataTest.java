@@ -0,0 +1,84 @@
+package de.consistec.doubleganger.common;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - SyncDataTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+
+import java.util.HashMap;
+import org.junit.Test;
+
+/**
+ * Tests of the change set container.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 14:40
+ */
+public class SyncDataTest extends TestBase {
+
+    private static final String TEST_TABLE_NAME = "TestTable";
+    private static final String OTHER_TABLE_NAME = "OtherTable";
+    private static final String TEST_MDV = "6767e648767786786dsffdsa786dfsaf";
+
+    @Test
+    public void streamedChangeReplacesChangeOfSameRow() {
+        SyncData syncData = new SyncData();
+        Change first = change(TEST_TABLE_NAME, 1);
+        Change second = change(TEST_TABLE_NAME, 2);
+        Change otherTable = change(OTHER_TABLE_NAME, 1);
+        // e.g. the newer changes after a snapshot, the key was read as another number type
+        Change newer = change(TEST_TABLE_NAME, 1L);
+
+        syncData.onChange(first);
+        syncData.onChange(second);
+        syncData.onChange(otherTable);
+        syncData.onChange(newer);
+
+        assertEquals(3, syncData.getChanges().size());
+        assertSame(newer, syncData.getChanges().get(0));
+        assertSame(second, syncData.getChanges().get(1));
+        assertSame(otherTable, syncData.getChanges().get(2));
+    }
+
+    @Test
+    public void streamedChangeReplacesAddedChange() {
+        SyncData syncData = new SyncData();
+        syncData.addChange(change(TEST_TABLE_NAME, 2));
+        syncData.addChange(change(TEST_TABLE_NAME, 1));
+        syncData.sortChanges();
+        Change newer = change(TEST_TABLE_NAME, 2);
+
+        syncData.onChange(newer);
+
+        assertEquals(2, syncData.getChanges().size());
+        assertSame(newer, syncData.getChanges().get(1));
+    }
+
+    private static Change change(String table, Object primaryKey) {
+        return new Change(new MDEntry(primaryKey, true, 1, table, TEST_MDV), new HashMap<String, Object>());
+    }
+}
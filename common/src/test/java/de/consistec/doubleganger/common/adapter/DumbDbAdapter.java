@@ -22,6 +22,7 @@ package de.consistec.doubleganger.common.adapter;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
+import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.data.schema.Column;
 import de.consistec.doubleganger.common.data.schema.ISQLConverter;
 import de.consistec.doubleganger.common.data.schema.Schema;
@@ -30,7 +31,10 @@ import de.consistec.doubleganger.common.exception.database_adapter.TransactionAb
 import de.consistec.doubleganger.common.util.HashCalculator;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -71,6 +75,18 @@ public class DumbDbAdapter implements IDatabaseAdapter {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public void getChangesForRevisionPage(int revision, int maxRevision, String tableName, Object afterPrimaryKey,
+        int maxRows, DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getChangesInPrimaryKeyRange(String tableName, Object lowerBound, Object upperBound,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public void getChanges(String tableName, DatabaseAdapterCallback<ResultSet> callback) throws
         DatabaseAdapterException, TransactionAbortedException {
@@ -82,6 +98,12 @@ public class DumbDbAdapter implements IDatabaseAdapter {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public int updateRevisions(int revision, String tableName, Collection<Object> primaryKeys) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public void getRowForPrimaryKey(Object primaryKey, String tableName, DatabaseAdapterCallback<ResultSet> callback)
         throws DatabaseAdapterException, TransactionAbortedException {
@@ -100,6 +122,56 @@ public class DumbDbAdapter implements IDatabaseAdapter {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public void getAllRowsFromTableOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getMdRowsOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getRowsChangedAfterWatermark(String table, String watermarkColumn, Object watermark,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Object getWatermark(String table) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void updateWatermark(String table, String watermarkColumn, Object watermark) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public String getCheckpoint() throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void updateCheckpoint(String continuationToken) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public boolean supportsRowHashing(String table) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getRowHashesOrderedByPk(String table, DatabaseAdapterCallback<ResultSet> callback) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public Schema getSchema() throws DatabaseAdapterException {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -130,6 +202,28 @@ public class DumbDbAdapter implements IDatabaseAdapter {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public int updateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int updateFlaggedMdRows(int rev, int f, String mdv, String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public boolean hasFlaggedMdRows(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int insertMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public void updateDataRow(Map<String, Object> data, Object primaryKey, String tableName) throws
         DatabaseAdapterException, TransactionAbortedException {
@@ -158,6 +252,26 @@ public class DumbDbAdapter implements IDatabaseAdapter {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public void createMissingMDIndexes(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int allocateRevision() throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int getTableRevision(String table) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void updateTableRevision(String table, int rev) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public Column getPrimaryKeyColumn(String table) throws DatabaseAdapterException {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -168,6 +282,22 @@ public class DumbDbAdapter implements IDatabaseAdapter {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public void refreshTableMetadata(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public boolean refreshTableMetadataIfChanged(String tableName, ResultSetMetaData scannedColumns) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public boolean refreshTableMetadataIfChanged(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public void applySchema(Schema s) throws DatabaseAdapterException {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -183,6 +313,136 @@ public class DumbDbAdapter implements IDatabaseAdapter {
         return this.connection;
     }
 
+    @Override
+    public int insertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int updateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int deleteRows(Collection<Object> primaryKeys, String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public boolean supportsUpsert() throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void insertOrUpdateDataRow(Map<String, Object> data, Object primaryKey, String tableName) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int insertOrUpdateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void deleteRowOrDoNothing(Object primaryKey, String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void insertOrUpdateMdRow(int rev, int f, Object pk, String mdv, String tableName) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int insertOrUpdateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public boolean isTableEmpty(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void prepareBulkLoad(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void finishBulkLoad(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int bulkInsertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int bulkInsertMdRows(int f, List<MDEntry> entries, String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public int bulkUpdateMdRows(int f, List<MDEntry> entries, String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getExistingPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getExistingMdPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getMdRowsForPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getRowsForPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void createColumnHashTable(String tableName) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void getColumnHashes(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void updateColumnHashes(String tableName, Map<Object, String> columnHashes) throws
+        DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public PreparedStatement prepareCachedStatement(String sql) throws DatabaseAdapterException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void clearStatementCache() {
+    }
+
     @Override
     public void commit() throws DatabaseAdapterException, TransactionAbortedException {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -0,0 +1,278 @@
+package de.consistec.doubleganger.common.adapter.impl;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - GenericDatabaseAdapterTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
+import de.consistec.doubleganger.common.data.schema.Column;
+import de.consistec.doubleganger.common.util.HashCalculator;
+
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the database independent parts of the generic adapter.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 10:30
+ */
+public class GenericDatabaseAdapterTest extends TestBase {
+
+    private static final String TABLE = "items";
+    private Connection connection;
+    private HashCalculator hashCalculator;
+
+    @Before
+    public void setUp() throws NoSuchAlgorithmException {
+        connection = mock(Connection.class);
+        hashCalculator = new HashCalculator();
+    }
+
+    @Test
+    public void rowHashingOfEmptyTableIsVerifiedAgain() throws Exception {
+        Statement stmt = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(stmt);
+        ResultSet empty = mock(ResultSet.class);
+        ResultSet sample = sampleRow();
+        when(stmt.executeQuery(anyString())).thenReturn(empty, sample);
+        GenericDatabaseAdapter adapter = new HashingAdapter();
+        adapter.init(connection);
+        adapter.setHashCalculator(hashCalculator);
+
+        assertFalse(adapter.supportsRowHashing(TABLE));
+        assertTrue(adapter.supportsRowHashing(TABLE));
+        assertTrue(adapter.supportsRowHashing(TABLE));
+        // the empty sample isn't cached, the successful one is
+        verify(stmt, times(2)).executeQuery(anyString());
+    }
+
+    @Test
+    public void refreshedTableMetadataIsReadAgain() throws Exception {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getURL()).thenReturn("jdbc:test:refresh");
+        ResultSet oneColumn = columns("id");
+        ResultSet twoColumns = columns("id", "name");
+        when(metaData.getColumns(anyString(), anyString(), anyString(), anyString())).thenReturn(oneColumn,
+            twoColumns);
+        GenericDatabaseAdapter adapter = new HashingAdapter();
+        adapter.init(connection);
+
+        assertEquals(Arrays.asList("id"), adapter.getColumnNamesFromTable(TABLE));
+        assertEquals(Arrays.asList("id"), adapter.getColumnNamesFromTable(TABLE));
+        // the application added a column
+        adapter.refreshTableMetadata(TABLE);
+        assertEquals(Arrays.asList("id", "name"), adapter.getColumnNamesFromTable(TABLE));
+    }
+
+    @Test
+    public void metadataIsReadAgainOnlyIfScannedColumnsDiffer() throws Exception {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getURL()).thenReturn("jdbc:test:scan");
+        ResultSet oneColumn = columns("id");
+        ResultSet twoColumns = columns("id", "name");
+        when(metaData.getColumns(anyString(), anyString(), anyString(), anyString())).thenReturn(oneColumn,
+            twoColumns);
+        GenericDatabaseAdapter adapter = new HashingAdapter();
+        adapter.init(connection);
+
+        assertFalse(adapter.refreshTableMetadataIfChanged(TABLE, scannedColumns("ID")));
+        verify(metaData, times(1)).getColumns(anyString(), anyString(), anyString(), anyString());
+
+        // the application added a column
+        assertTrue(adapter.refreshTableMetadataIfChanged(TABLE, scannedColumns("ID", "NAME")));
+        assertEquals(Arrays.asList("id", "name"), adapter.getColumnNamesFromTable(TABLE));
+        verify(metaData, times(2)).getColumns(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void inListStatementsAreNotCached() throws Exception {
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(stmt);
+        when(stmt.executeUpdate()).thenReturn(3);
+        GenericDatabaseAdapter adapter = new HashingAdapter();
+        adapter.init(connection);
+
+        assertEquals(3, adapter.updateRevisions(4, "items_md", Arrays.<Object>asList(1, 2, 3)));
+
+        // the text depends on the number of keys, so it would only evict the reused statements
+        verify(stmt).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pageContinuesWithKeyOfPrimaryKeyColumnType() throws Exception {
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(stmt);
+        GenericDatabaseAdapter adapter = new HashingAdapter() {
+            @Override
+            public Column getPrimaryKeyColumn(String table) {
+                return new Column("id", Types.OTHER);
+            }
+        };
+        adapter.init(connection);
+        String uuid = "0b4c9a3e-63f4-4d4e-9f0a-1c2d3e4f5a6b";
+
+        adapter.getChangesForRevisionPage(0, 5, TABLE, uuid, 10, mock(DatabaseAdapterCallback.class));
+
+        // the continuation token kept the uuid as string, bound as string it wouldn't compare with a uuid column
+        verify(stmt).setObject(3, uuid, Types.OTHER);
+    }
+
+    @Test
+    public void singleAndBatchedDeletesShareCachedStatement() throws Exception {
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(stmt);
+        when(stmt.executeBatch()).thenReturn(new int[]{1, 1});
+        GenericDatabaseAdapter adapter = new HashingAdapter() {
+            @Override
+            public Column getPrimaryKeyColumn(String table) {
+                return new Column("id", Types.INTEGER);
+            }
+        };
+        adapter.init(connection);
+
+        assertEquals(2, adapter.deleteRows(Arrays.<Object>asList(1, 2), TABLE));
+        adapter.deleteRowOrDoNothing(3, TABLE);
+        adapter.deleteRow(4, TABLE);
+
+        verify(connection, times(1)).prepareStatement("delete from items where id = ?");
+        verify(stmt, times(1)).executeBatch();
+        verify(stmt, times(2)).executeUpdate();
+    }
+
+    @Test
+    public void upsertOnConflictForPostgresAndNewSqlite() throws Exception {
+        String expected = "insert into items (id,name) VALUES (?,?) ON CONFLICT (id) DO UPDATE SET name=EXCLUDED.name";
+        assertEquals(expected, upsertFor("PostgreSQL", "9.5.3"));
+        assertEquals(expected, upsertFor("SQLite", "3.24.0"));
+    }
+
+    @Test
+    public void upsertOnDuplicateKeyForMysql() throws Exception {
+        assertEquals("insert into items (id,name) VALUES (?,?) ON DUPLICATE KEY UPDATE name=VALUES(name)",
+            upsertFor("MySQL", "5.5.28"));
+    }
+
+    @Test
+    public void upsertMergeForH2AndHsqldb() throws Exception {
+        assertEquals("MERGE INTO items (id,name) KEY (id) VALUES (?,?)", upsertFor("H2", "1.3.170"));
+        assertEquals("MERGE INTO items USING (VALUES (?,?)) AS src (id,name) ON (items.id = src.id)"
+            + " WHEN MATCHED THEN UPDATE SET name=src.name WHEN NOT MATCHED THEN INSERT (id,name)"
+            + " VALUES (src.id,src.name)", upsertFor("HSQL Database Engine", "2.3.0"));
+    }
+
+    @Test
+    public void noUpsertForOtherDatabases() throws Exception {
+        // old SQLite would replace (delete and insert) the row, which cascades to referencing rows
+        assertNull(upsertFor("SQLite", "3.7.17"));
+        assertNull(upsertFor("PostgreSQL", "9.4.1"));
+        assertNull(upsertFor("Oracle", "11.2.0.2.0"));
+        assertNull(upsertFor("Apache Derby", "10.10.1.1"));
+        assertNull(upsertFor("Microsoft SQL Server", "11.00.2100"));
+    }
+
+    private String upsertFor(String productName, String version) throws Exception {
+        Connection dbConnection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(dbConnection.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseProductName()).thenReturn(productName);
+        when(metaData.getDatabaseProductVersion()).thenReturn(version);
+        GenericDatabaseAdapter adapter = new HashingAdapter();
+        adapter.init(dbConnection);
+
+        String statement = adapter.createUpsertStatement(TABLE, "id", Arrays.asList("id", "name"));
+        assertEquals(statement != null, adapter.supportsUpsert());
+        return statement;
+    }
+
+    private ResultSet columns(String... names) throws SQLException {
+        ResultSet columns = mock(ResultSet.class);
+        Boolean[] next = new Boolean[names.length];
+        Arrays.fill(next, Boolean.TRUE);
+        next[names.length - 1] = Boolean.FALSE;
+        when(columns.next()).thenReturn(Boolean.TRUE, next);
+        when(columns.getString("COLUMN_NAME")).thenReturn(names[0], Arrays.copyOfRange(names, 1, names.length));
+        return columns;
+    }
+
+    private ResultSetMetaData scannedColumns(String... names) throws SQLException {
+        ResultSetMetaData scanned = mock(ResultSetMetaData.class);
+        when(scanned.getColumnCount()).thenReturn(names.length);
+        for (int i = 0; i < names.length; i++) {
+            when(scanned.getColumnName(i + 1)).thenReturn(names[i]);
+        }
+        return scanned;
+    }
+
+    private ResultSet sampleRow() throws SQLException {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("id", 1);
+        ResultSet sample = mock(ResultSet.class);
+        when(sample.next()).thenReturn(Boolean.TRUE, Boolean.FALSE);
+        when(sample.getObject("id")).thenReturn(1);
+        when(sample.getString(anyString())).thenReturn(hashCalculator.calculateHash(row));
+        return sample;
+    }
+
+    /**
+     * Adapter of a database which can hash the rows of a single column table.
+     */
+    private static class HashingAdapter extends GenericDatabaseAdapter {
+
+        @Override
+        protected List<Column> getColumnsOfTable(String table) {
+            return Arrays.asList(new Column("id", Types.INTEGER));
+        }
+
+        @Override
+        protected String getRowHashExpression(List<Column> sortedColumns, String algorithm) {
+            return "md5(id)";
+        }
+    }
+}
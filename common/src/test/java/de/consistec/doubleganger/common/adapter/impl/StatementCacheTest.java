@@ -0,0 +1,112 @@
+package de.consistec.doubleganger.common.adapter.impl;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - StatementCacheTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.consistec.doubleganger.common.TestBase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the prepared statement cache.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 12:50
+ */
+public class StatementCacheTest extends TestBase {
+
+    private static final String SQL_A = "select * from a where id = ?";
+    private static final String SQL_B = "select * from b where id = ?";
+    private static final String SQL_C = "select * from c where id = ?";
+    private Connection connection;
+    private PreparedStatement statementA;
+    private PreparedStatement statementB;
+    private PreparedStatement statementC;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = mock(Connection.class);
+        statementA = mock(PreparedStatement.class);
+        statementB = mock(PreparedStatement.class);
+        statementC = mock(PreparedStatement.class);
+        when(connection.prepareStatement(SQL_A)).thenReturn(statementA);
+        when(connection.prepareStatement(SQL_B)).thenReturn(statementB);
+        when(connection.prepareStatement(SQL_C)).thenReturn(statementC);
+    }
+
+    @Test
+    public void statementIsPreparedOnce() throws SQLException {
+        StatementCache cache = new StatementCache(2);
+
+        assertSame(statementA, cache.prepare(connection, SQL_A));
+        assertSame(statementA, cache.prepare(connection, SQL_A));
+
+        verify(connection, times(1)).prepareStatement(SQL_A);
+        verify(statementA).clearParameters();
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsClosed() throws SQLException {
+        StatementCache cache = new StatementCache(2);
+
+        cache.prepare(connection, SQL_A);
+        cache.prepare(connection, SQL_B);
+        cache.prepare(connection, SQL_A);
+        cache.prepare(connection, SQL_C);
+
+        assertEquals(2, cache.size());
+        verify(statementB).close();
+        verify(statementA, never()).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cacheWithoutStatementsIsRejected() {
+        new StatementCache(0);
+    }
+
+    @Test
+    public void clearClosesAllStatements() throws SQLException {
+        StatementCache cache = new StatementCache(2);
+        cache.prepare(connection, SQL_A);
+        cache.prepare(connection, SQL_B);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        verify(statementA).close();
+        verify(statementB).close();
+    }
+}
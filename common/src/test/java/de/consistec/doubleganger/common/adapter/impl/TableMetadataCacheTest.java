@@ -0,0 +1,92 @@
+package de.consistec.doubleganger.common.adapter.impl;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - TableMetadataCacheTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.data.schema.Column;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests of the table meta data cache.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 11:40
+ */
+public class TableMetadataCacheTest extends TestBase {
+
+    @Test
+    public void cacheIsSharedPerDatabase() {
+        TableMetadataCache cache = TableMetadataCache.forDatabase("jdbc:test:a|user|PUBLIC");
+
+        assertSame(cache, TableMetadataCache.forDatabase("jdbc:test:a|user|PUBLIC"));
+        assertNotSame(cache, TableMetadataCache.forDatabase("jdbc:test:b|user|PUBLIC"));
+    }
+
+    @Test
+    public void invalidateDropsOnlyGivenTables() {
+        TableMetadataCache cache = TableMetadataCache.forDatabase("jdbc:test:invalidate");
+        Column pk = new Column("id", Types.INTEGER);
+        List<Column> columns = Arrays.asList(pk, new Column("name", Types.VARCHAR));
+        cache.putPrimaryKeyColumn("items", pk);
+        cache.putColumns("items", columns);
+        cache.putPrimaryKeyColumn("categories", pk);
+
+        cache.invalidate("items");
+
+        assertNull(cache.getPrimaryKeyColumn("items"));
+        assertNull(cache.getColumns("items"));
+        assertSame(pk, cache.getPrimaryKeyColumn("categories"));
+
+        cache.invalidateAll();
+        assertNull(cache.getPrimaryKeyColumn("categories"));
+    }
+
+    @Test
+    public void emptyColumnListIsNotCached() {
+        TableMetadataCache cache = TableMetadataCache.forDatabase("jdbc:test:empty");
+        cache.putColumns("missing", new ArrayList<Column>());
+
+        assertNull(cache.getColumns("missing"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedColumnsAreUnmodifiable() {
+        TableMetadataCache cache = TableMetadataCache.forDatabase("jdbc:test:unmodifiable");
+        cache.putColumns("items", Arrays.asList(new Column("id", Types.INTEGER)));
+
+        assertEquals(1, cache.getColumns("items").size());
+        cache.getColumns("items").add(new Column("name", Types.VARCHAR));
+    }
+}
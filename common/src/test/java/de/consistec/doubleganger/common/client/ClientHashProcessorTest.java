@@ -0,0 +1,205 @@
+package de.consistec.doubleganger.common.client;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ClientHashProcessorTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.SyncData;
+import de.consistec.doubleganger.common.TableSyncStrategies;
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
+import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.util.HashCalculator;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests of the client side processing of changes.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 15:10
+ */
+public class ClientHashProcessorTest extends TestBase {
+
+    private static final String TABLE = "items";
+    private static final String TEST_MDV = "6767e648767786786dsffdsa786dfsaf";
+    private boolean columnDeltaActivated;
+    private boolean triggersActivated;
+    private IDatabaseAdapter adapter;
+    private HashCalculator hashCalculator;
+
+    @Before
+    public void setUp() throws Exception {
+        columnDeltaActivated = Config.getInstance().isColumnDeltaActivated();
+        triggersActivated = Config.getInstance().isSqlTriggerOnClientActivated();
+        Config.getInstance().setColumnDeltaActivated(true);
+        adapter = mock(IDatabaseAdapter.class);
+        hashCalculator = new HashCalculator();
+        when(adapter.getHashCalculator()).thenReturn(hashCalculator);
+    }
+
+    @After
+    public void tearDown() {
+        Config.getInstance().setColumnDeltaActivated(columnDeltaActivated);
+        Config.getInstance().setSqlTriggerOnClientActivated(triggersActivated);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void modifiedRowIsReplacedByColumnDelta() throws Exception {
+        Map<String, Object> syncedRow = row(1, "old", "unchanged");
+        final String columnHashes = hashCalculator.calculateColumnHashes(syncedRow);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ResultSet result = mock(ResultSet.class);
+                when(result.next()).thenReturn(Boolean.TRUE, Boolean.FALSE);
+                when(result.getObject(1)).thenReturn(1);
+                when(result.getString(2)).thenReturn(columnHashes);
+                ((DatabaseAdapterCallback<ResultSet>) invocation.getArguments()[2]).onSuccess(result);
+                return null;
+            }
+        }).when(adapter).getColumnHashes(eq(TABLE), anyListOf(Object.class), any(DatabaseAdapterCallback.class));
+
+        SyncData clientData = new SyncData();
+        clientData.setRevision(4);
+        Change modified = new Change(new MDEntry(1, true, 4, TABLE, TEST_MDV), row(1, "new", "unchanged"));
+        Change deleted = new Change(new MDEntry(2, false, 4, TABLE, TEST_MDV), new HashMap<String, Object>());
+        clientData.addChange(modified);
+        clientData.addChange(deleted);
+
+        SyncData encoded = new ClientHashProcessor(adapter, new TableSyncStrategies(), null).encodeColumnDeltas(
+            clientData);
+
+        assertEquals(4, encoded.getRevision());
+        assertEquals(2, encoded.getChanges().size());
+        Change delta = encoded.getChanges().get(0);
+        assertEquals(1, delta.getRowData().size());
+        assertEquals("new", delta.getRowData().get("name"));
+        assertEquals(hashCalculator.calculateBaseHash(columnHashes), delta.getBaseHash());
+        assertSame(deleted, encoded.getChanges().get(1));
+        // the client changes themselves stay complete, e.g. to resend the full rows
+        assertSame(modified, clientData.getChanges().get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void emptyTableIsLoadedInBulkWithTriggers() throws Exception {
+        Config.getInstance().setSqlTriggerOnClientActivated(true);
+        when(adapter.isTableEmpty(anyString())).thenReturn(true);
+        Map<String, Object> bulkLoadedKeys = new HashMap<String, Object>();
+
+        new ClientHashProcessor(adapter, new TableSyncStrategies(), null).applyChangesFromServerOnClient(
+            Arrays.asList(added(1, 5), added(2, 6), deleted(3, 6)), bulkLoadedKeys);
+
+        ArgumentCaptor<List> updated = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> inserted = ArgumentCaptor.forClass(List.class);
+        verify(adapter).prepareBulkLoad(TABLE);
+        verify(adapter).bulkUpdateMdRows(eq(FLAG_PROCESSED), updated.capture(), eq(TABLE));
+        verify(adapter).bulkInsertMdRows(eq(FLAG_PROCESSED), inserted.capture(), eq(TABLE));
+        verify(adapter).finishBulkLoad(TABLE);
+        // the insert triggers created the md rows of the inserted rows, only the deleted rows need new ones
+        assertEquals(Arrays.<Object>asList(1, 2), primaryKeys(updated.getValue()));
+        assertEquals(Arrays.<Object>asList(3), primaryKeys(inserted.getValue()));
+        verify(adapter, never()).insertOrUpdateMdRow(anyInt(), anyInt(), any(), anyString(), anyString());
+        assertEquals(3, bulkLoadedKeys.get(TABLE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bulkLoadContinuesOnlyAboveLoadedKeys() throws Exception {
+        Config.getInstance().setSqlTriggerOnClientActivated(false);
+        Map<String, Object> bulkLoadedKeys = new HashMap<String, Object>();
+        bulkLoadedKeys.put(TABLE, 3);
+        ClientHashProcessor processor = new ClientHashProcessor(adapter, new TableSyncStrategies(), null);
+
+        processor.applyChangesFromServerOnClient(Arrays.asList(added(4, 7), deleted(5, 7)), bulkLoadedKeys);
+
+        ArgumentCaptor<List> inserted = ArgumentCaptor.forClass(List.class);
+        verify(adapter).bulkInsertMdRows(eq(FLAG_PROCESSED), inserted.capture(), eq(TABLE));
+        assertEquals(Arrays.<Object>asList(4, 5), primaryKeys(inserted.getValue()));
+        // the table was loaded by an earlier part of the transaction, it isn't empty anymore
+        verify(adapter, never()).isTableEmpty(anyString());
+        assertEquals(5, bulkLoadedKeys.get(TABLE));
+
+        // a smaller key may already be loaded
+        processor.applyChangesFromServerOnClient(Arrays.asList(added(2, 8)), bulkLoadedKeys);
+
+        verify(adapter).insertOrUpdateDataRow(anyMap(), eq(2), eq(TABLE));
+        verify(adapter).insertOrUpdateMdRow(eq(8), eq(FLAG_PROCESSED), eq(2), anyString(), eq(TABLE));
+        assertFalse(bulkLoadedKeys.containsKey(TABLE));
+    }
+
+    private static Change added(int id, int rev) {
+        return new Change(new MDEntry(id, true, rev, TABLE, TEST_MDV), row(id, "name", "description"));
+    }
+
+    private static Change deleted(int id, int rev) {
+        return new Change(new MDEntry(id, false, rev, TABLE, TEST_MDV), new HashMap<String, Object>());
+    }
+
+    private static List<Object> primaryKeys(List<MDEntry> entries) {
+        List<Object> keys = new ArrayList<Object>();
+        for (MDEntry entry : entries) {
+            keys.add(entry.getPrimaryKey());
+        }
+        return keys;
+    }
+
+    private static Map<String, Object> row(int id, String name, String description) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("id", id);
+        row.put("name", name);
+        row.put("description", description);
+        return row;
+    }
+}
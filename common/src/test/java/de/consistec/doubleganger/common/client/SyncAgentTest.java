@@ -25,28 +25,42 @@ package de.consistec.doubleganger.common.client;
 
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
 import static de.consistec.doubleganger.common.server.ServerStatus.CLIENT_NOT_UPTODATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncDataHolder;
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.exception.ContextException;
 import de.consistec.doubleganger.common.exception.ServerStatusException;
 import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.i18n.Errors;
 import de.consistec.doubleganger.common.server.IServerSyncProvider;
 
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import org.apache.log4j.xml.DOMConfigurator;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +73,7 @@ public class SyncAgentTest {
 
 
     protected static final Logger LOGGER = LoggerFactory.getLogger(SyncAgentTest.class.getCanonicalName());
+    private static final int SERVER_REVISION = 3;
 
 
     @Mock
@@ -97,4 +112,75 @@ public class SyncAgentTest {
         SyncAgent agent = new SyncAgent(this.serverSyncProviderMock, this.clientSyncProviderMock);
         agent.synchronize();
     }
+
+    @Test
+    public void serverChangesAreAppliedInChunks() throws ContextException, SyncException,
+        DatabaseAdapterException {
+
+        when(this.serverSyncProviderMock.getChanges(anyInt(), any(IChangeListener.class))).thenAnswer(
+            streamChanges(StreamedChangesApplier.CHUNK_SIZE + 1, false));
+        when(this.clientSyncProviderMock.getChanges()).thenReturn(new SyncData());
+        when(this.clientSyncProviderMock.resolveConflicts((SyncData) anyObject(), (SyncData) anyObject())).thenAnswer(
+            withoutConflicts());
+
+        SyncAgent agent = new SyncAgent(this.serverSyncProviderMock, this.clientSyncProviderMock);
+        agent.synchronize();
+
+        ArgumentCaptor<SyncData> chunks = ArgumentCaptor.forClass(SyncData.class);
+        verify(this.clientSyncProviderMock, times(2)).applyChanges(chunks.capture());
+        List<SyncData> appliedChunks = chunks.getAllValues();
+        assertEquals(StreamedChangesApplier.CHUNK_SIZE, appliedChunks.get(0).getChanges().size());
+        assertEquals(1, appliedChunks.get(1).getChanges().size());
+        assertEquals(SERVER_REVISION, appliedChunks.get(1).getRevision());
+        verify(this.clientSyncProviderMock).commit();
+    }
+
+    @Test
+    public void interruptedStreamRollsBackAppliedChunks() throws ContextException, SyncException,
+        DatabaseAdapterException {
+
+        when(this.serverSyncProviderMock.getChanges(anyInt(), any(IChangeListener.class))).thenAnswer(
+            streamChanges(StreamedChangesApplier.CHUNK_SIZE + 1, true));
+        when(this.clientSyncProviderMock.getChanges()).thenReturn(new SyncData());
+        when(this.clientSyncProviderMock.resolveConflicts((SyncData) anyObject(), (SyncData) anyObject())).thenAnswer(
+            withoutConflicts());
+
+        SyncAgent agent = new SyncAgent(this.serverSyncProviderMock, this.clientSyncProviderMock);
+        try {
+            agent.synchronize();
+            fail("the interrupted stream must fail the synchronization");
+        } catch (SyncException e) {
+            verify(this.clientSyncProviderMock).applyChanges((SyncData) anyObject());
+            verify(this.clientSyncProviderMock).rollback();
+            verify(this.clientSyncProviderMock, never()).commit();
+        }
+    }
+
+    private static Answer<Integer> streamChanges(final int count, final boolean interrupted) {
+        return new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                IChangeListener listener = (IChangeListener) invocation.getArguments()[1];
+                listener.onRevision(SERVER_REVISION);
+                for (int i = 1; i <= count; i++) {
+                    if (interrupted && i == count) {
+                        throw new SyncException("connection reset");
+                    }
+                    listener.onChange(new Change(new MDEntry(i, true, SERVER_REVISION, "items", "mdv"),
+                        new HashMap<String, Object>()));
+                }
+                return SERVER_REVISION;
+            }
+        };
+    }
+
+    private static Answer<SyncDataHolder> withoutConflicts() {
+        return new Answer<SyncDataHolder>() {
+            @Override
+            public SyncDataHolder answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                return new SyncDataHolder((SyncData) args[1], (SyncData) args[0]);
+            }
+        };
+    }
 }
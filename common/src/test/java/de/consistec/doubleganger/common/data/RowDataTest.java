@@ -0,0 +1,147 @@
+package de.consistec.doubleganger.common.data;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - RowDataTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import de.consistec.doubleganger.common.TestBase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests of the compact row data.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 18:40
+ */
+public class RowDataTest extends TestBase {
+
+    private static final String TEST_TABLE_NAME = "TestTable";
+    private static final String TEST_COLUMN1 = "TestColumn1";
+    private static final String TEST_COLUMN2 = "TestColumn2";
+    private static final String TEST_COLUMN3 = "TestColumn3";
+    private static final String TEST_MDV = "6767e648767786786dsffdsa786dfsaf";
+    private static final ColumnDictionary COLUMNS = new ColumnDictionary(Arrays.asList(TEST_COLUMN1, TEST_COLUMN2));
+
+    @Test
+    public void testMapView() {
+        RowData row = new RowData(COLUMNS, new Object[]{1, null});
+
+        assertEquals(2, row.size());
+        assertEquals(1, row.get(TEST_COLUMN1));
+        assertNull(row.get(TEST_COLUMN2));
+        assertTrue(row.containsKey(TEST_COLUMN2));
+        assertFalse(row.containsKey(TEST_COLUMN3));
+        assertEquals(Arrays.asList(TEST_COLUMN1, TEST_COLUMN2), Arrays.asList(row.keySet().toArray()));
+    }
+
+    @Test
+    public void testEqualToHashMap() {
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put(TEST_COLUMN1, 1);
+        expected.put(TEST_COLUMN2, "value");
+
+        RowData row = new RowData(COLUMNS, new Object[]{1, "value"});
+
+        assertEquals(expected, row);
+        assertEquals(row, expected);
+        assertEquals(expected.hashCode(), row.hashCode());
+        assertEquals(new Change(new MDEntry(1, true, 0, TEST_TABLE_NAME, TEST_MDV), expected),
+            new Change(new MDEntry(1, true, 0, TEST_TABLE_NAME, TEST_MDV), row));
+    }
+
+    @Test
+    public void testRowsShareDictionary() {
+        RowData rowOne = new RowData(COLUMNS, new Object[]{1, "a"});
+        RowData rowTwo = new RowData(COLUMNS, new Object[]{2, "b"});
+
+        rowOne.put(TEST_COLUMN2, "c");
+
+        assertSame(rowOne.getDictionary(), rowTwo.getDictionary());
+        assertEquals("c", rowOne.getValue(1));
+        assertEquals("b", rowTwo.get(TEST_COLUMN2));
+    }
+
+    @Test
+    public void testAddAndRemoveColumns() {
+        RowData rowOne = new RowData(COLUMNS, new Object[]{1, "a"});
+        RowData rowTwo = new RowData(COLUMNS, new Object[]{2, "b"});
+
+        assertNull(rowOne.put(TEST_COLUMN3, "x"));
+        assertEquals("x", rowOne.get(TEST_COLUMN3));
+        assertEquals(3, rowOne.size());
+        assertEquals(2, rowTwo.size());
+
+        assertEquals(1, rowOne.remove(TEST_COLUMN1));
+        assertFalse(rowOne.containsKey(TEST_COLUMN1));
+        assertEquals("a", rowOne.get(TEST_COLUMN2));
+        assertEquals(2, rowOne.size());
+        assertEquals(2, COLUMNS.size());
+    }
+
+    @Test
+    public void testEntriesWriteThrough() {
+        RowData row = new RowData(COLUMNS, new Object[]{1, "a"});
+
+        Iterator<Map.Entry<String, Object>> iterator = row.entrySet().iterator();
+        iterator.next().setValue(5);
+        iterator.next();
+        iterator.remove();
+
+        assertEquals(5, row.get(TEST_COLUMN1));
+        assertEquals(1, row.size());
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        RowData row = new RowData(COLUMNS, new Object[]{1, "a"});
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(row);
+        out.close();
+        Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertEquals(row, copy);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValuesMustMatchDictionary() {
+        new RowData(COLUMNS, new Object[]{1});
+    }
+}
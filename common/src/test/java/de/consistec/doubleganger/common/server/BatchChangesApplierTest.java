@@ -0,0 +1,250 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - BatchChangesApplierTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
+import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.data.schema.Column;
+import de.consistec.doubleganger.common.exception.ServerStatusException;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+import de.consistec.doubleganger.common.util.HashCalculator;
+
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests of the chunked apply of client changes.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 15:10
+ */
+public class BatchChangesApplierTest extends TestBase {
+
+    private static final String TABLE = "items";
+    private static final int REV = 5;
+    private IDatabaseAdapter adapter;
+
+    @Before
+    public void setUp() throws DatabaseAdapterException, NoSuchAlgorithmException {
+        adapter = mock(IDatabaseAdapter.class);
+        when(adapter.getHashCalculator()).thenReturn(new HashCalculator());
+        // pk 2 and 3 have md rows, only pk 2 has a data row; keys come back as Long like from a jdbc driver
+        doAnswer(existingKeys(2L, 3L)).when(adapter).getExistingMdPrimaryKeys(eq(TABLE), anyList(),
+            any(DatabaseAdapterCallback.class));
+        doAnswer(existingKeys(2L)).when(adapter).getExistingPrimaryKeys(eq(TABLE), anyList(),
+            any(DatabaseAdapterCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void changesAreClassifiedInMemory() throws DatabaseAdapterException, ServerStatusException {
+        BatchChangesApplier applier = new BatchChangesApplier(adapter, REV);
+        applier.apply(change(1, true));
+        applier.apply(change(2, true));
+        applier.apply(change(3, false));
+        applier.flush();
+
+        ArgumentCaptor<List> inserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Map> updates = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Collection> deletes = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Map> mdInserts = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Map> mdUpdates = ArgumentCaptor.forClass(Map.class);
+        verify(adapter).insertDataRows(inserts.capture(), eq(TABLE));
+        verify(adapter).updateDataRows(updates.capture(), eq(TABLE));
+        verify(adapter).deleteRows(deletes.capture(), eq(TABLE));
+        verify(adapter).insertMdRows(eq(REV), eq(FLAG_PROCESSED), mdInserts.capture(), eq(TABLE));
+        verify(adapter).updateMdRows(eq(REV), eq(FLAG_PROCESSED), mdUpdates.capture(), eq(TABLE));
+
+        assertEquals(1, inserts.getValue().size());
+        assertEquals(Arrays.asList(2), Arrays.asList(updates.getValue().keySet().toArray()));
+        assertEquals(Arrays.asList(3), Arrays.asList(deletes.getValue().toArray()));
+        assertEquals(1, mdInserts.getValue().size());
+        assertEquals(2, mdUpdates.getValue().size());
+        assertEquals(null, mdUpdates.getValue().get(3));
+        assertEquals(Arrays.asList(TABLE), Arrays.asList(applier.getChangedTables().toArray()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void duplicateKeyStartsNewChunk() throws DatabaseAdapterException, ServerStatusException {
+        BatchChangesApplier applier = new BatchChangesApplier(adapter, REV);
+        applier.apply(change(1, true));
+        applier.apply(change(1, true));
+        applier.flush();
+
+        verify(adapter, times(2)).getExistingMdPrimaryKeys(eq(TABLE), anyList(), any(DatabaseAdapterCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void upsertsWithoutPrefetch() throws DatabaseAdapterException, ServerStatusException {
+        when(adapter.supportsUpsert()).thenReturn(Boolean.TRUE);
+        BatchChangesApplier applier = new BatchChangesApplier(adapter, REV);
+        applier.apply(change(1, true));
+        applier.apply(change(2, true));
+        applier.apply(change(3, false));
+        applier.flush();
+
+        ArgumentCaptor<Map> upserts = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Collection> deletes = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Map> mdUpserts = ArgumentCaptor.forClass(Map.class);
+        verify(adapter).insertOrUpdateDataRows(upserts.capture(), eq(TABLE));
+        verify(adapter).deleteRows(deletes.capture(), eq(TABLE));
+        verify(adapter).insertOrUpdateMdRows(eq(REV), eq(FLAG_PROCESSED), mdUpserts.capture(), eq(TABLE));
+        verify(adapter, never()).getExistingMdPrimaryKeys(eq(TABLE), anyList(), any(DatabaseAdapterCallback.class));
+
+        assertEquals(Arrays.asList(1, 2), Arrays.asList(upserts.getValue().keySet().toArray()));
+        assertEquals(Arrays.asList(3), Arrays.asList(deletes.getValue().toArray()));
+        assertEquals(3, mdUpserts.getValue().size());
+        assertEquals(null, mdUpserts.getValue().get(3));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void columnDeltaUpdatesChangedColumns() throws DatabaseAdapterException, ServerStatusException,
+        NoSuchAlgorithmException {
+        HashCalculator hashCalculator = new HashCalculator();
+        Map<String, Object> serverRow = change(2, true).getRowData();
+        stubServerRow(serverRow);
+
+        BatchChangesApplier applier = new BatchChangesApplier(adapter, REV);
+        applier.apply(change(1, true));
+        applier.apply(delta(2, hashCalculator.calculateBaseHash(hashCalculator.calculateColumnHashes(serverRow))));
+        applier.flush();
+
+        ArgumentCaptor<Map> updates = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Map> mdUpdates = ArgumentCaptor.forClass(Map.class);
+        verify(adapter).updateDataRows(updates.capture(), eq(TABLE));
+        verify(adapter).updateMdRows(eq(REV), eq(FLAG_PROCESSED), mdUpdates.capture(), eq(TABLE));
+
+        Map<String, Object> changedColumns = new HashMap<String, Object>();
+        changedColumns.put("name", "changed");
+        assertEquals(changedColumns, updates.getValue().get(2));
+        Map<String, Object> mergedRow = new HashMap<String, Object>(serverRow);
+        mergedRow.putAll(changedColumns);
+        assertEquals(hashCalculator.calculateHash(mergedRow), mdUpdates.getValue().get(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void columnDeltaOfChangedRowIsRejected() throws DatabaseAdapterException, NoSuchAlgorithmException {
+        stubServerRow(change(2, true).getRowData());
+
+        BatchChangesApplier applier = new BatchChangesApplier(adapter, REV);
+        try {
+            applier.apply(delta(2, "0123456789ABCDEF0123456789ABCDEF"));
+            applier.flush();
+            fail("column delta applied to a changed row");
+        } catch (ServerStatusException e) {
+            assertEquals(ServerStatus.BASE_ROW_CHANGED, e.getStatus());
+        }
+        verify(adapter, never()).updateDataRows(any(Map.class), eq(TABLE));
+    }
+
+    private Change delta(int pk, String baseHash) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("name", "changed");
+        Change change = new Change(new MDEntry(pk, true, REV - 1, TABLE, null), row);
+        change.setBaseHash(baseHash);
+        return change;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubServerRow(final Map<String, Object> row) throws DatabaseAdapterException {
+        when(adapter.getPrimaryKeyColumn(TABLE)).thenReturn(new Column("id", Types.INTEGER));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws DatabaseAdapterException, SQLException {
+                ResultSetMetaData meta = mock(ResultSetMetaData.class);
+                when(meta.getColumnCount()).thenReturn(2);
+                when(meta.getColumnName(1)).thenReturn("id");
+                when(meta.getColumnName(2)).thenReturn("name");
+                ResultSet rst = mock(ResultSet.class);
+                when(rst.getMetaData()).thenReturn(meta);
+                when(rst.next()).thenReturn(Boolean.TRUE, Boolean.FALSE);
+                // the driver returns the key as Long
+                when(rst.getObject(1)).thenReturn(Long.valueOf(row.get("id").toString()));
+                when(rst.getObject(2)).thenReturn(row.get("name"));
+                ((DatabaseAdapterCallback<ResultSet>) invocation.getArguments()[2]).onSuccess(rst);
+                return null;
+            }
+        }).when(adapter).getRowsForPrimaryKeys(eq(TABLE), anyList(), any(DatabaseAdapterCallback.class));
+    }
+
+    private Change change(int pk, boolean rowExists) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        if (rowExists) {
+            row.put("id", pk);
+            row.put("name", "name" + pk);
+        }
+        return new Change(new MDEntry(pk, rowExists, REV - 1, TABLE, null), row);
+    }
+
+    private Answer<Void> existingKeys(final Object... keys) {
+        return new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) throws DatabaseAdapterException, SQLException {
+                ResultSet rst = mock(ResultSet.class);
+                Boolean[] next = new Boolean[keys.length];
+                Arrays.fill(next, Boolean.TRUE);
+                next[keys.length - 1] = Boolean.FALSE;
+                when(rst.next()).thenReturn(Boolean.TRUE, next);
+                Object[] rest = Arrays.copyOfRange(keys, 1, keys.length);
+                when(rst.getObject(1)).thenReturn(keys[0], rest);
+                ((DatabaseAdapterCallback<ResultSet>) invocation.getArguments()[2]).onSuccess(rst);
+                return null;
+            }
+        };
+    }
+}
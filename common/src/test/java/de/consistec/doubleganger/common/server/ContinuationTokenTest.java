@@ -0,0 +1,84 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ContinuationTokenTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import de.consistec.doubleganger.common.TestBase;
+
+import java.math.BigDecimal;
+import org.junit.Test;
+
+/**
+ * Tests of the continuation token of paged server changes.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 17:10
+ */
+public class ContinuationTokenTest extends TestBase {
+
+    @Test
+    public void testIntegralPrimaryKey() {
+        ContinuationToken token = ContinuationToken.parse(new ContinuationToken(3, 7, "items", 42).toString());
+
+        assertEquals(3, token.getRevision());
+        assertEquals(7, token.getMaxRevision());
+        assertEquals("items", token.getTable());
+        assertEquals(Long.valueOf(42), token.getLastPrimaryKey());
+    }
+
+    @Test
+    public void testDecimalPrimaryKey() {
+        ContinuationToken token = ContinuationToken.parse(
+            new ContinuationToken(0, 1, "items", new BigDecimal("1.50")).toString());
+
+        assertEquals(new BigDecimal("1.50"), token.getLastPrimaryKey());
+    }
+
+    @Test
+    public void testStringPrimaryKeyWithSeparators() {
+        String encoded = new ContinuationToken(0, 1, "my table", "a:b c%ä").toString();
+
+        assertEquals(-1, encoded.indexOf(' '));
+        ContinuationToken token = ContinuationToken.parse(encoded);
+        assertEquals("my table", token.getTable());
+        assertEquals("a:b c%ä", token.getLastPrimaryKey());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingParts() {
+        ContinuationToken.parse("1:2:items");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownType() {
+        ContinuationToken.parse("1:2:items:x42");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRevision() {
+        ContinuationToken.parse("a:2:items:l42");
+    }
+}
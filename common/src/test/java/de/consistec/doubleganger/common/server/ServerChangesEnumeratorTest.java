@@ -0,0 +1,140 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ServerChangesEnumeratorTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.REV_COLUMN_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import de.consistec.doubleganger.common.SyncData;
+import de.consistec.doubleganger.common.TableSyncStrategies;
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
+import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests of the enumeration of the changes of one table, which tables enumerated in parallel rely on.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 10:15
+ */
+public class ServerChangesEnumeratorTest extends TestBase {
+
+    private static final String TABLE = "items";
+    private static final String[] COLUMNS = {REV_COLUMN_NAME, PK_COLUMN_NAME, MDV_COLUMN_NAME, FLAG_COLUMN_NAME,
+        "id", "name"};
+    private IDatabaseAdapter adapter;
+
+    @Before
+    public void setUp() throws DatabaseAdapterException {
+        adapter = mock(IDatabaseAdapter.class);
+        when(adapter.getTableRevision(TABLE)).thenReturn(9);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void tableChangesAreLimitedToRevisionCeiling() throws DatabaseAdapterException {
+        // revision 9 was committed after the ceiling was read, it belongs to the next change set
+        doAnswer(rows(new Object[]{7, 1, "h1", 0, 1, "a"}, new Object[]{9, 2, "h2", 0, 2, "b"},
+            new Object[]{8, 3, "h3", 0, 3, "c"})).when(adapter).getChangesForRevision(eq(5), eq(TABLE),
+            any(DatabaseAdapterCallback.class));
+
+        SyncData changes = new ServerChangesEnumerator(adapter, new TableSyncStrategies()).getChangesForTable(5, 8,
+            TABLE);
+
+        assertEquals(8, changes.getRevision());
+        assertEquals(2, changes.getChanges().size());
+        assertEquals(1, changes.getChanges().get(0).getMdEntry().getPrimaryKey());
+        assertEquals(3, changes.getChanges().get(1).getMdEntry().getPrimaryKey());
+    }
+
+    @Test
+    public void unchangedTableHasRevisionCeiling() throws DatabaseAdapterException {
+        SyncData changes = new ServerChangesEnumerator(adapter, new TableSyncStrategies()).getChangesForTable(9, 12,
+            TABLE);
+
+        assertEquals(12, changes.getRevision());
+        assertEquals(0, changes.getChanges().size());
+    }
+
+    /**
+     * Passes a result set over the given md and data rows to the callback, which is the last argument of the
+     * stubbed call.
+     */
+    private static Answer<Void> rows(final Object[]... rows) {
+        return new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) throws DatabaseAdapterException, SQLException {
+                final int[] index = new int[]{-1};
+                ResultSetMetaData meta = mock(ResultSetMetaData.class);
+                when(meta.getColumnCount()).thenReturn(COLUMNS.length);
+                when(meta.getColumnName(anyInt())).thenAnswer(new Answer<String>() {
+                    @Override
+                    public String answer(InvocationOnMock get) {
+                        return COLUMNS[(Integer) get.getArguments()[0] - 1];
+                    }
+                });
+                ResultSet rst = mock(ResultSet.class);
+                when(rst.getMetaData()).thenReturn(meta);
+                when(rst.next()).thenAnswer(new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock next) {
+                        index[0]++;
+                        return index[0] < rows.length;
+                    }
+                });
+                Answer<Object> column = new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock get) {
+                        return rows[index[0]][(Integer) get.getArguments()[0] - 1];
+                    }
+                };
+                when(rst.getObject(anyInt())).thenAnswer(column);
+                when(rst.getInt(anyInt())).thenAnswer(column);
+                when(rst.getString(anyInt())).thenAnswer(column);
+                Object[] arguments = invocation.getArguments();
+                ((DatabaseAdapterCallback<ResultSet>) arguments[arguments.length - 1]).onSuccess(rst);
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,212 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ServerScanCoordinatorTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.ConfigConstants;
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the server scan coordinator.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 15:05
+ */
+public class ServerScanCoordinatorTest extends TestBase {
+
+    private ServerScanCoordinator coordinator;
+    private AtomicInteger passes;
+
+    @Before
+    public void setUp() {
+        coordinator = new ServerScanCoordinator();
+        passes = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        Config.getInstance().setServerScanMaxAge(ConfigConstants.DEFAULT_SERVER_SCAN_MAX_AGE);
+    }
+
+    @Test
+    public void testEveryRequestScansWithoutMaxAge() throws DatabaseAdapterException {
+        coordinator.awaitScan(countingPass());
+        coordinator.awaitScan(countingPass());
+
+        assertEquals(2, passes.get());
+        assertEquals(2, coordinator.getPassCount());
+        assertEquals(0, coordinator.getSkippedPassCount());
+    }
+
+    @Test
+    public void testPassIsSkippedWithoutChanges() throws DatabaseAdapterException {
+        Config.getInstance().setServerScanMaxAge(60000L);
+
+        coordinator.awaitScan(countingPass());
+        coordinator.awaitScan(countingPass());
+        assertEquals(1, passes.get());
+        assertEquals(1, coordinator.getSkippedPassCount());
+
+        coordinator.notifyTablesChanged();
+        coordinator.awaitScan(countingPass());
+        assertEquals(2, passes.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareRunningPass() throws Exception {
+        final CountDownLatch passStarted = new CountDownLatch(1);
+        final CountDownLatch finishPass = new CountDownLatch(1);
+
+        Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.awaitScan(new ServerScanCoordinator.ScanPass() {
+                        @Override
+                        public boolean hasChanges() {
+                            return true;
+                        }
+
+                        @Override
+                        public void run() throws DatabaseAdapterException {
+                            passes.incrementAndGet();
+                            passStarted.countDown();
+                            try {
+                                finishPass.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+                } catch (DatabaseAdapterException e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        first.start();
+        passStarted.await();
+
+        Thread second = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.awaitScan(countingPass());
+                } catch (DatabaseAdapterException e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        second.start();
+        while (second.getState() != Thread.State.WAITING) {
+            Thread.sleep(5);
+        }
+
+        finishPass.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, passes.get());
+        assertEquals(2, coordinator.getLastPassRequests());
+    }
+
+    @Test
+    public void testFailedPassIsRepeated() throws DatabaseAdapterException {
+        final DatabaseAdapterException failure = new DatabaseAdapterException("test");
+        Config.getInstance().setServerScanMaxAge(60000L);
+
+        try {
+            coordinator.awaitScan(new ServerScanCoordinator.ScanPass() {
+                @Override
+                public boolean hasChanges() {
+                    return true;
+                }
+
+                @Override
+                public void run() throws DatabaseAdapterException {
+                    throw failure;
+                }
+            });
+            fail("exception of the pass expected");
+        } catch (DatabaseAdapterException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(-1, coordinator.getScanAge());
+
+        coordinator.awaitScan(countingPass());
+        assertEquals(1, passes.get());
+    }
+
+    @Test
+    public void testPassWithoutChangesIsSkipped() throws DatabaseAdapterException {
+        final AtomicInteger checks = new AtomicInteger();
+
+        coordinator.awaitScan(new ServerScanCoordinator.ScanPass() {
+            @Override
+            public boolean hasChanges() {
+                checks.incrementAndGet();
+                return false;
+            }
+
+            @Override
+            public void run() throws DatabaseAdapterException {
+                passes.incrementAndGet();
+            }
+        });
+
+        // skipped without any announced write or maximum age
+        assertEquals(1, checks.get());
+        assertEquals(0, passes.get());
+        assertEquals(1, coordinator.getSkippedPassCount());
+        assertTrue(coordinator.getScanAge() >= 0);
+
+        coordinator.awaitScan(countingPass());
+        assertEquals(1, passes.get());
+    }
+
+    private ServerScanCoordinator.ScanPass countingPass() {
+        return new ServerScanCoordinator.ScanPass() {
+            @Override
+            public boolean hasChanges() {
+                return true;
+            }
+
+            @Override
+            public void run() throws DatabaseAdapterException {
+                passes.incrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,408 @@
+package de.consistec.doubleganger.common.server;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ServerTableSynchronizerTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_MODIFIED_VALUE;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
+import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.data.schema.Column;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+import de.consistec.doubleganger.common.util.HashCalculator;
+import de.consistec.doubleganger.common.util.PrimaryKeyComparator;
+
+import java.math.BigDecimal;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests of the change detection which merges the primary key ordered data and md rows.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 09:40
+ */
+public class ServerTableSynchronizerTest extends TestBase {
+
+    private static final String TABLE = "items";
+    private static final int REV = 7;
+    private static final Config CONF = Config.getInstance();
+    private IDatabaseAdapter adapter;
+    private HashCalculator hashCalculator;
+    private Map<Object, String> writtenInserts;
+    private Map<Object, String> writtenUpdates;
+    private boolean rowHashingActivated;
+    private boolean triggersActivated;
+    private long watermarkOverlap;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws DatabaseAdapterException, NoSuchAlgorithmException {
+        rowHashingActivated = CONF.isRowHashingInDatabaseActivated();
+        CONF.setRowHashingInDatabaseActivated(false);
+        triggersActivated = CONF.isSqlTriggerOnServerActivated();
+        CONF.setSqlTriggerOnServerActivated(false);
+        watermarkOverlap = CONF.getWatermarkOverlap();
+        hashCalculator = new HashCalculator();
+        writtenInserts = new HashMap<Object, String>();
+        writtenUpdates = new HashMap<Object, String>();
+
+        adapter = mock(IDatabaseAdapter.class);
+        when(adapter.getHashCalculator()).thenReturn(hashCalculator);
+        when(adapter.allocateRevision()).thenReturn(REV);
+        when(adapter.getColumnNamesFromTable(TABLE)).thenReturn(Arrays.asList("id", "name"));
+        when(adapter.getPrimaryKeyColumn(TABLE)).thenReturn(new Column("id", Types.INTEGER));
+        // the batch clears its maps after writing them, so the written rows are copied
+        doAnswer(copyTo(writtenInserts, 2)).when(adapter).insertMdRows(eq(REV), eq(FLAG_PROCESSED), anyMap(),
+            eq(TABLE));
+        doAnswer(copyTo(writtenUpdates, 2)).when(adapter).updateMdRows(eq(REV), eq(FLAG_PROCESSED), anyMap(),
+            eq(TABLE));
+    }
+
+    @After
+    public void tearDown() {
+        CONF.setRowHashingInDatabaseActivated(rowHashingActivated);
+        CONF.setSqlTriggerOnServerActivated(triggersActivated);
+        CONF.setWatermarkOverlap(watermarkOverlap);
+        CONF.setWatermarkColumn(TABLE, null);
+    }
+
+    @Test
+    public void insertedModifiedAndDeletedRowsAreDetected() throws DatabaseAdapterException {
+        stubDataRows(dataRow(1, "new"), dataRow(2, "changed"), dataRow(3, "same"), dataRow(6, "new"));
+        stubMdRows(mdRow(2, hash(2, "old")), mdRow(3, hash(3, "same")), mdRow(4, hash(4, "gone")),
+            mdRow(5, null));
+
+        synchronizeTable();
+
+        Map<Object, String> inserts = new HashMap<Object, String>();
+        inserts.put(1, hash(1, "new"));
+        inserts.put(6, hash(6, "new"));
+        assertEquals(inserts, writtenInserts);
+        Map<Object, String> updates = new HashMap<Object, String>();
+        updates.put(2, hash(2, "changed"));
+        // pk 4 is deleted, pk 5 was already marked as deleted
+        updates.put(4, null);
+        assertEquals(updates, writtenUpdates);
+        verify(adapter).updateTableRevision(TABLE, REV);
+        // columns added by the application since the last scan are hashed too
+        verify(adapter).refreshTableMetadataIfChanged(eq(TABLE), any(ResultSetMetaData.class));
+        verify(adapter, never()).refreshTableMetadata(TABLE);
+    }
+
+    @Test
+    public void keysOfDifferentNumberTypesAreMatched() throws DatabaseAdapterException {
+        // the data table returns Integer keys, the md table Long and BigDecimal keys; 10 sorts after 9
+        stubDataRows(dataRow(1, "a"), dataRow(9, "b"), dataRow(10, "c"));
+        stubMdRows(mdRow(Long.valueOf(1), hash(1, "a")), mdRow(new BigDecimal("9"), hash(9, "b")),
+            mdRow(Long.valueOf(10), hash(10, "c")));
+
+        synchronizeTable();
+
+        assertTrue(writtenInserts.isEmpty());
+        assertTrue(writtenUpdates.isEmpty());
+        verify(adapter, never()).updateTableRevision(anyString(), anyInt());
+        // a pass without changes doesn't advance the revision counter
+        verify(adapter, never()).allocateRevision();
+    }
+
+    @Test
+    public void tablesOfOnePassShareOneRevision() throws DatabaseAdapterException {
+        stubDataRows(dataRow(1, "a"));
+        stubMdRows(mdRow(2, hash(2, "b")));
+
+        ServerTableSynchronizer.PassRevision revision = new ServerTableSynchronizer.PassRevision(adapter);
+        new ServerTableSynchronizer(adapter).synchronizeServerTable(revision, TABLE);
+        new ServerTableSynchronizer(adapter).synchronizeServerTable(revision, TABLE);
+
+        verify(adapter, times(1)).allocateRevision();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void tableReadInParallelIsWrittenByPassAdapter() throws DatabaseAdapterException {
+        stubDataRows(dataRow(1, "a"), dataRow(2, "b"));
+        stubMdRows(mdRow(2, hash(2, "old")));
+        IDatabaseAdapter passAdapter = mock(IDatabaseAdapter.class);
+        when(passAdapter.allocateRevision()).thenReturn(REV);
+        Map<Object, String> passInserts = new HashMap<Object, String>();
+        Map<Object, String> passUpdates = new HashMap<Object, String>();
+        doAnswer(copyTo(passInserts, 2)).when(passAdapter).insertMdRows(eq(REV), eq(FLAG_PROCESSED), anyMap(),
+            eq(TABLE));
+        doAnswer(copyTo(passUpdates, 2)).when(passAdapter).updateMdRows(eq(REV), eq(FLAG_PROCESSED), anyMap(),
+            eq(TABLE));
+
+        new ServerTableSynchronizer(adapter, passAdapter).synchronizeServerTable(
+            new ServerTableSynchronizer.PassRevision(passAdapter), TABLE);
+
+        // the md rows are committed or rolled back together with the revision counter of the pass connection
+        assertEquals(Arrays.<Object>asList(1), sortedKeys(passInserts));
+        assertEquals(Arrays.<Object>asList(2), sortedKeys(passUpdates));
+        verify(passAdapter).updateTableRevision(TABLE, REV);
+        verify(adapter, never()).allocateRevision();
+        verify(adapter, never()).insertMdRows(anyInt(), anyInt(), anyMap(), anyString());
+        verify(adapter, never()).updateMdRows(anyInt(), anyInt(), anyMap(), anyString());
+        verify(adapter, never()).updateTableRevision(anyString(), anyInt());
+        verify(adapter, never()).commit();
+    }
+
+    @Test
+    public void flaggedRowsAreStampedWithAllocatedRevision() throws DatabaseAdapterException {
+        CONF.setSqlTriggerOnServerActivated(true);
+        when(adapter.hasFlaggedMdRows(TABLE)).thenReturn(Boolean.TRUE);
+        when(adapter.updateFlaggedMdRows(REV, FLAG_PROCESSED, MDV_MODIFIED_VALUE, TABLE)).thenReturn(3);
+
+        synchronizeTable();
+
+        verify(adapter).updateTableRevision(TABLE, REV);
+    }
+
+    @Test
+    public void noRevisionIsAllocatedWithoutFlaggedRows() throws DatabaseAdapterException {
+        CONF.setSqlTriggerOnServerActivated(true);
+        when(adapter.hasFlaggedMdRows(TABLE)).thenReturn(Boolean.FALSE);
+
+        synchronizeTable();
+
+        verify(adapter, never()).allocateRevision();
+        verify(adapter, never()).updateFlaggedMdRows(anyInt(), anyInt(), anyString(), anyString());
+    }
+
+    @Test
+    public void dataRowsAfterLastMdRowAreInserted() throws DatabaseAdapterException {
+        stubDataRows(dataRow(1, "a"), dataRow(2, "b"), dataRow(3, "c"));
+        stubMdRows(mdRow(1, hash(1, "a")));
+
+        synchronizeTable();
+
+        assertEquals(Arrays.<Object>asList(2, 3), sortedKeys(writtenInserts));
+        assertTrue(writtenUpdates.isEmpty());
+    }
+
+    @Test
+    public void mdRowsAfterLastDataRowAreDeleted() throws DatabaseAdapterException {
+        stubDataRows(dataRow(1, "a"));
+        stubMdRows(mdRow(1, hash(1, "a")), mdRow(2, hash(2, "b")), mdRow(3, hash(3, "c")));
+
+        synchronizeTable();
+
+        assertTrue(writtenInserts.isEmpty());
+        Map<Object, String> updates = new HashMap<Object, String>();
+        updates.put(2, null);
+        updates.put(3, null);
+        assertEquals(updates, writtenUpdates);
+    }
+
+    @Test
+    public void emptyMdTableInsertsAllRows() throws DatabaseAdapterException {
+        stubDataRows(dataRow(1, "a"), dataRow(2, "b"));
+        stubMdRows();
+
+        synchronizeTable();
+
+        assertEquals(Arrays.<Object>asList(1, 2), sortedKeys(writtenInserts));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void hashesComputedByDatabaseAreCompared() throws DatabaseAdapterException {
+        CONF.setRowHashingInDatabaseActivated(true);
+        when(adapter.supportsRowHashing(TABLE)).thenReturn(Boolean.TRUE);
+        doAnswer(rows(mdRow(1, "H1"), mdRow(2, "H2new"))).when(adapter).getRowHashesOrderedByPk(eq(TABLE),
+            any(DatabaseAdapterCallback.class));
+        stubMdRows(mdRow(1, "h1"), mdRow(2, "H2"));
+
+        synchronizeTable();
+
+        assertTrue(writtenInserts.isEmpty());
+        assertEquals(Arrays.<Object>asList(2), sortedKeys(writtenUpdates));
+        assertEquals("H2new", writtenUpdates.get(2));
+        verify(adapter, never()).getAllRowsFromTableOrderedByPk(eq(TABLE), any(DatabaseAdapterCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void watermarkScanOverlapsLastScanAndReadsMdRowsAtOnce() throws DatabaseAdapterException {
+        CONF.setWatermarkColumn(TABLE, "updated_at");
+        CONF.setWatermarkOverlap(1000);
+        when(adapter.getWatermark(TABLE)).thenReturn(new Timestamp(10000));
+        // row 1 was committed after the last scan with an older watermark
+        doAnswer(rows(watermarkRow(1, "new", 9500), watermarkRow(2, "changed", 12000),
+            watermarkRow(3, "same", 10000))).when(adapter).getRowsChangedAfterWatermark(eq(TABLE),
+            eq("updated_at"), eq(new Timestamp(9000)), any(DatabaseAdapterCallback.class));
+        doAnswer(rows(mdRow(Long.valueOf(2), hash(2, "old")), mdRow(Long.valueOf(3), hash(3, "same")))).when(
+            adapter).getMdRowsForPrimaryKeys(eq(TABLE), any(List.class), any(DatabaseAdapterCallback.class));
+        doAnswer(rows()).when(adapter).getDeletedRowsForTable(eq(TABLE), any(DatabaseAdapterCallback.class));
+
+        synchronizeTable();
+
+        assertEquals(Arrays.<Object>asList(1), sortedKeys(writtenInserts));
+        assertEquals(Arrays.<Object>asList(Long.valueOf(2)), sortedKeys(writtenUpdates));
+        verify(adapter, times(1)).getMdRowsForPrimaryKeys(eq(TABLE), any(List.class),
+            any(DatabaseAdapterCallback.class));
+        verify(adapter, never()).getRowForPrimaryKey(any(), anyString(), any(DatabaseAdapterCallback.class));
+        verify(adapter).updateWatermark(TABLE, "updated_at", new Timestamp(12000));
+    }
+
+    @Test
+    public void numericWatermarksAreLoweredByOverlap() {
+        assertEquals(Long.valueOf(7), ServerTableSynchronizer.lowerWatermark(Integer.valueOf(10), 3));
+        assertEquals(new BigDecimal("7.5"), ServerTableSynchronizer.lowerWatermark(new BigDecimal("10.5"), 3));
+        assertEquals("v10", ServerTableSynchronizer.lowerWatermark("v10", 3));
+    }
+
+    @Test
+    public void unorderedRowsAreRejected() {
+        try {
+            stubDataRows(dataRow(2, "a"), dataRow(1, "b"));
+            stubMdRows();
+            synchronizeTable();
+            fail("unordered rows were merged");
+        } catch (DatabaseAdapterException e) {
+            // expected
+        }
+    }
+
+    private void synchronizeTable() throws DatabaseAdapterException {
+        new ServerTableSynchronizer(adapter).synchronizeServerTable(new ServerTableSynchronizer.PassRevision(adapter),
+            TABLE);
+    }
+
+    private String hash(int pk, String name) {
+        return hashCalculator.calculateHash(dataRow(pk, name));
+    }
+
+    private static Map<String, Object> dataRow(Object pk, String name) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("id", pk);
+        row.put("name", name);
+        return row;
+    }
+
+    private static Map<String, Object> watermarkRow(Object pk, String name, long updatedAt) {
+        Map<String, Object> row = dataRow(pk, name);
+        row.put("updated_at", new Timestamp(updatedAt));
+        return row;
+    }
+
+    private static Map<String, Object> mdRow(Object pk, String mdv) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put(PK_COLUMN_NAME, pk);
+        row.put(MDV_COLUMN_NAME, mdv);
+        return row;
+    }
+
+    private static List<Object> sortedKeys(Map<Object, String> map) {
+        List<Object> keys = new ArrayList<Object>(map.keySet());
+        Collections.sort(keys, new PrimaryKeyComparator());
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubDataRows(Map<String, Object>... rows) throws DatabaseAdapterException {
+        doAnswer(rows(rows)).when(adapter).getAllRowsFromTableOrderedByPk(eq(TABLE),
+            any(DatabaseAdapterCallback.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubMdRows(Map<String, Object>... rows) throws DatabaseAdapterException {
+        doAnswer(rows(rows)).when(adapter).getMdRowsOrderedByPk(eq(TABLE), any(DatabaseAdapterCallback.class));
+    }
+
+    /**
+     * Passes a result set over the given rows to the callback, which is the last argument of the stubbed call.
+     */
+    private static Answer<Void> rows(final Map<String, Object>... rows) {
+        return new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) throws DatabaseAdapterException, SQLException {
+                final int[] index = new int[]{-1};
+                ResultSet rst = mock(ResultSet.class);
+                when(rst.next()).thenAnswer(new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock next) {
+                        index[0]++;
+                        return index[0] < rows.length;
+                    }
+                });
+                Answer<Object> column = new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock get) {
+                        return rows[index[0]].get(get.getArguments()[0]);
+                    }
+                };
+                when(rst.getObject(anyString())).thenAnswer(column);
+                when(rst.getString(anyString())).thenAnswer(column);
+                Object[] arguments = invocation.getArguments();
+                ((DatabaseAdapterCallback<ResultSet>) arguments[arguments.length - 1]).onSuccess(rst);
+                return null;
+            }
+        };
+    }
+
+    private static Answer<Void> copyTo(final Map<Object, String> written, final int argument) {
+        return new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) {
+                written.putAll((Map<Object, String>) invocation.getArguments()[argument]);
+                return null;
+            }
+        };
+    }
+}
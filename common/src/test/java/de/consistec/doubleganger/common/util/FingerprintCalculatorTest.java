@@ -0,0 +1,186 @@
+package de.consistec.doubleganger.common.util;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - FingerprintCalculatorTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.data.FingerprintNode;
+import de.consistec.doubleganger.common.data.TableFingerprint;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests of the fingerprint calculator.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 15:10
+ */
+public class FingerprintCalculatorTest extends TestBase {
+
+    private static final String EMPTY_HASH = "00000000000000000000000000000000";
+    private static final String TABLE = "categories";
+    private FingerprintCalculator calculator;
+
+    @Before
+    public void setup() throws NoSuchAlgorithmException {
+        calculator = new FingerprintCalculator(new HashCalculator("MD5"));
+    }
+
+    @Test
+    public void testEmptyTableHasEmptyLeafAsRoot() throws SQLException, DatabaseAdapterException {
+        TableFingerprint fingerprint = calculator.calculateFingerprint(TABLE, 1, mdRows(new Object[0][]), 2, 2);
+
+        FingerprintNode root = fingerprint.getRoot();
+        assertEquals(1, fingerprint.getDepth());
+        assertTrue(root.isLeaf());
+        assertEquals(0, root.getRowCount());
+        assertEquals(EMPTY_HASH, root.getHash());
+        assertNull(root.getLowerBound());
+        assertNull(root.getUpperBound());
+    }
+
+    @Test
+    public void testTreeStructure() throws SQLException, DatabaseAdapterException {
+        TableFingerprint fingerprint = calculator.calculateFingerprint(TABLE, 1, mdRows(rows(1, 10)), 2, 2);
+
+        assertEquals(4, fingerprint.getDepth());
+        assertEquals(10, fingerprint.getRoot().getRowCount());
+        assertFalse(fingerprint.getRoot().isLeaf());
+
+        List<FingerprintNode> leaves = fingerprint.getLevel(3);
+        assertEquals(5, leaves.size());
+        assertNull(leaves.get(0).getLowerBound());
+        assertEquals(3, leaves.get(0).getUpperBound());
+        assertEquals(3, leaves.get(1).getLowerBound());
+        assertEquals(9, leaves.get(4).getLowerBound());
+        assertNull(leaves.get(4).getUpperBound());
+        assertTrue(leaves.get(4).isLeaf());
+
+        List<FingerprintNode> children = fingerprint.getChildren(fingerprint.getLevel(2).get(1));
+        assertEquals(2, children.size());
+        assertEquals(2, children.get(0).getIndex());
+        assertEquals(3, children.get(0).getLevel());
+        assertEquals(1, fingerprint.getChildren(fingerprint.getLevel(2).get(2)).size());
+        assertTrue(fingerprint.getChildren(leaves.get(0)).isEmpty());
+    }
+
+    @Test
+    public void testDeletedRowsAreIgnored() throws SQLException, DatabaseAdapterException {
+        Object[][] rows = rows(1, 4);
+        Object[][] withDeleted = new Object[][]{rows[0], {2, null}, rows[1], rows[2], rows[3]};
+
+        TableFingerprint expected = calculator.calculateFingerprint(TABLE, 1, mdRows(rows), 10, 2);
+        TableFingerprint actual = calculator.calculateFingerprint(TABLE, 1, mdRows(withDeleted), 10, 2);
+
+        assertTrue(expected.getRoot().hasSameRows(actual.getRoot()));
+    }
+
+    @Test(expected = DatabaseAdapterException.class)
+    public void testUnorderedRowsAreRejected() throws SQLException, DatabaseAdapterException {
+        calculator.calculateFingerprint(TABLE, 1, mdRows(new Object[][]{{2, "B"}, {1, "A"}}), 2, 2);
+    }
+
+    @Test
+    public void testClientHashesMatchServerNodes() throws SQLException, DatabaseAdapterException {
+        TableFingerprint fingerprint = calculator.calculateFingerprint(TABLE, 1, mdRows(rows(1, 10)), 2, 2);
+        List<FingerprintNode> leaves = fingerprint.getLevel(3);
+
+        // the client rows are in any order
+        Object[][] clientRows = rows(1, 10);
+        Object[] first = clientRows[0];
+        clientRows[0] = clientRows[9];
+        clientRows[9] = first;
+        List<FingerprintNode> clientLeaves = calculator.calculateHashes(mdRows(clientRows), leaves);
+        for (int i = 0; i < leaves.size(); i++) {
+            assertTrue(leaves.get(i).hasSameRows(clientLeaves.get(i)));
+        }
+
+        List<FingerprintNode> clientRoot = calculator.calculateHashes(mdRows(clientRows),
+            fingerprint.getLevel(0));
+        assertTrue(fingerprint.getRoot().hasSameRows(clientRoot.get(0)));
+    }
+
+    @Test
+    public void testOnlyRangeOfChangedRowDiverges() throws SQLException, DatabaseAdapterException {
+        TableFingerprint fingerprint = calculator.calculateFingerprint(TABLE, 1, mdRows(rows(1, 10)), 2, 2);
+        List<FingerprintNode> leaves = fingerprint.getLevel(3);
+
+        Object[][] clientRows = rows(1, 10);
+        clientRows[4][1] = "CHANGED";
+        List<FingerprintNode> clientLeaves = calculator.calculateHashes(mdRows(clientRows), leaves);
+
+        for (int i = 0; i < leaves.size(); i++) {
+            assertEquals(i != 2, leaves.get(i).hasSameRows(clientLeaves.get(i)));
+        }
+    }
+
+    private static Object[][] rows(int from, int to) {
+        Object[][] rows = new Object[to - from + 1][];
+        for (int pk = from; pk <= to; pk++) {
+            rows[pk - from] = new Object[]{pk, "HASH" + pk};
+        }
+        return rows;
+    }
+
+    private static ResultSet mdRows(final Object[][] rows) throws SQLException {
+        final int[] position = {-1};
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                position[0]++;
+                return position[0] < rows.length;
+            }
+        });
+        when(resultSet.getObject(PK_COLUMN_NAME)).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return rows[position[0]][0];
+            }
+        });
+        when(resultSet.getString(MDV_COLUMN_NAME)).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return (String) rows[position[0]][1];
+            }
+        });
+        return resultSet;
+    }
+}
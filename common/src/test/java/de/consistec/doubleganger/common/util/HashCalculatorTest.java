@@ -23,6 +23,7 @@ package de.consistec.doubleganger.common.util;
  * #L%
  */
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import de.consistec.doubleganger.common.TestBase;
 import de.consistec.doubleganger.common.data.Change;
@@ -46,6 +47,8 @@ public class HashCalculatorTest extends TestBase {
 
     private static final String MD5_HASH_FOR_EMPTY_BYTE_ARRAY = "D41D8CD98F00B204E9800998ECF8427E";
     private static final String SHA1_HASH_FOR_EMPTY_BYTE_ARRAY = "DA39A3EE5E6B4B0D3255BFEF95601890AFD80709";
+    private static final String MD5_HASH_FOR_ROW = "44F0B6432803B0E0822A36292EAD944D";
+    private static final String MD5_HASH_FOR_UTF8_ROW = "E35BC0A78F1C870124DFC1BBBD23721F";
     private HashCalculator hashCalculator;
 
     @Before
@@ -78,4 +81,45 @@ public class HashCalculatorTest extends TestBase {
         dataMap.put("TestKey", null);
         assertEquals(SHA1_HASH_FOR_EMPTY_BYTE_ARRAY, hashCalculator.calculateHash(change));
     }
+
+    @Test
+    public void testHashIsComputedFromSortedValues() throws DatabaseAdapterException {
+        // database adapters compute the same hash with sql, see GenericDatabaseAdapter#getRowHashExpression
+        Map<String, Object> dataMap = new HashMap<String, Object>();
+        dataMap.put("name", "ab");
+        dataMap.put("id", 12);
+        dataMap.put("description", null);
+        assertEquals("MD5", hashCalculator.getAlgorithm());
+        assertEquals(MD5_HASH_FOR_ROW, hashCalculator.calculateHash(dataMap));
+    }
+
+    @Test
+    public void testHashOfNonAsciiRowIsIndependentOfDefaultCharset() throws DatabaseAdapterException {
+        // md5 of the utf-8 bytes, like the database computes it
+        Map<String, Object> dataMap = new HashMap<String, Object>();
+        dataMap.put("name", "M\u00fcller");
+        assertEquals(MD5_HASH_FOR_UTF8_ROW, hashCalculator.calculateHash(dataMap));
+    }
+
+    @Test
+    public void testChangedColumnsAreFoundByColumnHashes() {
+        Map<String, Object> base = new HashMap<String, Object>();
+        base.put("name", "ab");
+        base.put("id", 12);
+        base.put("description", null);
+        String baseColumnHashes = hashCalculator.calculateColumnHashes(base);
+        assertEquals(3 * 16, baseColumnHashes.length());
+
+        Map<String, Object> current = new HashMap<String, Object>(base);
+        current.put("name", "abc");
+        current.put("description", "");
+        Map<String, Object> changed = new HashMap<String, Object>();
+        changed.put("name", "abc");
+        changed.put("description", "");
+        assertEquals(changed, hashCalculator.getChangedColumns(current, baseColumnHashes));
+        assertEquals(new HashMap<String, Object>(), hashCalculator.getChangedColumns(base, baseColumnHashes));
+
+        current.put("price", 1);
+        assertNull(hashCalculator.getChangedColumns(current, baseColumnHashes));
+    }
 }
@@ -0,0 +1,72 @@
+package de.consistec.doubleganger.common.util;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - PrimaryKeyComparatorTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.consistec.doubleganger.common.TestBase;
+
+import java.math.BigDecimal;
+import org.junit.Test;
+
+/**
+ * Tests of primary key comparator.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 10:40
+ */
+public class PrimaryKeyComparatorTest extends TestBase {
+
+    private PrimaryKeyComparator comparator = new PrimaryKeyComparator();
+
+    @Test
+    public void testNumbersOfDifferentTypes() {
+        assertEquals(0, comparator.compare(Integer.valueOf(5), Long.valueOf(5L)));
+        assertTrue(comparator.compare(Integer.valueOf(4), Long.valueOf(5L)) < 0);
+        assertTrue(comparator.compare(Long.valueOf(10L), Integer.valueOf(9)) > 0);
+        assertEquals(0, comparator.compare(new BigDecimal("5.0"), Integer.valueOf(5)));
+        assertTrue(comparator.compare(Double.valueOf(1.5d), Integer.valueOf(2)) < 0);
+    }
+
+    @Test
+    public void testNumbersAreNotComparedAsStrings() {
+        assertTrue(comparator.compare(Integer.valueOf(9), Integer.valueOf(10)) < 0);
+    }
+
+    @Test
+    public void testStrings() {
+        assertTrue(comparator.compare("a", "b") < 0);
+        assertTrue(comparator.compare("B", "a") < 0);
+        assertEquals(0, comparator.compare("key", "key"));
+    }
+
+    @Test
+    public void testNullValues() {
+        assertEquals(0, comparator.compare(null, null));
+        assertTrue(comparator.compare(null, Integer.valueOf(1)) < 0);
+        assertTrue(comparator.compare("a", null) > 0);
+    }
+}
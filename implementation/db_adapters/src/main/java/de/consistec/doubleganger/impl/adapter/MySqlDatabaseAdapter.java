@@ -23,26 +23,27 @@ package de.consistec.doubleganger.impl.adapter;
  * #L%
  */
 
-import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_COLUMN_NAME;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_MODIFIED;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_MODIFIED_VALUE;
-import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
 
 import de.consistec.doubleganger.common.Config;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.impl.ConnectionDataHolder;
 import de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector;
 import de.consistec.doubleganger.common.adapter.impl.GenericDatabaseAdapter;
+import de.consistec.doubleganger.common.data.schema.Column;
 import de.consistec.doubleganger.common.data.schema.ISQLConverter;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterInstantiationException;
+import de.consistec.doubleganger.common.util.SQLTypesUtil;
 import de.consistec.doubleganger.common.util.StringUtil;
 import de.consistec.doubleganger.impl.data.schema.CreateSchemaToMySQLConverter;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
 import java.util.Properties;
-import java.util.Scanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +77,8 @@ public class MySqlDatabaseAdapter extends GenericDatabaseAdapter {
      * Value: {@value}.
      */
     public static final int DEFAULT_PORT = 3306;
+    private static final String MD5 = "MD5";
+    private static final String SHA1 = "SHA-1";
     private static final String SYNC_USER = "mysql";
     private static final Logger LOGGER = LoggerFactory.getLogger(MySqlDatabaseAdapter.class.getCanonicalName());
     private static final String TRIGGERS_FILE_PATH = "/sql/mysql_create_triggers.sql";
@@ -95,6 +98,18 @@ public class MySqlDatabaseAdapter extends GenericDatabaseAdapter {
     public void init(Properties adapterConfig) throws DatabaseAdapterInstantiationException {
         ConnectionDataHolder connectionData = initializer.init(adapterConfig, URL_PATTERN_PREFIX);
         connection = initializer.createConnection(connectionData);
+        initStatementCache(adapterConfig);
+    }
+
+    /**
+     * Connector/J only streams a result row by row with this fetch size, every other value loads the whole result.
+     * No other statement may be executed on the connection until the streamed result is closed.
+     *
+     * @return {@link Integer#MIN_VALUE}
+     */
+    @Override
+    protected int getFetchSize() {
+        return Integer.MIN_VALUE;
     }
 
     @Override
@@ -125,33 +140,58 @@ public class MySqlDatabaseAdapter extends GenericDatabaseAdapter {
      * @return sql query for the triggers
      */
     protected String[] generateSqlTriggersForTable(String tableName) throws DatabaseAdapterException {
-        String[] queries = new String[4];
-
-        // we don't want any trigger on the metadata tables
-        if (!tableName.endsWith(CONF.getMdTableSuffix())) {
-
-            // Yes, we read these files *every time* a MD table is created... It's not optimized,
-            // but we do it only once: the first sync is somewhat slower, that's all.
-            String triggerRawQuery = new Scanner(getClass().getResourceAsStream(TRIGGERS_FILE_PATH))
-                .useDelimiter("\\A").next();
+        return generateSqlTriggersForTable(tableName, TRIGGERS_FILE_PATH, SYNC_USER);
+    }
 
-            String triggerQuery = triggerRawQuery.replaceAll("%syncuser%", SYNC_USER);
-            triggerQuery = triggerQuery.replaceAll("%table%", tableName);
-            triggerQuery = triggerQuery.replaceAll("%md_suffix%", CONF.getMdTableSuffix());
-            triggerQuery = triggerQuery.replaceAll("%pk_data%", getPrimaryKeyColumn(tableName).getName());
-            triggerQuery = triggerQuery.replaceAll("%flag_md%", FLAG_COLUMN_NAME);
-            triggerQuery = triggerQuery.replaceAll("%pk_md%", PK_COLUMN_NAME);
+    @Override
+    public ISQLConverter getSchemaConverter() {
+        return new CreateSchemaToMySQLConverter();
+    }
 
-            queries = triggerQuery.split(";;");
+    /**
+     * Builds {@code upper(md5(concat(ifnull(convert(col1 using utf8mb4), ''), ...)))} or the same with sha1.
+     * <p/>
+     * Only integer and varchar columns are supported, because the text representation of other types
+     * (e.g. timestamps or tinyint(1) booleans) differs from {@code toString()} in java.
+     */
+    @Override
+    protected String getRowHashExpression(List<Column> sortedColumns, String algorithm) {
+        String function;
+        if (MD5.equalsIgnoreCase(algorithm)) {
+            function = "md5";
+        } else if (SHA1.equalsIgnoreCase(algorithm) || "SHA1".equalsIgnoreCase(algorithm)) {
+            function = "sha1";
+        } else {
+            return null;
+        }
 
+        StringBuilder concatenation = new StringBuilder();
+        for (Column column : sortedColumns) {
+            switch (column.getType()) {
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                    break;
+                default:
+                    return null;
+            }
+            if (concatenation.length() > 0) {
+                concatenation.append(", ");
+            }
+            concatenation.append(String.format("ifnull(convert(%s using utf8mb4), '')", column.getName()));
         }
-        LOGGER.debug("Creating trigger for table '{}':\n {}", tableName, queries);
-        return queries;
+        return String.format("upper(%s(concat(%s)))", function, concatenation.toString());
     }
 
     @Override
-    public ISQLConverter getSchemaConverter() {
-        return new CreateSchemaToMySQLConverter();
+    protected String getOrderByPrimaryKey(String columnName, int sqlType) {
+        // the default collations of mysql are case insensitive, so character keys are sorted by their bytes
+        if (SQLTypesUtil.isCharacterType(sqlType)) {
+            return "BINARY " + columnName;
+        }
+        return columnName;
     }
 
     /**
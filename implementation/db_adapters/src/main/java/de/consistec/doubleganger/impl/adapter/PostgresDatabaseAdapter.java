@@ -25,15 +25,20 @@ package de.consistec.doubleganger.impl.adapter;
 
 import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_COLUMN_NAME;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_MODIFIED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_COLUMN_NAME;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.MDV_MODIFIED_VALUE;
 import static de.consistec.doubleganger.common.MdTableDefaultValues.PK_COLUMN_NAME;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.REV_COLUMN_NAME;
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
 
 import de.consistec.doubleganger.common.Config;
 import de.consistec.doubleganger.common.adapter.DatabaseAdapterCallback;
 import de.consistec.doubleganger.common.adapter.impl.ConnectionDataHolder;
 import de.consistec.doubleganger.common.adapter.impl.DatabaseAdapterConnector;
 import de.consistec.doubleganger.common.adapter.impl.GenericDatabaseAdapter;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.data.schema.Column;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SchemaConverterException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
@@ -41,15 +46,26 @@ import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapt
 import de.consistec.doubleganger.common.exception.database_adapter.TransactionAbortedException;
 import de.consistec.doubleganger.common.exception.database_adapter.UniqueConstraintException;
 import de.consistec.doubleganger.common.i18n.DBAdapterErrors;
+import de.consistec.doubleganger.common.util.SQLTypesUtil;
 import de.consistec.doubleganger.common.util.StringUtil;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.sql.BatchUpdateException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -104,7 +120,9 @@ public class PostgresDatabaseAdapter extends GenericDatabaseAdapter {
     private static final String CREATE_LANGUAGE_FILE_PATH = "/sql/postgres_create_language.sql";
     private static final String CREATE_POSTGRES_TRIGGERS_FILE_PATH = "/sql/postgres_create_triggers.sql";
     private static final Config CONF = Config.getInstance();
+    private static final String MD5 = "MD5";
     private static final String SYNC_USER = "syncuser";
+    private static final int COPY_CHUNK_ROWS = 10000;
 
     private DatabaseAdapterConnector initializer;
 
@@ -122,6 +140,7 @@ public class PostgresDatabaseAdapter extends GenericDatabaseAdapter {
     public void init(Properties adapterConfig) throws DatabaseAdapterInstantiationException {
         ConnectionDataHolder connectionData = initializer.init(adapterConfig, URL_PATTERN_PREFIX);
         connection = initializer.createConnection(connectionData);
+        initStatementCache(adapterConfig);
     }
 
     @Override
@@ -309,6 +328,239 @@ public class PostgresDatabaseAdapter extends GenericDatabaseAdapter {
         }
     }
 
+    @Override
+    public int updateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
+        try {
+            return super.updateMdRows(rev, f, mdvs, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public int updateFlaggedMdRows(int rev, int f, String mdv, String tableName) throws DatabaseAdapterException {
+        try {
+            return super.updateFlaggedMdRows(rev, f, mdv, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean hasFlaggedMdRows(String tableName) throws DatabaseAdapterException {
+        try {
+            return super.hasFlaggedMdRows(tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return false;
+        }
+    }
+
+    @Override
+    public int allocateRevision() throws DatabaseAdapterException {
+        try {
+            return super.allocateRevision();
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public void updateTableRevision(String table, int rev) throws DatabaseAdapterException {
+        try {
+            super.updateTableRevision(table, rev);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+        }
+    }
+
+    @Override
+    public int insertMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
+        try {
+            return super.insertMdRows(rev, f, mdvs, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public int insertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException {
+        try {
+            return super.insertDataRows(rows, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public int updateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws
+        DatabaseAdapterException {
+        try {
+            return super.updateDataRows(rows, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public int deleteRows(Collection<Object> primaryKeys, String tableName) throws DatabaseAdapterException {
+        try {
+            return super.deleteRows(primaryKeys, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public void insertOrUpdateDataRow(Map<String, Object> data, Object primaryKey, String tableName) throws
+        DatabaseAdapterException {
+        try {
+            super.insertOrUpdateDataRow(data, primaryKey, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+        }
+    }
+
+    @Override
+    public int insertOrUpdateDataRows(Map<Object, Map<String, Object>> rows, String tableName) throws
+        DatabaseAdapterException {
+        try {
+            return super.insertOrUpdateDataRows(rows, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public void deleteRowOrDoNothing(Object primaryKey, String tableName) throws DatabaseAdapterException {
+        try {
+            super.deleteRowOrDoNothing(primaryKey, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+        }
+    }
+
+    @Override
+    public void insertOrUpdateMdRow(int rev, int f, Object pk, String mdv, String tableName) throws
+        DatabaseAdapterException {
+        try {
+            super.insertOrUpdateMdRow(rev, f, pk, mdv, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+        }
+    }
+
+    @Override
+    public int insertOrUpdateMdRows(int rev, int f, Map<Object, String> mdvs, String tableName) throws
+        DatabaseAdapterException {
+        try {
+            return super.insertOrUpdateMdRows(rev, f, mdvs, tableName);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Loads the rows with {@code COPY ... FROM STDIN}, if the connection is a PostgreSQL driver connection.
+     *
+     * @param rows The row values
+     * @param tableName The table name
+     * @return number of inserted rows
+     * @throws DatabaseAdapterException
+     */
+    @Override
+    public int bulkInsertDataRows(List<Map<String, Object>> rows, String tableName) throws DatabaseAdapterException {
+        try {
+            CopyManager copyManager = getCopyManager();
+            if (copyManager == null || rows.isEmpty()) {
+                return super.bulkInsertDataRows(rows, tableName);
+            }
+
+            int inserted = 0;
+            int start = 0;
+            // consecutive rows with the same columns share one COPY statement
+            for (int end = 1; end <= rows.size(); end++) {
+                if (end == rows.size() || !rows.get(end).keySet().equals(rows.get(start).keySet())) {
+                    List<String> columns = newArrayList(rows.get(start).keySet());
+                    List<Object[]> values = newArrayList(end - start);
+                    for (Map<String, Object> row : rows.subList(start, end)) {
+                        Object[] rowValues = new Object[columns.size()];
+                        for (int i = 0; i < rowValues.length; i++) {
+                            rowValues[i] = row.get(columns.get(i));
+                        }
+                        values.add(rowValues);
+                    }
+                    inserted += copyIn(copyManager, tableName, columns, values);
+                    start = end;
+                }
+            }
+            return inserted;
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Loads the md rows with {@code COPY ... FROM STDIN}, if the connection is a PostgreSQL driver connection.
+     *
+     * @param f The flag
+     * @param entries The md entries
+     * @param tableName The data table name
+     * @return number of inserted rows
+     * @throws DatabaseAdapterException
+     */
+    @Override
+    public int bulkInsertMdRows(int f, List<MDEntry> entries, String tableName) throws DatabaseAdapterException {
+        try {
+            CopyManager copyManager = getCopyManager();
+            if (copyManager == null || entries.isEmpty()) {
+                return super.bulkInsertMdRows(f, entries, tableName);
+            }
+
+            List<Object[]> values = newArrayList(entries.size());
+            for (MDEntry entry : entries) {
+                values.add(new Object[]{entry.getPrimaryKey(), entry.getMdv(), entry.getRevision(), f});
+            }
+            return copyIn(copyManager, tableName + CONF.getMdTableSuffix(),
+                Arrays.asList(PK_COLUMN_NAME, MDV_COLUMN_NAME, REV_COLUMN_NAME, FLAG_COLUMN_NAME), values);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+            return 0;
+        }
+    }
+
+    @Override
+    public void getExistingPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        try {
+            super.getExistingPrimaryKeys(tableName, primaryKeys, callback);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+        }
+    }
+
+    @Override
+    public void getExistingMdPrimaryKeys(String tableName, List<Object> primaryKeys,
+        DatabaseAdapterCallback<ResultSet> callback) throws DatabaseAdapterException {
+        try {
+            super.getExistingMdPrimaryKeys(tableName, primaryKeys, callback);
+        } catch (DatabaseAdapterException ex) {
+            handleTransactionAborted(ex);
+        }
+    }
+
     @Override
     public void deleteRow(Object primaryKey, String tableName) throws DatabaseAdapterException {
         try {
@@ -382,6 +634,47 @@ public class PostgresDatabaseAdapter extends GenericDatabaseAdapter {
         return builder.toString();
     }
 
+    /**
+     * Builds {@code upper(md5(coalesce(col1::text, '') || ...))}.
+     * <p/>
+     * Only integer and varchar columns are supported, because the text representation of other types
+     * (e.g. timestamps, booleans or char columns with trailing spaces) differs from {@code toString()} in java.
+     */
+    @Override
+    protected String getRowHashExpression(List<Column> sortedColumns, String algorithm) {
+        if (!MD5.equalsIgnoreCase(algorithm)) {
+            return null;
+        }
+
+        StringBuilder concatenation = new StringBuilder();
+        for (Column column : sortedColumns) {
+            switch (column.getType()) {
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                    break;
+                default:
+                    return null;
+            }
+            if (concatenation.length() > 0) {
+                concatenation.append(" || ");
+            }
+            concatenation.append(String.format("coalesce(%s::text, '')", column.getName()));
+        }
+        return String.format("upper(md5(%s))", concatenation.toString());
+    }
+
+    @Override
+    protected String getOrderByPrimaryKey(String columnName, int sqlType) {
+        // sort character keys by byte order like the jvm does, independent of the database locale
+        if (SQLTypesUtil.isCharacterType(sqlType)) {
+            return columnName + " COLLATE \"C\"";
+        }
+        return columnName;
+    }
+
     @Override
     protected String getSchemaOfConnection() {
         return super.getSchemaOfConnection().toLowerCase();
@@ -404,4 +697,93 @@ public class PostgresDatabaseAdapter extends GenericDatabaseAdapter {
             throw ex;
         }
     }
+
+
+    private CopyManager getCopyManager() throws DatabaseAdapterException {
+        try {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                return connection.unwrap(PGConnection.class).getCopyAPI();
+            }
+            return null;
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(e);
+        }
+    }
+
+    private int copyIn(CopyManager copyManager, String tableName, List<String> columns, List<Object[]> rows) throws
+        DatabaseAdapterException {
+
+        StringBuilder columnList = new StringBuilder();
+        for (String column : columns) {
+            columnList.append(columnList.length() == 0 ? "" : ",").append(column);
+        }
+        String statement = String.format("COPY %s (%s) FROM STDIN", tableName, columnList);
+        LOGGER.debug("copying {} rows: {}", rows.size(), statement);
+
+        long copied = 0;
+        try {
+            for (int start = 0; start < rows.size(); start += COPY_CHUNK_ROWS) {
+                StringBuilder text = new StringBuilder();
+                for (Object[] row : rows.subList(start, Math.min(start + COPY_CHUNK_ROWS, rows.size()))) {
+                    for (int i = 0; i < row.length; i++) {
+                        if (i > 0) {
+                            text.append('\t');
+                        }
+                        appendCopyValue(text, row[i]);
+                    }
+                    text.append('\n');
+                }
+                copied += copyManager.copyIn(statement, new StringReader(text.toString()));
+            }
+        } catch (SQLException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_BULK_INSERT_ROWS, tableName), e);
+        } catch (IOException e) {
+            throw new DatabaseAdapterException(read(DBAdapterErrors.CANT_BULK_INSERT_ROWS, tableName), e);
+        }
+        return (int) copied;
+    }
+
+    /**
+     * Appends a value in the text format of {@code COPY}.
+     */
+    private static void appendCopyValue(StringBuilder text, Object value) {
+        if (value == null) {
+            text.append("\\N");
+            return;
+        }
+        if (value instanceof byte[]) {
+            // bytea hex format, the backslash is escaped for the copy text format
+            text.append("\\\\x");
+            for (byte b : (byte[]) value) {
+                text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return;
+        }
+        String valueText;
+        if (value instanceof java.util.Date && !(value instanceof java.sql.Date || value instanceof Time
+            || value instanceof Timestamp)) {
+            valueText = new Timestamp(((java.util.Date) value).getTime()).toString();
+        } else {
+            valueText = String.valueOf(value);
+        }
+        for (int i = 0; i < valueText.length(); i++) {
+            char c = valueText.charAt(i);
+            switch (c) {
+                case '\\':
+                    text.append("\\\\");
+                    break;
+                case '\t':
+                    text.append("\\t");
+                    break;
+                case '\n':
+                    text.append("\\n");
+                    break;
+                case '\r':
+                    text.append("\\r");
+                    break;
+                default:
+                    text.append(c);
+            }
+        }
+    }
 }
@@ -26,6 +26,7 @@ package de.consistec.doubleganger.impl.data.schema;
 import de.consistec.doubleganger.common.data.schema.Column;
 import de.consistec.doubleganger.common.data.schema.Constraint;
 import de.consistec.doubleganger.common.data.schema.ISQLConverter;
+import de.consistec.doubleganger.common.data.schema.Index;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.data.schema.Table;
 import de.consistec.doubleganger.common.exception.SchemaConverterException;
@@ -98,10 +99,22 @@ public class CreateSchemaToMySQLConverter implements ISQLConverter<Schema> {
                 }
 
                 result.append(") engine=InnoDB;");
+                for (Index index : table.getIndexes()) {
+                    result.append(toSQL(table.getName(), index)).append(";");
+                }
             }
         } catch (IllegalAccessException e) {
             throw new SchemaConverterException(e);
         }
         return result.toString();
     }
+
+    /**
+     * MySQL has no partial indexes, so the condition of the index is ignored and all rows are indexed.
+     */
+    @Override
+    public String toSQL(String tableName, Index index) {
+        return String.format("CREATE INDEX %c%s%c ON %c%s%c (%c%s%c)", QUOTE, index.getName(), QUOTE, QUOTE,
+            tableName, QUOTE, QUOTE, index.getColumn(), QUOTE);
+    }
 }
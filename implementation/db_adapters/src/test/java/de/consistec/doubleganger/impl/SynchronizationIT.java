@@ -130,6 +130,12 @@ public class SynchronizationIT {
         testWithDataBeforeFirstSync();
     }
 
+    @Test
+    public void testServerSqliteOffClientSqliteOn() throws SyncException, ContextException, SQLException, IOException {
+        init(SQLITE, false, SQLITE, true);
+        testWithDataBeforeFirstSync();
+    }
+
     @Test
     public void testServerMysqlOnClientPostgresOff() throws SyncException, ContextException, SQLException, IOException {
         init(MYSQL, true, POSTGRESQL, false);
@@ -164,7 +164,7 @@ public class ServerSyncProviderTest {
             }
         };
         doAnswer(throwTransactionException)
-            .when(databaseAdapterMock).getAllRowsFromTable(anyString(), any(DatabaseAdapterCallback.class));
+            .when(databaseAdapterMock).getAllRowsFromTableOrderedByPk(anyString(), any(DatabaseAdapterCallback.class));
         doAnswer(throwTransactionException)
             .when(databaseAdapterMock).getChanges(anyString(), any(DatabaseAdapterCallback.class));
 
@@ -0,0 +1,177 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - SqliteClientTriggersTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_DELETED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_INSERTED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_MODIFIED;
+import static de.consistec.doubleganger.common.MdTableDefaultValues.FLAG_PROCESSED;
+import static de.consistec.doubleganger.common.adapter.DatabaseAdapterFactory.AdapterPurpose.CLIENT;
+import static de.consistec.doubleganger.impl.adapter.DummyDataSource.SupportedDatabases.SQLITE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import de.consistec.doubleganger.common.TableSyncStrategies;
+import de.consistec.doubleganger.common.adapter.DatabaseAdapterFactory;
+import de.consistec.doubleganger.common.adapter.IDatabaseAdapter;
+import de.consistec.doubleganger.common.client.ClientHashProcessor;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
+import de.consistec.doubleganger.impl.TestDatabase;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the client triggers of SQLite, which are installed with the md tables.
+ * <p/>
+ * SQLite has no users, so the writes of the synchronization fire the triggers too. The tests check that the
+ * synchronization writes the md row after the data row, which resets the flag set by the trigger.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 10:40
+ */
+public class SqliteClientTriggersTest extends TestBase {
+
+    private static final String TABLE = "categories";
+    private static final String[] TABLE_NAMES = new String[]{"categories", "categories_md", "items", "items_md"};
+    private static final String[] CREATE_QUERIES = new String[]{
+        "CREATE TABLE categories (id INTEGER NOT NULL PRIMARY KEY, name VARCHAR (300), description VARCHAR (300))",
+        "CREATE TABLE items (id INTEGER NOT NULL PRIMARY KEY, name VARCHAR (300), description VARCHAR (300))"};
+    private TestDatabase clientDb;
+    private IDatabaseAdapter adapter;
+
+    @Before
+    public void setUp() throws Exception {
+        clientDb = new TestDatabase(SQLITE, CLIENT, true);
+        clientDb.init();
+        clientDb.dropTables(TABLE_NAMES);
+        clientDb.executeQueries(CREATE_QUERIES);
+
+        adapter = DatabaseAdapterFactory.newInstance(CLIENT);
+        adapter.init(clientDb.getConnection());
+        refreshTableMetadata();
+        adapter.createMDSchemaOnClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // other tests create the tables of the same database file with other columns
+        refreshTableMetadata();
+        clientDb.closeConnections();
+    }
+
+    @Test
+    public void applicationWritesAreFlagged() throws Exception {
+        clientDb.executeUpdate("INSERT INTO categories (id, name, description) VALUES (1, 'Beverages', 'Drinks')");
+        assertMdRow(1, null, FLAG_INSERTED);
+
+        // the row was synchronized
+        clientDb.executeUpdate("UPDATE categories_md SET rev = 1, f = 0 WHERE pk = 1");
+        clientDb.executeUpdate("UPDATE categories SET name = 'Soft drinks' WHERE id = 1");
+        assertMdRow(1, 1, FLAG_MODIFIED);
+
+        clientDb.executeUpdate("DELETE FROM categories WHERE id = 1");
+        assertMdRow(1, 1, FLAG_DELETED);
+    }
+
+    @Test
+    public void deletedRowWhichWasNeverSynchronizedLeavesNoMdRow() throws Exception {
+        clientDb.executeUpdate("INSERT INTO categories (id, name, description) VALUES (2, 'Condiments', 'Sweet')");
+        clientDb.executeUpdate("DELETE FROM categories WHERE id = 2");
+
+        assertFalse(mdRowExists(2));
+    }
+
+    @Test
+    public void synchronizationResetsFlagsOfItsOwnWrites() throws Exception {
+        ClientHashProcessor processor = new ClientHashProcessor(adapter, new TableSyncStrategies(), null);
+
+        // the table is empty, so the rows are loaded in bulk
+        processor.applyChangesFromServerOnClient(Arrays.asList(serverRow(1, 1), serverRow(2, 1)));
+        assertMdRow(1, 1, FLAG_PROCESSED);
+        assertMdRow(2, 1, FLAG_PROCESSED);
+
+        // each data row is written before its md row
+        processor.applyChangesFromServerOnClient(Arrays.asList(serverRow(1, 2), serverDelete(2, 2)));
+        assertMdRow(1, 2, FLAG_PROCESSED);
+        assertMdRow(2, 2, FLAG_PROCESSED);
+    }
+
+    private void refreshTableMetadata() throws DatabaseAdapterException {
+        for (String table : TABLE_NAMES) {
+            adapter.refreshTableMetadata(table);
+        }
+    }
+
+    private static Change serverRow(int id, int rev) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("id", id);
+        row.put("name", "name " + rev);
+        row.put("description", "description " + rev);
+        return new Change(new MDEntry(id, true, rev, TABLE, null), row);
+    }
+
+    private static Change serverDelete(int id, int rev) {
+        return new Change(new MDEntry(id, false, rev, TABLE, null), new HashMap<String, Object>());
+    }
+
+    private boolean mdRowExists(int pk) throws SQLException {
+        PreparedStatement stmt = clientDb.getConnection().prepareStatement("SELECT pk FROM categories_md WHERE pk = ?");
+        try {
+            stmt.setInt(1, pk);
+            return stmt.executeQuery().next();
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private void assertMdRow(int pk, Integer rev, int flag) throws SQLException {
+        PreparedStatement stmt = clientDb.getConnection().prepareStatement(
+            "SELECT rev, f FROM categories_md WHERE pk = ?");
+        try {
+            stmt.setInt(1, pk);
+            ResultSet mdRow = stmt.executeQuery();
+            assertTrue("md row " + pk + " expected", mdRow.next());
+            if (rev == null) {
+                assertNull(mdRow.getObject("rev"));
+            } else {
+                assertEquals(rev.intValue(), mdRow.getInt("rev"));
+            }
+            assertEquals(flag, mdRow.getInt("f"));
+        } finally {
+            stmt.close();
+        }
+    }
+}
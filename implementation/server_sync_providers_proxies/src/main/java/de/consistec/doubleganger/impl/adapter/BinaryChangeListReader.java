@@ -0,0 +1,146 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - BinaryChangeListReader.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.ColumnDictionary;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.data.RowData;
+import de.consistec.doubleganger.impl.i18n.Errors;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Reads a change set in the {@link BinaryFormat binary format}, one change at a time.
+ * <p/>
+ * The row data of all changes which refer to the same dictionary share one {@link ColumnDictionary}.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 20:20
+ */
+final class BinaryChangeListReader {
+
+    private final DataInputStream in;
+    private final List<ColumnDictionary> dictionaries = newArrayList();
+    private final List<String> tables = newArrayList();
+    private boolean finished;
+
+    /**
+     * Creates a reader of the given input stream.
+     *
+     * @param in the input stream, it gets buffered by the reader
+     */
+    BinaryChangeListReader(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+    }
+
+    /**
+     * Reads the header of the change list.
+     *
+     * @return the revision
+     * @throws IOException if the data is no binary change list of a known version or the stream ends
+     */
+    int readRevision() throws IOException {
+        int magic = in.readUnsignedByte();
+        if (magic != BinaryFormat.MAGIC) {
+            throw new IOException(read(Errors.BINARY_NO_CHANGE_LIST));
+        }
+        int version = in.readUnsignedByte();
+        if (version != BinaryFormat.VERSION) {
+            throw new IOException(read(Errors.BINARY_UNSUPPORTED_VERSION, version));
+        }
+        return BinaryFormat.readInt(in);
+    }
+
+    /**
+     * Reads the next change of the list.
+     *
+     * @return the change or {@code null} at the end of the list
+     * @throws IOException if the data is no binary change list or the stream ends
+     */
+    Change nextChange() throws IOException {
+        while (!finished) {
+            int record = in.readUnsignedByte();
+            switch (record) {
+                case BinaryFormat.RECORD_END:
+                    finished = true;
+                    break;
+                case BinaryFormat.RECORD_DICTIONARY:
+                    readDictionary();
+                    break;
+                case BinaryFormat.RECORD_CHANGE:
+                    return readChange();
+                default:
+                    throw new IOException(read(Errors.BINARY_UNKNOWN_RECORD, record));
+            }
+        }
+        return null;
+    }
+
+    private void readDictionary() throws IOException {
+        int id = BinaryFormat.readUnsignedInt(in);
+        if (id != dictionaries.size()) {
+            throw new IOException(read(Errors.BINARY_UNEXPECTED_DICTIONARY_ID, id));
+        }
+        String table = BinaryFormat.readString(in);
+        // the count isn't trusted, the list only grows with the columns actually read
+        int columnCount = BinaryFormat.readUnsignedInt(in);
+        List<String> columns = newArrayList();
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(BinaryFormat.readString(in));
+        }
+        tables.add(table);
+        dictionaries.add(new ColumnDictionary(columns));
+    }
+
+    private Change readChange() throws IOException {
+        int id = BinaryFormat.readUnsignedInt(in);
+        if (id >= dictionaries.size()) {
+            throw new IOException(read(Errors.BINARY_UNKNOWN_DICTIONARY_ID, id));
+        }
+        int flags = in.readUnsignedByte();
+        boolean exists = (flags & BinaryFormat.FLAG_EXISTS) != 0;
+        Object primaryKey = BinaryFormat.readValue(in);
+        int revision = BinaryFormat.readInt(in);
+        String baseHash = (flags & BinaryFormat.FLAG_COLUMN_DELTA) != 0 ? BinaryFormat.readString(in) : null;
+
+        ColumnDictionary dictionary = dictionaries.get(id);
+        Object[] values = new Object[dictionary.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = BinaryFormat.readValue(in);
+        }
+        MDEntry mdEntry = new MDEntry(primaryKey, exists, revision, tables.get(id), null);
+        Change change = new Change(mdEntry, new RowData(dictionary, values));
+        change.setBaseHash(baseHash);
+        return change;
+    }
+}
@@ -0,0 +1,175 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - BinaryChangeListWriter.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
+
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.ColumnDictionary;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.data.RowData;
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.impl.i18n.Errors;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes a change set in the {@link BinaryFormat binary format}, one change at a time.
+ * <p/>
+ * The column names of a table are written once as dictionary, the changes only hold the values in dictionary
+ * order. Row data which shares the dictionary of the previous change of its table (as all rows of one result set
+ * do) is written without looking up the columns.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 20:10
+ */
+final class BinaryChangeListWriter implements IChangeListWriter {
+
+    private final DataOutputStream out;
+    private final Map<String, TableDictionary> dictionaries = newHashMap();
+    private int nextDictionaryId;
+    private boolean started;
+
+    /**
+     * Creates a writer for the given output stream.
+     *
+     * @param out the output stream, it gets buffered by the writer
+     */
+    BinaryChangeListWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    @Override
+    public void onRevision(int revision) throws SyncException {
+        if (started) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_BINARY));
+        }
+        started = true;
+        try {
+            out.writeByte(BinaryFormat.MAGIC);
+            out.writeByte(BinaryFormat.VERSION);
+            BinaryFormat.writeInt(out, revision);
+        } catch (IOException e) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_BINARY), e);
+        }
+    }
+
+    @Override
+    public void onChange(Change change) throws SyncException {
+        if (!started) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_BINARY));
+        }
+        try {
+            writeChange(change);
+        } catch (IOException e) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_BINARY), e);
+        }
+    }
+
+    @Override
+    public void finish() throws SerializationException {
+        try {
+            if (!started) {
+                onRevision(0);
+            }
+            out.writeByte(BinaryFormat.RECORD_END);
+            out.flush();
+        } catch (IOException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_BINARY), e);
+        } catch (SyncException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_BINARY), e);
+        }
+    }
+
+    private void writeChange(Change change) throws IOException {
+        MDEntry entry = change.getMdEntry();
+        Map<String, Object> rowData = change.getRowData();
+        TableDictionary dictionary = dictionaryFor(entry.getTableName(), rowData);
+
+        out.writeByte(BinaryFormat.RECORD_CHANGE);
+        BinaryFormat.writeInt(out, dictionary.id);
+        int flags = entry.dataRowExists() ? BinaryFormat.FLAG_EXISTS : 0;
+        out.writeByte(change.isColumnDelta() ? flags | BinaryFormat.FLAG_COLUMN_DELTA : flags);
+        BinaryFormat.writeValue(out, entry.getPrimaryKey());
+        BinaryFormat.writeInt(out, entry.getRevision());
+        if (change.isColumnDelta()) {
+            BinaryFormat.writeString(out, change.getBaseHash());
+        }
+
+        ColumnDictionary columns = dictionary.columns;
+        if (rowData instanceof RowData && ((RowData) rowData).getDictionary() == columns) {
+            RowData values = (RowData) rowData;
+            for (int i = 0; i < columns.size(); i++) {
+                BinaryFormat.writeValue(out, values.getValue(i));
+            }
+        } else {
+            for (int i = 0; i < columns.size(); i++) {
+                BinaryFormat.writeValue(out, rowData.get(columns.getColumn(i)));
+            }
+        }
+    }
+
+    private TableDictionary dictionaryFor(String table, Map<String, Object> rowData) throws IOException {
+        TableDictionary dictionary = dictionaries.get(table);
+        if (dictionary != null && (rowData instanceof RowData && ((RowData) rowData).getDictionary()
+            == dictionary.columns || dictionary.columns.matches(rowData.keySet()))) {
+            return dictionary;
+        }
+
+        ColumnDictionary columns = rowData instanceof RowData ? ((RowData) rowData).getDictionary()
+            : new ColumnDictionary(rowData.keySet());
+        dictionary = new TableDictionary(nextDictionaryId++, columns);
+        dictionaries.put(table, dictionary);
+
+        out.writeByte(BinaryFormat.RECORD_DICTIONARY);
+        BinaryFormat.writeInt(out, dictionary.id);
+        BinaryFormat.writeString(out, table);
+        BinaryFormat.writeInt(out, columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            BinaryFormat.writeString(out, columns.getColumn(i));
+        }
+        return dictionary;
+    }
+
+    /**
+     * The columns of a table together with the id of their dictionary record.
+     */
+    private static final class TableDictionary {
+
+        private final int id;
+        private final ColumnDictionary columns;
+
+        private TableDictionary(int id, ColumnDictionary columns) {
+            this.id = id;
+            this.columns = columns;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - BinaryFormat.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+
+import de.consistec.doubleganger.impl.i18n.Errors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * The binary change list format and the encoding of its values.
+ * <p/>
+ * A change list starts with {@link #MAGIC}, the format {@link #VERSION} and the revision. A sequence of records
+ * follows, each starting with a record tag:
+ * <ul>
+ * <li>{@link #RECORD_DICTIONARY}: id, table name, number of columns and the column names. The ids are
+ * assigned in ascending order starting with 0. A table gets a new dictionary when its columns change.</li>
+ * <li>{@link #RECORD_CHANGE}: dictionary id, flags ({@link #FLAG_EXISTS}, {@link #FLAG_COLUMN_DELTA}), primary key,
+ * revision, the base hash of a column delta and one value per dictionary column in column order.</li>
+ * <li>{@link #RECORD_END}: the end of the change list.</li>
+ * </ul>
+ * Ids, counts, lengths and revisions are unsigned varints, strings are utf-8 bytes prefixed with their length.
+ * Counts and lengths are not trusted when reading, arrays only grow with the data actually read.
+ * Values are prefixed with a type tag, so they are read back as the java type the jdbc driver returned
+ * (e.g. {@link Timestamp} or {@link BigDecimal} instead of their string form). Integral numbers are zigzag
+ * varints. Values of other types are written as strings.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 20:00
+ */
+final class BinaryFormat {
+
+    /**
+     * First byte of a binary change list.
+     */
+    static final int MAGIC = 0xD6;
+    /**
+     * Version of the format.
+     */
+    static final int VERSION = 1;
+    static final int RECORD_END = 0;
+    static final int RECORD_DICTIONARY = 1;
+    static final int RECORD_CHANGE = 2;
+    static final int FLAG_EXISTS = 1;
+    static final int FLAG_COLUMN_DELTA = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_TRUE = 1;
+    private static final int TYPE_FALSE = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_SHORT = 5;
+    private static final int TYPE_BYTE = 6;
+    private static final int TYPE_DOUBLE = 7;
+    private static final int TYPE_FLOAT = 8;
+    private static final int TYPE_DECIMAL = 9;
+    private static final int TYPE_BIG_INTEGER = 10;
+    private static final int TYPE_STRING = 11;
+    private static final int TYPE_TIMESTAMP = 12;
+    private static final int TYPE_SQL_DATE = 13;
+    private static final int TYPE_TIME = 14;
+    private static final int TYPE_DATE = 15;
+    private static final int TYPE_BYTES = 16;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+    private static final int MAX_VARINT_SHIFT = 63;
+    private static final int LONG_SIGN_SHIFT = 63;
+    private static final long INT_MASK = 0xFFFFFFFFL;
+    private static final int READ_CHUNK_SIZE = 8192;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Writes a non negative number as varint.
+     *
+     * @param out output
+     * @param value the number
+     * @throws IOException
+     */
+    static void writeVarint(DataOutput out, long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~VARINT_MASK) != 0) {
+            out.writeByte((int) (remaining & VARINT_MASK) | VARINT_MORE);
+            remaining >>>= VARINT_BITS;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    /**
+     * Reads a varint.
+     *
+     * @param in input
+     * @return the number
+     * @throws IOException if the varint is malformed or the stream ends
+     */
+    static long readVarint(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift <= MAX_VARINT_SHIFT; shift += VARINT_BITS) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & VARINT_MASK) << shift;
+            if ((b & VARINT_MORE) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(read(Errors.BINARY_MALFORMED_VARINT));
+    }
+
+    /**
+     * Reads a varint which has to fit into an int.
+     *
+     * @param in input
+     * @return the number
+     * @throws IOException if the varint is malformed, too large or the stream ends
+     */
+    static int readUnsignedInt(DataInput in) throws IOException {
+        long value = readVarint(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException(read(Errors.BINARY_NUMBER_OUT_OF_RANGE, value));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes an int as unsigned varint, so revisions and counts take one to five bytes.
+     *
+     * @param out output
+     * @param value the number
+     * @throws IOException
+     */
+    static void writeInt(DataOutput out, int value) throws IOException {
+        writeVarint(out, value & INT_MASK);
+    }
+
+    /**
+     * Reads an int written by {@link #writeInt(DataOutput, int)}.
+     *
+     * @param in input
+     * @return the number
+     * @throws IOException
+     */
+    static int readInt(DataInput in) throws IOException {
+        return (int) readVarint(in);
+    }
+
+    /**
+     * Writes a string as utf-8 bytes prefixed with their length.
+     *
+     * @param out output
+     * @param value the string
+     * @throws IOException
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in input
+     * @return the string
+     * @throws IOException
+     */
+    static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), UTF_8);
+    }
+
+    /**
+     * Writes a value with its type tag.
+     *
+     * @param out output
+     * @param value the value, may be {@code null}
+     * @throws IOException
+     */
+    static void writeValue(DataOutput out, Object value) throws IOException { //NOSONAR
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            writeVarint(out, zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            writeVarint(out, zigzag((Long) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte(((Boolean) value) ? TYPE_TRUE : TYPE_FALSE);
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            writeVarint(out, zigzag((Short) value));
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            writeVarint(out, zigzag((Byte) value));
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            out.writeByte(TYPE_DECIMAL);
+            writeVarint(out, zigzag(decimal.scale()));
+            writeBytes(out, decimal.unscaledValue().toByteArray());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(TYPE_BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            out.writeByte(TYPE_TIMESTAMP);
+            writeVarint(out, zigzag(timestamp.getTime()));
+            writeVarint(out, timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(TYPE_SQL_DATE);
+            writeVarint(out, zigzag(((Date) value).getTime()));
+        } else if (value instanceof Time) {
+            out.writeByte(TYPE_TIME);
+            writeVarint(out, zigzag(((Date) value).getTime()));
+        } else if (value instanceof Date) {
+            out.writeByte(TYPE_DATE);
+            writeVarint(out, zigzag(((Date) value).getTime()));
+        } else if (value instanceof byte[]) {
+            out.writeByte(TYPE_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutput, Object)}.
+     *
+     * @param in input
+     * @return the value, may be {@code null}
+     * @throws IOException if the type tag is unknown or the stream ends
+     */
+    static Object readValue(DataInput in) throws IOException { //NOSONAR
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_TRUE:
+                return Boolean.TRUE;
+            case TYPE_FALSE:
+                return Boolean.FALSE;
+            case TYPE_INT:
+                return Integer.valueOf((int) unzigzag(readVarint(in)));
+            case TYPE_LONG:
+                return Long.valueOf(unzigzag(readVarint(in)));
+            case TYPE_SHORT:
+                return Short.valueOf((short) unzigzag(readVarint(in)));
+            case TYPE_BYTE:
+                return Byte.valueOf((byte) unzigzag(readVarint(in)));
+            case TYPE_DOUBLE:
+                return Double.valueOf(in.readDouble());
+            case TYPE_FLOAT:
+                return Float.valueOf(in.readFloat());
+            case TYPE_DECIMAL:
+                int scale = (int) unzigzag(readVarint(in));
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case TYPE_BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(unzigzag(readVarint(in)));
+                timestamp.setNanos(readUnsignedInt(in));
+                return timestamp;
+            case TYPE_SQL_DATE:
+                return new java.sql.Date(unzigzag(readVarint(in)));
+            case TYPE_TIME:
+                return new Time(unzigzag(readVarint(in)));
+            case TYPE_DATE:
+                return new Date(unzigzag(readVarint(in)));
+            case TYPE_BYTES:
+                return readBytes(in);
+            default:
+                throw new IOException(read(Errors.BINARY_UNKNOWN_VALUE_TYPE, type));
+        }
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads bytes prefixed with their length.
+     * <p/>
+     * The length is read from untrusted data, so longer values are read in chunks of {@link #READ_CHUNK_SIZE}
+     * bytes. Memory is only allocated for bytes which were actually received.
+     */
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = readUnsignedInt(in);
+        if (length <= READ_CHUNK_SIZE) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(READ_CHUNK_SIZE);
+        byte[] chunk = new byte[READ_CHUNK_SIZE];
+        for (int remaining = length; remaining > 0; remaining -= READ_CHUNK_SIZE) {
+            int chunkLength = Math.min(remaining, READ_CHUNK_SIZE);
+            in.readFully(chunk, 0, chunkLength);
+            bytes.write(chunk, 0, chunkLength);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> LONG_SIGN_SHIFT);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
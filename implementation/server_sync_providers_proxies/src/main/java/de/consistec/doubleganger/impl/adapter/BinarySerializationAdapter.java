@@ -0,0 +1,177 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - BinarySerializationAdapter.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+
+import de.consistec.doubleganger.common.IChangeListener;
+import de.consistec.doubleganger.common.SyncData;
+import de.consistec.doubleganger.common.SyncSettings;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.FingerprintNode;
+import de.consistec.doubleganger.common.data.schema.Schema;
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.impl.i18n.Errors;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * This class translates change sets to and from the compact {@link BinaryFormat binary format}.
+ * <p/>
+ * Column names are sent once per table, primary keys, revisions and integral values as varints and all values
+ * keep their java type. Schema, settings and fingerprints are small and are passed as utf-8 encoded JSON of the
+ * {@link JSONSerializationAdapter}.
+ * <p/>
+ * The http proxy and servlet negotiate the format with the {@link #CONTENT_TYPE} media type, servers and clients
+ * which don't know it keep using JSON.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 20:30
+ */
+public class BinarySerializationAdapter implements ISerializationAdapter<byte[]> {
+
+    /**
+     * Media type of binary change sets.
+     */
+    public static final String CONTENT_TYPE = "application/x-doubleganger-changes";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final JSONSerializationAdapter jsonAdapter = new JSONSerializationAdapter();
+
+    @Override
+    public SyncData deserializeChangeList(final byte[] serializedObject) throws SerializationException {
+        return deserializeMaxRevisionAndChangeList(serializedObject);
+    }
+
+    @Override
+    public SyncData deserializeMaxRevisionAndChangeList(final byte[] serializedObject) throws
+        SerializationException {
+
+        try {
+            final SyncData changesList = new SyncData();
+            final BinaryChangeListReader reader = new BinaryChangeListReader(
+                new ByteArrayInputStream(serializedObject));
+            changesList.setRevision(reader.readRevision());
+            Change change = reader.nextChange();
+            while (change != null) {
+                changesList.addChange(change);
+                change = reader.nextChange();
+            }
+            return changesList;
+        } catch (IOException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_FROM_BINARY_TO_CHANGE_LIST), e);
+        }
+    }
+
+    @Override
+    public int deserializeMaxRevisionAndChangeList(final InputStream in, final IChangeListener listener) throws
+        SerializationException, SyncException {
+
+        try {
+            // only the change which is read at the moment is held in memory
+            final BinaryChangeListReader reader = new BinaryChangeListReader(in);
+            final int revision = reader.readRevision();
+            listener.onRevision(revision);
+
+            Change change = reader.nextChange();
+            while (change != null) {
+                listener.onChange(change);
+                change = reader.nextChange();
+            }
+            return revision;
+        } catch (IOException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_FROM_BINARY_TO_CHANGE_LIST), e);
+        }
+    }
+
+    @Override
+    public byte[] serializeChangeList(final SyncData syncData) throws SerializationException {
+        return serializeChangeList(syncData.getRevision(), syncData.getChanges());
+    }
+
+    @Override
+    public byte[] serializeChangeList(final List<Change> changeList) throws SerializationException {
+        return serializeChangeList(0, changeList);
+    }
+
+    private byte[] serializeChangeList(final int revision, final List<Change> changeList) throws
+        SerializationException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryChangeListWriter writer = new BinaryChangeListWriter(out);
+        try {
+            writer.onRevision(revision);
+            for (Change c : changeList) {
+                writer.onChange(c);
+            }
+            writer.finish();
+            return out.toByteArray();
+        } catch (SyncException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_BINARY), e);
+        }
+    }
+
+    @Override
+    public IChangeListWriter createChangeListWriter(final OutputStream out) throws SerializationException {
+        return new BinaryChangeListWriter(out);
+    }
+
+    @Override
+    public Schema deserializeSchema(final byte[] serializedObject) throws SerializationException {
+        return jsonAdapter.deserializeSchema(new String(serializedObject, UTF_8));
+    }
+
+    @Override
+    public byte[] serializeSchema(final Schema schema) throws SerializationException {
+        return jsonAdapter.serializeSchema(schema).getBytes(UTF_8);
+    }
+
+    @Override
+    public byte[] serializeSettings(final SyncSettings clientSettings) throws SerializationException {
+        return jsonAdapter.serializeSettings(clientSettings).getBytes(UTF_8);
+    }
+
+    @Override
+    public SyncSettings deserializeSettings(final byte[] serializedObject) throws SerializationException {
+        return jsonAdapter.deserializeSettings(new String(serializedObject, UTF_8));
+    }
+
+    @Override
+    public byte[] serializeFingerprint(final List<FingerprintNode> nodes) throws SerializationException {
+        return jsonAdapter.serializeFingerprint(nodes).getBytes(UTF_8);
+    }
+
+    @Override
+    public List<FingerprintNode> deserializeFingerprint(final byte[] serializedObject) throws
+        SerializationException {
+        return jsonAdapter.deserializeFingerprint(new String(serializedObject, UTF_8));
+    }
+}
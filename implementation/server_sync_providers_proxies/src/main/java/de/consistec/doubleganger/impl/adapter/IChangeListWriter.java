@@ -0,0 +1,49 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - IChangeListWriter.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import de.consistec.doubleganger.common.IChangeListener;
+import de.consistec.doubleganger.common.exception.SerializationException;
+
+/**
+ * Serializes a streamed change set to an output stream.
+ * <p/>
+ * The revision has to be passed once before the changes. The written data can be read with
+ * {@link ISerializationAdapter#deserializeMaxRevisionAndChangeList(java.io.InputStream, IChangeListener)}.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 16:45
+ */
+public interface IChangeListWriter extends IChangeListener {
+
+    /**
+     * Finishes the change set and flushes the output stream.
+     * <p/>
+     * The output stream is not closed.
+     *
+     * @throws SerializationException
+     */
+    void finish() throws SerializationException;
+}
@@ -23,12 +23,17 @@ package de.consistec.doubleganger.impl.adapter;
  * #L%
  */
 
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncSettings;
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -88,6 +93,29 @@ public interface ISerializationAdapter<T> {
      */
     T serializeChangeList(List<Change> changeList) throws SerializationException;
 
+    /**
+     * Creates a writer which serializes a streamed change set to the output stream, in the format of
+     * {@link #serializeChangeList(SyncData)}.
+     *
+     * @param out the output stream
+     * @return the writer
+     * @throws SerializationException
+     */
+    IChangeListWriter createChangeListWriter(OutputStream out) throws SerializationException;
+
+    /**
+     * Deserializes a change set from the input stream and passes the revision and each change to the listener,
+     * without holding the whole change set in memory.
+     *
+     * @param in the input stream
+     * @param listener receives the revision and the changes
+     * @return the revision of the change set
+     * @throws SerializationException
+     * @throws SyncException if the listener fails
+     */
+    int deserializeMaxRevisionAndChangeList(InputStream in, IChangeListener listener) throws
+        SerializationException, SyncException;
+
     /**
      * Deserialize Object{@code <T>} to Schema.
      * <p/>
@@ -124,4 +152,22 @@ public interface ISerializationAdapter<T> {
      * @return SyncSettings
      */
     SyncSettings deserializeSettings(T serializedObject) throws SerializationException;
+
+    /**
+     * serialize the passed fingerprint nodes to Object{@code <T>}.
+     *
+     * @param nodes nodes of a table fingerprint
+     * @return the serialized object
+     * @throws SerializationException
+     */
+    T serializeFingerprint(List<FingerprintNode> nodes) throws SerializationException;
+
+    /**
+     * deserialize the passed Object{@code <T>} to a list of fingerprint nodes.
+     *
+     * @param serializedObject the serialized fingerprint nodes
+     * @return the fingerprint nodes
+     * @throws SerializationException
+     */
+    List<FingerprintNode> deserializeFingerprint(T serializedObject) throws SerializationException;
 }
@@ -0,0 +1,423 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - JSONChangeListReader.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
+
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.ColumnDictionary;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.data.RowData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads a JSON change list token by token.
+ * <p/>
+ * The change objects are mapped to {@link Change}s while they are read, without building {@code JSONObject}s.
+ * The rows of a table share one {@link ColumnDictionary} as long as they have the same columns. Scalar values
+ * are converted like {@link JSONObject#stringToValue(String)} does, so the changes are the same as with the
+ * org.json parser. The members of a change may come in any order.
+ * <p/>
+ * Usage: {@link #beginArray()}, then {@link #readRevision()} if the list starts with the revision, then
+ * {@link #nextChange()} until it returns {@code null}.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 19:10
+ */
+final class JSONChangeListReader {
+
+    private static final String FIELD_NAME_EXISTS = "exists";
+    private static final String FIELD_NAME_PRIMARYKEY = "primarykey";
+    private static final String FIELD_NAME_REVISION = "revision";
+    private static final String FIELD_NAME_TABLE_NAME = "tableName";
+    private static final String FIELD_NAME_MDENTRY = "mdentry";
+    private static final String FIELD_NAME_ROWDATA = "rowdata";
+    private static final String FIELD_NAME_BASEHASH = "basehash";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int HEX_RADIX = 16;
+    private static final int UNICODE_ESCAPE_LENGTH = 4;
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder text = new StringBuilder();
+    private final Map<String, ColumnDictionary> dictionaries = newHashMap();
+    private final List<String> names = newArrayList();
+    private final List<Object> values = newArrayList();
+    private int position;
+    private int limit;
+    private boolean first = true;
+    private boolean finished;
+
+    /**
+     * Creates a reader of the given character stream.
+     *
+     * @param reader the character stream, it is read in blocks and needs no buffering
+     */
+    JSONChangeListReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the start of the change list.
+     *
+     * @return {@code false} if the list is empty
+     * @throws JSONException if the text is no JSON array
+     * @throws IOException
+     */
+    boolean beginArray() throws JSONException, IOException {
+        expect('[');
+        if (peekClean() == ']') {
+            position++;
+            finished = true;
+        }
+        return !finished;
+    }
+
+    /**
+     * Reads the revision, the first element of the change list.
+     *
+     * @return the revision
+     * @throws JSONException if the first element is no number
+     * @throws IOException
+     */
+    int readRevision() throws JSONException, IOException {
+        first = false;
+        Object value = readValue();
+        try {
+            return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Revision is not a number: " + value);
+        }
+    }
+
+    /**
+     * Reads the next change of the list.
+     *
+     * @return the change or {@code null} at the end of the list
+     * @throws JSONException if the text is no change list
+     * @throws IOException
+     */
+    Change nextChange() throws JSONException, IOException {
+        if (finished) {
+            return null;
+        }
+        if (!first) {
+            char separator = nextClean();
+            if (separator == ']') {
+                finished = true;
+                return null;
+            }
+            if (separator != ',') {
+                throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+        first = false;
+        return readChange();
+    }
+
+    private Change readChange() throws JSONException, IOException {
+        expect('{');
+        MDEntry mdEntry = new MDEntry();
+        names.clear();
+        values.clear();
+        boolean hasRowData = false;
+        String baseHash = null;
+
+        if (peekClean() == '}') {
+            position++;
+        } else {
+            do {
+                String key = readKey();
+                if (FIELD_NAME_MDENTRY.equals(key)) {
+                    readMdEntry(mdEntry);
+                } else if (FIELD_NAME_ROWDATA.equals(key)) {
+                    readRowData();
+                    hasRowData = true;
+                } else if (FIELD_NAME_BASEHASH.equals(key)) {
+                    Object value = readValue();
+                    baseHash = value == JSONObject.NULL ? null : value.toString();
+                } else {
+                    readValue();
+                }
+            } while (nextMember('}'));
+        }
+
+        if (mdEntry.getTableName() == null || !hasRowData) {
+            throw syntaxError("Expected a change object");
+        }
+        Change change = new Change(mdEntry, toRowData(mdEntry.getTableName()));
+        change.setBaseHash(baseHash);
+        return change;
+    }
+
+    private void readMdEntry(MDEntry mdEntry) throws JSONException, IOException {
+        expect('{');
+        if (peekClean() == '}') {
+            position++;
+            return;
+        }
+        do {
+            String key = readKey();
+            Object value = readValue();
+            if (FIELD_NAME_EXISTS.equals(key)) {
+                mdEntry.setDataRowExists(Boolean.TRUE.equals(value) || "true".equalsIgnoreCase(value.toString()));
+            } else if (FIELD_NAME_PRIMARYKEY.equals(key)) {
+                mdEntry.setPrimaryKey(value == JSONObject.NULL ? null : value);
+            } else if (FIELD_NAME_REVISION.equals(key)) {
+                try {
+                    mdEntry.setRevision(value instanceof Number ? ((Number) value).intValue()
+                        : Integer.parseInt(value.toString()));
+                } catch (NumberFormatException e) {
+                    throw syntaxError("Revision is not a number: " + value);
+                }
+            } else if (FIELD_NAME_TABLE_NAME.equals(key)) {
+                mdEntry.setTableName(value.toString());
+            }
+        } while (nextMember('}'));
+    }
+
+    private void readRowData() throws JSONException, IOException {
+        expect('{');
+        if (peekClean() == '}') {
+            position++;
+            return;
+        }
+        do {
+            names.add(readKey());
+            Object value = readValue();
+            values.add(value == JSONObject.NULL ? null : value);
+        } while (nextMember('}'));
+    }
+
+    private RowData toRowData(String table) {
+        ColumnDictionary columns = dictionaries.get(table);
+        if (columns == null || !columns.matches(names)) {
+            columns = new ColumnDictionary(names);
+            dictionaries.put(table, columns);
+        }
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < names.size(); i++) {
+            row[columns.ordinalOf(names.get(i))] = values.get(i);
+        }
+        return new RowData(columns, row);
+    }
+
+    private String readKey() throws JSONException, IOException {
+        if (nextClean() != '"') {
+            throw syntaxError("Expected a string key");
+        }
+        String key = readString();
+        expect(':');
+        return key;
+    }
+
+    /**
+     * Reads the separator after an object member or array element.
+     *
+     * @return {@code true} if another member follows
+     */
+    private boolean nextMember(char end) throws JSONException, IOException {
+        char c = nextClean();
+        if (c == ',') {
+            return true;
+        }
+        if (c != end) {
+            throw syntaxError("Expected a ',' or '" + end + "'");
+        }
+        return false;
+    }
+
+    private Object readValue() throws JSONException, IOException {
+        char c = nextClean();
+        switch (c) {
+            case '"':
+                return readString();
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            default:
+                position--;
+                return readScalar();
+        }
+    }
+
+    /**
+     * Reads a nested object, change lists don't contain any, but they are valid JSON values.
+     */
+    private JSONObject readObject() throws JSONException, IOException {
+        JSONObject object = new JSONObject();
+        if (peekClean() == '}') {
+            position++;
+            return object;
+        }
+        do {
+            String key = readKey();
+            object.put(key, readValue());
+        } while (nextMember('}'));
+        return object;
+    }
+
+    private JSONArray readArray() throws JSONException, IOException {
+        JSONArray array = new JSONArray();
+        if (peekClean() == ']') {
+            position++;
+            return array;
+        }
+        do {
+            array.put(readValue());
+        } while (nextMember(']'));
+        return array;
+    }
+
+    private Object readScalar() throws JSONException, IOException {
+        text.setLength(0);
+        while (fill()) {
+            char c = buffer[position];
+            if (c <= ' ' || ",:]}/\\\"[{;=#".indexOf(c) >= 0) {
+                break;
+            }
+            text.append(c);
+            position++;
+        }
+        if (text.length() == 0) {
+            throw syntaxError("Missing value");
+        }
+        return JSONObject.stringToValue(text.toString());
+    }
+
+    private String readString() throws JSONException, IOException {
+        text.setLength(0);
+        while (true) {
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            // copy the characters up to the next quote or escape at once
+            int start = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\') {
+                position++;
+            }
+            text.append(buffer, start, position - start);
+            if (position == limit) {
+                continue;
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return text.toString();
+            }
+            text.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws JSONException, IOException {
+        char c = next();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'f':
+                return '\f';
+            case 'r':
+                return '\r';
+            case 'u':
+                StringBuilder hex = new StringBuilder(UNICODE_ESCAPE_LENGTH);
+                for (int i = 0; i < UNICODE_ESCAPE_LENGTH; i++) {
+                    hex.append(next());
+                }
+                try {
+                    return (char) Integer.parseInt(hex.toString(), HEX_RADIX);
+                } catch (NumberFormatException e) {
+                    throw syntaxError("Illegal escape.");
+                }
+            case '"':
+            case '\'':
+            case '\\':
+            case '/':
+                return c;
+            default:
+                throw syntaxError("Illegal escape.");
+        }
+    }
+
+    private void expect(char expected) throws JSONException, IOException {
+        if (nextClean() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    private char peekClean() throws JSONException, IOException {
+        char c = nextClean();
+        position--;
+        return c;
+    }
+
+    private char nextClean() throws JSONException, IOException {
+        while (true) {
+            char c = next();
+            if (c > ' ') {
+                return c;
+            }
+        }
+    }
+
+    private char next() throws JSONException, IOException {
+        if (!fill()) {
+            throw syntaxError("Unexpected end of the change list");
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Makes sure the buffer holds at least one unread character.
+     *
+     * @return {@code false} at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + position);
+    }
+}
@@ -0,0 +1,207 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - JSONChangeListWriter.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.impl.i18n.Errors;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Writes a change set as JSON array, one change at a time and token by token.
+ * <p/>
+ * No {@code JSONObject}s are built. Values are encoded like {@link JSONObject#valueToString(Object)} does and
+ * strings are escaped like {@link JSONObject#quote(String)} does, so the text is the one the org.json
+ * serializer produces, apart from the order of the object members.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 19:10
+ */
+final class JSONChangeListWriter implements IChangeListWriter {
+
+    private static final String UNICODE_ESCAPE = "\\u0000";
+    private final Writer writer;
+    private boolean started;
+
+    /**
+     * Creates a writer for the given character stream.
+     *
+     * @param writer the character stream, it should be buffered
+     */
+    JSONChangeListWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void onRevision(int revision) throws SyncException {
+        if (started) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON));
+        }
+        started = true;
+        try {
+            writer.write('[');
+            writer.write(String.valueOf(revision));
+        } catch (IOException e) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
+        }
+    }
+
+    @Override
+    public void onChange(Change change) throws SyncException {
+        if (!started) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON));
+        }
+        try {
+            writer.write(',');
+            writeChange(writer, change);
+        } catch (IOException e) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
+        } catch (JSONException e) {
+            throw new SyncException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
+        }
+    }
+
+    @Override
+    public void finish() throws SerializationException {
+        try {
+            if (!started) {
+                onRevision(0);
+            }
+            writer.write(']');
+            writer.flush();
+        } catch (IOException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
+        } catch (SyncException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
+        }
+    }
+
+    /**
+     * Writes one change object.
+     *
+     * @param writer the character stream
+     * @param change the change
+     * @throws IOException
+     * @throws JSONException if a value can't be encoded, e.g. a non finite number
+     */
+    static void writeChange(Writer writer, Change change) throws IOException, JSONException {
+        MDEntry entry = change.getMdEntry();
+        writer.write("{\"name\":\"change\",\"mdentry\":{\"exists\":");
+        writer.write(entry.dataRowExists() ? "true" : "false");
+        writer.write(",\"primarykey\":");
+        writeValue(writer, entry.getPrimaryKey());
+        writer.write(",\"revision\":");
+        writer.write(String.valueOf(entry.getRevision()));
+        writer.write(",\"tableName\":");
+        writeValue(writer, entry.getTableName());
+        writer.write("},\"rowdata\":{");
+
+        boolean firstColumn = true;
+        for (Map.Entry<String, Object> column : change.getRowData().entrySet()) {
+            if (!firstColumn) {
+                writer.write(',');
+            }
+            firstColumn = false;
+            writeString(writer, column.getKey());
+            writer.write(':');
+            writeValue(writer, column.getValue());
+        }
+        writer.write('}');
+        if (change.isColumnDelta()) {
+            writer.write(",\"basehash\":");
+            writeString(writer, change.getBaseHash());
+        }
+        writer.write('}');
+    }
+
+    private static void writeValue(Writer writer, Object value) throws IOException, JSONException {
+        if (value == null || value == JSONObject.NULL) {
+            writer.write("null");
+        } else if (value instanceof String) {
+            writeString(writer, (String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+            writer.write(value.toString());
+        } else {
+            writer.write(JSONObject.valueToString(value));
+        }
+    }
+
+    /**
+     * Writes a quoted string with the escapes of {@link JSONObject#quote(String)}.
+     */
+    private static void writeString(Writer writer, String string) throws IOException {
+        writer.write('"');
+        char previous = 0;
+        int length = string.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            String escape = escape(c, previous);
+            previous = c;
+            if (escape != null) {
+                writer.write(string, start, i - start);
+                writer.write(escape);
+                start = i + 1;
+            }
+        }
+        writer.write(string, start, length - start);
+        writer.write('"');
+    }
+
+    private static String escape(char c, char previous) {
+        switch (c) {
+            case '\\':
+            case '"':
+                return "\\" + c;
+            case '/':
+                return previous == '<' ? "\\/" : null;
+            case '\b':
+                return "\\b";
+            case '\t':
+                return "\\t";
+            case '\n':
+                return "\\n";
+            case '\f':
+                return "\\f";
+            case '\r':
+                return "\\r";
+            default:
+                if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                    String hex = Integer.toHexString(c);
+                    return UNICODE_ESCAPE.substring(0, UNICODE_ESCAPE.length() - hex.length()) + hex;
+                }
+                return null;
+        }
+    }
+}
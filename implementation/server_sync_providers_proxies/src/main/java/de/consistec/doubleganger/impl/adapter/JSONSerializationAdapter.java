@@ -24,9 +24,10 @@ package de.consistec.doubleganger.impl.adapter;
  */
 
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
-import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashSet;
 
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncDirection;
 import de.consistec.doubleganger.common.SyncSettings;
@@ -34,16 +35,23 @@ import de.consistec.doubleganger.common.TableSyncStrategies;
 import de.consistec.doubleganger.common.TableSyncStrategy;
 import de.consistec.doubleganger.common.conflict.ConflictStrategy;
 import de.consistec.doubleganger.common.data.Change;
-import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.data.schema.SchemaXMLConverter;
 import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.impl.i18n.Errors;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -59,190 +67,124 @@ import org.json.JSONObject;
  */
 public class JSONSerializationAdapter implements ISerializationAdapter<String> {
 
-    private static final String FIELD_NAME_EXISTS = "exists";
-    private static final String FIELD_NAME_PRIMARYKEY = "primarykey";
-    private static final String FIELD_NAME_REVISION = "revision";
-    private static final String FIELD_NAME_TABLE_NAME = "tableName";
-    private static final String FIELD_NAME_ROWDATA = "rowdata";
+    private static final String FIELD_NAME_LEVEL = "level";
+    private static final String FIELD_NAME_INDEX = "index";
+    private static final String FIELD_NAME_LOWER = "lower";
+    private static final String FIELD_NAME_UPPER = "upper";
+    private static final String FIELD_NAME_COUNT = "count";
+    private static final String FIELD_NAME_HASH = "hash";
+    private static final String FIELD_NAME_LEAF = "leaf";
+    private static final String UTF_8 = "UTF-8";
     private static final transient SchemaXMLConverter XML_CONVERTER = new SchemaXMLConverter();
 
     @Override
     public SyncData deserializeChangeList(final String serializedObject) throws
         SerializationException {
 
-        return deserializeChangeList(serializedObject, 0);
+        return deserializeChangeList(serializedObject, false);
     }
 
     @Override
     public SyncData deserializeMaxRevisionAndChangeList(final String serializedObject) throws
         SerializationException {
 
-        SyncData changeList = deserializeChangeList(serializedObject, 1);
-
-        try {
-
-            final JSONArray array = new JSONArray(serializedObject);
-            Integer maxRevision = Integer.valueOf(array.getInt(0));
-            changeList.setRevision(maxRevision);
-
-            return changeList;
-        } catch (JSONException e) {
-            throw new SerializationException(read(Errors.CANT_CONVERT_FROM_JSON_TO_CHANGE_LIST), e);
-        }
+        return deserializeChangeList(serializedObject, true);
     }
 
-    private SyncData deserializeChangeList(final String serializedObject, int startIndex) throws
+    private SyncData deserializeChangeList(final String serializedObject, boolean withRevision) throws
         SerializationException {
 
         try {
-
             final SyncData changesList = new SyncData();
-            final JSONArray array = new JSONArray(serializedObject);
-            JSONObject object;
-            JSONObject mdEntryObject;
-            Change change;
-            MDEntry mdEntry;
-            JSONObject jsonMap;
-            HashMap<String, Object> map;
-
-            for (int i = startIndex; i < array.length(); i++) {
-
-                change = new Change();
-                mdEntry = new MDEntry();
-                object = array.getJSONObject(i);
-                mdEntryObject = object.getJSONObject("mdentry");
-
-                if (mdEntryObject.has(FIELD_NAME_EXISTS)) {
-                    mdEntry.setDataRowExists(mdEntryObject.getBoolean(FIELD_NAME_EXISTS));
+            final JSONChangeListReader reader = new JSONChangeListReader(new StringReader(serializedObject));
+            if (reader.beginArray()) {
+                if (withRevision) {
+                    changesList.setRevision(reader.readRevision());
                 }
-
-                mdEntry.setPrimaryKey(mdEntryObject.get(FIELD_NAME_PRIMARYKEY));
-                mdEntry.setRevision(mdEntryObject.getInt(FIELD_NAME_REVISION));
-                mdEntry.setTableName(mdEntryObject.getString(FIELD_NAME_TABLE_NAME));
-                change.setMdEntry(mdEntry);
-
-                jsonMap = object.getJSONObject(FIELD_NAME_ROWDATA);
-                map = newHashMap();
-
-                final Iterator<String> iterator = jsonMap.keys();
-
-                String name;
-                while (iterator.hasNext()) {
-
-                    name = iterator.next();
-                    if (jsonMap.get(name) == JSONObject.NULL) {
-                        map.put(name, null);
-                    } else {
-                        map.put(name, jsonMap.get(name));
-                    }
+                Change change = reader.nextChange();
+                while (change != null) {
+                    changesList.addChange(change);
+                    change = reader.nextChange();
                 }
-
-                change.setRowData(map);
-                changesList.addChange(change);
             }
             return changesList;
         } catch (JSONException e) {
             throw new SerializationException(read(Errors.CANT_CONVERT_FROM_JSON_TO_CHANGE_LIST), e);
+        } catch (IOException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_FROM_JSON_TO_CHANGE_LIST), e);
         }
     }
 
     @Override
-    public String serializeChangeList(final SyncData syncData) throws
-        SerializationException {
+    public int deserializeMaxRevisionAndChangeList(final InputStream in, final IChangeListener listener) throws
+        SerializationException, SyncException {
 
         try {
+            // only the change which is read at the moment is held in memory
+            final JSONChangeListReader reader = new JSONChangeListReader(new InputStreamReader(in, UTF_8));
+            final int revision = reader.beginArray() ? reader.readRevision() : 0;
+            listener.onRevision(revision);
+
+            Change change = reader.nextChange();
+            while (change != null) {
+                listener.onChange(change);
+                change = reader.nextChange();
+            }
+            return revision;
+        } catch (JSONException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_FROM_JSON_TO_CHANGE_LIST), e);
+        } catch (IOException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_FROM_JSON_TO_CHANGE_LIST), e);
+        }
+    }
 
-            JSONObject object;
-            JSONObject mdEntryObject;
-            MDEntry entry;
-            Map<String, Object> rowData;
-            JSONObject jsonRowData;
-            JSONArray array = new JSONArray();
-
-            array.put(syncData.getRevision());
+    @Override
+    public String serializeChangeList(final SyncData syncData) throws
+        SerializationException {
 
+        final StringWriter writer = new StringWriter();
+        final JSONChangeListWriter changeListWriter = new JSONChangeListWriter(writer);
+        try {
+            changeListWriter.onRevision(syncData.getRevision());
             for (Change c : syncData.getChanges()) {
-
-                entry = c.getMdEntry();
-                mdEntryObject = new JSONObject();
-
-                mdEntryObject.put(FIELD_NAME_EXISTS, entry.dataRowExists());
-
-                mdEntryObject.put(FIELD_NAME_PRIMARYKEY, entry.getPrimaryKey());
-                mdEntryObject.put(FIELD_NAME_REVISION, entry.getRevision());
-                mdEntryObject.put(FIELD_NAME_TABLE_NAME, entry.getTableName());
-                object = new JSONObject();
-                object.put("name", "change");
-                object.put("mdentry", mdEntryObject);
-                rowData = c.getRowData();
-                jsonRowData = new JSONObject();
-
-                for (Map.Entry<String, Object> column : rowData.entrySet()) {
-
-                    if (null == column.getValue()) {
-                        jsonRowData.put(column.getKey(), JSONObject.NULL);
-                    } else {
-                        jsonRowData.put(column.getKey(), column.getValue());
-                    }
-
-                }
-
-                object.put(FIELD_NAME_ROWDATA, jsonRowData);
-                array.put(object);
+                changeListWriter.onChange(c);
             }
-
-            return array.toString();
-        } catch (JSONException e) {
+            changeListWriter.finish();
+            return writer.toString();
+        } catch (SyncException e) {
             throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
         }
     }
 
     @Override
     public String serializeChangeList(final List<Change> changeList) throws SerializationException {
+        final StringWriter writer = new StringWriter();
         try {
-
-            JSONObject object;
-            JSONObject mdEntryObject;
-            MDEntry entry;
-            Map<String, Object> rowData;
-            JSONObject jsonRowData;
-            JSONArray array = new JSONArray();
-
-            for (Change c : changeList) {
-
-                entry = c.getMdEntry();
-                mdEntryObject = new JSONObject();
-
-                mdEntryObject.put(FIELD_NAME_EXISTS, entry.dataRowExists());
-
-                mdEntryObject.put(FIELD_NAME_PRIMARYKEY, entry.getPrimaryKey());
-                mdEntryObject.put(FIELD_NAME_REVISION, entry.getRevision());
-                mdEntryObject.put(FIELD_NAME_TABLE_NAME, entry.getTableName());
-                object = new JSONObject();
-                object.put("name", "change");
-                object.put("mdentry", mdEntryObject);
-                rowData = c.getRowData();
-                jsonRowData = new JSONObject();
-
-                for (Map.Entry<String, Object> column : rowData.entrySet()) {
-
-                    if (null == column.getValue()) {
-                        jsonRowData.put(column.getKey(), JSONObject.NULL);
-                    } else {
-                        jsonRowData.put(column.getKey(), column.getValue());
-                    }
-
+            writer.write('[');
+            for (int i = 0; i < changeList.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-
-                object.put(FIELD_NAME_ROWDATA, jsonRowData);
-                array.put(object);
+                JSONChangeListWriter.writeChange(writer, changeList.get(i));
             }
-            return array.toString();
+            writer.write(']');
+            return writer.toString();
+        } catch (IOException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
         } catch (JSONException e) {
             throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
         }
     }
 
+    @Override
+    public IChangeListWriter createChangeListWriter(final OutputStream out) throws SerializationException {
+        try {
+            return new JSONChangeListWriter(new BufferedWriter(new OutputStreamWriter(out, UTF_8)));
+        } catch (UnsupportedEncodingException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_CHANGELIST_TO_JSON), e);
+        }
+    }
+
     @Override
     public Schema deserializeSchema(final String serializedObject) throws SerializationException {
         try {
@@ -311,4 +253,48 @@ public class JSONSerializationAdapter implements ISerializationAdapter<String> {
             throw new SerializationException(e);
         }
     }
+
+    @Override
+    public String serializeFingerprint(final List<FingerprintNode> nodes) throws SerializationException {
+        try {
+            final JSONArray array = new JSONArray();
+            for (FingerprintNode node : nodes) {
+                JSONObject object = new JSONObject();
+                object.put(FIELD_NAME_LEVEL, node.getLevel());
+                object.put(FIELD_NAME_INDEX, node.getIndex());
+                object.put(FIELD_NAME_LOWER, node.getLowerBound() == null ? JSONObject.NULL : node.getLowerBound());
+                object.put(FIELD_NAME_UPPER, node.getUpperBound() == null ? JSONObject.NULL : node.getUpperBound());
+                object.put(FIELD_NAME_COUNT, node.getRowCount());
+                object.put(FIELD_NAME_HASH, node.getHash());
+                object.put(FIELD_NAME_LEAF, node.isLeaf());
+                array.put(object);
+            }
+            return array.toString();
+        } catch (JSONException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_FINGERPRINT), e);
+        }
+    }
+
+    @Override
+    public List<FingerprintNode> deserializeFingerprint(final String serializedObject) throws
+        SerializationException {
+        try {
+            final List<FingerprintNode> nodes = newArrayList();
+            final JSONArray array = new JSONArray(serializedObject);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject object = array.getJSONObject(i);
+                nodes.add(new FingerprintNode(object.getInt(FIELD_NAME_LEVEL), object.getInt(FIELD_NAME_INDEX),
+                    getNullable(object, FIELD_NAME_LOWER), getNullable(object, FIELD_NAME_UPPER),
+                    object.getInt(FIELD_NAME_COUNT), object.getString(FIELD_NAME_HASH),
+                    object.getBoolean(FIELD_NAME_LEAF)));
+            }
+            return nodes;
+        } catch (JSONException e) {
+            throw new SerializationException(read(Errors.CANT_CONVERT_FINGERPRINT), e);
+        }
+    }
+
+    private static Object getNullable(JSONObject object, String name) throws JSONException {
+        return object.isNull(name) ? null : object.get(name);
+    }
 }
@@ -61,13 +61,22 @@ public class ApplyChangesCommand implements RequestCommand {
         SyncException,
         SerializationException {
 
-        if (!StringUtil.isNullOrEmpty(paramValues.getClientChanges()) && !StringUtil.isNullOrEmpty(
-            paramValues.getClientRevision())) {
+        boolean hasChanges = paramValues.getClientChangesStream() != null
+            || !StringUtil.isNullOrEmpty(paramValues.getClientChanges());
+        if (hasChanges && !StringUtil.isNullOrEmpty(paramValues.getClientRevision())) {
             try {
                 final int clientRevision = Integer.valueOf(paramValues.getClientRevision());
 
-                SyncData syncData = paramValues.getSerializationAdapter().deserializeChangeList(
-                    paramValues.getClientChanges());
+                SyncData syncData;
+                if (paramValues.getClientChangesStream() != null) {
+                    // the raw request body is deserialized while it is received
+                    syncData = new SyncData();
+                    paramValues.getSerializationAdapter().deserializeMaxRevisionAndChangeList(
+                        paramValues.getClientChangesStream(), syncData);
+                } else {
+                    syncData = paramValues.getSerializationAdapter().deserializeChangeList(
+                        paramValues.getClientChanges());
+                }
                 syncData.setRevision(clientRevision);
                 LOGGER.debug("deserialized Changes:\n<{}>", syncData);
                 int nextServerRevisionSendToClient = paramValues.getCtx().applyChanges(syncData);
@@ -29,9 +29,11 @@ import de.consistec.doubleganger.common.exception.SerializationException;
 import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.util.LoggingUtil;
 import de.consistec.doubleganger.common.util.StringUtil;
+import de.consistec.doubleganger.impl.adapter.IChangeListWriter;
 import de.consistec.doubleganger.impl.i18n.Errors;
 import de.consistec.doubleganger.impl.proxy.http_servlet.HttpRequestParamValues;
 
+import java.io.OutputStream;
 import org.slf4j.cal10n.LocLogger;
 
 /**
@@ -41,7 +43,7 @@ import org.slf4j.cal10n.LocLogger;
  * @company consistec Engineering and Consulting GmbH
  * @date 11.01.13 09:27
  */
-public class GetChangesCommand implements RequestCommand {
+public class GetChangesCommand implements StreamingRequestCommand {
 
     private static final LocLogger LOGGER = LoggingUtil.createLogger(GetChangesCommand.class.getCanonicalName());
 
@@ -49,6 +51,9 @@ public class GetChangesCommand implements RequestCommand {
      * Parses the request, invokes
      * {@link de.consistec.doubleganger.common.SyncContext.ServerContext getChanges() }
      * and returns the result.
+     * <p/>
+     * If the request holds a page size, only one page of the changes is returned and its continuation token
+     * is passed to {@link HttpRequestParamValues#setNextContinuationToken(String) }.
      *
      * @param paramValues values transfered through the http request parameter
      * @return the result of the server operation getChanges().
@@ -62,20 +67,13 @@ public class GetChangesCommand implements RequestCommand {
 
         try {
             SyncData serverData;
-
-            if (!StringUtil.isNullOrEmpty(paramValues.getClientRevision())) {
-
-                try {
-                    serverData = paramValues.getCtx().getChanges(Integer.parseInt(paramValues.getClientRevision()));
-                } catch (NumberFormatException ex) {
-                    LOGGER.error(read(Errors.CANT_PARSE_CLIENT_REVISION), ex);
-                    throw new SyncException(ex.getLocalizedMessage(), ex);
-                }
+            if (StringUtil.isNullOrEmpty(paramValues.getPageSize())) {
+                serverData = paramValues.getCtx().getChanges(parseClientRevision(paramValues));
             } else {
-                LOGGER.error(Errors.CANT_GETCHANGES_NO_CLIENT_REVISION);
-                throw new SyncException(read(Errors.CANT_GETCHANGES_NO_CLIENT_REVISION));
+                serverData = paramValues.getCtx().getChanges(parseClientRevision(paramValues),
+                    parsePageSize(paramValues), paramValues.getContinuationToken());
+                paramValues.setNextContinuationToken(serverData.getContinuationToken());
             }
-
             return paramValues.getSerializationAdapter().serializeChangeList(serverData).toString();
 
         } catch (SyncException e) {
@@ -86,4 +84,57 @@ public class GetChangesCommand implements RequestCommand {
             throw e;
         }
     }
+
+    /**
+     * Parses the request, invokes
+     * {@link de.consistec.doubleganger.common.SyncContext.ServerContext getChanges() }
+     * and writes each change to the output stream while it is read from the database.
+     *
+     * @param paramValues values transfered through the http request parameter
+     * @param out output stream for the serialized changes
+     * @throws SyncException
+     * @throws SerializationException
+     */
+    @Override
+    public void execute(final HttpRequestParamValues paramValues, final OutputStream out) throws
+        SyncException,
+        SerializationException {
+
+        try {
+            int clientRevision = parseClientRevision(paramValues);
+            IChangeListWriter writer = paramValues.getSerializationAdapter().createChangeListWriter(out);
+            paramValues.getCtx().getChanges(clientRevision, writer);
+            writer.finish();
+
+        } catch (SyncException e) {
+            LOGGER.error(read(Errors.CANT_GET_SERVER_CHANGES), e);
+            throw e;
+        } catch (SerializationException e) {
+            LOGGER.error(read(Errors.CANT_GET_SERVER_CHANGES), e);
+            throw e;
+        }
+    }
+
+    private int parsePageSize(final HttpRequestParamValues paramValues) throws SyncException {
+        try {
+            return Integer.parseInt(paramValues.getPageSize());
+        } catch (NumberFormatException ex) {
+            LOGGER.error(read(Errors.CANT_PARSE_PAGE_SIZE), ex);
+            throw new SyncException(ex.getLocalizedMessage(), ex);
+        }
+    }
+
+    private int parseClientRevision(final HttpRequestParamValues paramValues) throws SyncException {
+        if (StringUtil.isNullOrEmpty(paramValues.getClientRevision())) {
+            LOGGER.error(Errors.CANT_GETCHANGES_NO_CLIENT_REVISION);
+            throw new SyncException(read(Errors.CANT_GETCHANGES_NO_CLIENT_REVISION));
+        }
+
+        try {
+            return Integer.parseInt(paramValues.getClientRevision());
+        } catch (NumberFormatException ex) {
+            LOGGER.error(read(Errors.CANT_PARSE_CLIENT_REVISION), ex);
+            throw new SyncException(ex.getLocalizedMessage(), ex);
+        }
+    }
 }
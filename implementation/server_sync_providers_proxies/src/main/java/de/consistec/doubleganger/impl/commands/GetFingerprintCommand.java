@@ -0,0 +1,80 @@
+package de.consistec.doubleganger.impl.commands;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - GetFingerprintCommand.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+
+import de.consistec.doubleganger.common.data.FingerprintNode;
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.common.util.LoggingUtil;
+import de.consistec.doubleganger.common.util.StringUtil;
+import de.consistec.doubleganger.impl.i18n.Errors;
+import de.consistec.doubleganger.impl.proxy.http_servlet.HttpRequestParamValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.cal10n.LocLogger;
+
+/**
+ * Concrete class of RequestCommand that represents the server method call to getFingerprint.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 14:20
+ */
+public class GetFingerprintCommand implements RequestCommand {
+
+    private static final LocLogger LOGGER = LoggingUtil.createLogger(GetFingerprintCommand.class.getCanonicalName());
+
+    /**
+     * Parses the request, invokes
+     * {@link de.consistec.doubleganger.common.SyncContext.ServerContext getFingerprint() }
+     * and returns the result.
+     *
+     * @param paramValues values transfered through the http request parameter
+     * @return the result of the server operation getFingerprint().
+     * @throws SyncException
+     * @throws SerializationException
+     */
+    @Override
+    public String execute(final HttpRequestParamValues paramValues) throws SyncException, SerializationException {
+
+        if (StringUtil.isNullOrEmpty(paramValues.getTable())) {
+            LOGGER.error(Errors.CANT_GET_FINGERPRINT_NO_TABLE);
+            throw new SyncException(read(Errors.CANT_GET_FINGERPRINT_NO_TABLE));
+        }
+
+        try {
+            List<FingerprintNode> parents = new ArrayList<FingerprintNode>();
+            if (!StringUtil.isNullOrEmpty(paramValues.getFingerprint())) {
+                parents = paramValues.getSerializationAdapter().deserializeFingerprint(paramValues.getFingerprint());
+            }
+            List<FingerprintNode> nodes = paramValues.getCtx().getFingerprint(paramValues.getTable(), parents);
+            return paramValues.getSerializationAdapter().serializeFingerprint(nodes).toString();
+        } catch (SerializationException e) {
+            LOGGER.error(read(Errors.CANT_GET_FINGERPRINT_SERIALIZATION_FAILURE), e);
+            throw e;
+        }
+    }
+}
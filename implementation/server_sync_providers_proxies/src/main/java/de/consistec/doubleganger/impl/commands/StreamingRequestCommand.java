@@ -0,0 +1,54 @@
+package de.consistec.doubleganger.impl.commands;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - StreamingRequestCommand.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.impl.proxy.http_servlet.HttpRequestParamValues;
+
+import java.io.OutputStream;
+
+/**
+ * A server method call whose result is written to the response while it is produced,
+ * instead of being returned as one string.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 17:20
+ */
+public interface StreamingRequestCommand extends RequestCommand {
+
+    /**
+     * Parses the request, invokes
+     * {@link de.consistec.doubleganger.common.SyncContext.ServerContext any method }
+     * and writes the serialized result to the output stream.
+     *
+     * @param paramValues values transfered through the http request parameter
+     * @param out output stream for the serialized response
+     * @throws SyncException
+     * @throws SerializationException
+     */
+    void execute(HttpRequestParamValues paramValues, OutputStream out) throws SyncException,
+        SerializationException;
+}
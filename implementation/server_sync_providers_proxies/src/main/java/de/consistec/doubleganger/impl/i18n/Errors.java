@@ -46,6 +46,14 @@ public enum Errors {
      * When conversion from {@link java.util.List List&lt;Change&gt;} to JSON fails.
      */
     CANT_CONVERT_CHANGELIST_TO_JSON,
+    /**
+     * When conversion from the binary format to {@link java.util.List List&lt;Change&gt;} fails.
+     */
+    CANT_CONVERT_FROM_BINARY_TO_CHANGE_LIST,
+    /**
+     * When conversion from {@link java.util.List List&lt;Change&gt;} to the binary format fails.
+     */
+    CANT_CONVERT_CHANGELIST_TO_BINARY,
     /**
      * When conversion from JSON string to {@link de.consistec.doubleganger.common.data.schema.Schema Schema} fails.
      */
@@ -67,6 +75,20 @@ public enum Errors {
      * {@link de.consistec.doubleganger.common.exception.SerializationException}.
      */
     CANT_GET_SCHEMA_SERIALIZATION_FAILURE,
+    /**
+     * When conversion between JSON and a list of
+     * {@link de.consistec.doubleganger.common.data.FingerprintNode fingerprint nodes} fails.
+     */
+    CANT_CONVERT_FINGERPRINT,
+    /**
+     * When attempt to get fingerprint nodes fails because of
+     * {@link de.consistec.doubleganger.common.exception.SerializationException}.
+     */
+    CANT_GET_FINGERPRINT_SERIALIZATION_FAILURE,
+    /**
+     * When no table was provided for getting fingerprint nodes or the rows of fingerprint ranges.
+     */
+    CANT_GET_FINGERPRINT_NO_TABLE,
     /**
      * When client had received server exception in response.
      * <p>
@@ -89,6 +111,10 @@ public enum Errors {
      * When parsing the client revision fails.
      */
     CANT_PARSE_CLIENT_REVISION,
+    /**
+     * When the page size of a paged request for the server changes can't be parsed.
+     */
+    CANT_PARSE_PAGE_SIZE,
     /**
      * When client revision was not provided for getting the server change set.
      */
@@ -109,5 +135,66 @@ public enum Errors {
     /**
      * When the server command could not executed.
      */
-    CANT_EXECUTE_SERVER_COMMAND;
+    CANT_EXECUTE_SERVER_COMMAND,
+    /**
+     * When a request body has a content encoding the server doesn't support.
+     */
+    UNSUPPORTED_CONTENT_ENCODING,
+    /**
+     * When a decompressed request body exceeds the configured maximal size.
+     * <p>
+     * <b>Parameters</b>: maximal size.
+     * </p>
+     */
+    REQUEST_BODY_TOO_LARGE,
+    /**
+     * When the data doesn't start like a binary change list.
+     */
+    BINARY_NO_CHANGE_LIST,
+    /**
+     * When the binary change list has a version the reader doesn't know.
+     * <p>
+     * <b>Parameters</b>: version.
+     * </p>
+     */
+    BINARY_UNSUPPORTED_VERSION,
+    /**
+     * When a varint of a binary change list is longer than a long.
+     */
+    BINARY_MALFORMED_VARINT,
+    /**
+     * When a count or length of a binary change list doesn't fit into an int.
+     * <p>
+     * <b>Parameters</b>: number.
+     * </p>
+     */
+    BINARY_NUMBER_OUT_OF_RANGE,
+    /**
+     * When a binary change list contains an unknown record.
+     * <p>
+     * <b>Parameters</b>: record tag.
+     * </p>
+     */
+    BINARY_UNKNOWN_RECORD,
+    /**
+     * When a dictionary of a binary change list doesn't have the next id.
+     * <p>
+     * <b>Parameters</b>: dictionary id.
+     * </p>
+     */
+    BINARY_UNEXPECTED_DICTIONARY_ID,
+    /**
+     * When a change of a binary change list refers to an unknown dictionary.
+     * <p>
+     * <b>Parameters</b>: dictionary id.
+     * </p>
+     */
+    BINARY_UNKNOWN_DICTIONARY_ID,
+    /**
+     * When a value of a binary change list has an unknown type tag.
+     * <p>
+     * <b>Parameters</b>: type tag.
+     * </p>
+     */
+    BINARY_UNKNOWN_VALUE_TYPE;
 }
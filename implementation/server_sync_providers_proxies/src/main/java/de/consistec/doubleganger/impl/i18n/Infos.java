@@ -56,5 +56,40 @@ public enum Infos {
      * <b>Parameters</b>: revision.
      * </p>
      */
-    NEW_SERVER_REVISION;
+    NEW_SERVER_REVISION,
+    /**
+     * Prints information about a new snapshot of all server changes.
+     * <p>
+     * <b>Parameters</b>: revision, size in bytes.
+     * </p>
+     */
+    SNAPSHOT_BUILT,
+    /**
+     * Prints information about a snapshot sent to a new client.
+     * <p>
+     * <b>Parameters</b>: revision.
+     * </p>
+     */
+    SNAPSHOT_SENT,
+    /**
+     * Prints information about a snapshot received instead of all server changes.
+     * <p>
+     * <b>Parameters</b>: revision.
+     * </p>
+     */
+    SNAPSHOT_RECEIVED,
+    /**
+     * Prints information about a compressed request body.
+     * <p>
+     * <b>Parameters</b>: content encoding, uncompressed size, compressed size, saved bytes.
+     * </p>
+     */
+    REQUEST_COMPRESSED,
+    /**
+     * Prints information about a compressed response body.
+     * <p>
+     * <b>Parameters</b>: content encoding, uncompressed size, compressed size, saved bytes.
+     * </p>
+     */
+    RESPONSE_COMPRESSED;
 }
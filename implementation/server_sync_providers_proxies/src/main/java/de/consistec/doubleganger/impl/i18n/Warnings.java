@@ -42,5 +42,16 @@ public enum Warnings {
     /**
      * When server can't apply received client's changes because they are deprecated.
      */
-    CANT_APPLY_CHANGES_CLIENT_NOT_UP_TO_DATE;
+    CANT_APPLY_CHANGES_CLIENT_NOT_UP_TO_DATE,
+    /**
+     * When the server can't build a snapshot of all server changes.
+     */
+    CANT_BUILD_SNAPSHOT,
+    /**
+     * When an outdated snapshot file can't be deleted.
+     * <p>
+     * <b>Parameters</b>: file name.
+     * </p>
+     */
+    CANT_DELETE_SNAPSHOT;
 }
@@ -0,0 +1,106 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - ChangeListEntity.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import de.consistec.doubleganger.common.SyncData;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.impl.adapter.IChangeListWriter;
+import de.consistec.doubleganger.impl.adapter.ISerializationAdapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Request body which serializes a change set while it is sent.
+ * <p/>
+ * The changes are written one by one to the connection, so no serialized copy of the change set is held in
+ * memory. The body can be sent again, e.g. after an authentication challenge.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 21:40
+ */
+class ChangeListEntity extends AbstractHttpEntity {
+
+    private final SyncData syncData;
+    private final ISerializationAdapter serializationAdapter;
+
+    /**
+     * Creates a body for the change set.
+     *
+     * @param syncData change set with its revision
+     * @param serializationAdapter serializer of the change set
+     * @param contentType media type of the serialized change set
+     */
+    ChangeListEntity(SyncData syncData, ISerializationAdapter serializationAdapter, String contentType) {
+        this.syncData = syncData;
+        this.serializationAdapter = serializationAdapter;
+        setContentType(contentType);
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try {
+            IChangeListWriter writer = serializationAdapter.createChangeListWriter(out);
+            writer.onRevision(syncData.getRevision());
+            for (Change change : syncData.getChanges()) {
+                writer.onChange(change);
+            }
+            writer.finish();
+        } catch (SyncException e) {
+            throw new IOException(e.getLocalizedMessage(), e);
+        } catch (SerializationException e) {
+            throw new IOException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
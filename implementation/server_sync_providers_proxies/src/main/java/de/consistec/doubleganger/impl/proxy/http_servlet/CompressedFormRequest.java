@@ -0,0 +1,192 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - CompressedFormRequest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+
+import de.consistec.doubleganger.impl.i18n.Errors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Request whose compressed form parameters are decompressed and parsed by the servlet.
+ * <p/>
+ * Servlet containers only parse uncompressed form bodies, so the parameters of a body with a
+ * {@value HttpCompression#HEADER_NAME_CONTENT_ENCODING} are read here. The wrapper hides the content encoding.
+ * As the container's form size limit doesn't apply to them, the decompressed body is limited to a maximal size.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 21:20
+ */
+class CompressedFormRequest extends HttpServletRequestWrapper {
+
+    private static final String DEFAULT_CHARSET = "ISO-8859-1";
+    private static final int BUFFER_SIZE = 8192;
+    private final Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+    private final long compressedBytes;
+    private long uncompressedBytes;
+
+    /**
+     * Reads and parses the compressed form body of {@code request}.
+     *
+     * @param request request with a compressed body
+     * @param maxSize maximal size in bytes of the decompressed body
+     * @throws BodyTooLargeException if the decompressed body exceeds {@code maxSize}
+     * @throws IOException if the body can't be read or its content encoding isn't supported
+     */
+    CompressedFormRequest(HttpServletRequest request, long maxSize) throws IOException {
+        super(request);
+        compressedBytes = request.getContentLength();
+        String charset = request.getCharacterEncoding() == null ? DEFAULT_CHARSET : request.getCharacterEncoding();
+        parse(readBody(request, maxSize), charset);
+    }
+
+    /**
+     * Returns whether the body of the request is compressed.
+     *
+     * @param request http request
+     * @return {@code true} if the request has a content encoding
+     */
+    static boolean isCompressed(HttpServletRequest request) {
+        return request.getHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING) != null;
+    }
+
+    /**
+     * Returns the size of the compressed body.
+     *
+     * @return compressed size or -1 if the client didn't send it
+     */
+    long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Returns the size of the decompressed body.
+     *
+     * @return uncompressed size
+     */
+    long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (HttpCompression.HEADER_NAME_CONTENT_ENCODING.equalsIgnoreCase(name)) {
+            return null;
+        }
+        return super.getHeader(name);
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = parameters.get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    private String readBody(HttpServletRequest request, long maxSize) throws IOException {
+        InputStream in = HttpCompression.decompress(request.getInputStream(),
+            request.getHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING));
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read = in.read(buffer);
+            while (read >= 0) {
+                if (body.size() + (long) read > maxSize) {
+                    throw new BodyTooLargeException(read(Errors.REQUEST_BODY_TOO_LARGE, maxSize));
+                }
+                body.write(buffer, 0, read);
+                read = in.read(buffer);
+            }
+            uncompressedBytes = body.size();
+            // url encoded forms contain ascii characters only
+            return body.toString(DEFAULT_CHARSET);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void parse(String body, String charset) throws IOException {
+        Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+        for (String pair : body.split("&")) {
+            if (pair.length() == 0) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), charset);
+            String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), charset);
+            List<String> list = values.get(name);
+            if (list == null) {
+                list = newArrayList();
+                values.put(name, list);
+            }
+            list.add(value);
+        }
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            parameters.put(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+        }
+    }
+
+    /**
+     * Thrown if a decompressed request body exceeds the maximal size.
+     */
+    static class BodyTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param message the error message
+         */
+        BodyTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
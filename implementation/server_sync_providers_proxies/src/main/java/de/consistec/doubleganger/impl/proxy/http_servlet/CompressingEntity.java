@@ -0,0 +1,146 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - CompressingEntity.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * Request body which is compressed while it is sent.
+ * <p/>
+ * The sizes of the last sent body are kept, so the saved bytes can be reported.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 21:50
+ */
+class CompressingEntity extends HttpEntityWrapper {
+
+    private final String encoding;
+    private final int level;
+    private long uncompressedBytes;
+    private long compressedBytes;
+
+    /**
+     * Creates a compressed body.
+     *
+     * @param entity uncompressed body
+     * @param encoding content encoding, see {@link HttpCompression#compress(OutputStream, String, int)}
+     * @param level compression level
+     */
+    CompressingEntity(HttpEntity entity, String encoding, int level) {
+        super(entity);
+        this.encoding = encoding;
+        this.level = level;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return new BasicHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING, encoding);
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public InputStream getContent() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        CountingOutputStream compressed = new CountingOutputStream(out);
+        CountingOutputStream uncompressed = new CountingOutputStream(HttpCompression.compress(compressed,
+            encoding, level));
+        wrappedEntity.writeTo(uncompressed);
+        // writes the end of the compressed data and closes the chunked body
+        uncompressed.close();
+        uncompressedBytes = uncompressed.count;
+        compressedBytes = compressed.count;
+    }
+
+    /**
+     * Returns the content encoding.
+     *
+     * @return content encoding
+     */
+    String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns the uncompressed size of the last sent body.
+     *
+     * @return uncompressed size
+     */
+    long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * Returns the compressed size of the last sent body.
+     *
+     * @return compressed size
+     */
+    long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Counts the written bytes.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
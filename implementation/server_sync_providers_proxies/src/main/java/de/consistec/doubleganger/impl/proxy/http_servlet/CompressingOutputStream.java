@@ -0,0 +1,192 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - CompressingOutputStream.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Output stream which compresses a servlet response if it reaches a size threshold.
+ * <p/>
+ * Up to {@code threshold} bytes are buffered. When the threshold is reached, the
+ * {@value HttpCompression#HEADER_NAME_CONTENT_ENCODING} header is set and the response is compressed from then on,
+ * otherwise {@link #finish()} writes the buffered bytes as they are. So small responses aren't inflated by the
+ * compression overhead and large responses are still streamed.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 21:10
+ */
+class CompressingOutputStream extends OutputStream {
+
+    private final HttpServletResponse response;
+    private final String encoding;
+    private final int threshold;
+    private final int level;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private CountingOutputStream sent;
+    private OutputStream compressor;
+    private long uncompressedBytes;
+
+    /**
+     * Creates a stream which writes to the output stream of {@code response}.
+     *
+     * @param response servlet response
+     * @param encoding content encoding, see {@link HttpCompression#compress(OutputStream, String, int)}
+     * @param threshold minimal number of bytes which are compressed
+     * @param level compression level
+     */
+    CompressingOutputStream(HttpServletResponse response, String encoding, int threshold, int level) {
+        this.response = response;
+        this.encoding = encoding;
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        uncompressedBytes++;
+        if (compressor != null) {
+            compressor.write(b);
+            return;
+        }
+        buffer.write(b);
+        if (buffer.size() >= threshold) {
+            startCompression();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        uncompressedBytes += len;
+        if (compressor != null) {
+            compressor.write(b, off, len);
+            return;
+        }
+        buffer.write(b, off, len);
+        if (buffer.size() >= threshold) {
+            startCompression();
+        }
+    }
+
+    /**
+     * Flushes the compressed bytes. Bytes below the threshold stay buffered until more bytes are written or
+     * the response is finished.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        if (compressor != null) {
+            compressor.flush();
+        }
+    }
+
+    /**
+     * Completes the response, either with the end of the compressed data or with the buffered bytes.
+     *
+     * @throws IOException
+     */
+    void finish() throws IOException {
+        if (compressor != null) {
+            compressor.close();
+        } else if (buffer != null) {
+            OutputStream out = response.getOutputStream();
+            buffer.writeTo(out);
+            buffer = null;
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the content encoding of the compressed response.
+     *
+     * @return content encoding
+     */
+    String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns whether the response is compressed.
+     *
+     * @return {@code true} if the threshold was exceeded
+     */
+    boolean isCompressed() {
+        return compressor != null;
+    }
+
+    /**
+     * Returns the number of bytes written to this stream.
+     *
+     * @return uncompressed size
+     */
+    long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * Returns the number of bytes sent to the client.
+     *
+     * @return compressed size, after {@link #finish()}
+     */
+    long getSentBytes() {
+        return sent == null ? uncompressedBytes : sent.count;
+    }
+
+    private void startCompression() throws IOException {
+        response.setHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING, encoding);
+        sent = new CountingOutputStream(response.getOutputStream());
+        compressor = HttpCompression.compress(sent, encoding, level);
+        buffer.writeTo(compressor);
+        buffer = null;
+    }
+
+    /**
+     * Counts the bytes written to the servlet output stream.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
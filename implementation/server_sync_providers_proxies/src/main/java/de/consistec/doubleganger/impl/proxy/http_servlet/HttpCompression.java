@@ -0,0 +1,154 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - HttpCompression.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.i18n.MessageReader.read;
+
+import de.consistec.doubleganger.impl.i18n.Errors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content encodings of compressed http bodies.
+ * <p/>
+ * The client sends the encodings it can decode in the {@value #HEADER_NAME_ACCEPT_ENCODING} request header, the
+ * server sends the encodings it can decode in the same response header. Each side compresses the bodies it sends
+ * with an encoding the other side accepts.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 21:00
+ */
+final class HttpCompression {
+
+    /**
+     * Header name of the accepted content encodings.
+     */
+    static final String HEADER_NAME_ACCEPT_ENCODING = "Accept-Encoding";
+    /**
+     * Header name of the content encoding of a body.
+     */
+    static final String HEADER_NAME_CONTENT_ENCODING = "Content-Encoding";
+    /**
+     * The gzip content encoding.
+     */
+    static final String GZIP = "gzip";
+    /**
+     * The deflate (zlib) content encoding.
+     */
+    static final String DEFLATE = "deflate";
+    /**
+     * Value of the {@value #HEADER_NAME_ACCEPT_ENCODING} header.
+     */
+    static final String SUPPORTED_ENCODINGS = GZIP + ", " + DEFLATE;
+    /**
+     * Content encoding of uncompressed bodies.
+     */
+    static final String IDENTITY = "identity";
+    private static final String NOT_ACCEPTED = "q=0";
+
+    private HttpCompression() {
+    }
+
+    /**
+     * Chooses the content encoding of a body sent to the other side, gzip is preferred.
+     *
+     * @param acceptEncoding value of the {@value #HEADER_NAME_ACCEPT_ENCODING} header of the other side
+     * @return {@value #GZIP}, {@value #DEFLATE} or {@code null} if the other side accepts neither
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String token : acceptEncoding.toLowerCase(Locale.ENGLISH).split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim();
+            if (parts.length > 1 && NOT_ACCEPTED.equals(parts[1].replace(" ", "").replaceAll("\\.0*$", ""))) {
+                continue;
+            }
+            if (GZIP.equals(coding)) {
+                return GZIP;
+            }
+            deflate |= DEFLATE.equals(coding);
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    /**
+     * Creates a stream which compresses the written bytes. Closing it writes the end of the compressed data and
+     * closes {@code out}.
+     *
+     * @param out the underlying output stream
+     * @param encoding {@value #GZIP} or {@value #DEFLATE}
+     * @param level compression level from 1 to 9 or -1 for the default level
+     * @return compressing stream
+     * @throws IOException
+     */
+    static OutputStream compress(OutputStream out, String encoding, final int level) throws IOException {
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        if (DEFLATE.equals(encoding)) {
+            return new DeflaterOutputStream(out) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        throw new IOException(read(Errors.UNSUPPORTED_CONTENT_ENCODING, encoding));
+    }
+
+    /**
+     * Creates a stream which decompresses a body.
+     *
+     * @param in the compressed body
+     * @param encoding content encoding of the body, {@code null} if it isn't compressed
+     * @return decompressing stream or {@code in} if the body isn't compressed
+     * @throws IOException if the content encoding isn't supported
+     */
+    static InputStream decompress(InputStream in, String encoding) throws IOException {
+        if (encoding == null || IDENTITY.equalsIgnoreCase(encoding)) {
+            return in;
+        }
+        if (GZIP.equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(in);
+        }
+        if (DEFLATE.equalsIgnoreCase(encoding)) {
+            return new InflaterInputStream(in);
+        }
+        throw new IOException(read(Errors.UNSUPPORTED_CONTENT_ENCODING, encoding));
+    }
+}
@@ -25,6 +25,8 @@ package de.consistec.doubleganger.impl.proxy.http_servlet;
 import de.consistec.doubleganger.common.SyncContext;
 import de.consistec.doubleganger.impl.adapter.ISerializationAdapter;
 
+import java.io.InputStream;
+
 /**
  * This class contains the parameter values containing in the HttpRequest.
  *
@@ -38,7 +40,13 @@ public class HttpRequestParamValues {
     private ISerializationAdapter serializationAdapter;
     private String clientRevision;
     private String clientChanges;
+    private InputStream clientChangesStream;
     private String clientSettings;
+    private String table;
+    private String fingerprint;
+    private String pageSize;
+    private String continuationToken;
+    private String nextContinuationToken;
 
     /**
      * Constructor.
@@ -54,11 +62,62 @@ public class HttpRequestParamValues {
         final String clientRevision,
         final String clientChanges,
         final String clientSettings) {
+        this(ctx, serializationAdapter, clientRevision, clientChanges, clientSettings, null, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ctx server context
+     * @param serializationAdapter adapter for serialization
+     * @param clientRevision clients revision
+     * @param clientChanges clients changes
+     * @param clientSettings clients settings
+     * @param table table of a fingerprint request
+     * @param fingerprint serialized fingerprint nodes
+     */
+    public HttpRequestParamValues(final SyncContext.ServerContext ctx,
+        final ISerializationAdapter serializationAdapter,
+        final String clientRevision,
+        final String clientChanges,
+        final String clientSettings,
+        final String table,
+        final String fingerprint) {
+        this(ctx, serializationAdapter, clientRevision, clientChanges, clientSettings, table, fingerprint, null,
+            null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ctx server context
+     * @param serializationAdapter adapter for serialization
+     * @param clientRevision clients revision
+     * @param clientChanges clients changes
+     * @param clientSettings clients settings
+     * @param table table of a fingerprint request
+     * @param fingerprint serialized fingerprint nodes
+     * @param pageSize maximal number of changes of a page
+     * @param continuationToken continuation token of the last received page
+     */
+    public HttpRequestParamValues(final SyncContext.ServerContext ctx,
+        final ISerializationAdapter serializationAdapter,
+        final String clientRevision,
+        final String clientChanges,
+        final String clientSettings,
+        final String table,
+        final String fingerprint,
+        final String pageSize,
+        final String continuationToken) {
         this.ctx = ctx;
         this.serializationAdapter = serializationAdapter;
         this.clientRevision = clientRevision;
         this.clientChanges = clientChanges;
         this.clientSettings = clientSettings;
+        this.table = table;
+        this.fingerprint = fingerprint;
+        this.pageSize = pageSize;
+        this.continuationToken = continuationToken;
     }
 
     /**
@@ -97,6 +156,24 @@ public class HttpRequestParamValues {
         return clientChanges;
     }
 
+    /**
+     * The clients changes as raw request body, they are read with the serialization adapter.
+     *
+     * @return client changes with their revision or {@code null} if the changes are sent as request parameter
+     */
+    public InputStream getClientChangesStream() {
+        return clientChangesStream;
+    }
+
+    /**
+     * Sets the clients changes sent as raw request body.
+     *
+     * @param clientChangesStream client changes with their revision
+     */
+    public void setClientChangesStream(InputStream clientChangesStream) {
+        this.clientChangesStream = clientChangesStream;
+    }
+
     /**
      * The clients settings in http request.
      *
@@ -105,4 +182,58 @@ public class HttpRequestParamValues {
     public String getClientSettings() {
         return clientSettings;
     }
+
+    /**
+     * The table of a fingerprint request.
+     *
+     * @return table name
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * The serialized fingerprint nodes in http request.
+     *
+     * @return fingerprint nodes
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The maximal number of changes of a page in http request.
+     *
+     * @return page size or {@code null} if the changes aren't requested page by page
+     */
+    public String getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * The continuation token of the last received page in http request.
+     *
+     * @return continuation token or {@code null} for the first page
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * The continuation token of the page in the response.
+     *
+     * @return continuation token or {@code null} if the page was the last one
+     */
+    public String getNextContinuationToken() {
+        return nextContinuationToken;
+    }
+
+    /**
+     * Sets the continuation token of the page in the response.
+     *
+     * @param nextContinuationToken continuation token or {@code null} if the page was the last one
+     */
+    public void setNextContinuationToken(String nextContinuationToken) {
+        this.nextContinuationToken = nextContinuationToken;
+    }
 }
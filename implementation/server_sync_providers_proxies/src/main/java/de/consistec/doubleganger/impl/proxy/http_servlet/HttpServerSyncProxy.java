@@ -24,15 +24,22 @@ package de.consistec.doubleganger.impl.proxy.http_servlet;
  */
 import static de.consistec.doubleganger.common.i18n.MessageReader.read;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newArrayList;
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.ACTION;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.CHANGES;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.CONTINUATION_TOKEN;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.FINGERPRINT;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.PAGE_SIZE;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.REVISION;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.SETTINGS;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.TABLE;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.THREAD_ID;
 
 import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.SyncSettings;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SerializationException;
 import de.consistec.doubleganger.common.exception.ServerStatusException;
@@ -41,22 +48,26 @@ import de.consistec.doubleganger.common.server.IServerSyncProvider;
 import de.consistec.doubleganger.common.server.ServerStatus;
 import de.consistec.doubleganger.common.util.LoggingUtil;
 import de.consistec.doubleganger.common.util.StringUtil;
+import de.consistec.doubleganger.impl.adapter.BinarySerializationAdapter;
 import de.consistec.doubleganger.impl.adapter.ISerializationAdapter;
 import de.consistec.doubleganger.impl.adapter.JSONSerializationAdapter;
 import de.consistec.doubleganger.impl.i18n.Errors;
 import de.consistec.doubleganger.impl.i18n.Infos;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
@@ -64,10 +75,16 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.cal10n.LocLogger;
 
 /**
@@ -75,7 +92,14 @@ import org.slf4j.cal10n.LocLogger;
  * <p/>
  * This proxy invokes methods on remote synchronization server provider through http protocol.
  * It uses the {@link JSONSerializationAdapter serializer} to transform data to and from String.<br/>
- * Requests and responses are sended/received with use of org.apache.httpcomponents library.
+ * Requests and responses are sended/received with use of org.apache.httpcomponents library. Bodies of at least
+ * {@link Config#getCompressionThreshold()} bytes are compressed with gzip or deflate if the other side accepts it.
+ * <p/>
+ * Two protocol versions are spoken. With version {@value #PROTOCOL_VERSION_FORM} all values are sent as url encoded
+ * form fields. Servers which answer with the {@value #HEADER_NAME_PROTOCOL_VERSION} header
+ * {@value #PROTOCOL_VERSION_RAW} get the action, revision and the other short values as query parameters and the
+ * payload (settings, fingerprint or the change set in the binary format) as raw request body, which is streamed
+ * while it is serialized. The responses are decoded according to their content type.
  * <p/>
  * Objects of this class should <b>not</b> be created directly with {@code new} keyword. Instead, a canonical name
  * has to be specified in framework configuration. See {@link de.consistec.doubleganger.common.Config Config class}.
@@ -96,6 +120,40 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
      * an serialized server exception is in the http response.
      */
     protected static final String HEADER_NAME_EXCEPTION = "exception";
+    /**
+     * Header name in which the server stores the revision of a prebuilt snapshot sent instead of
+     * the changes since revision 0.
+     */
+    protected static final String HEADER_NAME_SNAPSHOT_REVISION = "snapshot_revision";
+    /**
+     * Header name in which the server stores the continuation token of a page of changes.
+     */
+    protected static final String HEADER_NAME_CONTINUATION_TOKEN = "continuation_token";
+    /**
+     * Header name of the media types the client accepts.
+     */
+    protected static final String HEADER_NAME_ACCEPT = "Accept";
+    /**
+     * Header name in which client and server tell the protocol version of their request and response.
+     */
+    protected static final String HEADER_NAME_PROTOCOL_VERSION = "protocol_version";
+    /**
+     * Protocol version which sends all values as url encoded form fields and url encoded responses.
+     */
+    protected static final int PROTOCOL_VERSION_FORM = 1;
+    /**
+     * Protocol version which sends the payload as raw request and response body.
+     */
+    protected static final int PROTOCOL_VERSION_RAW = 2;
+    /**
+     * Media type of raw JSON request and response bodies.
+     */
+    protected static final String CONTENT_TYPE_JSON = "application/json";
+    /**
+     * Media types the client accepts for change sets, the binary format is preferred.
+     */
+    private static final String ACCEPT_CHANGES = BinarySerializationAdapter.CONTENT_TYPE + ", text/plain;q=0.5";
+    private static final String UTF_8 = "UTF-8";
     private static final String PROPS_SERVER_URL = "url";
     private static final String PROPS_USERNAME = "username";
     private static final String PROPS_PASSWORD = "password";
@@ -103,7 +161,11 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
     private URI host;
     private Credentials credentials;
     private ISerializationAdapter serializationAdapter;
+    private final ISerializationAdapter binarySerializationAdapter = new BinarySerializationAdapter();
     private String threadId;
+    private volatile String requestEncoding;
+    private volatile int protocolVersion = PROTOCOL_VERSION_FORM;
+    private final AtomicLong bytesSavedByCompression = new AtomicLong();
 
     /**
      * Instantiates a new server sync provider proxy.
@@ -168,10 +230,9 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
             List<NameValuePair> data = newArrayList();
             data.add(new BasicNameValuePair(THREAD_ID.name(), threadId));
             data.add(new BasicNameValuePair(ACTION.name(), SyncAction.VALIDATE_SETTINGS.getStringName()));
-            data.add(new BasicNameValuePair(SETTINGS.name(),
-                serializationAdapter.serializeSettings(clientSettings).toString()));
 
-            request(data);
+            request(data, SETTINGS, jsonEntity(serializationAdapter.serializeSettings(clientSettings).toString()),
+                null);
         } catch (SerializationException e) {
             throw new SyncException(read(Errors.CANT_APPLY_CHANGES_SERIALIZATION_FAILURE), e);
         }
@@ -186,10 +247,15 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
             List<NameValuePair> data = newArrayList();
             data.add(new BasicNameValuePair(THREAD_ID.name(), threadId));
             data.add(new BasicNameValuePair(ACTION.name(), SyncAction.APPLY_CHANGES.getStringName()));
-            data.add(new BasicNameValuePair(CHANGES.name(),
-                serializationAdapter.serializeChangeList(clientData.getChanges()).toString()));
             data.add(new BasicNameValuePair(REVISION.name(), String.valueOf(clientData.getRevision())));
-            return Integer.parseInt(request(data));
+            HttpEntity changes;
+            if (protocolVersion >= PROTOCOL_VERSION_RAW) {
+                changes = new ChangeListEntity(clientData, binarySerializationAdapter,
+                    BinarySerializationAdapter.CONTENT_TYPE);
+            } else {
+                changes = jsonEntity(serializationAdapter.serializeChangeList(clientData.getChanges()).toString());
+            }
+            return Integer.parseInt(request(data, CHANGES, changes, null));
         } catch (SerializationException e) {
             throw new SyncException(read(Errors.CANT_APPLY_CHANGES_SERIALIZATION_FAILURE), e);
         }
@@ -199,6 +265,33 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
     public SyncData getChanges(int rev) throws SyncException {
         LOGGER.warn("--------------------------------------   Proxy called - get chages");
 
+        // the newer changes after a snapshot replace the collected rows
+        SyncData serverData = new SyncData();
+        getChanges(rev, serverData);
+        return serverData;
+    }
+
+    @Override
+    public int getChanges(int rev, IChangeListener listener) throws SyncException {
+
+        threadId = "1";
+
+        Map<String, String> responseHeaders = newHashMap();
+        int revision = requestChanges(rev, listener, responseHeaders);
+
+        String snapshotRevision = responseHeaders.get(HEADER_NAME_SNAPSHOT_REVISION);
+        if (snapshotRevision != null && Integer.parseInt(snapshotRevision) > rev) {
+            int snapshotRev = Integer.parseInt(snapshotRevision);
+            LOGGER.info(Infos.SNAPSHOT_RECEIVED, snapshotRev);
+            // the newer changes follow the snapshot, they replace the snapshot's rows
+            return getChanges(snapshotRev, listener);
+        }
+        return revision;
+    }
+
+    @Override
+    public SyncData getChanges(int rev, int pageSize, String continuationToken) throws SyncException {
+
         threadId = "1";
 
         try {
@@ -206,13 +299,65 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
             data.add(new BasicNameValuePair(THREAD_ID.name(), threadId));
             data.add(new BasicNameValuePair(ACTION.name(), SyncAction.GET_CHANGES.getStringName()));
             data.add(new BasicNameValuePair(REVISION.name(), String.valueOf(rev)));
-            String serializedResponse = request(data);
-            return serializationAdapter.deserializeMaxRevisionAndChangeList(serializedResponse);
+            data.add(new BasicNameValuePair(PAGE_SIZE.name(), String.valueOf(pageSize)));
+            if (continuationToken != null) {
+                data.add(new BasicNameValuePair(CONTINUATION_TOKEN.name(), continuationToken));
+            }
+            Map<String, String> responseHeaders = newHashMap();
+            String serializedResponse = request(data, null, null, responseHeaders);
+            SyncData page = serializationAdapter.deserializeMaxRevisionAndChangeList(serializedResponse);
+            page.setContinuationToken(responseHeaders.get(HEADER_NAME_CONTINUATION_TOKEN));
+            return page;
         } catch (SerializationException e) {
             throw new SyncException(read(Errors.CANT_GET_CHANGES_SERIALIZATION_FAILURE), e);
         }
     }
 
+    /**
+     * Requests the changes since {@code rev} and passes them to the listener while the response is read.
+     *
+     * @param rev client revision
+     * @param listener receives the revision and the changes
+     * @param responseHeaders receives the known headers of the response
+     * @return the revision of the change set
+     * @throws SyncException When synchronization fails.
+     */
+    private int requestChanges(int rev, IChangeListener listener, Map<String, String> responseHeaders) throws
+        SyncException {
+
+        List<NameValuePair> data = newArrayList();
+        data.add(new BasicNameValuePair(THREAD_ID.name(), threadId));
+        data.add(new BasicNameValuePair(ACTION.name(), SyncAction.GET_CHANGES.getStringName()));
+        data.add(new BasicNameValuePair(REVISION.name(), String.valueOf(rev)));
+
+        InputStream in = null;
+        try {
+            HttpResponse response = post(data, null, null, ACCEPT_CHANGES, responseHeaders);
+            HttpEntity entity = response.getEntity();
+            in = entity.getContent();
+            if (hasContentType(entity, BinarySerializationAdapter.CONTENT_TYPE)) {
+                return binarySerializationAdapter.deserializeMaxRevisionAndChangeList(in, listener);
+            }
+            if (!hasContentType(entity, CONTENT_TYPE_JSON)) {
+                // older servers and snapshots answer with url encoded JSON
+                in = new UrlDecodingInputStream(new BufferedInputStream(in));
+            }
+            return serializationAdapter.deserializeMaxRevisionAndChangeList(in, listener);
+        } catch (SerializationException e) {
+            throw new SyncException(read(Errors.CANT_GET_CHANGES_SERIALIZATION_FAILURE), e);
+        } catch (IOException e) {
+            throw new SyncException(e.getLocalizedMessage(), e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    LOGGER.debug("can't close response stream", e);
+                }
+            }
+        }
+    }
+
     @Override
     public Schema getSchema() throws SyncException {
 
@@ -222,27 +367,117 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
             List<NameValuePair> data = newArrayList();
             data.add(new BasicNameValuePair(THREAD_ID.name(), threadId));
             data.add(new BasicNameValuePair(ACTION.name(), SyncAction.GET_SCHEMA.getStringName()));
-            String serializedResponse = request(data);
+            String serializedResponse = request(data, null, null, null);
             return serializationAdapter.deserializeSchema(serializedResponse);
         } catch (SerializationException e) {
             throw new SyncException(read(Errors.CANT_GET_SCHEMA_SERIALIZATION_FAILURE), e);
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<FingerprintNode> getFingerprint(String table, List<FingerprintNode> parents) throws SyncException {
+
+        threadId = "1";
+
+        try {
+            List<NameValuePair> data = newArrayList();
+            data.add(new BasicNameValuePair(THREAD_ID.name(), threadId));
+            data.add(new BasicNameValuePair(ACTION.name(), SyncAction.GET_FINGERPRINT.getStringName()));
+            data.add(new BasicNameValuePair(TABLE.name(), table));
+            String serializedResponse = request(data, FINGERPRINT,
+                jsonEntity(serializationAdapter.serializeFingerprint(parents).toString()), null);
+            return serializationAdapter.deserializeFingerprint(serializedResponse);
+        } catch (SerializationException e) {
+            throw new SyncException(read(Errors.CANT_GET_FINGERPRINT_SERIALIZATION_FAILURE), e);
+        }
+    }
+
+    @Override
+    public SyncData getChangesForRanges(String table, List<FingerprintNode> ranges) throws SyncException {
+
+        threadId = "1";
+
+        try {
+            List<NameValuePair> data = newArrayList();
+            data.add(new BasicNameValuePair(THREAD_ID.name(), threadId));
+            data.add(new BasicNameValuePair(ACTION.name(), SyncAction.GET_RANGE_CHANGES.getStringName()));
+            data.add(new BasicNameValuePair(TABLE.name(), table));
+            String serializedResponse = request(data, FINGERPRINT,
+                jsonEntity(serializationAdapter.serializeFingerprint(ranges).toString()), null);
+            return serializationAdapter.deserializeMaxRevisionAndChangeList(serializedResponse);
+        } catch (SerializationException e) {
+            throw new SyncException(read(Errors.CANT_GET_CHANGES_SERIALIZATION_FAILURE), e);
+        }
+    }
+
     /**
      * Sends the http Request to server and returns its response as a JSON String.
      *
      * @param data Data to send
+     * @param payloadName name of the payload in a form request or {@code null} if nothing else is sent
+     * @param payload payload of the request or {@code null}
+     * @param responseHeaders if not {@code null}, receives the known headers of the response
      * @return Server response as a JSON String
      * @throws SyncException When synchronization fails.
      */
-    private String request(List<NameValuePair> data) throws SyncException {
+    private String request(List<NameValuePair> data, SyncRequestHttpParams payloadName, HttpEntity payload,
+        Map<String, String> responseHeaders) throws SyncException {
+
+        String response;
+        boolean raw;
+        try {
+            HttpEntity entity = post(data, payloadName, payload, null, responseHeaders).getEntity();
+            raw = hasContentType(entity, CONTENT_TYPE_JSON);
+            response = EntityUtils.toString(entity, UTF_8);
+            if (response == null) {
+                response = "";
+            }
+        } catch (IOException e) {
+            throw new SyncException(e.getLocalizedMessage(), e);
+        }
+        if (!raw) {
+            try {
+                response = URLDecoder.decode(response, UTF_8);
+            } catch (UnsupportedEncodingException e) {
+                throw new SyncException(e.getLocalizedMessage(), e);
+            }
+        }
+        LOGGER.debug("Server response size (in characters): {}", response.length());
+        return response;
+    }
+
+    private static HttpEntity jsonEntity(String json) {
+        return new StringEntity(json, ContentType.create(CONTENT_TYPE_JSON, UTF_8));
+    }
+
+    private static boolean hasContentType(HttpEntity entity, String mediaType) {
+        Header contentType = entity.getContentType();
+        return contentType != null && contentType.getValue().startsWith(mediaType);
+    }
+
+    /**
+     * Sends the http Request to server and returns the response, whose content is the result of the request.
+     * <p/>
+     * Error statuses and serialized server exceptions are thrown as {@link SyncException}. With protocol version
+     * {@value #PROTOCOL_VERSION_RAW} {@code data} is sent as query and the payload as request body, otherwise
+     * the payload is added to the form fields.
+     *
+     * @param data Data to send
+     * @param payloadName name of the payload in a form request or {@code null} if nothing else is sent
+     * @param payload payload of the request or {@code null}
+     * @param accept if not {@code null}, the media types the client accepts
+     * @param responseHeaders if not {@code null}, receives the known headers of the response
+     * @return the server response
+     * @throws SyncException When synchronization fails.
+     * @throws IOException When the request fails.
+     */
+    private HttpResponse post(List<NameValuePair> data, SyncRequestHttpParams payloadName, HttpEntity payload,
+        String accept, Map<String, String> responseHeaders) throws SyncException, IOException {
 
-        StringBuilder sb = new StringBuilder("");
         HttpPost post;
         DefaultHttpClient client;
         HttpResponse response;
-        BufferedReader in = null;
         ObjectInputStream oIn = null;
 
         try {
@@ -254,11 +489,32 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
                     credentials);
             }
 
-            post = new HttpPost(host);
-            UrlEncodedFormEntity entity = new UrlEncodedFormEntity(data);
-            post.setEntity(entity);
+            if (protocolVersion >= PROTOCOL_VERSION_RAW) {
+                post = new HttpPost(withQuery(data));
+                post.setHeader(HEADER_NAME_PROTOCOL_VERSION, String.valueOf(PROTOCOL_VERSION_RAW));
+                if (payload != null) {
+                    post.setEntity(compress(payload));
+                }
+            } else {
+                List<NameValuePair> form = data;
+                if (payload != null) {
+                    form = newArrayList(data);
+                    form.add(new BasicNameValuePair(payloadName.name(), EntityUtils.toString(payload, UTF_8)));
+                }
+                post = new HttpPost(host);
+                post.setEntity(compress(new UrlEncodedFormEntity(form)));
+            }
+            if (Config.getInstance().getCompressionThreshold() >= 0) {
+                post.setHeader(HttpCompression.HEADER_NAME_ACCEPT_ENCODING, HttpCompression.SUPPORTED_ENCODINGS);
+            }
+            if (accept != null) {
+                post.setHeader(HEADER_NAME_ACCEPT, accept);
+            }
 
             response = client.execute(post);
+            if (post.getEntity() instanceof CompressingEntity) {
+                recordSavings((CompressingEntity) post.getEntity());
+            }
 
             if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
 
@@ -278,42 +534,39 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
                 }
             }
 
+            protocolVersion = protocolVersion(response.getFirstHeader(HEADER_NAME_PROTOCOL_VERSION));
+            Header acceptEncoding = response.getFirstHeader(HttpCompression.HEADER_NAME_ACCEPT_ENCODING);
+            if (acceptEncoding != null) {
+                requestEncoding = HttpCompression.negotiate(acceptEncoding.getValue());
+            }
+            decompress(response);
+
+            Header snapshotRevision = response.getFirstHeader(HEADER_NAME_SNAPSHOT_REVISION);
+            if (responseHeaders != null && snapshotRevision != null) {
+                responseHeaders.put(HEADER_NAME_SNAPSHOT_REVISION, snapshotRevision.getValue());
+            }
+            Header continuationToken = response.getFirstHeader(HEADER_NAME_CONTINUATION_TOKEN);
+            if (responseHeaders != null && continuationToken != null) {
+                responseHeaders.put(HEADER_NAME_CONTINUATION_TOKEN, continuationToken.getValue());
+            }
+
             Header serverException = response.getFirstHeader(HEADER_NAME_EXCEPTION);
-            if (serverException != null) {
-                boolean isException = Boolean.valueOf(serverException.getValue());
-                if (isException) {
-                    oIn = new ObjectInputStream(response.getEntity().getContent());
-
-                    SyncException exception = (SyncException) oIn.readObject();
-                    LOGGER.error(Errors.SERVER_EXCEPTION_RECEIVED, exception);
-                    throw exception;
-                }
-            } else {
-                in = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                String line;
+            if (serverException != null && Boolean.valueOf(serverException.getValue())) {
+                oIn = new ObjectInputStream(response.getEntity().getContent());
 
-                while ((line = in.readLine()) != null) {
-                    sb.append(line);
-                }
+                SyncException exception = (SyncException) oIn.readObject();
+                LOGGER.error(Errors.SERVER_EXCEPTION_RECEIVED, exception);
+                throw exception;
             }
+            return response;
 
         } catch (ClientProtocolException e) {
             throw new SyncException(e.getLocalizedMessage(), e);
         } catch (IllegalStateException e) {
             throw new SyncException(e.getLocalizedMessage(), e);
-        } catch (IOException e) {
-            throw new SyncException(e.getLocalizedMessage(), e);
         } catch (ClassNotFoundException e) {
             throw new SyncException(e.getLocalizedMessage(), e);
         } finally {
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    throw new SyncException(e.getLocalizedMessage(), e);
-                }
-            }
-
             if (oIn != null) {
                 try {
                     oIn.close();
@@ -322,13 +575,91 @@ public class HttpServerSyncProxy implements IServerSyncProvider {
                 }
             }
         }
-        String decodedResponse;
+    }
+
+    /**
+     * Appends the values to the query of the server url.
+     *
+     * @param data values to send
+     * @return request uri
+     */
+    private URI withQuery(List<NameValuePair> data) {
+        String separator = host.getRawQuery() == null ? "?" : "&";
+        return URI.create(host.toString() + separator + URLEncodedUtils.format(data, UTF_8));
+    }
+
+    /**
+     * Returns the protocol version for the next requests. Servers which don't send a version only understand
+     * form requests.
+     *
+     * @param header protocol version header of the server response
+     * @return protocol version
+     */
+    private static int protocolVersion(Header header) {
+        if (header == null) {
+            return PROTOCOL_VERSION_FORM;
+        }
         try {
-            decodedResponse = URLDecoder.decode(sb.toString(), "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new SyncException(e.getLocalizedMessage(), e);
+            return Math.min(PROTOCOL_VERSION_RAW, Integer.parseInt(header.getValue().trim()));
+        } catch (NumberFormatException e) {
+            return PROTOCOL_VERSION_FORM;
         }
-        LOGGER.debug("Server response size (in bytes): {}", decodedResponse.getBytes());
-        return decodedResponse;
+    }
+
+    /**
+     * Compresses the request body while it is sent if the server accepts compressed requests and the body
+     * doesn't stay below the {@link Config#getCompressionThreshold() compression threshold}. Streamed bodies of
+     * unknown length are always compressed.
+     *
+     * @param entity uncompressed request body
+     * @return the compressing or the given body
+     */
+    private HttpEntity compress(HttpEntity entity) {
+        String encoding = requestEncoding;
+        int threshold = Config.getInstance().getCompressionThreshold();
+        long length = entity.getContentLength();
+        if (encoding == null || threshold < 0 || length >= 0 && length < threshold) {
+            return entity;
+        }
+        return new CompressingEntity(entity, encoding, Config.getInstance().getCompressionLevel());
+    }
+
+    private void recordSavings(CompressingEntity entity) {
+        long saved = entity.getUncompressedBytes() - entity.getCompressedBytes();
+        bytesSavedByCompression.addAndGet(saved);
+        LOGGER.info(Infos.REQUEST_COMPRESSED, entity.getEncoding(), entity.getUncompressedBytes(),
+            entity.getCompressedBytes(), saved);
+    }
+
+    /**
+     * Replaces a compressed response body with a decompressing one.
+     *
+     * @param response server response
+     * @throws IOException if the content encoding isn't supported
+     */
+    private void decompress(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        Header contentEncoding = entity == null ? null : entity.getContentEncoding();
+        if (contentEncoding == null || HttpCompression.IDENTITY.equalsIgnoreCase(contentEncoding.getValue())) {
+            return;
+        }
+        if (HttpCompression.GZIP.equalsIgnoreCase(contentEncoding.getValue())) {
+            response.setEntity(new GzipDecompressingEntity(entity));
+        } else if (HttpCompression.DEFLATE.equalsIgnoreCase(contentEncoding.getValue())) {
+            response.setEntity(new DeflateDecompressingEntity(entity));
+        } else {
+            throw new IOException(read(Errors.UNSUPPORTED_CONTENT_ENCODING, contentEncoding.getValue()));
+        }
+    }
+
+    /**
+     * Returns the number of bytes saved by compressed requests since this proxy was created.
+     * <p/>
+     * The bytes saved by compressed responses are reported by the server.
+     *
+     * @return saved bytes
+     */
+    public long getBytesSavedByCompression() {
+        return bytesSavedByCompression.get();
     }
 }
@@ -26,10 +26,15 @@ import static de.consistec.doubleganger.common.i18n.MessageReader.read;
 import static de.consistec.doubleganger.common.util.CollectionsUtil.newSyncMap;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.ACTION;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.CHANGES;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.CONTINUATION_TOKEN;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.FINGERPRINT;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.PAGE_SIZE;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.REVISION;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.SETTINGS;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.TABLE;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.THREAD_ID;
 
+import de.consistec.doubleganger.common.Config;
 import de.consistec.doubleganger.common.SyncContext;
 import de.consistec.doubleganger.common.TableSyncStrategies;
 import de.consistec.doubleganger.common.exception.ContextException;
@@ -40,20 +45,32 @@ import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapt
 import de.consistec.doubleganger.common.server.ServerStatus;
 import de.consistec.doubleganger.common.util.LoggingUtil;
 import de.consistec.doubleganger.common.util.StringUtil;
+import de.consistec.doubleganger.impl.adapter.BinarySerializationAdapter;
 import de.consistec.doubleganger.impl.adapter.ISerializationAdapter;
 import de.consistec.doubleganger.impl.adapter.JSONSerializationAdapter;
 import de.consistec.doubleganger.impl.commands.ApplyChangesCommand;
 import de.consistec.doubleganger.impl.commands.GetChangesCommand;
+import de.consistec.doubleganger.impl.commands.GetFingerprintCommand;
+import de.consistec.doubleganger.impl.commands.GetRangeChangesCommand;
 import de.consistec.doubleganger.impl.commands.GetSchemaCommand;
 import de.consistec.doubleganger.impl.commands.RequestCommand;
+import de.consistec.doubleganger.impl.commands.StreamingRequestCommand;
 import de.consistec.doubleganger.impl.commands.ValidateSettingsCommand;
 import de.consistec.doubleganger.impl.i18n.Errors;
+import de.consistec.doubleganger.impl.i18n.Infos;
 import de.consistec.doubleganger.impl.i18n.Warnings;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.sql.DataSource;
@@ -66,7 +83,18 @@ import org.slf4j.cal10n.LocLogger;
  * In it {@link #execute(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
  * method, the requests parameters are read, parsed and then appropriate method of
  * ServerContext is invoked. The result is parsed JSON String, append to
- * servlet response object and returned to client.
+ * servlet response object and returned to client. Results of {@link StreamingRequestCommand}s (the server changes)
+ * are url encoded and written to the response while they are read from the database, unless the client asks
+ * for a page of them. The continuation token of a page is sent in the
+ * {@value HttpServerSyncProxy#HEADER_NAME_CONTINUATION_TOKEN} header. Clients which accept the
+ * {@value BinarySerializationAdapter#CONTENT_TYPE} media type receive streamed server changes in the binary format
+ * of the {@link BinarySerializationAdapter} without url encoding.
+ * <p/>
+ * Requests with the {@value HttpServerSyncProxy#HEADER_NAME_PROTOCOL_VERSION} header
+ * {@value HttpServerSyncProxy#PROTOCOL_VERSION_RAW} carry their payload (settings, fingerprint or client changes)
+ * as raw request body, the other values are query parameters. They are answered with raw JSON (or binary) bodies.
+ * Requests without the header are form requests and get url encoded responses, so older clients keep working.
+ * Every response tells the client that the raw protocol is understood.
  *
  * @author Markus Backes
  * @company consistec Engineering and Consulting GmbH
@@ -76,6 +104,9 @@ import org.slf4j.cal10n.LocLogger;
 public class HttpServletProcessor {
 
     private static final LocLogger LOGGER = LoggingUtil.createLogger(HttpServletProcessor.class.getCanonicalName());
+    private static final String UTF_8 = "UTF-8";
+    private static final String CONTENT_TYPE_JSON = HttpServerSyncProxy.CONTENT_TYPE_JSON + ";charset=" + UTF_8;
+    private static final int BUFFER_SIZE = 4096;
     /**
      * Map that contains command objects to execute when requested.
      */
@@ -85,7 +116,10 @@ public class HttpServletProcessor {
      */
     protected boolean isDebugEnabled = false;
     private ISerializationAdapter serializationAdapter;
+    private final ISerializationAdapter binarySerializationAdapter = new BinarySerializationAdapter();
     private final SyncContext.ServerContext serverContext;
+    private SnapshotStore snapshots;
+    private final AtomicLong bytesSavedByCompression = new AtomicLong();
 
     /**
      * Creates new instance of servlet processor.
@@ -102,6 +136,7 @@ public class HttpServletProcessor {
         serializationAdapter = new JSONSerializationAdapter();
         this.isDebugEnabled = isDebugEnabled;
         initializeActionCommands();
+        initializeSnapshots();
     }
 
     /**
@@ -121,6 +156,7 @@ public class HttpServletProcessor {
         serializationAdapter = new JSONSerializationAdapter();
         this.isDebugEnabled = isDebugEnabled;
         initializeActionCommands();
+        initializeSnapshots();
     }
 
     /**
@@ -141,6 +177,7 @@ public class HttpServletProcessor {
         serializationAdapter = new JSONSerializationAdapter();
         this.isDebugEnabled = isDebugEnabled;
         initializeActionCommands();
+        initializeSnapshots();
     }
 
     /**
@@ -151,6 +188,19 @@ public class HttpServletProcessor {
         actionCommands.put(SyncAction.GET_CHANGES.getStringName(), new GetChangesCommand());
         actionCommands.put(SyncAction.APPLY_CHANGES.getStringName(), new ApplyChangesCommand());
         actionCommands.put(SyncAction.VALIDATE_SETTINGS.getStringName(), new ValidateSettingsCommand());
+        actionCommands.put(SyncAction.GET_FINGERPRINT.getStringName(), new GetFingerprintCommand());
+        actionCommands.put(SyncAction.GET_RANGE_CHANGES.getStringName(), new GetRangeChangesCommand());
+    }
+
+    /**
+     * Creates the snapshot store if a {@link Config#getSnapshotDirectory() snapshot directory} is configured.
+     */
+    private void initializeSnapshots() {
+        String directory = Config.getInstance().getSnapshotDirectory();
+        if (!StringUtil.isNullOrEmpty(directory)) {
+            snapshots = new SnapshotStore(new File(directory), Config.getInstance().getSnapshotInterval(),
+                serverContext, serializationAdapter);
+        }
     }
 
     /**
@@ -176,6 +226,22 @@ public class HttpServletProcessor {
     public void execute(HttpServletRequest req, HttpServletResponse resp) throws IOException, DatabaseAdapterException,
         SerializationException {
 
+        boolean raw = isRawProtocol(req);
+        if (!raw && CompressedFormRequest.isCompressed(req)) {
+            CompressedFormRequest decompressed;
+            try {
+                decompressed = new CompressedFormRequest(req, Config.getInstance().getMaxDecompressedRequestSize());
+            } catch (CompressedFormRequest.BodyTooLargeException e) {
+                LOGGER.warn(e.getLocalizedMessage());
+                resp.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getLocalizedMessage());
+                return;
+            }
+            recordSavings(Infos.REQUEST_COMPRESSED, req.getHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING),
+                decompressed.getUncompressedBytes(), decompressed.getCompressedBytes());
+            execute(decompressed, resp);
+            return;
+        }
+
         if (!StringUtil.isNullOrEmpty(req.getParameter(THREAD_ID.name()))) {
             MDC.put("thread-id", req.getParameter(THREAD_ID.name()));
         }
@@ -188,14 +254,76 @@ public class HttpServletProcessor {
             } else {
                 try {
 
-                    HttpRequestParamValues paramValues = new HttpRequestParamValues(serverContext, serializationAdapter,
-                        req.getParameter(REVISION.name()), req.getParameter(CHANGES.name()),
-                        req.getParameter(SETTINGS.name()));
+                    resp.setHeader(HttpCompression.HEADER_NAME_ACCEPT_ENCODING, HttpCompression.SUPPORTED_ENCODINGS);
+                    resp.setHeader(HttpServerSyncProxy.HEADER_NAME_PROTOCOL_VERSION,
+                        String.valueOf(HttpServerSyncProxy.PROTOCOL_VERSION_RAW));
+                    CompressingOutputStream compressed = createCompressingStream(req, resp);
+
+                    boolean paged = !StringUtil.isNullOrEmpty(req.getParameter(PAGE_SIZE.name()));
+                    if (snapshots != null && !paged && isInitialGetChanges(req) && sendSnapshot(resp, compressed)) {
+                        finish(compressed);
+                        return;
+                    }
+
+                    boolean binary = command instanceof StreamingRequestCommand && !paged && acceptsBinary(req);
+                    HttpRequestParamValues paramValues;
+                    if (raw) {
+                        paramValues = readRawRequest(req, binary);
+                    } else {
+                        paramValues = new HttpRequestParamValues(serverContext,
+                            binary ? binarySerializationAdapter : serializationAdapter,
+                            req.getParameter(REVISION.name()), req.getParameter(CHANGES.name()),
+                            req.getParameter(SETTINGS.name()), req.getParameter(TABLE.name()),
+                            req.getParameter(FINGERPRINT.name()), req.getParameter(PAGE_SIZE.name()),
+                            req.getParameter(CONTINUATION_TOKEN.name()));
+                    }
+                    if (binary) {
+                        resp.setContentType(BinarySerializationAdapter.CONTENT_TYPE);
+                        OutputStream out = compressed == null ? resp.getOutputStream() : compressed;
+                        ((StreamingRequestCommand) command).execute(paramValues, out);
+                        out.flush();
+                        finish(compressed);
+                        return;
+                    }
+                    if (command instanceof StreamingRequestCommand && !paged) {
+                        OutputStream out = new BufferedOutputStream(
+                            compressed == null ? resp.getOutputStream() : compressed);
+                        if (raw) {
+                            resp.setContentType(CONTENT_TYPE_JSON);
+                        } else {
+                            out = new UrlEncodingOutputStream(out);
+                        }
+                        ((StreamingRequestCommand) command).execute(paramValues, out);
+                        out.flush();
+                        finish(compressed);
+                        return;
+                    }
+
                     String response = command.execute(paramValues);
-                    if (response != null) {
-                        String encodedResponse = URLEncoder.encode(response, "UTF-8");
-                        resp.getWriter().print(encodedResponse);
-                        resp.getWriter().flush();
+                    if (paramValues.getNextContinuationToken() != null) {
+                        resp.addHeader(HttpServerSyncProxy.HEADER_NAME_CONTINUATION_TOKEN,
+                            paramValues.getNextContinuationToken());
+                    }
+                    if (response != null && raw) {
+                        resp.setContentType(CONTENT_TYPE_JSON);
+                        OutputStream out = compressed == null ? resp.getOutputStream() : compressed;
+                        out.write(response.getBytes(UTF_8));
+                        out.flush();
+                        finish(compressed);
+                    } else if (response != null) {
+                        String encodedResponse = URLEncoder.encode(response, UTF_8);
+                        if (compressed == null) {
+                            resp.getWriter().print(encodedResponse);
+                            resp.getWriter().flush();
+                        } else {
+                            // the url encoded response contains ascii characters only
+                            compressed.write(encodedResponse.getBytes("US-ASCII"));
+                            finish(compressed);
+                        }
+                    }
+                    if (snapshots != null && SyncAction.APPLY_CHANGES.getStringName().equals(
+                        req.getParameter(ACTION.name())) && response != null) {
+                        snapshots.onRevision(Integer.parseInt(response));
                     }
                 } catch (SyncException e) {
 
@@ -205,6 +333,11 @@ public class HttpServletProcessor {
                             LOGGER.warn(read(Warnings.CANT_APPLY_CHANGES_CLIENT_NOT_UP_TO_DATE));
                             resp.addHeader(HttpServerSyncProxy.HEADER_NAME_SERVER_EXCEPTION,
                                 String.valueOf(ServerStatus.CLIENT_NOT_UPTODATE.getCode()));
+                        } else if (ex.getStatus().equals(ServerStatus.BASE_ROW_CHANGED)) {
+                            // the client sends the full rows again
+                            LOGGER.info(ex.getMessage());
+                            resp.addHeader(HttpServerSyncProxy.HEADER_NAME_SERVER_EXCEPTION,
+                                String.valueOf(ServerStatus.BASE_ROW_CHANGED.getCode()));
                         } else {
                             LOGGER.warn(read(Errors.CANT_APPLY_CHANGES), e);
                         }
@@ -217,7 +350,162 @@ public class HttpServletProcessor {
         }
     }
 
+    /**
+     * Creates a stream which compresses the response if the client accepts a compressed response and compression
+     * is {@link Config#getCompressionThreshold() enabled}.
+     *
+     * @param req Http request received from client.
+     * @param resp Http response from invoking servlet.
+     * @return the stream or {@code null} if the response isn't compressed
+     */
+    private CompressingOutputStream createCompressingStream(HttpServletRequest req, HttpServletResponse resp) {
+        int threshold = Config.getInstance().getCompressionThreshold();
+        String encoding = HttpCompression.negotiate(req.getHeader(HttpCompression.HEADER_NAME_ACCEPT_ENCODING));
+        if (threshold < 0 || encoding == null) {
+            return null;
+        }
+        return new CompressingOutputStream(resp, encoding, threshold, Config.getInstance().getCompressionLevel());
+    }
+
+    private void finish(CompressingOutputStream compressed) throws IOException {
+        if (compressed != null) {
+            compressed.finish();
+            if (compressed.isCompressed()) {
+                recordSavings(Infos.RESPONSE_COMPRESSED, compressed.getEncoding(), compressed.getUncompressedBytes(),
+                    compressed.getSentBytes());
+            }
+        }
+    }
+
+    private void recordSavings(Infos message, String encoding, long uncompressedBytes, long compressedBytes) {
+        if (compressedBytes >= 0) {
+            long saved = uncompressedBytes - compressedBytes;
+            bytesSavedByCompression.addAndGet(saved);
+            LOGGER.info(message, encoding, uncompressedBytes, compressedBytes, saved);
+        }
+    }
+
+    /**
+     * Returns the number of bytes saved by compressed requests and responses since this processor was created.
+     *
+     * @return saved bytes
+     */
+    public long getBytesSavedByCompression() {
+        return bytesSavedByCompression.get();
+    }
+
+    private static boolean isRawProtocol(HttpServletRequest req) {
+        String version = req.getHeader(HttpServerSyncProxy.HEADER_NAME_PROTOCOL_VERSION);
+        return version != null && String.valueOf(HttpServerSyncProxy.PROTOCOL_VERSION_RAW).equals(version.trim());
+    }
+
+    /**
+     * Reads the values of a raw protocol request. The short values are query parameters, the payload is the
+     * request body. The client changes are deserialized by the command while the body is read, their format is
+     * given by the content type of the request.
+     *
+     * @param req Http request received from client.
+     * @param binary {@code true} if the response is sent in the binary format
+     * @return the request values
+     * @throws IOException
+     */
+    private HttpRequestParamValues readRawRequest(HttpServletRequest req, boolean binary) throws IOException {
+        SyncAction action = SyncAction.fromStringName(req.getParameter(ACTION.name()));
+        InputStream body = HttpCompression.decompress(req.getInputStream(),
+            req.getHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING));
+        String settings = null;
+        String fingerprint = null;
+        if (action == SyncAction.VALIDATE_SETTINGS) {
+            settings = readString(body);
+        } else if (action == SyncAction.GET_FINGERPRINT || action == SyncAction.GET_RANGE_CHANGES) {
+            fingerprint = readString(body);
+        }
+
+        boolean binaryChanges = action == SyncAction.APPLY_CHANGES && req.getContentType() != null
+            && req.getContentType().startsWith(BinarySerializationAdapter.CONTENT_TYPE);
+        HttpRequestParamValues paramValues = new HttpRequestParamValues(serverContext,
+            binary || binaryChanges ? binarySerializationAdapter : serializationAdapter,
+            req.getParameter(REVISION.name()), null, settings, req.getParameter(TABLE.name()), fingerprint,
+            req.getParameter(PAGE_SIZE.name()), req.getParameter(CONTINUATION_TOKEN.name()));
+        if (action == SyncAction.APPLY_CHANGES) {
+            paramValues.setClientChangesStream(body);
+        }
+        return paramValues;
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] bytes = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(bytes)) != -1) {
+            buffer.write(bytes, 0, read);
+        }
+        return buffer.toString(UTF_8);
+    }
+
+    private boolean acceptsBinary(HttpServletRequest req) {
+        String accept = req.getHeader(HttpServerSyncProxy.HEADER_NAME_ACCEPT);
+        return accept != null && accept.contains(BinarySerializationAdapter.CONTENT_TYPE);
+    }
+
+    private boolean isInitialGetChanges(HttpServletRequest req) {
+        return SyncAction.GET_CHANGES.getStringName().equals(req.getParameter(ACTION.name()))
+            && "0".equals(req.getParameter(REVISION.name()));
+    }
+
+    /**
+     * Sends the newest snapshot of all server changes to a new client.
+     * <p/>
+     * Without a snapshot a background build is started and the request has to be answered by the server context.
+     *
+     * @param resp Http response from invoking servlet.
+     * @param compressed compressing response stream or {@code null}
+     * @return {@code true} if a snapshot was sent
+     * @throws IOException
+     */
+    private boolean sendSnapshot(HttpServletResponse resp, CompressingOutputStream compressed) throws IOException {
+        SnapshotStore.Snapshot snapshot = snapshots.getNewestSnapshot();
+        if (snapshot == null) {
+            snapshots.onRevision(-1);
+            return false;
+        }
+
+        FileInputStream in = SnapshotStore.open(snapshot);
+        if (in == null) {
+            // deleted by a newer snapshot since it was looked up, the server context answers instead
+            return false;
+        }
+
+        try {
+            resp.addHeader(HttpServerSyncProxy.HEADER_NAME_SNAPSHOT_REVISION, String.valueOf(snapshot.getRevision()));
+            if (compressed == null) {
+                long length = in.getChannel().size();
+                if (length <= Integer.MAX_VALUE) {
+                    resp.setContentLength((int) length);
+                }
+                SnapshotStore.transferTo(in, resp.getOutputStream());
+            } else {
+                SnapshotStore.transferTo(in, compressed);
+            }
+        } finally {
+            in.close();
+        }
+        LOGGER.info(Infos.SNAPSHOT_SENT, snapshot.getRevision());
+        return true;
+    }
+
     private void writeExceptionOut(HttpServletResponse resp, Throwable th) throws IOException {
+        if (resp.isCommitted()) {
+            // a streamed response failed, the client notices the incomplete response
+            LOGGER.error(Errors.CANT_EXECUTE_SERVER_COMMAND, th.getLocalizedMessage());
+            return;
+        }
+        resp.resetBuffer();
+        if (resp.containsHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING)) {
+            // the exception is sent uncompressed
+            resp.setHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING, HttpCompression.IDENTITY);
+        }
+
         if (isDebugEnabled) {
             writeExceptionToHttpOutputStream(resp, th);
         } else {
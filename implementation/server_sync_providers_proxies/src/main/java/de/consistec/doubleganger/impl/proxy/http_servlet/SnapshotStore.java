@@ -0,0 +1,298 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - SnapshotStore.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import de.consistec.doubleganger.common.SyncContext;
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+import de.consistec.doubleganger.common.util.LoggingUtil;
+import de.consistec.doubleganger.impl.adapter.IChangeListWriter;
+import de.consistec.doubleganger.impl.adapter.ISerializationAdapter;
+import de.consistec.doubleganger.impl.i18n.Infos;
+import de.consistec.doubleganger.impl.i18n.Warnings;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.cal10n.LocLogger;
+
+/**
+ * Keeps a prebuilt snapshot of all server changes for new clients.
+ * <p/>
+ * A snapshot file holds the encoded response of a {@link SyncAction#GET_CHANGES} request with revision 0, so
+ * it can be sent to a new client byte by byte with {@link FileChannel#transferTo(long, long,
+ * java.nio.channels.WritableByteChannel) } instead of enumerating all server tables for every new client.
+ * The client asks for the changes newer than the revision of the snapshot afterwards.
+ * <p/>
+ * Snapshots are built in a background thread, when no snapshot exists yet or when an applied client change set
+ * brings the server revision {@code interval} revisions ahead of the newest snapshot. Older snapshots are deleted
+ * after a new one is complete. Snapshots found in the directory are reused after a restart.
+ * <p/>
+ * This class is thread safe.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 15:40
+ */
+public class SnapshotStore {
+
+    private static final LocLogger LOGGER = LoggingUtil.createLogger(SnapshotStore.class.getCanonicalName());
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.dat");
+    private static final String TEMP_SUFFIX = ".tmp";
+    private final File directory;
+    private final int interval;
+    private final SyncContext.ServerContext serverContext;
+    private final ISerializationAdapter serializationAdapter;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final ExecutorService executor;
+    private volatile Snapshot newest;
+
+    /**
+     * Creates a store which keeps its snapshots in {@code directory}.
+     *
+     * @param directory snapshot directory, it is created if it doesn't exist
+     * @param interval number of server revisions between two snapshots
+     * @param serverContext server context to read all changes from
+     * @param serializationAdapter serializer for the change list
+     */
+    public SnapshotStore(File directory, int interval, SyncContext.ServerContext serverContext,
+        ISerializationAdapter serializationAdapter) {
+        this.directory = directory;
+        this.interval = Math.max(1, interval);
+        this.serverContext = serverContext;
+        this.serializationAdapter = serializationAdapter;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "doubleganger-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.warn(Warnings.CANT_BUILD_SNAPSHOT);
+        }
+        newest = findNewestSnapshot();
+    }
+
+    /**
+     * Returns the newest complete snapshot.
+     *
+     * @return the snapshot or {@code null} if none was built yet
+     */
+    public Snapshot getNewestSnapshot() {
+        Snapshot snapshot = newest;
+        if (snapshot != null && !snapshot.getFile().isFile()) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Starts a snapshot build in the background if none exists yet or if {@code serverRevision} is at least
+     * {@code interval} revisions newer than the newest snapshot.
+     * <p/>
+     * Nothing happens while another build is running.
+     *
+     * @param serverRevision the current server revision or {@code -1} if it is unknown
+     */
+    public void onRevision(int serverRevision) {
+        Snapshot snapshot = getNewestSnapshot();
+        if (snapshot != null && serverRevision - snapshot.getRevision() < interval) {
+            return;
+        }
+        if (building.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        buildSnapshot();
+                    } catch (SyncException e) {
+                        LOGGER.warn(Warnings.CANT_BUILD_SNAPSHOT, e);
+                    } catch (SerializationException e) {
+                        LOGGER.warn(Warnings.CANT_BUILD_SNAPSHOT, e);
+                    } catch (IOException e) {
+                        LOGGER.warn(Warnings.CANT_BUILD_SNAPSHOT, e);
+                    } finally {
+                        building.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Builds a new snapshot from all server changes and deletes the older ones.
+     * <p/>
+     * The changes are streamed from the database into the file.
+     *
+     * @return the new snapshot or {@code null} if the server has no revision yet
+     * @throws SyncException
+     * @throws SerializationException
+     * @throws IOException
+     */
+    Snapshot buildSnapshot() throws SyncException, SerializationException, IOException {
+        File tempFile = new File(directory, "snapshot" + TEMP_SUFFIX);
+        int revision;
+        OutputStream out = new UrlEncodingOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            IChangeListWriter writer = serializationAdapter.createChangeListWriter(out);
+            revision = serverContext.getChanges(0, writer);
+            writer.finish();
+        } finally {
+            out.close();
+        }
+        if (revision == 0) {
+            // nothing was synchronized yet
+            if (!tempFile.delete()) {
+                LOGGER.warn(Warnings.CANT_DELETE_SNAPSHOT, tempFile.getName());
+            }
+            return null;
+        }
+
+        File file = new File(directory, "snapshot-" + revision + ".dat");
+        if (file.exists() && !file.delete() || !tempFile.renameTo(file)) {
+            throw new IOException(file.getAbsolutePath());
+        }
+
+        Snapshot snapshot = new Snapshot(revision, file);
+        newest = snapshot;
+        LOGGER.info(Infos.SNAPSHOT_BUILT, snapshot.getRevision(), file.length());
+        deleteOutdatedSnapshots(file);
+        return snapshot;
+    }
+
+    /**
+     * Opens the snapshot file for sending.
+     * <p/>
+     * An outdated snapshot can be deleted by a concurrent build at any time, an open stream still reads the
+     * complete file.
+     *
+     * @param snapshot the snapshot to send
+     * @return the opened file or {@code null} if the snapshot was deleted meanwhile
+     */
+    public static FileInputStream open(Snapshot snapshot) {
+        try {
+            return new FileInputStream(snapshot.getFile());
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Copies the opened snapshot to the output stream.
+     * <p/>
+     * The bytes are transferred by the file channel, so the operating system can copy them without
+     * passing them through java buffers.
+     *
+     * @param in snapshot file opened by {@link #open(Snapshot)}
+     * @param out output stream, e.g. of the servlet response
+     * @throws IOException
+     */
+    public static void transferTo(FileInputStream in, OutputStream out) throws IOException {
+        FileChannel channel = in.getChannel();
+        WritableByteChannel target = Channels.newChannel(out);
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            position += channel.transferTo(position, size - position, target);
+        }
+        out.flush();
+    }
+
+    private Snapshot findNewestSnapshot() {
+        Snapshot found = null;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = SNAPSHOT_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    int revision = Integer.parseInt(matcher.group(1));
+                    if (found == null || revision > found.getRevision()) {
+                        found = new Snapshot(revision, file);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private void deleteOutdatedSnapshots(File current) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.equals(current) && SNAPSHOT_NAME.matcher(file.getName()).matches() && !file.delete()) {
+                // a client may still read it, it will be deleted with the next snapshot
+                LOGGER.warn(Warnings.CANT_DELETE_SNAPSHOT, file.getName());
+            }
+        }
+    }
+
+    /**
+     * A snapshot file together with the server revision it contains.
+     */
+    public static final class Snapshot {
+
+        private final int revision;
+        private final File file;
+
+        private Snapshot(int revision, File file) {
+            this.revision = revision;
+            this.file = file;
+        }
+
+        /**
+         * Returns the server revision of the snapshot.
+         *
+         * @return server revision
+         */
+        public int getRevision() {
+            return revision;
+        }
+
+        /**
+         * Returns the snapshot file.
+         *
+         * @return snapshot file
+         */
+        public File getFile() {
+            return file;
+        }
+    }
+}
@@ -41,7 +41,9 @@ public enum SyncAction {
     GET_SCHEMA("getschema"),
     /**
      * Corresponds with {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getChanges(int) } method of
-     * server provider.
+     * server provider, or with
+     * {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getChanges(int, int, String) } if the
+     * request holds a page size.
      */
     GET_CHANGES("getchanges"),
     /**
@@ -58,7 +60,19 @@ public enum SyncAction {
      * method of
      * server provider.
      */
-    VALIDATE_SETTINGS("validate");
+    VALIDATE_SETTINGS("validate"),
+    /**
+     * Corresponds with
+     * {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getFingerprint(String, java.util.List) }
+     * method of server provider.
+     */
+    GET_FINGERPRINT("getfingerprint"),
+    /**
+     * Corresponds with
+     * {@link de.consistec.doubleganger.common.server.IServerSyncProvider#getChangesForRanges(String, java.util.List) }
+     * method of server provider.
+     */
+    GET_RANGE_CHANGES("getrangechanges");
 
     private String name;
 
@@ -25,6 +25,9 @@ package de.consistec.doubleganger.impl.proxy.http_servlet;
 
 /**
  * Enumeration of Http request parameters to be send with synchronization request.
+ * <p/>
+ * Form requests send all of them as form fields. Raw protocol requests send {@link #CHANGES}, {@link #SETTINGS}
+ * and {@link #FINGERPRINT} as request body and the others as query parameters.
  *
  * @author Piotr wieczorek
  * @company consistec Engineering and Consulting GmbH
@@ -52,5 +55,21 @@ public enum SyncRequestHttpParams {
     /**
      * SyncSettings from client or server.
      */
-    SETTINGS;
+    SETTINGS,
+    /**
+     * Header which holds the table name for fingerprint requests.
+     */
+    TABLE,
+    /**
+     * Header which holds the serialized fingerprint nodes.
+     */
+    FINGERPRINT,
+    /**
+     * Header which holds the maximal number of changes of a page of server changes.
+     */
+    PAGE_SIZE,
+    /**
+     * Header which holds the continuation token of the last received page of server changes.
+     */
+    CONTINUATION_TOKEN;
 }
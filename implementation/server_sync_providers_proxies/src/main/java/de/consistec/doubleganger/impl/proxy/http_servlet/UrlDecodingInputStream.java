@@ -0,0 +1,112 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - UrlDecodingInputStream.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream which decodes the bytes of an url encoded text like {@link java.net.URLDecoder#decode(String,
+ * String)} does, before they are decoded to characters.
+ * <p/>
+ * {@code +} is read as space and {@code %XY} as the byte {@code XY}. Line breaks are skipped, like the lines of a
+ * response were joined before they were decoded.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 17:10
+ */
+public class UrlDecodingInputStream extends FilterInputStream {
+
+    private static final int HEX_RADIX = 16;
+    private static final int NIBBLE_BITS = 4;
+
+    /**
+     * Creates a decoding stream which reads from {@code in}.
+     *
+     * @param in the underlying input stream with url encoded text
+     */
+    public UrlDecodingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = in.read();
+        while (value == '\r' || value == '\n') {
+            value = in.read();
+        }
+        if (value == '+') {
+            return ' ';
+        } else if (value == '%') {
+            return hexDigit(in.read()) << NIBBLE_BITS | hexDigit(in.read());
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            int value = read();
+            if (value < 0) {
+                break;
+            }
+            b[off + count] = (byte) value;
+            count++;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() >= 0) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private static int hexDigit(int value) throws IOException {
+        int digit = value < 0 ? -1 : Character.digit((char) value, HEX_RADIX);
+        if (digit < 0) {
+            throw new IOException("Illegal url encoded character: " + value);
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,82 @@
+package de.consistec.doubleganger.impl.proxy.http_servlet;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - UrlEncodingOutputStream.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which encodes the written bytes like {@link java.net.URLEncoder#encode(String, String)} does
+ * with the UTF-8 bytes of a string.
+ * <p/>
+ * Letters, digits and {@code .-*_} are written as they are, a space becomes {@code +} and every other byte
+ * is written as {@code %XY}. So a response can be encoded while it is written, without holding it as a string.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 17:05
+ */
+public class UrlEncodingOutputStream extends FilterOutputStream {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int BYTE_MASK = 0xFF;
+    private static final int NIBBLE_BITS = 4;
+    private static final int NIBBLE_MASK = 0x0F;
+
+    /**
+     * Creates an encoding stream which writes to {@code out}.
+     *
+     * @param out the underlying output stream
+     */
+    public UrlEncodingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        int value = b & BYTE_MASK;
+        if (isUnreserved(value)) {
+            out.write(value);
+        } else if (value == ' ') {
+            out.write('+');
+        } else {
+            out.write('%');
+            out.write(HEX_DIGITS[value >> NIBBLE_BITS]);
+            out.write(HEX_DIGITS[value & NIBBLE_MASK]);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(b[i]);
+        }
+    }
+
+    private static boolean isUnreserved(int value) {
+        return value >= 'a' && value <= 'z' || value >= 'A' && value <= 'Z' || value >= '0' && value <= '9'
+            || value == '.' || value == '-' || value == '*' || value == '_';
+    }
+}
@@ -0,0 +1,211 @@
+package de.consistec.doubleganger.impl.adapter;
+
+/*
+ * #%L
+ * Project - doubleganger
+ * File - BinarySerializationAdapterTest.java
+ * %%
+ * Copyright (C) 2011 - 2013 consistec GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static de.consistec.doubleganger.common.util.CollectionsUtil.newHashMap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.consistec.doubleganger.common.SyncData;
+import de.consistec.doubleganger.common.TestBase;
+import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.MDEntry;
+import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests of the binary change list format.
+ *
+ * @author agent
+ * @company consistec Engineering and Consulting GmbH
+ * @date 18.10.26 20:40
+ */
+public class BinarySerializationAdapterTest extends TestBase {
+
+    private static final String TABLENAME1 = "table1";
+    private static final String TABLENAME2 = "table2";
+    private static final String TEST_MDV = "7686876786sd9876786876";
+
+    @Test
+    public void testSyncDataSerialization() throws SerializationException {
+
+        SyncData data = new SyncData();
+        data.setRevision(300);
+        Timestamp timestamp = new Timestamp(1382100000123L);
+        timestamp.setNanos(123456789);
+        Map<String, Object> rowData = newHashMap();
+        rowData.put("int", -1);
+        rowData.put("long", Long.MAX_VALUE);
+        rowData.put("string", "a b/\u00e4\"]");
+        rowData.put("bool", true);
+        rowData.put("double", 4.5);
+        rowData.put("decimal", new BigDecimal("-12345678901234567890.0042"));
+        rowData.put("timestamp", timestamp);
+        rowData.put("date", java.sql.Date.valueOf("2013-10-18"));
+        rowData.put("null", null);
+        data.addChange(new Change(new MDEntry(1, true, 299, TABLENAME1, TEST_MDV), rowData));
+        Map<String, Object> deletedRow = newHashMap();
+        data.addChange(new Change(new MDEntry("key", false, 300, TABLENAME2, TEST_MDV), deletedRow));
+
+        final BinarySerializationAdapter adapter = new BinarySerializationAdapter();
+        final SyncData deserializedSyncData = adapter.deserializeMaxRevisionAndChangeList(
+            adapter.serializeChangeList(data));
+
+        assertEquals(data.getRevision(), deserializedSyncData.getRevision());
+        assertEquals("Original and deserialised tuples are different!", data.getChanges(),
+            deserializedSyncData.getChanges());
+        assertEquals(Timestamp.class, deserializedSyncData.getChanges().get(0).getRowData().get("timestamp")
+            .getClass());
+    }
+
+    @Test
+    public void testStreamedSyncDataSerialization() throws SerializationException, SyncException {
+
+        SyncData data = new SyncData();
+        data.setRevision(2);
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> rowData = newHashMap();
+            rowData.put("id", i);
+            rowData.put("name", "row" + i);
+            if (i == 2) {
+                // the columns of a table change, e.g. after a schema update
+                rowData.put("bytes", new byte[]{1, 2, 3});
+            }
+            data.addChange(new Change(new MDEntry(i, true, 1, TABLENAME1, TEST_MDV), rowData));
+        }
+
+        final BinarySerializationAdapter adapter = new BinarySerializationAdapter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IChangeListWriter writer = adapter.createChangeListWriter(out);
+        writer.onRevision(data.getRevision());
+        for (Change change : data.getChanges()) {
+            writer.onChange(change);
+        }
+        writer.finish();
+
+        assertArrayEquals("Streamed and serialized change lists are different!", adapter.serializeChangeList(data),
+            out.toByteArray());
+
+        SyncData deserializedSyncData = new SyncData();
+        int revision = adapter.deserializeMaxRevisionAndChangeList(new ByteArrayInputStream(out.toByteArray()),
+            deserializedSyncData);
+
+        assertEquals(data.getRevision(), revision);
+        assertEquals(data.getChanges().subList(0, 2), deserializedSyncData.getChanges().subList(0, 2));
+        assertArrayEquals(new byte[]{1, 2, 3},
+            (byte[]) deserializedSyncData.getChanges().get(2).getRowData().get("bytes"));
+    }
+
+    @Test
+    public void testColumnDeltaSerialization() throws SerializationException {
+
+        SyncData data = new SyncData();
+        data.setRevision(300);
+        Map<String, Object> rowData = newHashMap();
+        rowData.put("id", 1);
+        rowData.put("name", "full");
+        data.addChange(new Change(new MDEntry(1, true, 299, TABLENAME1, TEST_MDV), rowData));
+        Map<String, Object> changedColumns = newHashMap();
+        changedColumns.put("name", "delta");
+        Change delta = new Change(new MDEntry(2, true, 299, TABLENAME1, TEST_MDV), changedColumns);
+        delta.setBaseHash("D41D8CD98F00B204E9800998ECF8427E");
+        data.addChange(delta);
+
+        final BinarySerializationAdapter adapter = new BinarySerializationAdapter();
+        final SyncData deserializedSyncData = adapter.deserializeMaxRevisionAndChangeList(
+            adapter.serializeChangeList(data));
+
+        assertEquals(data.getChanges(), deserializedSyncData.getChanges());
+        assertEquals(null, deserializedSyncData.getChanges().get(0).getBaseHash());
+        assertEquals(delta.getBaseHash(), deserializedSyncData.getChanges().get(1).getBaseHash());
+    }
+
+    @Test
+    public void testSyncSerializationEmptyChangeList() throws SerializationException {
+
+        SyncData data = new SyncData();
+        data.setRevision(7);
+
+        final BinarySerializationAdapter adapter = new BinarySerializationAdapter();
+        final SyncData deserializedSyncData = adapter.deserializeMaxRevisionAndChangeList(
+            adapter.serializeChangeList(data));
+
+        assertEquals(7, deserializedSyncData.getRevision());
+        assertTrue(deserializedSyncData.getChanges().isEmpty());
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJSON() throws SerializationException {
+
+        SyncData data = new SyncData();
+        data.setRevision(1000);
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Object> rowData = newHashMap();
+            rowData.put("id", i);
+            rowData.put("quantity", i % 10);
+            rowData.put("price", 4.5);
+            rowData.put("available", Boolean.TRUE);
+            rowData.put("description", null);
+            data.addChange(new Change(new MDEntry(i, true, 1000, TABLENAME1, TEST_MDV), rowData));
+        }
+
+        int binarySize = new BinarySerializationAdapter().serializeChangeList(data).length;
+        int jsonSize = new JSONSerializationAdapter().serializeChangeList(data).length();
+
+        assertTrue("binary: " + binarySize + " bytes, JSON: " + jsonSize + " bytes", binarySize * 4 < jsonSize);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testDeserializeJSON() throws SerializationException {
+
+        final BinarySerializationAdapter adapter = new BinarySerializationAdapter();
+        adapter.deserializeMaxRevisionAndChangeList("[1]".getBytes());
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testDeserializeTruncatedHugeString() throws SerializationException {
+        // a dictionary whose table name claims a length of Integer.MAX_VALUE bytes
+        byte[] body = {(byte) BinaryFormat.MAGIC, BinaryFormat.VERSION, 0, BinaryFormat.RECORD_DICTIONARY, 0,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'a'};
+
+        new BinarySerializationAdapter().deserializeMaxRevisionAndChangeList(body);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testDeserializeTruncatedHugeColumnCount() throws SerializationException {
+        // a dictionary which claims Integer.MAX_VALUE columns
+        byte[] body = {(byte) BinaryFormat.MAGIC, BinaryFormat.VERSION, 0, BinaryFormat.RECORD_DICTIONARY, 0, 1, 't',
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 1, 'c'};
+
+        new BinarySerializationAdapter().deserializeMaxRevisionAndChangeList(body);
+    }
+}
@@ -38,10 +38,15 @@ import de.consistec.doubleganger.common.TestBase;
 import de.consistec.doubleganger.common.TestUtil;
 import de.consistec.doubleganger.common.conflict.ConflictStrategy;
 import de.consistec.doubleganger.common.data.Change;
+import de.consistec.doubleganger.common.data.FingerprintNode;
 import de.consistec.doubleganger.common.data.MDEntry;
 import de.consistec.doubleganger.common.data.schema.Schema;
 import de.consistec.doubleganger.common.exception.SerializationException;
+import de.consistec.doubleganger.common.exception.SyncException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -50,6 +55,7 @@ import java.util.Map;
 import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.Test;
 
 /**
@@ -140,6 +146,128 @@ public class JSONSerializationAdapterTest extends TestBase {
             deserializedSyncData.getChanges());
     }
 
+    @Test
+    public void testColumnDeltaSerialization() throws SerializationException {
+
+        SyncData data = new SyncData();
+        Map<String, Object> rowData = newHashMap();
+        rowData.put(COLUMNNAME1, 1);
+        rowData.put(COLUMNNAME2, TEST_STRING);
+        data.addChange(new Change(new MDEntry(1, true, 1, TABLENAME1, TEST_MDV), rowData));
+        Map<String, Object> changedColumns = newHashMap();
+        changedColumns.put(COLUMNNAME2, TEST_STRING);
+        Change delta = new Change(new MDEntry(2, true, 1, TABLENAME1, TEST_MDV), changedColumns);
+        delta.setBaseHash("D41D8CD98F00B204E9800998ECF8427E");
+        data.addChange(delta);
+
+        final JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        final SyncData deserializedSyncData = adapter.deserializeMaxRevisionAndChangeList(
+            adapter.serializeChangeList(data));
+
+        assertEquals(data.getChanges(), deserializedSyncData.getChanges());
+        assertEquals(null, deserializedSyncData.getChanges().get(0).getBaseHash());
+        assertEquals(delta.getBaseHash(), deserializedSyncData.getChanges().get(1).getBaseHash());
+    }
+
+    @Test
+    public void testStreamedSyncDataSerialization() throws SerializationException, SyncException, IOException {
+
+        SyncData data = new SyncData();
+        data.setRevision(2);
+        MDEntry entry = new MDEntry(1, true, 1, TABLENAME1, TEST_MDV);
+        Map<String, Object> rowData = newHashMap();
+        rowData.put(COLUMNNAME1, 1);
+        rowData.put(COLUMNNAME2, "a b/\u00e4\"]");
+        rowData.put(COLUMNNAME6, null);
+        data.addChange(new Change(entry, rowData));
+
+        entry = new MDEntry(2, false, 2, TABLENAME2, TEST_MDV);
+        rowData = newHashMap();
+        rowData.put(COLUMNNAME1, 2);
+        rowData.put(COLUMNNAME5, 3.14);
+        data.addChange(new Change(entry, rowData));
+
+        final JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IChangeListWriter writer = adapter.createChangeListWriter(out);
+        writer.onRevision(data.getRevision());
+        for (Change change : data.getChanges()) {
+            writer.onChange(change);
+        }
+        writer.finish();
+
+        assertEquals("Streamed and serialized change lists are different!", adapter.serializeChangeList(data),
+            out.toString("UTF-8"));
+
+        SyncData deserializedSyncData = new SyncData();
+        int revision = adapter.deserializeMaxRevisionAndChangeList(new ByteArrayInputStream(out.toByteArray()),
+            deserializedSyncData);
+
+        assertEquals(data.getRevision(), revision);
+        assertEquals(data.getRevision(), deserializedSyncData.getRevision());
+        assertEquals("Original and deserialised tuples are different!", data.getChanges(),
+            deserializedSyncData.getChanges());
+    }
+
+    @Test
+    public void testDeserializeOrgJsonChangeList() throws SerializationException, JSONException {
+
+        JSONObject mdEntry = new JSONObject();
+        mdEntry.put("tableName", TABLENAME1);
+        mdEntry.put("revision", 3);
+        mdEntry.put("primarykey", 7);
+        mdEntry.put("exists", true);
+        JSONObject jsonRowData = new JSONObject();
+        jsonRowData.put(COLUMNNAME1, 7);
+        jsonRowData.put(COLUMNNAME2, "a\tb</c\u2028\"");
+        jsonRowData.put(COLUMNNAME3, JSONObject.NULL);
+        jsonRowData.put(COLUMNNAME4, 2.5);
+        JSONObject change = new JSONObject();
+        change.put("rowdata", jsonRowData);
+        change.put("mdentry", mdEntry);
+        change.put("name", "change");
+        JSONArray array = new JSONArray();
+        array.put(3);
+        array.put(change);
+
+        SyncData data = new JSONSerializationAdapter().deserializeMaxRevisionAndChangeList(array.toString());
+
+        Map<String, Object> rowData = newHashMap();
+        rowData.put(COLUMNNAME1, 7);
+        rowData.put(COLUMNNAME2, "a\tb</c\u2028\"");
+        rowData.put(COLUMNNAME3, null);
+        rowData.put(COLUMNNAME4, 2.5);
+        assertEquals(3, data.getRevision());
+        assertEquals(1, data.getChanges().size());
+        assertEquals(new MDEntry(7, true, 3, TABLENAME1, null), data.getChanges().get(0).getMdEntry());
+        assertEquals(rowData, data.getChanges().get(0).getRowData());
+    }
+
+    @Test
+    public void testSerializedChangeListIsReadableByOrgJson() throws SerializationException, JSONException {
+
+        SyncData data = new SyncData();
+        data.setRevision(4);
+        Map<String, Object> rowData = newHashMap();
+        rowData.put(COLUMNNAME1, 1L);
+        rowData.put(COLUMNNAME2, "x\n\"y\"</z");
+        rowData.put(COLUMNNAME3, null);
+        data.addChange(new Change(new MDEntry("k\u00e4", false, 4, TABLENAME2, TEST_MDV), rowData));
+
+        JSONArray array = new JSONArray(new JSONSerializationAdapter().serializeChangeList(data));
+
+        assertEquals(4, array.getInt(0));
+        JSONObject change = array.getJSONObject(1);
+        assertEquals("change", change.getString("name"));
+        assertEquals(TABLENAME2, change.getJSONObject("mdentry").getString("tableName"));
+        assertEquals("k\u00e4", change.getJSONObject("mdentry").getString("primarykey"));
+        assertEquals(false, change.getJSONObject("mdentry").getBoolean("exists"));
+        assertEquals(4, change.getJSONObject("mdentry").getInt("revision"));
+        assertEquals(1L, change.getJSONObject("rowdata").getLong(COLUMNNAME1));
+        assertEquals("x\n\"y\"</z", change.getJSONObject("rowdata").getString(COLUMNNAME2));
+        assertTrue(change.getJSONObject("rowdata").isNull(COLUMNNAME3));
+    }
+
     @Test
     public void testSyncSerializationEmptyChangeList() throws SerializationException {
 
@@ -158,6 +286,21 @@ public class JSONSerializationAdapterTest extends TestBase {
     }
 
 
+    @Test
+    public void testFingerprintSerialization() throws SerializationException {
+
+        List<FingerprintNode> nodes = new ArrayList<FingerprintNode>();
+        nodes.add(new FingerprintNode(1, 0, null, 5, 4, TEST_MDV, false));
+        nodes.add(new FingerprintNode(1, 1, 5, null, 2, TEST_MDV, true));
+        nodes.add(new FingerprintNode(2, 3, TEST_STRING, "zzz", 1, TEST_MDV, true));
+
+        final JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        final List<FingerprintNode> deserializedNodes = adapter.deserializeFingerprint(
+            adapter.serializeFingerprint(nodes));
+
+        assertEquals("Original and deserialised fingerprint nodes are different!", nodes, deserializedNodes);
+    }
+
     @Test
     public void testSchemaSerialization() throws SerializationException {
 
@@ -31,11 +31,15 @@ import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncAction.GET_C
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncAction.GET_SCHEMA;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.ACTION;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.CHANGES;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.CONTINUATION_TOKEN;
+import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.PAGE_SIZE;
 import static de.consistec.doubleganger.impl.proxy.http_servlet.SyncRequestHttpParams.REVISION;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 
 import de.consistec.doubleganger.common.Config;
+import de.consistec.doubleganger.common.IChangeListener;
 import de.consistec.doubleganger.common.SyncData;
 import de.consistec.doubleganger.common.TestUtil;
 import de.consistec.doubleganger.common.data.Change;
@@ -46,20 +50,34 @@ import de.consistec.doubleganger.common.exception.SerializationException;
 import de.consistec.doubleganger.common.exception.SyncException;
 import de.consistec.doubleganger.common.exception.database_adapter.DatabaseAdapterException;
 import de.consistec.doubleganger.common.server.IServerSyncProvider;
+import de.consistec.doubleganger.impl.adapter.BinarySerializationAdapter;
 import de.consistec.doubleganger.impl.adapter.JSONSerializationAdapter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Field;
 import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.util.Date;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.reflect.Whitebox;
 
 /**
@@ -85,6 +103,10 @@ public class ServletProcessorTest {
     private static final String TEST_COLUMN1 = "TestColumn1";
     private static final String TEST_COLUMN2 = "TestColumn2";
     private static final String TEST_MDV = "7686876786sd9876786876";
+    private static final int SNAPSHOT_REVISION = 5;
+    private static final int PAGE_SIZE_VALUE = 1;
+    private static final String TOKEN = "1:5:TestTable:l1";
+    private static final String NEXT_TOKEN = "1:5:TestTable:l2";
 
     @BeforeClass
     public static void setUpClass() throws IOException {
@@ -143,10 +165,10 @@ public class ServletProcessorTest {
         Mockito.when(requestMock.getParameter(REVISION.name())).thenReturn("1");
         Mockito.when(requestMock.getContentLength()).thenReturn(MOCK_LENGTH);
 
-        Mockito.when(providerMock.getChanges(1)).thenReturn(expectedSyncData);
+        Mockito.when(providerMock.getChanges(Mockito.eq(1), Mockito.any(IChangeListener.class))).thenAnswer(
+            streamChanges(expectedSyncData));
 
-        StringWriter writer = new StringWriter();
-        Mockito.when(responseMock.getWriter()).thenReturn(new PrintWriter(writer));
+        ByteArrayOutputStream body = mockOutputStream(responseMock);
 
         HttpServletProcessor processor = new HttpServletProcessor(true);
         Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
@@ -154,12 +176,202 @@ public class ServletProcessorTest {
         processor.execute(requestMock, responseMock);
 
         JSONSerializationAdapter adapter = new JSONSerializationAdapter();
-        String decodedResponse = URLDecoder.decode(writer.toString(), "UTF-8");
+        assertEquals(URLEncoder.encode(adapter.serializeChangeList(expectedSyncData), "UTF-8"),
+            body.toString("UTF-8"));
+        String decodedResponse = URLDecoder.decode(body.toString("UTF-8"), "UTF-8");
         SyncData syndData = adapter.deserializeMaxRevisionAndChangeList(decodedResponse);
         assertEquals(expectedSyncData.getChanges(), syndData.getChanges());
         assertEquals(0, syndData.getRevision());
     }
 
+    @Test
+    public void testGetChangesBinary() throws IOException, SerializationException, SyncException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        SyncData expectedSyncData = new SyncData();
+        expectedSyncData.setRevision(1);
+
+        MDEntry entryOne = new MDEntry(1, true, 1, TEST_TABLE_NAME, TEST_MDV);
+        Map<String, Object> rowDataOne = newHashMap();
+        rowDataOne.put(TEST_COLUMN1, 1);
+        rowDataOne.put(TEST_COLUMN2, new Date(System.currentTimeMillis()));
+        expectedSyncData.addChange(new Change(entryOne, rowDataOne));
+
+        Mockito.when(requestMock.getParameter(ACTION.name())).thenReturn(GET_CHANGES.getStringName());
+        Mockito.when(requestMock.getParameter(REVISION.name())).thenReturn("1");
+        Mockito.when(requestMock.getHeader(HttpServerSyncProxy.HEADER_NAME_ACCEPT)).thenReturn(
+            BinarySerializationAdapter.CONTENT_TYPE + ", text/plain;q=0.5");
+
+        Mockito.when(providerMock.getChanges(Mockito.eq(1), Mockito.any(IChangeListener.class))).thenAnswer(
+            streamChanges(expectedSyncData));
+
+        ByteArrayOutputStream body = mockOutputStream(responseMock);
+
+        HttpServletProcessor processor = new HttpServletProcessor(true);
+        Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+        Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+        processor.execute(requestMock, responseMock);
+
+        Mockito.verify(responseMock).setContentType(BinarySerializationAdapter.CONTENT_TYPE);
+        SyncData syncData = new BinarySerializationAdapter().deserializeMaxRevisionAndChangeList(body.toByteArray());
+        assertEquals(expectedSyncData.getChanges(), syncData.getChanges());
+        assertEquals(1, syncData.getRevision());
+    }
+
+    @Test
+    public void testGetChangesFromSnapshot() throws IOException, SerializationException, SyncException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        SyncData expectedSyncData = new SyncData();
+        expectedSyncData.setRevision(SNAPSHOT_REVISION);
+
+        MDEntry entryOne = new MDEntry(1, true, SNAPSHOT_REVISION, TEST_TABLE_NAME, TEST_MDV);
+        Map<String, Object> rowDataOne = newHashMap();
+        rowDataOne.put(TEST_COLUMN1, 1);
+        rowDataOne.put(TEST_COLUMN2, "value");
+        expectedSyncData.addChange(new Change(entryOne, rowDataOne));
+
+        Mockito.when(requestMock.getParameter(ACTION.name())).thenReturn(GET_CHANGES.getStringName());
+        Mockito.when(requestMock.getParameter(REVISION.name())).thenReturn("0");
+        Mockito.when(requestMock.getContentLength()).thenReturn(MOCK_LENGTH);
+        Mockito.when(providerMock.getChanges(Mockito.eq(0), Mockito.any(IChangeListener.class))).thenAnswer(
+            streamChanges(expectedSyncData));
+
+        ByteArrayOutputStream body = mockOutputStream(responseMock);
+
+        File directory = new File("target/snapshots");
+        Config.getInstance().setSnapshotDirectory(directory.getPath());
+        try {
+            HttpServletProcessor processor = new HttpServletProcessor(true);
+            Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+            Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+            SnapshotStore snapshots = Whitebox.getInternalState(processor, SnapshotStore.class);
+            snapshots.buildSnapshot();
+
+            processor.execute(requestMock, responseMock);
+        } finally {
+            Config.getInstance().setSnapshotDirectory(null);
+        }
+
+        Mockito.verify(providerMock, Mockito.times(1)).getChanges(Mockito.eq(0),
+            Mockito.any(IChangeListener.class));
+        Mockito.verify(responseMock).addHeader(HttpServerSyncProxy.HEADER_NAME_SNAPSHOT_REVISION,
+            String.valueOf(SNAPSHOT_REVISION));
+        assertTrue(new File(directory, "snapshot-" + SNAPSHOT_REVISION + ".dat").isFile());
+
+        JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        String decodedResponse = URLDecoder.decode(body.toString("UTF-8"), "UTF-8");
+        SyncData syncData = adapter.deserializeMaxRevisionAndChangeList(decodedResponse);
+        assertEquals(expectedSyncData.getChanges(), syncData.getChanges());
+        assertEquals(SNAPSHOT_REVISION, syncData.getRevision());
+    }
+
+    @Test
+    public void testGetChangesFromDeletedSnapshot() throws IOException, SerializationException, SyncException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        SyncData expectedSyncData = new SyncData();
+        expectedSyncData.setRevision(SNAPSHOT_REVISION);
+
+        MDEntry entryOne = new MDEntry(1, true, SNAPSHOT_REVISION, TEST_TABLE_NAME, TEST_MDV);
+        Map<String, Object> rowDataOne = newHashMap();
+        rowDataOne.put(TEST_COLUMN1, 1);
+        rowDataOne.put(TEST_COLUMN2, "value");
+        expectedSyncData.addChange(new Change(entryOne, rowDataOne));
+
+        Mockito.when(requestMock.getParameter(ACTION.name())).thenReturn(GET_CHANGES.getStringName());
+        Mockito.when(requestMock.getParameter(REVISION.name())).thenReturn("0");
+        Mockito.when(requestMock.getContentLength()).thenReturn(MOCK_LENGTH);
+        Mockito.when(providerMock.getChanges(Mockito.eq(0), Mockito.any(IChangeListener.class))).thenAnswer(
+            streamChanges(expectedSyncData));
+
+        ByteArrayOutputStream body = mockOutputStream(responseMock);
+
+        File directory = new File("target/deleted-snapshots");
+        Config.getInstance().setSnapshotDirectory(directory.getPath());
+        try {
+            HttpServletProcessor processor = new HttpServletProcessor(true);
+            Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+            Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+            SnapshotStore snapshots = Whitebox.getInternalState(processor, SnapshotStore.class);
+            SnapshotStore.Snapshot snapshot = snapshots.buildSnapshot();
+
+            // a newer snapshot deletes the file after the processor looked it up
+            SnapshotStore racingSnapshots = Mockito.mock(SnapshotStore.class);
+            Mockito.when(racingSnapshots.getNewestSnapshot()).thenReturn(snapshot);
+            Whitebox.setInternalState(processor, SnapshotStore.class, racingSnapshots);
+            assertTrue(snapshot.getFile().delete());
+
+            processor.execute(requestMock, responseMock);
+        } finally {
+            Config.getInstance().setSnapshotDirectory(null);
+        }
+
+        // the snapshot build and the answer of the request
+        Mockito.verify(providerMock, Mockito.times(2)).getChanges(Mockito.eq(0),
+            Mockito.any(IChangeListener.class));
+        Mockito.verify(responseMock, Mockito.never()).addHeader(
+            Mockito.eq(HttpServerSyncProxy.HEADER_NAME_SNAPSHOT_REVISION), Mockito.anyString());
+
+        JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        String decodedResponse = URLDecoder.decode(body.toString("UTF-8"), "UTF-8");
+        SyncData syncData = adapter.deserializeMaxRevisionAndChangeList(decodedResponse);
+        assertEquals(expectedSyncData.getChanges(), syncData.getChanges());
+        assertEquals(SNAPSHOT_REVISION, syncData.getRevision());
+    }
+
+    @Test
+    public void testGetChangesPage() throws IOException, SerializationException, SyncException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        SyncData page = new SyncData();
+        page.setRevision(SNAPSHOT_REVISION);
+        page.setContinuationToken(NEXT_TOKEN);
+
+        MDEntry entryTwo = new MDEntry(2, true, SNAPSHOT_REVISION, TEST_TABLE_NAME, TEST_MDV);
+        Map<String, Object> rowDataTwo = newHashMap();
+        rowDataTwo.put(TEST_COLUMN1, 2);
+        rowDataTwo.put(TEST_COLUMN2, "value");
+        page.addChange(new Change(entryTwo, rowDataTwo));
+
+        Mockito.when(requestMock.getParameter(ACTION.name())).thenReturn(GET_CHANGES.getStringName());
+        Mockito.when(requestMock.getParameter(REVISION.name())).thenReturn("1");
+        Mockito.when(requestMock.getParameter(PAGE_SIZE.name())).thenReturn(String.valueOf(PAGE_SIZE_VALUE));
+        Mockito.when(requestMock.getParameter(CONTINUATION_TOKEN.name())).thenReturn(TOKEN);
+        Mockito.when(requestMock.getContentLength()).thenReturn(MOCK_LENGTH);
+        Mockito.when(providerMock.getChanges(1, PAGE_SIZE_VALUE, TOKEN)).thenReturn(page);
+
+        StringWriter writer = new StringWriter();
+        Mockito.when(responseMock.getWriter()).thenReturn(new PrintWriter(writer));
+
+        HttpServletProcessor processor = new HttpServletProcessor(true);
+        Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+        Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+        processor.execute(requestMock, responseMock);
+
+        Mockito.verify(providerMock, Mockito.never()).getChanges(Mockito.anyInt(),
+            Mockito.any(IChangeListener.class));
+        Mockito.verify(responseMock).addHeader(HttpServerSyncProxy.HEADER_NAME_CONTINUATION_TOKEN, NEXT_TOKEN);
+
+        JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        SyncData syncData = adapter.deserializeMaxRevisionAndChangeList(URLDecoder.decode(writer.toString(),
+            "UTF-8"));
+        assertEquals(page.getChanges(), syncData.getChanges());
+        assertEquals(SNAPSHOT_REVISION, syncData.getRevision());
+    }
+
     @Test
     public void testApplyChanges() throws SyncException, IOException, SerializationException, DatabaseAdapterException,
         ContextException, IllegalArgumentException, IllegalAccessException {
@@ -194,4 +406,245 @@ public class ServletProcessorTest {
 
         assertEquals(1, Integer.parseInt(writer.toString()));
     }
+
+    @Test
+    public void testGetChangesCompressed() throws IOException, SerializationException, SyncException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        SyncData expectedSyncData = new SyncData();
+
+        MDEntry entryOne = new MDEntry(1, true, 0, TEST_TABLE_NAME, TEST_MDV);
+        Map<String, Object> rowDataOne = newHashMap();
+        rowDataOne.put(TEST_COLUMN1, 1);
+        rowDataOne.put(TEST_COLUMN2, new Date(System.currentTimeMillis()));
+        expectedSyncData.addChange(new Change(entryOne, rowDataOne));
+
+        Mockito.when(requestMock.getParameter(ACTION.name())).thenReturn(GET_CHANGES.getStringName());
+        Mockito.when(requestMock.getParameter(REVISION.name())).thenReturn("1");
+        Mockito.when(requestMock.getHeader(HttpCompression.HEADER_NAME_ACCEPT_ENCODING)).thenReturn(
+            "deflate, gzip;q=1.0");
+
+        Mockito.when(providerMock.getChanges(Mockito.eq(1), Mockito.any(IChangeListener.class))).thenAnswer(
+            streamChanges(expectedSyncData));
+
+        ByteArrayOutputStream body = mockOutputStream(responseMock);
+
+        int threshold = Config.getInstance().getCompressionThreshold();
+        Config.getInstance().setCompressionThreshold(0);
+        try {
+            HttpServletProcessor processor = new HttpServletProcessor(true);
+            Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+            Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+            processor.execute(requestMock, responseMock);
+            assertTrue(processor.getBytesSavedByCompression() > 0);
+        } finally {
+            Config.getInstance().setCompressionThreshold(threshold);
+        }
+
+        Mockito.verify(responseMock).setHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING, HttpCompression.GZIP);
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()));
+        for (int b = in.read(); b >= 0; b = in.read()) {
+            decompressed.write(b);
+        }
+        JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        assertEquals(URLEncoder.encode(adapter.serializeChangeList(expectedSyncData), "UTF-8"),
+            decompressed.toString("UTF-8"));
+    }
+
+    @Test
+    public void testApplyCompressedChanges() throws SyncException, IOException, SerializationException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        SyncData syncData = new SyncData();
+        syncData.setRevision(1);
+
+        MDEntry entryOne = new MDEntry(1, true, 0, TEST_TABLE_NAME, TEST_MDV);
+        Map<String, Object> rowDataOne = newHashMap();
+        rowDataOne.put(TEST_COLUMN1, 1);
+        rowDataOne.put(TEST_COLUMN2, "a b&c=d");
+        syncData.addChange(new Change(entryOne, rowDataOne));
+
+        JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        String form = ACTION.name() + "=" + APPLY_CHANGES.getStringName() + "&" + REVISION.name() + "=1&"
+            + CHANGES.name() + "=" + URLEncoder.encode(adapter.serializeChangeList(syncData.getChanges()), "UTF-8");
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = new GZIPOutputStream(compressed);
+        out.write(form.getBytes("US-ASCII"));
+        out.close();
+
+        Mockito.when(requestMock.getHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING)).thenReturn(
+            HttpCompression.GZIP);
+        Mockito.when(requestMock.getContentLength()).thenReturn(compressed.size());
+        ServletInputStream body = mockInputStream(compressed.toByteArray());
+        Mockito.when(requestMock.getInputStream()).thenReturn(body);
+        Mockito.when(providerMock.applyChanges((SyncData) anyObject())).thenReturn(1);
+        StringWriter writer = new StringWriter();
+        Mockito.when(responseMock.getWriter()).thenReturn(new PrintWriter(writer));
+
+        HttpServletProcessor processor = new HttpServletProcessor(true);
+        Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+        Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+        processor.execute(requestMock, responseMock);
+
+        assertEquals(1, Integer.parseInt(writer.toString()));
+        ArgumentCaptor<SyncData> applied = ArgumentCaptor.forClass(SyncData.class);
+        Mockito.verify(providerMock).applyChanges(applied.capture());
+        assertEquals(syncData.getChanges(), applied.getValue().getChanges());
+    }
+
+    @Test
+    public void testApplyCompressedChangesTooLarge() throws SyncException, IOException, SerializationException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+
+        // a few hundred compressed bytes which decompress to one megabyte
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = new GZIPOutputStream(compressed);
+        out.write((ACTION.name() + "=" + APPLY_CHANGES.getStringName() + "&" + CHANGES.name() + "=").getBytes(
+            "US-ASCII"));
+        out.write(new byte[1024 * 1024]);
+        out.close();
+
+        Mockito.when(requestMock.getHeader(HttpCompression.HEADER_NAME_CONTENT_ENCODING)).thenReturn(
+            HttpCompression.GZIP);
+        Mockito.when(requestMock.getContentLength()).thenReturn(compressed.size());
+        ServletInputStream body = mockInputStream(compressed.toByteArray());
+        Mockito.when(requestMock.getInputStream()).thenReturn(body);
+
+        long maxSize = Config.getInstance().getMaxDecompressedRequestSize();
+        Config.getInstance().setMaxDecompressedRequestSize(64 * 1024);
+        try {
+            HttpServletProcessor processor = new HttpServletProcessor(true);
+            Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+            Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+            processor.execute(requestMock, responseMock);
+        } finally {
+            Config.getInstance().setMaxDecompressedRequestSize(maxSize);
+        }
+
+        Mockito.verify(responseMock).sendError(Mockito.eq(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE),
+            Mockito.anyString());
+        Mockito.verify(providerMock, Mockito.never()).applyChanges((SyncData) anyObject());
+    }
+
+    @Test
+    public void testGetSchemaRaw() throws IOException, SerializationException, SyncException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        Schema schema = TestUtil.getSchema();
+        Mockito.when(requestMock.getParameter(ACTION.name())).thenReturn(GET_SCHEMA.getStringName());
+        Mockito.when(requestMock.getHeader(HttpServerSyncProxy.HEADER_NAME_PROTOCOL_VERSION)).thenReturn(
+            String.valueOf(HttpServerSyncProxy.PROTOCOL_VERSION_RAW));
+        ServletInputStream body = mockInputStream(new byte[0]);
+        Mockito.when(requestMock.getInputStream()).thenReturn(body);
+        Mockito.when(providerMock.getSchema()).thenReturn(schema);
+        ByteArrayOutputStream response = mockOutputStream(responseMock);
+
+        HttpServletProcessor processor = new HttpServletProcessor(true);
+        Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+        Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+        processor.execute(requestMock, responseMock);
+
+        Mockito.verify(responseMock).setContentType(HttpServerSyncProxy.CONTENT_TYPE_JSON + ";charset=UTF-8");
+        Mockito.verify(responseMock).setHeader(HttpServerSyncProxy.HEADER_NAME_PROTOCOL_VERSION,
+            String.valueOf(HttpServerSyncProxy.PROTOCOL_VERSION_RAW));
+        JSONSerializationAdapter adapter = new JSONSerializationAdapter();
+        assertEquals(schema, adapter.deserializeSchema(response.toString("UTF-8")));
+    }
+
+    @Test
+    public void testApplyChangesRaw() throws SyncException, IOException, SerializationException,
+        DatabaseAdapterException, ContextException, IllegalArgumentException, IllegalAccessException {
+
+        HttpServletRequest requestMock = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse responseMock = Mockito.mock(HttpServletResponse.class);
+        IServerSyncProvider providerMock = Mockito.mock(IServerSyncProvider.class);
+        SyncData syncData = new SyncData();
+        syncData.setRevision(1);
+
+        MDEntry entryOne = new MDEntry(1, true, 0, TEST_TABLE_NAME, TEST_MDV);
+        Map<String, Object> rowDataOne = newHashMap();
+        rowDataOne.put(TEST_COLUMN1, 1);
+        rowDataOne.put(TEST_COLUMN2, "a b&c=d");
+        syncData.addChange(new Change(entryOne, rowDataOne));
+
+        ByteArrayOutputStream changes = new ByteArrayOutputStream();
+        new ChangeListEntity(syncData, new BinarySerializationAdapter(), BinarySerializationAdapter.CONTENT_TYPE)
+            .writeTo(changes);
+
+        Mockito.when(requestMock.getParameter(ACTION.name())).thenReturn(APPLY_CHANGES.getStringName());
+        Mockito.when(requestMock.getParameter(REVISION.name())).thenReturn("1");
+        Mockito.when(requestMock.getHeader(HttpServerSyncProxy.HEADER_NAME_PROTOCOL_VERSION)).thenReturn(
+            String.valueOf(HttpServerSyncProxy.PROTOCOL_VERSION_RAW));
+        Mockito.when(requestMock.getContentType()).thenReturn(BinarySerializationAdapter.CONTENT_TYPE);
+        ServletInputStream body = mockInputStream(changes.toByteArray());
+        Mockito.when(requestMock.getInputStream()).thenReturn(body);
+        Mockito.when(providerMock.applyChanges((SyncData) anyObject())).thenReturn(2);
+        ByteArrayOutputStream response = mockOutputStream(responseMock);
+
+        HttpServletProcessor processor = new HttpServletProcessor(true);
+        Field contextField = Whitebox.getField(HttpServletProcessor.class, "serverContext");
+        Whitebox.setInternalState(contextField.get(processor), IServerSyncProvider.class, providerMock);
+        processor.execute(requestMock, responseMock);
+
+        assertEquals("2", response.toString("UTF-8"));
+        ArgumentCaptor<SyncData> applied = ArgumentCaptor.forClass(SyncData.class);
+        Mockito.verify(providerMock).applyChanges(applied.capture());
+        assertEquals(1, applied.getValue().getRevision());
+        assertEquals(syncData.getChanges(), applied.getValue().getChanges());
+        Mockito.verify(requestMock, Mockito.never()).getParameter(CHANGES.name());
+    }
+
+    private static ServletInputStream mockInputStream(byte[] body) throws IOException {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+        ServletInputStream inputMock = Mockito.mock(ServletInputStream.class, Mockito.CALLS_REAL_METHODS);
+        Mockito.doAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return in.read();
+            }
+        }).when(inputMock).read();
+        return inputMock;
+    }
+
+    private static ByteArrayOutputStream mockOutputStream(HttpServletResponse responseMock) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ServletOutputStream outputMock = Mockito.mock(ServletOutputStream.class, Mockito.CALLS_REAL_METHODS);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                body.write((Integer) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(outputMock).write(Mockito.anyInt());
+        Mockito.when(responseMock.getOutputStream()).thenReturn(outputMock);
+        return body;
+    }
+
+    private static Answer<Integer> streamChanges(final SyncData syncData) {
+        return new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws SyncException {
+                IChangeListener listener = (IChangeListener) invocation.getArguments()[1];
+                listener.onRevision(syncData.getRevision());
+                for (Change change : syncData.getChanges()) {
+                    listener.onChange(change);
+                }
+                return syncData.getRevision();
+            }
+        };
+    }
 }